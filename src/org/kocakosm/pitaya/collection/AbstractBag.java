@@ -16,12 +16,22 @@
 
 package org.kocakosm.pitaya.collection;
 
+import org.kocakosm.pitaya.util.Parameters;
+
 import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Abstract skeleton implementation of the {@link Bag} interface. If you want to
  * provide your own {@code Bag} implementation, it is more than highly adviced
- * that you extend this abstract base class.
+ * that you extend this abstract base class. The bulk operations provided here
+ * are built on top of single-element ones (and on a full iteration for
+ * {@link #entrySet()}); implementations storing counts should override them.
  *
  * @param <E> the type of the elements in the bag.
  *
@@ -41,6 +51,72 @@ public abstract class AbstractBag<E> extends AbstractCollection<E> implements Ba
 		return count;
 	}
 
+	@Override
+	public int add(E e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		int count = count(e);
+		if ((long) count + occurrences > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Too many occurrences");
+		}
+		for (int i = 0; i < occurrences; i++) {
+			add(e);
+		}
+		return count;
+	}
+
+	@Override
+	public int remove(E e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		int count = count(e);
+		for (int i = Math.min(count, occurrences); i > 0; i--) {
+			remove(e);
+		}
+		return count;
+	}
+
+	@Override
+	public int setCount(E e, int count)
+	{
+		Parameters.checkCondition(count >= 0);
+		int current = count(e);
+		if (count > current) {
+			add(e, count - current);
+		} else {
+			remove(e, current - count);
+		}
+		return current;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c)
+	{
+		if (c instanceof Bag) {
+			return addAll((Bag<? extends E>) c);
+		}
+		return super.addAll(c);
+	}
+
+	@Override
+	public boolean addAll(Bag<? extends E> bag)
+	{
+		boolean modified = false;
+		for (Bag.Entry<? extends E> entry : bag.entrySet()) {
+			if (entry.getCount() > 0) {
+				add(entry.getElement(), entry.getCount());
+				modified = true;
+			}
+		}
+		return modified;
+	}
+
+	@Override
+	public Set<Bag.Entry<E>> entrySet()
+	{
+		return new EntrySet();
+	}
+
 	@Override
 	public boolean equals(Object o)
 	{
@@ -52,8 +128,8 @@ public abstract class AbstractBag<E> extends AbstractCollection<E> implements Ba
 		}
 		Bag bag = (Bag) o;
 		if (size() == bag.size()) {
-			for (E entry : this) {
-				if (count(entry) != bag.count(entry)) {
+			for (Bag.Entry<E> entry : entrySet()) {
+				if (entry.getCount() != bag.count(entry.getElement())) {
 					return false;
 				}
 			}
@@ -71,4 +147,66 @@ public abstract class AbstractBag<E> extends AbstractCollection<E> implements Ba
 		}
 		return hash;
 	}
+
+	/* Counts the elements of this bag, in iteration order. */
+	private Map<E, Integer> counts()
+	{
+		Map<E, Integer> counts = new LinkedHashMap<E, Integer>();
+		for (E e : this) {
+			Integer count = counts.get(e);
+			counts.put(e, count == null ? 1 : count + 1);
+		}
+		return counts;
+	}
+
+	private final class EntrySet extends AbstractSet<Bag.Entry<E>>
+	{
+		EntrySet()
+		{
+			/* ... */
+		}
+
+		@Override
+		public Iterator<Bag.Entry<E>> iterator()
+		{
+			final Iterator<Map.Entry<E, Integer>> entries =
+				counts().entrySet().iterator();
+			return new Iterator<Bag.Entry<E>>() {
+				private E current;
+				private boolean removable;
+
+				@Override
+				public boolean hasNext()
+				{
+					return entries.hasNext();
+				}
+
+				@Override
+				public Bag.Entry<E> next()
+				{
+					Map.Entry<E, Integer> entry = entries.next();
+					current = entry.getKey();
+					removable = true;
+					return AbstractBagEntry.of(current,
+						entry.getValue());
+				}
+
+				@Override
+				public void remove()
+				{
+					if (!removable) {
+						throw new IllegalStateException();
+					}
+					removable = false;
+					setCount(current, 0);
+				}
+			};
+		}
+
+		@Override
+		public int size()
+		{
+			return counts().size();
+		}
+	}
 }
@@ -0,0 +1,83 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.collection;
+
+/**
+ * Skeleton implementation of {@link Bag.Entry}, providing {@code equals},
+ * {@code hashCode} and {@code toString}.
+ *
+ * @param <E> the type of the element.
+ *
+ * @author Osman KOCAK
+ */
+abstract class AbstractBagEntry<E> implements Bag.Entry<E>
+{
+	/**
+	 * Returns an immutable {@code Bag.Entry}.
+	 *
+	 * @param <E> the type of the element.
+	 * @param e the entry's element.
+	 * @param count the entry's count.
+	 *
+	 * @return the created entry.
+	 */
+	static <E> Bag.Entry<E> of(final E e, final int count)
+	{
+		return new AbstractBagEntry<E>() {
+			@Override
+			public E getElement()
+			{
+				return e;
+			}
+
+			@Override
+			public int getCount()
+			{
+				return count;
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof Bag.Entry)) {
+			return false;
+		}
+		Bag.Entry<?> entry = (Bag.Entry<?>) o;
+		Object e = getElement();
+		return getCount() == entry.getCount() && (e == null
+			? entry.getElement() == null : e.equals(entry.getElement()));
+	}
+
+	@Override
+	public int hashCode()
+	{
+		Object e = getElement();
+		return (e == null ? 0 : e.hashCode()) ^ getCount();
+	}
+
+	@Override
+	public String toString()
+	{
+		return getElement() + " x " + getCount();
+	}
+}
@@ -22,6 +22,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -175,6 +176,15 @@ public final class ArrayBag<E> extends AbstractBag<E> implements Serializable
 		return entries.add(e);
 	}
 
+	@Override
+	public int add(E e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		int count = count(e);
+		entries.addAll(Collections.nCopies(occurrences, e));
+		return count;
+	}
+
 	@Override
 	public <T> T[] toArray(T[] a)
 	{
@@ -0,0 +1,77 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Unmodifiable {@code Iterator} over evenly spaced slots of an array. Its
+ * {@link Iterator#remove()} method always throws an
+ * {@link UnsupportedOperationException}.
+ *
+ * @param <E> the type of the {@code Iterator}'s elements.
+ *
+ * @author Osman KOCAK
+ */
+final class ArrayIterator<E> implements Iterator<E>
+{
+	private final Object[] array;
+	private final int step;
+	private final int end;
+	private int next;
+
+	/**
+	 * Creates a new {@code ArrayIterator}.
+	 *
+	 * @param array the array, whose slots must hold instances of
+	 *	{@code E}.
+	 * @param offset the position of the first element in the array.
+	 * @param step the distance between two consecutive elements.
+	 * @param size the number of elements.
+	 */
+	ArrayIterator(Object[] array, int offset, int step, int size)
+	{
+		this.array = array;
+		this.step = step;
+		this.end = offset + size * step;
+		this.next = offset;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return next < end;
+	}
+
+	@Override
+	public E next()
+	{
+		if (next >= end) {
+			throw new NoSuchElementException();
+		}
+		E e = (E) array[next];
+		next += step;
+		return e;
+	}
+
+	@Override
+	public void remove()
+	{
+		throw new UnsupportedOperationException();
+	}
+}
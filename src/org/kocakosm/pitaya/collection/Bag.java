@@ -46,4 +46,108 @@ public interface Bag<E> extends Collection<E>
 	 * @return the number of occurrences of {@code e} in this bag.
 	 */
 	int count(E e);
+
+	/**
+	 * Adds the given number of occurrences of the given element to this
+	 * bag.
+	 *
+	 * @param e the element to add.
+	 * @param occurrences the number of occurrences to add.
+	 *
+	 * @return the count of {@code e} before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code occurrences} is negative.
+	 * @throws IllegalStateException if the resulting count would overflow
+	 *	an {@code int}.
+	 * @throws UnsupportedOperationException if this bag is immutable.
+	 * @throws NullPointerException if {@code e} is {@code null} and this
+	 *	bag does not accept {@code null} elements.
+	 */
+	int add(E e, int occurrences);
+
+	/**
+	 * Removes the given number of occurrences of the given element from
+	 * this bag. If this bag contains fewer occurrences, all of them are
+	 * removed.
+	 *
+	 * @param e the element to remove.
+	 * @param occurrences the number of occurrences to remove.
+	 *
+	 * @return the count of {@code e} before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code occurrences} is negative.
+	 * @throws UnsupportedOperationException if this bag is immutable.
+	 */
+	int remove(E e, int occurrences);
+
+	/**
+	 * Adds or removes occurrences of the given element so that its count
+	 * in this bag becomes {@code count}.
+	 *
+	 * @param e the element whose count must be set.
+	 * @param count the desired count of {@code e}.
+	 *
+	 * @return the count of {@code e} before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code count} is negative.
+	 * @throws UnsupportedOperationException if this bag is immutable.
+	 * @throws NullPointerException if {@code e} is {@code null} while
+	 *	{@code count} is positive and this bag does not accept
+	 *	{@code null} elements.
+	 */
+	int setCount(E e, int count);
+
+	/**
+	 * Adds all the elements of the given bag to this bag, element by
+	 * element rather than occurrence by occurrence: the count of each
+	 * element in this bag is increased by its count in {@code bag}.
+	 *
+	 * @param bag the bag whose elements must be added to this bag.
+	 *
+	 * @return whether this bag has been modified.
+	 *
+	 * @throws NullPointerException if {@code bag} is {@code null} or if
+	 *	it contains {@code null} and this bag does not accept
+	 *	{@code null} elements.
+	 * @throws IllegalStateException if a resulting count would overflow
+	 *	an {@code int}.
+	 * @throws UnsupportedOperationException if this bag is immutable.
+	 */
+	boolean addAll(Bag<? extends E> bag);
+
+	/**
+	 * Returns a view of the distinct elements of this bag, along with their
+	 * counts. Removing an entry from the returned set removes all the
+	 * occurrences of its element from this bag. Whether the count of an
+	 * entry reflects subsequent changes of this bag is implementation
+	 * dependent.
+	 *
+	 * @return the distinct elements of this bag with their counts.
+	 */
+	Set<Entry<E>> entrySet();
+
+	/**
+	 * An element of a {@link Bag} along with its count. Two entries are
+	 * equal if they have equal elements and the same count; the hash code
+	 * of an entry is the hash code of its element ({@code 0} for
+	 * {@code null}) XORed with its count.
+	 *
+	 * @param <E> the type of the element.
+	 */
+	interface Entry<E>
+	{
+		/**
+		 * Returns this entry's element.
+		 *
+		 * @return this entry's element.
+		 */
+		E getElement();
+
+		/**
+		 * Returns the count of this entry's element.
+		 *
+		 * @return the count of this entry's element.
+		 */
+		int getCount();
+	}
 }
@@ -19,7 +19,9 @@ package org.kocakosm.pitaya.collection;
 import org.kocakosm.pitaya.util.Parameters;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Set;
 
 /**
  * Static utility methods that operate on or return {@link Bag}s.
@@ -92,18 +94,42 @@ public final class Bags
 			return a;
 		}
 
+		@Override
+		public Set<Bag.Entry<E>> entrySet()
+		{
+			return Collections.emptySet();
+		}
+
 		@Override
 		public boolean add(E e)
 		{
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public int add(E e, int occurrences)
+		{
+			throw new UnsupportedOperationException();
+		}
+
 		@Override
 		public boolean remove(Object o)
 		{
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public int remove(E e, int occurrences)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int setCount(E e, int count)
+		{
+			throw new UnsupportedOperationException();
+		}
+
 		@Override
 		public boolean containsAll(Collection<?> c)
 		{
@@ -117,6 +143,12 @@ public final class Bags
 			throw new UnsupportedOperationException();
 		}
 
+		@Override
+		public boolean addAll(Bag<? extends E> bag)
+		{
+			throw new UnsupportedOperationException();
+		}
+
 		@Override
 		public boolean removeAll(Collection<?> c)
 		{
@@ -19,17 +19,25 @@ package org.kocakosm.pitaya.collection;
 import org.kocakosm.pitaya.util.Parameters;
 
 import java.io.Serializable;
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A thread-safe variant of {@link HashBag} based on {@link ConcurrentHashMap}.
- * This implementation does not accept {@code null} elements.
+ * Each distinct element is stored once, along with an atomic counter of its
+ * occurrences: {@link #add(Object)}, {@link #remove(Object)} and
+ * {@link #count(Object)} run in constant time and never block. Iterators are
+ * weakly consistent: they return, for each distinct element, the first added
+ * instance as many times as it occurs when the iterator reaches it. This
+ * implementation does not accept {@code null} elements.
  *
  * @param <E> the type of the elements in the bag.
  *
@@ -38,9 +46,13 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public final class ConcurrentHashBag<E>
 	extends AbstractBag<E> implements ConcurrentBag<E>, Serializable
 {
-	private static final long serialVersionUID = 7336345430492192446L;
+	private static final long serialVersionUID = 5921733270841568315L;
 
-	private final ConcurrentMap<E, CopyOnWriteArrayList<E>> entries;
+	/*
+	 * Counters reaching 0 are dead: they are removed from the map and must
+	 * never be incremented again, so that no update can be lost.
+	 */
+	private final ConcurrentMap<E, AtomicInteger> entries;
 
 	/** Creates a new empty {@code ConcurrentHashBag}. */
 	public ConcurrentHashBag()
@@ -59,7 +71,7 @@ public final class ConcurrentHashBag<E>
 	public ConcurrentHashBag(int initialCapacity)
 	{
 		Parameters.checkCondition(initialCapacity >= 0);
-		this.entries = new ConcurrentHashMap<E, CopyOnWriteArrayList<E>>(initialCapacity);
+		this.entries = new ConcurrentHashMap<E, AtomicInteger>(initialCapacity);
 	}
 
 	/**
@@ -128,7 +140,89 @@ public final class ConcurrentHashBag<E>
 	@Override
 	public boolean add(E e)
 	{
-		return getEntry(e).add(e);
+		add(e, 1);
+		return true;
+	}
+
+	@Override
+	public int add(E e, int occurrences)
+	{
+		Parameters.checkNotNull(e);
+		Parameters.checkCondition(occurrences >= 0);
+		if (occurrences == 0) {
+			return occurrences(e);
+		}
+		while (true) {
+			AtomicInteger count = entries.get(e);
+			if (count == null) {
+				count = entries.putIfAbsent(e,
+					new AtomicInteger(occurrences));
+				if (count == null) {
+					return 0;
+				}
+			}
+			int previous = increment(count, occurrences);
+			if (previous > 0) {
+				return previous;
+			}
+			entries.remove(e, count);
+		}
+	}
+
+	@Override
+	public int remove(E e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		AtomicInteger count = e == null ? null : entries.get(e);
+		if (count == null) {
+			return 0;
+		}
+		while (true) {
+			int n = count.get();
+			if (n == 0 || occurrences == 0) {
+				return n;
+			}
+			int m = Math.max(0, n - occurrences);
+			if (count.compareAndSet(n, m)) {
+				if (m == 0) {
+					entries.remove(e, count);
+				}
+				return n;
+			}
+		}
+	}
+
+	@Override
+	public int setCount(E e, int count)
+	{
+		Parameters.checkNotNull(e);
+		Parameters.checkCondition(count >= 0);
+		if (count == 0) {
+			return removeAll(e);
+		}
+		while (true) {
+			AtomicInteger c = entries.get(e);
+			if (c == null) {
+				c = entries.putIfAbsent(e, new AtomicInteger(count));
+				if (c == null) {
+					return 0;
+				}
+			}
+			int n = c.get();
+			while (n > 0 && !c.compareAndSet(n, count)) {
+				n = c.get();
+			}
+			if (n > 0) {
+				return n;
+			}
+			entries.remove(e, c);
+		}
+	}
+
+	@Override
+	public Set<Bag.Entry<E>> entrySet()
+	{
+		return new EntrySet();
 	}
 
 	@Override
@@ -146,40 +240,65 @@ public final class ConcurrentHashBag<E>
 	@Override
 	public boolean addIfAbsent(E e)
 	{
-		return getEntry(e).addIfAbsent(e);
+		Parameters.checkNotNull(e);
+		while (true) {
+			AtomicInteger count = entries.putIfAbsent(e,
+				new AtomicInteger(1));
+			if (count == null) {
+				return true;
+			}
+			if (count.get() > 0) {
+				return false;
+			}
+			entries.remove(e, count);
+		}
 	}
 
 	@Override
 	public void clear()
 	{
-		entries.clear();
+		for (E e : entries.keySet()) {
+			removeAll(e);
+		}
 	}
 
 	@Override
 	public boolean contains(Object o)
 	{
-		List<E> entry = entries.get(o);
-		return entry == null ? false : !entry.isEmpty();
+		return occurrences(o) > 0;
 	}
 
 	@Override
 	public int count(E e)
 	{
-		List<E> entry = entries.get(e);
-		return entry == null ? 0 : entry.size();
+		return occurrences(e);
 	}
 
 	@Override
 	public Iterator<E> iterator()
 	{
-		return Iterables.concat(entries.values()).iterator();
+		return new BagIterator();
 	}
 
 	@Override
 	public boolean remove(Object o)
 	{
-		List<E> entry = entries.get(o);
-		return entry == null ? false : entry.remove(o);
+		AtomicInteger count = o == null ? null : entries.get(o);
+		if (count == null) {
+			return false;
+		}
+		while (true) {
+			int n = count.get();
+			if (n == 0) {
+				return false;
+			}
+			if (count.compareAndSet(n, n - 1)) {
+				if (n == 1) {
+					entries.remove(o, count);
+				}
+				return true;
+			}
+		}
 	}
 
 	@Override
@@ -187,7 +306,7 @@ public final class ConcurrentHashBag<E>
 	{
 		boolean removed = false;
 		for (Object o : c) {
-			removed |= entries.remove(o) != null;
+			removed |= removeAll(o) > 0;
 		}
 		return removed;
 	}
@@ -196,8 +315,10 @@ public final class ConcurrentHashBag<E>
 	public boolean retainAll(Collection<?> c)
 	{
 		boolean updated = false;
-		for (List<E> entry : entries.values()) {
-			updated |= entry.retainAll(c);
+		for (E e : entries.keySet()) {
+			if (!c.contains(e)) {
+				updated |= removeAll(e) > 0;
+			}
 		}
 		return updated;
 	}
@@ -205,16 +326,179 @@ public final class ConcurrentHashBag<E>
 	@Override
 	public int size()
 	{
-		int size = 0;
-		for (List<E> value : entries.values()) {
-			size += value.size();
+		long size = 0;
+		for (AtomicInteger count : entries.values()) {
+			size += count.get();
+		}
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	private int occurrences(Object o)
+	{
+		AtomicInteger count = o == null ? null : entries.get(o);
+		return count == null ? 0 : count.get();
+	}
+
+	/* Removes all the occurrences of o, returns how many there were. */
+	private int removeAll(Object o)
+	{
+		AtomicInteger count = o == null ? null : entries.get(o);
+		if (count == null) {
+			return 0;
+		}
+		int n = count.getAndSet(0);
+		entries.remove(o, count);
+		return n;
+	}
+
+	/* Adds k to a live counter, returns its previous value (0 if dead). */
+	private static int increment(AtomicInteger count, int k)
+	{
+		while (true) {
+			int n = count.get();
+			if (n == 0) {
+				return 0;
+			}
+			if (n > Integer.MAX_VALUE - k) {
+				throw new IllegalStateException("Too many occurrences");
+			}
+			if (count.compareAndSet(n, n + k)) {
+				return n;
+			}
+		}
+	}
+
+	private final class BagIterator implements Iterator<E>
+	{
+		private final Iterator<Map.Entry<E, AtomicInteger>> entries;
+		private E current;
+		private int remaining;
+		private E last;
+		private boolean removable;
+
+		BagIterator()
+		{
+			this.entries = ConcurrentHashBag.this.entries.entrySet()
+				.iterator();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (remaining == 0 && entries.hasNext()) {
+				Map.Entry<E, AtomicInteger> entry = entries.next();
+				current = entry.getKey();
+				remaining = entry.getValue().get();
+			}
+			return remaining > 0;
+		}
+
+		@Override
+		public E next()
+		{
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			remaining--;
+			last = current;
+			removable = true;
+			return last;
+		}
+
+		@Override
+		public void remove()
+		{
+			if (!removable) {
+				throw new IllegalStateException();
+			}
+			removable = false;
+			ConcurrentHashBag.this.remove(last);
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Bag.Entry<E>>
+	{
+		EntrySet()
+		{
+			/* ... */
+		}
+
+		@Override
+		public Iterator<Bag.Entry<E>> iterator()
+		{
+			return new EntryIterator();
+		}
+
+		@Override
+		public int size()
+		{
+			int size = 0;
+			for (AtomicInteger count : entries.values()) {
+				if (count.get() > 0) {
+					size++;
+				}
+			}
+			return size;
 		}
-		return size;
 	}
 
-	private CopyOnWriteArrayList<E> getEntry(E e)
+	private final class EntryIterator implements Iterator<Bag.Entry<E>>
 	{
-		entries.putIfAbsent(e, new CopyOnWriteArrayList<E>());
-		return entries.get(e);
+		private final Iterator<Map.Entry<E, AtomicInteger>> entries;
+		private Map.Entry<E, AtomicInteger> next;
+		private E current;
+
+		EntryIterator()
+		{
+			this.entries = ConcurrentHashBag.this.entries.entrySet()
+				.iterator();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			while (next == null && entries.hasNext()) {
+				Map.Entry<E, AtomicInteger> entry = entries.next();
+				if (entry.getValue().get() > 0) {
+					next = entry;
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public Bag.Entry<E> next()
+		{
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final E e = next.getKey();
+			final AtomicInteger count = next.getValue();
+			next = null;
+			current = e;
+			return new AbstractBagEntry<E>() {
+				@Override
+				public E getElement()
+				{
+					return e;
+				}
+
+				@Override
+				public int getCount()
+				{
+					return count.get();
+				}
+			};
+		}
+
+		@Override
+		public void remove()
+		{
+			if (current == null) {
+				throw new IllegalStateException();
+			}
+			removeAll(current);
+			current = null;
+		}
 	}
 }
@@ -16,9 +16,12 @@
 
 package org.kocakosm.pitaya.collection;
 
+import org.kocakosm.pitaya.util.Parameters;
+
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -39,6 +42,11 @@ public final class CopyOnWriteArrayBag<E>
 {
 	private static final long serialVersionUID = 8401510673920814526L;
 
+	/*
+	 * Reads are lock-free. Mutators hold the list's monitor (which the list
+	 * itself doesn't use), so that compound operations such as setCount are
+	 * atomic with respect to all other updates.
+	 */
 	private final CopyOnWriteArrayList<E> entries;
 
 	/** Creates a new empty {@code CopyOnWriteArrayBag}. */
@@ -120,25 +128,33 @@ public final class CopyOnWriteArrayBag<E>
 	@Override
 	public void clear()
 	{
-		entries.clear();
+		synchronized (entries) {
+			entries.clear();
+		}
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> c)
 	{
-		return entries.retainAll(c);
+		synchronized (entries) {
+			return entries.retainAll(c);
+		}
 	}
 
 	@Override
 	public boolean removeAll(Collection<?> c)
 	{
-		return entries.removeAll(c);
+		synchronized (entries) {
+			return entries.removeAll(c);
+		}
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends E> c)
 	{
-		return entries.addAll(c);
+		synchronized (entries) {
+			return entries.addAll(c);
+		}
 	}
 
 	@Override
@@ -150,13 +166,55 @@ public final class CopyOnWriteArrayBag<E>
 	@Override
 	public boolean remove(Object o)
 	{
-		return entries.remove(o);
+		synchronized (entries) {
+			return entries.remove(o);
+		}
 	}
 
 	@Override
 	public boolean add(E e)
 	{
-		return entries.add(e);
+		synchronized (entries) {
+			return entries.add(e);
+		}
+	}
+
+	@Override
+	public int add(E e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		synchronized (entries) {
+			int count = count(e);
+			if ((long) count + occurrences > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Too many occurrences");
+			}
+			entries.addAll(Collections.nCopies(occurrences, e));
+			return count;
+		}
+	}
+
+	@Override
+	public int remove(E e, int occurrences)
+	{
+		synchronized (entries) {
+			return super.remove(e, occurrences);
+		}
+	}
+
+	@Override
+	public int setCount(E e, int count)
+	{
+		synchronized (entries) {
+			return super.setCount(e, count);
+		}
+	}
+
+	@Override
+	public boolean addAll(Bag<? extends E> bag)
+	{
+		synchronized (entries) {
+			return super.addAll(bag);
+		}
 	}
 
 	@Override
@@ -186,12 +244,16 @@ public final class CopyOnWriteArrayBag<E>
 	@Override
 	public int addAllAbsent(Collection<? extends E> c)
 	{
-		return entries.addAllAbsent(c);
+		synchronized (entries) {
+			return entries.addAllAbsent(c);
+		}
 	}
 
 	@Override
 	public boolean addIfAbsent(E e)
 	{
-		return entries.addIfAbsent(e);
+		synchronized (entries) {
+			return entries.addIfAbsent(e);
+		}
 	}
 }
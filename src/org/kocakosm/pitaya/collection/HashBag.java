@@ -19,17 +19,24 @@ package org.kocakosm.pitaya.collection;
 import org.kocakosm.pitaya.util.Parameters;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
- * {@link Bag} implementation based on {@link HashMap}. This implementation
- * accepts {@code null} elements. Instances of this class are not thread-safe.
+ * {@link Bag} implementation based on {@link HashMap}. Each distinct element is
+ * stored once, along with its number of occurrences: {@link #add(Object)},
+ * {@link #remove(Object)}, {@link #count(Object)} and {@link #size()} run in
+ * constant time and memory usage only depends on the number of distinct
+ * elements. Consequently, iterating over this bag returns, for each distinct
+ * element, the first added instance as many times as it occurs. This
+ * implementation accepts {@code null} elements. Instances of this class are
+ * not thread-safe.
  *
  * @param <E> the type of the elements in the bag.
  *
@@ -37,9 +44,10 @@ import java.util.Map;
  */
 public final class HashBag<E> extends AbstractBag<E> implements Serializable
 {
-	private static final long serialVersionUID = 3651678489121314654L;
+	private static final long serialVersionUID = 4129857261530485122L;
 
-	private final Map<E, List<E>> entries;
+	private final Map<E, Count> entries;
+	private long size;
 
 	/** Creates a new empty {@code HashBag}. */
 	public HashBag()
@@ -57,7 +65,7 @@ public final class HashBag<E> extends AbstractBag<E> implements Serializable
 	public HashBag(int initialCapacity)
 	{
 		Parameters.checkCondition(initialCapacity >= 0);
-		this.entries = new HashMap<E, List<E>>(initialCapacity);
+		this.entries = new HashMap<E, Count>(initialCapacity);
 	}
 
 	/**
@@ -122,45 +130,107 @@ public final class HashBag<E> extends AbstractBag<E> implements Serializable
 	@Override
 	public boolean add(E e)
 	{
-		List<E> entry = entries.get(e);
-		if (entry == null) {
-			entry = new ArrayList<E>();
-			entries.put(e, entry);
+		add(e, 1);
+		return true;
+	}
+
+	@Override
+	public int add(E e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		Count count = entries.get(e);
+		int current = count == null ? 0 : count.value;
+		if (occurrences > 0) {
+			if (count == null) {
+				entries.put(e, new Count(occurrences));
+			} else {
+				count.add(occurrences);
+			}
+			size += occurrences;
+		}
+		return current;
+	}
+
+	@Override
+	public int remove(E e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		Count count = entries.get(e);
+		if (count == null) {
+			return 0;
+		}
+		int current = count.value;
+		if (occurrences >= current) {
+			entries.remove(e);
+			size -= current;
+		} else {
+			count.value -= occurrences;
+			size -= occurrences;
+		}
+		return current;
+	}
+
+	@Override
+	public int setCount(E e, int count)
+	{
+		Parameters.checkCondition(count >= 0);
+		Count c = entries.get(e);
+		int current = c == null ? 0 : c.value;
+		if (count == 0) {
+			entries.remove(e);
+		} else if (c == null) {
+			entries.put(e, new Count(count));
+		} else {
+			c.value = count;
 		}
-		return entry.add(e);
+		size += count - current;
+		return current;
+	}
+
+	@Override
+	public Set<Bag.Entry<E>> entrySet()
+	{
+		return new EntrySet();
 	}
 
 	@Override
 	public void clear()
 	{
 		entries.clear();
+		size = 0;
 	}
 
 	@Override
 	public boolean contains(Object o)
 	{
-		List<E> entry = entries.get(o);
-		return entry == null ? false : !entry.isEmpty();
+		return entries.containsKey(o);
 	}
 
 	@Override
 	public int count(E e)
 	{
-		List<E> entry = entries.get(e);
-		return entry == null ? 0 : entry.size();
+		Count count = entries.get(e);
+		return count == null ? 0 : count.value;
 	}
 
 	@Override
 	public Iterator<E> iterator()
 	{
-		return Iterables.concat(entries.values()).iterator();
+		return new BagIterator();
 	}
 
 	@Override
 	public boolean remove(Object o)
 	{
-		List<E> entry = entries.get(o);
-		return entry == null ? false : entry.remove(o);
+		Count count = entries.get(o);
+		if (count == null) {
+			return false;
+		}
+		if (--count.value == 0) {
+			entries.remove(o);
+		}
+		size--;
+		return true;
 	}
 
 	@Override
@@ -168,18 +238,159 @@ public final class HashBag<E> extends AbstractBag<E> implements Serializable
 	{
 		boolean removed = false;
 		for (Object o : c) {
-			removed |= entries.remove(o) != null;
+			Count count = entries.remove(o);
+			if (count != null) {
+				size -= count.value;
+				removed = true;
+			}
 		}
 		return removed;
 	}
 
+	@Override
+	public boolean retainAll(Collection<?> c)
+	{
+		boolean updated = false;
+		Iterator<Map.Entry<E, Count>> i = entries.entrySet().iterator();
+		while (i.hasNext()) {
+			Map.Entry<E, Count> entry = i.next();
+			if (!c.contains(entry.getKey())) {
+				size -= entry.getValue().value;
+				i.remove();
+				updated = true;
+			}
+		}
+		return updated;
+	}
+
 	@Override
 	public int size()
 	{
-		int size = 0;
-		for (List<E> value : entries.values()) {
-			size += value.size();
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	private final class BagIterator implements Iterator<E>
+	{
+		private final Iterator<Map.Entry<E, Count>> entries;
+		private Map.Entry<E, Count> current;
+		private int remaining;
+		private boolean removable;
+
+		BagIterator()
+		{
+			this.entries = HashBag.this.entries.entrySet().iterator();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return remaining > 0 || entries.hasNext();
+		}
+
+		@Override
+		public E next()
+		{
+			if (remaining == 0) {
+				if (!entries.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				current = entries.next();
+				remaining = current.getValue().value;
+			}
+			remaining--;
+			removable = true;
+			return current.getKey();
+		}
+
+		@Override
+		public void remove()
+		{
+			if (!removable) {
+				throw new IllegalStateException();
+			}
+			removable = false;
+			if (--current.getValue().value == 0) {
+				entries.remove();
+			}
+			size--;
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Bag.Entry<E>>
+	{
+		EntrySet()
+		{
+			/* ... */
+		}
+
+		@Override
+		public Iterator<Bag.Entry<E>> iterator()
+		{
+			final Iterator<Map.Entry<E, Count>> i =
+				entries.entrySet().iterator();
+			return new Iterator<Bag.Entry<E>>() {
+				private Map.Entry<E, Count> current;
+
+				@Override
+				public boolean hasNext()
+				{
+					return i.hasNext();
+				}
+
+				@Override
+				public Bag.Entry<E> next()
+				{
+					final Map.Entry<E, Count> entry = i.next();
+					current = entry;
+					return new AbstractBagEntry<E>() {
+						@Override
+						public E getElement()
+						{
+							return entry.getKey();
+						}
+
+						@Override
+						public int getCount()
+						{
+							return entry.getValue().value;
+						}
+					};
+				}
+
+				@Override
+				public void remove()
+				{
+					i.remove();
+					size -= current.getValue().value;
+					current.getValue().value = 0;
+				}
+			};
+		}
+
+		@Override
+		public int size()
+		{
+			return entries.size();
+		}
+	}
+
+	private static final class Count implements Serializable
+	{
+		private static final long serialVersionUID = 2815609446207716392L;
+
+		int value;
+
+		Count(int value)
+		{
+			this.value = value;
+		}
+
+		void add(int n)
+		{
+			if (value > Integer.MAX_VALUE - n) {
+				throw new IllegalStateException("Too many occurrences");
+			}
+			value += n;
 		}
-		return size;
 	}
 }
@@ -0,0 +1,179 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import org.kocakosm.pitaya.util.XObjects;
+
+/**
+ * Sizing, hashing and lookup helpers for the open-addressing hash tables of
+ * the primitive and compact immutable collections. Tables have a power of two
+ * capacity, use linear probing and are grown when they become 3/4 full.
+ *
+ * @author Osman KOCAK
+ */
+final class HashTables
+{
+	private static final int MAX_CAPACITY = 1 << 30;
+	private static final int MAX_LINEAR_SCAN = 4;
+
+	/**
+	 * Returns the capacity of a table able to hold the given number of
+	 * entries without being grown.
+	 *
+	 * @param expectedSize the expected number of entries.
+	 *
+	 * @return the table's capacity.
+	 */
+	static int capacity(int expectedSize)
+	{
+		long min = (long) expectedSize * 4 / 3 + 1;
+		int capacity = 4;
+		while (capacity < min && capacity < MAX_CAPACITY) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of entries above which a table having the given
+	 * capacity must be grown.
+	 *
+	 * @param capacity the table's capacity.
+	 *
+	 * @return the table's growth threshold.
+	 */
+	static int threshold(int capacity)
+	{
+		return capacity / 4 * 3;
+	}
+
+	/**
+	 * Returns the capacity a table having the given capacity must be grown
+	 * to.
+	 *
+	 * @param capacity the table's current capacity.
+	 *
+	 * @return the table's new capacity.
+	 *
+	 * @throws IllegalStateException if the table can't be grown anymore.
+	 */
+	static int grow(int capacity)
+	{
+		if (capacity >= MAX_CAPACITY) {
+			throw new IllegalStateException("Too many elements");
+		}
+		return capacity << 1;
+	}
+
+	/**
+	 * Spreads the bits of the given key (Fibonacci hashing).
+	 *
+	 * @param key the key to hash.
+	 *
+	 * @return the key's hash.
+	 */
+	static int hash(int key)
+	{
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Spreads the bits of the given key (Fibonacci hashing).
+	 *
+	 * @param key the key to hash.
+	 *
+	 * @return the key's hash.
+	 */
+	static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Builds an index of the given distinct keys: each slot of the returned
+	 * table holds the position of a key plus one, or 0 if it is empty.
+	 * Returns {@code null} for {@value #MAX_LINEAR_SCAN} keys or less, a
+	 * linear scan being faster and smaller than an index in that case.
+	 *
+	 * @param keys the array holding the keys.
+	 * @param size the number of keys.
+	 * @param step the distance between two consecutive keys in the array.
+	 *
+	 * @return the index of the given keys, may be {@code null}.
+	 */
+	static int[] index(Object[] keys, int size, int step)
+	{
+		if (size <= MAX_LINEAR_SCAN) {
+			return null;
+		}
+		int[] index = new int[capacity(size)];
+		int mask = index.length - 1;
+		for (int p = 0; p < size; p++) {
+			int i = hash(hashCode(keys[p * step])) & mask;
+			while (index[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			index[i] = p + 1;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the position of the given key, as found by the given index.
+	 *
+	 * @param index the index built by {@link #index(Object[], int, int)}.
+	 * @param keys the array holding the keys.
+	 * @param size the number of keys.
+	 * @param step the distance between two consecutive keys in the array.
+	 * @param key the key to search for.
+	 *
+	 * @return the position of {@code key}, or {@code -1} if not found.
+	 */
+	static int indexOf(int[] index, Object[] keys, int size, int step,
+		Object key)
+	{
+		if (index == null) {
+			for (int p = 0; p < size; p++) {
+				if (XObjects.equal(key, keys[p * step])) {
+					return p;
+				}
+			}
+			return -1;
+		}
+		int mask = index.length - 1;
+		int i = hash(hashCode(key)) & mask;
+		for (int p = index[i]; p != 0; p = index[i]) {
+			if (XObjects.equal(key, keys[(p - 1) * step])) {
+				return p - 1;
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	private static int hashCode(Object key)
+	{
+		return key == null ? 0 : key.hashCode();
+	}
+
+	private HashTables()
+	{
+		/* ... */
+	}
+}
@@ -16,13 +16,29 @@
 
 package org.kocakosm.pitaya.collection;
 
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
- * Immutable {@link Bag} implementation. Accepts {@code null} values.
+ * Immutable {@link Bag} implementation. Accepts {@code null} values. Each
+ * distinct element is stored once, along with its number of occurrences, in
+ * insertion order: occurrences of an element are grouped at its first
+ * insertion (for instance, {@code of(a, b, a)} iterates over {@code a, a, b}).
  *
  * @param <E> the type of the {@code Bag}'s elements.
  *
@@ -39,7 +55,8 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 	 */
 	public static final class Builder<E>
 	{
-		private final Bag<E> inner = new ArrayBag<E>();
+		private final Map<E, Integer> counts = new LinkedHashMap<E, Integer>();
+		private long size;
 
 		/**
 		 * Adds the given values to the {@code Bag} being built.
@@ -52,7 +69,35 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 		 */
 		public Builder<E> add(E... values)
 		{
-			inner.addAll(Arrays.asList(values));
+			return add(Arrays.asList(values));
+		}
+
+		/**
+		 * Adds the given number of occurrences of the given value to the
+		 * {@code Bag} being built.
+		 *
+		 * @param value the value to add.
+		 * @param occurrences the number of occurrences to add.
+		 *
+		 * @return this object.
+		 *
+		 * @throws IllegalArgumentException if {@code occurrences < 0}.
+		 * @throws IllegalStateException if the bag would contain more
+		 *	than {@code Integer.MAX_VALUE} occurrences of {@code value}.
+		 */
+		public Builder<E> add(E value, int occurrences)
+		{
+			Parameters.checkCondition(occurrences >= 0);
+			if (occurrences > 0) {
+				Integer count = counts.get(value);
+				int current = count == null ? 0 : count;
+				if (current > Integer.MAX_VALUE - occurrences) {
+					throw new IllegalStateException(
+						"Too many occurrences");
+				}
+				counts.put(value, current + occurrences);
+				size += occurrences;
+			}
 			return this;
 		}
 
@@ -68,10 +113,14 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 		 */
 		public Builder<E> add(Iterable<? extends E> values)
 		{
-			for (E value : values) {
-				inner.add(value);
+			if (values instanceof Bag) {
+				Bag<? extends E> bag = (Bag<? extends E>) values;
+				for (Bag.Entry<? extends E> entry : bag.entrySet()) {
+					add(entry.getElement(), entry.getCount());
+				}
+				return this;
 			}
-			return this;
+			return add(values.iterator());
 		}
 
 		/**
@@ -87,7 +136,7 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 		public Builder<E> add(Iterator<? extends E> values)
 		{
 			while (values.hasNext()) {
-				inner.add(values.next());
+				add(values.next(), 1);
 			}
 			return this;
 		}
@@ -99,7 +148,7 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 		 */
 		public Bag<E> build()
 		{
-			return new ImmutableBag<E>(inner);
+			return new ImmutableBag<E>(counts, size);
 		}
 	}
 
@@ -115,7 +164,7 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 	 */
 	public static <E> Bag<E> copyOf(Collection<? extends E> c)
 	{
-		return new ImmutableBag<E>(new ArrayBag<E>(c));
+		return new Builder<E>().add(c).build();
 	}
 
 	/**
@@ -130,7 +179,7 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 	 */
 	public static <E> Bag<E> copyOf(Iterable<? extends E> i)
 	{
-		return new ImmutableBag<E>(new ArrayBag<E>(i));
+		return new Builder<E>().add(i).build();
 	}
 
 	/**
@@ -145,7 +194,7 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 	 */
 	public static <E> Bag<E> copyOf(Iterator<? extends E> i)
 	{
-		return new ImmutableBag<E>(new ArrayBag<E>(i));
+		return new Builder<E>().add(i).build();
 	}
 
 	/**
@@ -160,7 +209,7 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 	 */
 	public static <E> Bag<E> copyOf(E[] values)
 	{
-		return new ImmutableBag<E>(new ArrayBag<E>(values));
+		return new Builder<E>().add(values).build();
 	}
 
 	/**
@@ -175,74 +224,93 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 	 */
 	public static <E> Bag<E> of(E... values)
 	{
-		return new ImmutableBag<E>(new ArrayBag<E>(values));
+		return new Builder<E>().add(values).build();
 	}
 
-	private final Bag<E> inner;
+	/*
+	 * The serial form is the one of earlier versions: an ArrayBag holding
+	 * all the occurrences, named "inner".
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("inner", Bag.class)
+	};
+
+	private final Map<E, Integer> counts;
+	private final long size;
+	private transient Bag<E> inner;
 
-	private ImmutableBag(Bag<E> inner)
+	private ImmutableBag(Map<E, Integer> counts, long size)
 	{
-		this.inner = inner;
+		this.counts = Collections.unmodifiableMap(
+			new LinkedHashMap<E, Integer>(counts));
+		this.size = size;
 	}
 
 	@Override
 	public int count(E e)
 	{
-		return inner.count(e);
+		Integer count = counts.get(e);
+		return count == null ? 0 : count;
+	}
+
+	@Override
+	public Set<Bag.Entry<E>> entrySet()
+	{
+		return new EntrySet();
 	}
 
 	@Override
 	public int size()
 	{
-		return inner.size();
+		return (int) Math.min(size, Integer.MAX_VALUE);
 	}
 
 	@Override
 	public boolean isEmpty()
 	{
-		return inner.isEmpty();
+		return size == 0;
 	}
 
 	@Override
 	public boolean contains(Object o)
 	{
-		return inner.contains(o);
+		return counts.containsKey(o);
 	}
 
 	@Override
 	public Iterator<E> iterator()
 	{
-		return new UnmodifiableIterator<E>(inner.iterator());
+		return new BagIterator();
 	}
 
 	@Override
-	public Object[] toArray()
+	public boolean add(E e)
 	{
-		return inner.toArray();
+		throw new UnsupportedOperationException();
 	}
 
 	@Override
-	public <T> T[] toArray(T[] a)
+	public int add(E e, int occurrences)
 	{
-		return inner.toArray(a);
+		throw new UnsupportedOperationException();
 	}
 
 	@Override
-	public boolean add(E e)
+	public boolean remove(Object o)
 	{
 		throw new UnsupportedOperationException();
 	}
 
 	@Override
-	public boolean remove(Object o)
+	public int remove(E e, int occurrences)
 	{
 		throw new UnsupportedOperationException();
 	}
 
 	@Override
-	public boolean containsAll(Collection<?> c)
+	public int setCount(E e, int count)
 	{
-		return inner.containsAll(c);
+		throw new UnsupportedOperationException();
 	}
 
 	@Override
@@ -251,6 +319,12 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public boolean addAll(Bag<? extends E> bag)
+	{
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public boolean removeAll(Collection<?> c)
 	{
@@ -268,4 +342,106 @@ public final class ImmutableBag<E> extends AbstractBag<E> implements Serializabl
 	{
 		throw new UnsupportedOperationException();
 	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("inner", new ArrayBag<E>(this));
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException
+	{
+		inner = (Bag<E>) in.readFields().get("inner", null);
+		if (inner == null) {
+			throw new InvalidObjectException("Missing elements");
+		}
+	}
+
+	private Object readResolve()
+	{
+		return new Builder<E>().add(inner).build();
+	}
+
+	private final class BagIterator implements Iterator<E>
+	{
+		private final Iterator<Map.Entry<E, Integer>> entries;
+		private E current;
+		private int remaining;
+
+		BagIterator()
+		{
+			this.entries = counts.entrySet().iterator();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return remaining > 0 || entries.hasNext();
+		}
+
+		@Override
+		public E next()
+		{
+			if (remaining == 0) {
+				if (!entries.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Map.Entry<E, Integer> entry = entries.next();
+				current = entry.getKey();
+				remaining = entry.getValue();
+			}
+			remaining--;
+			return current;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Bag.Entry<E>>
+	{
+		EntrySet()
+		{
+			/* ... */
+		}
+
+		@Override
+		public Iterator<Bag.Entry<E>> iterator()
+		{
+			final Iterator<Map.Entry<E, Integer>> i =
+				counts.entrySet().iterator();
+			return new Iterator<Bag.Entry<E>>() {
+				@Override
+				public boolean hasNext()
+				{
+					return i.hasNext();
+				}
+
+				@Override
+				public Bag.Entry<E> next()
+				{
+					Map.Entry<E, Integer> entry = i.next();
+					return AbstractBagEntry.of(entry.getKey(),
+						entry.getValue());
+				}
+
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size()
+		{
+			return counts.size();
+		}
+	}
 }
@@ -16,11 +16,23 @@
 
 package org.kocakosm.pitaya.collection;
 
+import org.kocakosm.pitaya.util.XObjects;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.AbstractCollection;
 import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -28,7 +40,10 @@ import java.util.Set;
  * order by remembering the order in which keys were inserted into the
  * {@code Map} (insertion-order). Note that insertion order is not affected if
  * a key is re-inserted into the {@code Map}. Accepts {@code null} values and
- * the {@code null} key.
+ * the {@code null} key. Keys and values are stored in a flat array, keys being
+ * indexed by an open-addressing hash table when there are more than 4 of them
+ * (smaller maps are scanned). The {@code keySet}, {@code values} and
+ * {@code entrySet} views are created once and cached.
  *
  * @param <K> the type of the {@code Map}'s keys.
  * @param <V> the type of the {@code Map}'s values.
@@ -87,7 +102,7 @@ public final class ImmutableMap<K, V> extends AbstractMap<K, V> implements Seria
 		 */
 		public Map<K, V> build()
 		{
-			return new ImmutableMap<K, V>(inner);
+			return create(inner);
 		}
 	}
 
@@ -104,44 +119,85 @@ public final class ImmutableMap<K, V> extends AbstractMap<K, V> implements Seria
 	 */
 	public static <K, V> Map<K, V> copyOf(Map<? extends K, ? extends V> map)
 	{
-		return new ImmutableMap<K, V>(new LinkedHashMap<K, V>(map));
+		if (map instanceof ImmutableMap) {
+			return (Map<K, V>) map;
+		}
+		if (map instanceof HashMap) {
+			return create(map);
+		}
+		return create(new LinkedHashMap<K, V>(map));
+	}
+
+	private static final ImmutableMap<Object, Object> EMPTY =
+		new ImmutableMap<Object, Object>(new Object[0]);
+
+	private static <K, V> Map<K, V> create(Map<? extends K, ? extends V> map)
+	{
+		if (map.isEmpty()) {
+			return (Map<K, V>) EMPTY;
+		}
+		Object[] table = new Object[map.size() * 2];
+		int i = 0;
+		for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+			table[i++] = entry.getKey();
+			table[i++] = entry.getValue();
+		}
+		return new ImmutableMap<K, V>(table);
 	}
 
-	private final Map<K, V> inner;
+	/* The serial form is the one of earlier versions: a LinkedHashMap named "inner". */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("inner", Map.class)
+	};
 
-	private ImmutableMap(Map<K, V> inner)
+	/* Keys and values, interleaved: k0, v0, k1, v1, ... */
+	private final transient Object[] table;
+	private final transient int[] index;
+	private transient Map<K, V> inner;
+	private transient Set<K> keySet;
+	private transient Collection<V> values;
+	private transient Set<Entry<K, V>> entrySet;
+
+	private ImmutableMap(Object[] table)
 	{
-		this.inner = inner;
+		this.table = table;
+		this.index = HashTables.index(table, table.length / 2, 2);
 	}
 
 	@Override
 	public int size()
 	{
-		return inner.size();
+		return table.length / 2;
 	}
 
 	@Override
 	public boolean isEmpty()
 	{
-		return inner.isEmpty();
+		return table.length == 0;
 	}
 
 	@Override
 	public boolean containsKey(Object key)
 	{
-		return inner.containsKey(key);
+		return indexOf(key) >= 0;
 	}
 
 	@Override
 	public boolean containsValue(Object value)
 	{
-		return inner.containsValue(value);
+		for (int i = 1; i < table.length; i += 2) {
+			if (XObjects.equal(value, table[i])) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	@Override
 	public V get(Object key)
 	{
-		return inner.get(key);
+		int i = indexOf(key);
+		return i < 0 ? null : (V) table[2 * i + 1];
 	}
 
 	@Override
@@ -171,18 +227,165 @@ public final class ImmutableMap<K, V> extends AbstractMap<K, V> implements Seria
 	@Override
 	public Set<K> keySet()
 	{
-		return ImmutableSet.copyOf(inner.keySet());
+		if (keySet == null) {
+			keySet = new KeySet();
+		}
+		return keySet;
 	}
 
 	@Override
 	public Collection<V> values()
 	{
-		return ImmutableList.copyOf(inner.values());
+		if (values == null) {
+			values = new Values();
+		}
+		return values;
 	}
 
 	@Override
 	public Set<Entry<K, V>> entrySet()
 	{
-		return ImmutableSet.copyOf(inner.entrySet());
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	private int indexOf(Object key)
+	{
+		return HashTables.indexOf(index, table, size(), 2, key);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("inner", new LinkedHashMap<K, V>(this));
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException
+	{
+		inner = (Map<K, V>) in.readFields().get("inner", null);
+		if (inner == null) {
+			throw new InvalidObjectException("Missing entries");
+		}
+	}
+
+	/* Keys' hash codes may differ from one JVM to another. */
+	private Object readResolve()
+	{
+		return create(inner);
+	}
+
+	private final class KeySet extends AbstractSet<K>
+	{
+		KeySet()
+		{
+			/* ... */
+		}
+
+		@Override
+		public Iterator<K> iterator()
+		{
+			return new ArrayIterator<K>(table, 0, 2, size());
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			return containsKey(o);
+		}
+
+		@Override
+		public int size()
+		{
+			return ImmutableMap.this.size();
+		}
+	}
+
+	private final class Values extends AbstractCollection<V>
+	{
+		Values()
+		{
+			/* ... */
+		}
+
+		@Override
+		public Iterator<V> iterator()
+		{
+			return new ArrayIterator<V>(table, 1, 2, size());
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			return containsValue(o);
+		}
+
+		@Override
+		public int size()
+		{
+			return ImmutableMap.this.size();
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Entry<K, V>>
+	{
+		EntrySet()
+		{
+			/* ... */
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator()
+		{
+			return new Iterator<Entry<K, V>>() {
+				private int next;
+
+				@Override
+				public boolean hasNext()
+				{
+					return next < table.length;
+				}
+
+				@Override
+				public Entry<K, V> next()
+				{
+					if (next >= table.length) {
+						throw new NoSuchElementException();
+					}
+					K key = (K) table[next++];
+					V value = (V) table[next++];
+					return new SimpleImmutableEntry<K, V>(key, value);
+				}
+
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			if (!(o instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> entry = (Entry<?, ?>) o;
+			int i = indexOf(entry.getKey());
+			if (i < 0) {
+				return false;
+			}
+			return XObjects.equal(entry.getValue(), table[2 * i + 1]);
+		}
+
+		@Override
+		public int size()
+		{
+			return ImmutableMap.this.size();
+		}
 	}
 }
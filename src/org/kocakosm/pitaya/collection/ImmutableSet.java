@@ -16,6 +16,11 @@
 
 package org.kocakosm.pitaya.collection;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.AbstractSet;
 import java.util.Arrays;
@@ -29,6 +34,8 @@ import java.util.Set;
  * order by remembering the order in which elements were inserted into the
  * {@code Set} (insertion-order). Note that insertion order is not affected if
  * an element is re-inserted into the {@code Set}. Accepts {@code null} values.
+ * Elements are stored in a flat array, indexed by an open-addressing hash
+ * table when there are more than 4 of them (smaller sets are scanned).
  *
  * @param <E> the type of the {@code Set}'s elements.
  *
@@ -105,7 +112,7 @@ public final class ImmutableSet<E> extends AbstractSet<E> implements Serializabl
 		 */
 		public Set<E> build()
 		{
-			return new ImmutableSet<E>(inner);
+			return create(inner);
 		}
 	}
 
@@ -121,7 +128,10 @@ public final class ImmutableSet<E> extends AbstractSet<E> implements Serializabl
 	 */
 	public static <E> Set<E> copyOf(Collection<? extends E> c)
 	{
-		return new ImmutableSet<E>(new LinkedHashSet<E>(c));
+		if (c instanceof ImmutableSet) {
+			return (Set<E>) c;
+		}
+		return create(new LinkedHashSet<E>(c));
 	}
 
 	/**
@@ -136,7 +146,10 @@ public final class ImmutableSet<E> extends AbstractSet<E> implements Serializabl
 	 */
 	public static <E> Set<E> copyOf(Iterable<? extends E> i)
 	{
-		return new ImmutableSet<E>(Iterables.toSet(i));
+		if (i instanceof ImmutableSet) {
+			return (Set<E>) i;
+		}
+		return create(Iterables.toSet(i));
 	}
 
 	/**
@@ -151,7 +164,7 @@ public final class ImmutableSet<E> extends AbstractSet<E> implements Serializabl
 	 */
 	public static <E> Set<E> copyOf(Iterator<? extends E> i)
 	{
-		return new ImmutableSet<E>(Iterators.toSet(i));
+		return create(Iterators.toSet(i));
 	}
 
 	/**
@@ -166,7 +179,7 @@ public final class ImmutableSet<E> extends AbstractSet<E> implements Serializabl
 	 */
 	public static <E> Set<E> copyOf(E[] values)
 	{
-		return new ImmutableSet<E>(new LinkedHashSet<E>(Arrays.asList(values)));
+		return create(new LinkedHashSet<E>(Arrays.asList(values)));
 	}
 
 	/**
@@ -181,68 +194,98 @@ public final class ImmutableSet<E> extends AbstractSet<E> implements Serializabl
 	 */
 	public static <E> Set<E> of(E... values)
 	{
-		return new ImmutableSet<E>(new LinkedHashSet<E>(Arrays.asList(values)));
+		return create(new LinkedHashSet<E>(Arrays.asList(values)));
 	}
 
-	private final Set<E> inner;
+	private static final ImmutableSet<Object> EMPTY =
+		new ImmutableSet<Object>(new Object[0]);
 
-	private ImmutableSet(Set<E> inner)
+	private static <E> Set<E> create(Set<? extends E> elements)
 	{
-		this.inner = inner;
+		if (elements.isEmpty()) {
+			return (Set<E>) EMPTY;
+		}
+		return new ImmutableSet<E>(elements.toArray());
+	}
+
+	/* The serial form is the one of earlier versions: a LinkedHashSet named "inner". */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("inner", Set.class)
+	};
+
+	private final transient Object[] elements;
+	private final transient int[] index;
+	private transient Set<E> inner;
+
+	private ImmutableSet(Object[] elements)
+	{
+		this.elements = elements;
+		this.index = HashTables.index(elements, elements.length, 1);
 	}
 
 	@Override
 	public int size()
 	{
-		return inner.size();
+		return elements.length;
 	}
 
 	@Override
 	public boolean isEmpty()
 	{
-		return inner.isEmpty();
+		return elements.length == 0;
 	}
 
 	@Override
 	public boolean contains(Object o)
 	{
-		return inner.contains(o);
+		int n = elements.length;
+		return HashTables.indexOf(index, elements, n, 1, o) >= 0;
 	}
 
 	@Override
 	public Iterator<E> iterator()
 	{
-		return new UnmodifiableIterator<E>(inner.iterator());
+		return new ArrayIterator<E>(elements, 0, 1, elements.length);
 	}
 
-	@Override
-	public Object[] toArray()
+	private void writeObject(ObjectOutputStream out) throws IOException
 	{
-		return inner.toArray();
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("inner", new LinkedHashSet<E>(this));
+		out.writeFields();
 	}
 
-	@Override
-	public <T> T[] toArray(T[] a)
+	private void readObject(ObjectInputStream in)
+		throws IOException, ClassNotFoundException
 	{
-		return inner.toArray(a);
+		inner = (Set<E>) in.readFields().get("inner", null);
+		if (inner == null) {
+			throw new InvalidObjectException("Missing elements");
+		}
+	}
+
+	/* Elements' hash codes may differ from one JVM to another. */
+	private Object readResolve()
+	{
+		return create(inner);
 	}
 
 	@Override
-	public boolean add(E e)
+	public Object[] toArray()
 	{
-		throw new UnsupportedOperationException();
+		return elements.clone();
 	}
 
 	@Override
-	public boolean remove(Object o)
+	public boolean add(E e)
 	{
 		throw new UnsupportedOperationException();
 	}
 
 	@Override
-	public boolean containsAll(Collection<?> c)
+	public boolean remove(Object o)
 	{
-		return inner.containsAll(c);
+		throw new UnsupportedOperationException();
 	}
 
 	@Override
@@ -0,0 +1,640 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A bag of {@code int}s. Elements are stored unboxed in an open-addressing hash
+ * table along with their number of occurrences, so that memory usage only
+ * depends on the number of distinct elements (8 bytes per slot, the table
+ * growing whenever it becomes 3/4 full and never shrinking, even when elements
+ * are removed) and {@link #add(int)}, {@link #remove(int)} and
+ * {@link #count(int)} never allocate, except when the table grows.
+ * {@link #asBag()} provides a boxed view of instances of this class for APIs
+ * expecting {@link Bag}s. Instances of this class are not thread-safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class IntHashBag implements Serializable
+{
+	private static final long serialVersionUID = 6480227147510925613L;
+
+	/**
+	 * Callback receiving the distinct elements of an {@link IntHashBag}
+	 * along with their counts.
+	 */
+	public interface Visitor
+	{
+		/**
+		 * Visits the given element.
+		 *
+		 * @param e the visited element.
+		 * @param count the number of occurrences of {@code e}.
+		 */
+		void visit(int e, int count);
+	}
+
+	/* Empty slots are the ones having a zero count. */
+	private int[] keys;
+	private int[] counts;
+	private int distinct;
+	private long size;
+	private transient int modCount;
+
+	/** Creates a new empty {@code IntHashBag}. */
+	public IntHashBag()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty {@code IntHashBag} able to hold the given number
+	 * of distinct elements without being resized.
+	 *
+	 * @param expectedSize the expected number of distinct elements.
+	 *
+	 * @throws IllegalArgumentException if {@code expectedSize < 0}.
+	 */
+	public IntHashBag(int expectedSize)
+	{
+		Parameters.checkCondition(expectedSize >= 0);
+		int capacity = HashTables.capacity(expectedSize);
+		this.keys = new int[capacity];
+		this.counts = new int[capacity];
+	}
+
+	/**
+	 * Creates a new {@code IntHashBag} containing the given elements.
+	 *
+	 * @param elements the elements to use to populate the created bag.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 */
+	public IntHashBag(int... elements)
+	{
+		this(elements.length);
+		for (int e : elements) {
+			add(e);
+		}
+	}
+
+	/**
+	 * Adds one occurrence of the given element to this bag.
+	 *
+	 * @param e the element to add.
+	 *
+	 * @return always {@code true}.
+	 *
+	 * @throws IllegalStateException if this bag already contains
+	 *	{@code Integer.MAX_VALUE} occurrences of {@code e}.
+	 */
+	public boolean add(int e)
+	{
+		add(e, 1);
+		return true;
+	}
+
+	/**
+	 * Adds the given number of occurrences of the given element to this
+	 * bag.
+	 *
+	 * @param e the element to add.
+	 * @param occurrences the number of occurrences to add.
+	 *
+	 * @return the count of {@code e} before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code occurrences} is negative.
+	 * @throws IllegalStateException if the resulting count would overflow
+	 *	an {@code int}.
+	 */
+	public int add(int e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		int i = slot(e);
+		int current = counts[i];
+		if (occurrences > 0) {
+			if (current > Integer.MAX_VALUE - occurrences) {
+				throw new IllegalStateException("Too many occurrences");
+			}
+			put(i, e, current + occurrences);
+			size += occurrences;
+		}
+		return current;
+	}
+
+	/**
+	 * Removes one occurrence of the given element from this bag.
+	 *
+	 * @param e the element to remove.
+	 *
+	 * @return whether this bag contained {@code e}.
+	 */
+	public boolean remove(int e)
+	{
+		return remove(e, 1) > 0;
+	}
+
+	/**
+	 * Removes the given number of occurrences of the given element from
+	 * this bag. If this bag contains fewer occurrences, all of them are
+	 * removed.
+	 *
+	 * @param e the element to remove.
+	 * @param occurrences the number of occurrences to remove.
+	 *
+	 * @return the count of {@code e} before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code occurrences} is negative.
+	 */
+	public int remove(int e, int occurrences)
+	{
+		Parameters.checkCondition(occurrences >= 0);
+		int i = slot(e);
+		int current = counts[i];
+		if (current > 0 && occurrences > 0) {
+			int removed = Math.min(current, occurrences);
+			put(i, e, current - removed);
+			size -= removed;
+		}
+		return current;
+	}
+
+	/**
+	 * Adds or removes occurrences of the given element so that its count
+	 * in this bag becomes {@code count}.
+	 *
+	 * @param e the element whose count must be set.
+	 * @param count the desired count of {@code e}.
+	 *
+	 * @return the count of {@code e} before the operation.
+	 *
+	 * @throws IllegalArgumentException if {@code count} is negative.
+	 */
+	public int setCount(int e, int count)
+	{
+		Parameters.checkCondition(count >= 0);
+		int i = slot(e);
+		int current = counts[i];
+		put(i, e, count);
+		size += count - current;
+		return current;
+	}
+
+	/**
+	 * Returns the number of occurrences of the given element in this bag.
+	 *
+	 * @param e the element whose number of occurrences is to be returned.
+	 *
+	 * @return the number of occurrences of {@code e} in this bag.
+	 */
+	public int count(int e)
+	{
+		return counts[slot(e)];
+	}
+
+	/**
+	 * Returns whether this bag contains at least one occurrence of the
+	 * given element.
+	 *
+	 * @param e the element to search for.
+	 *
+	 * @return whether this bag contains {@code e}.
+	 */
+	public boolean contains(int e)
+	{
+		return count(e) > 0;
+	}
+
+	/**
+	 * Returns the number of elements in this bag, counting duplicates. If
+	 * this bag contains more than {@code Integer.MAX_VALUE} elements,
+	 * returns {@code Integer.MAX_VALUE}.
+	 *
+	 * @return the number of elements in this bag.
+	 */
+	public int size()
+	{
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the number of distinct elements in this bag.
+	 *
+	 * @return the number of distinct elements in this bag.
+	 */
+	public int distinct()
+	{
+		return distinct;
+	}
+
+	/**
+	 * Returns whether this bag is empty.
+	 *
+	 * @return whether this bag is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/** Removes all the elements of this bag. */
+	public void clear()
+	{
+		modCount++;
+		Arrays.fill(counts, 0);
+		distinct = 0;
+		size = 0;
+	}
+
+	/**
+	 * Passes each distinct element of this bag, along with its count, to
+	 * the given {@code Visitor}. The visitor must not modify this bag.
+	 *
+	 * @param visitor the visitor.
+	 *
+	 * @throws NullPointerException if {@code visitor} is {@code null}.
+	 */
+	public void forEach(Visitor visitor)
+	{
+		Parameters.checkNotNull(visitor);
+		for (int i = 0; i < keys.length; i++) {
+			if (counts[i] > 0) {
+				visitor.visit(keys[i], counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns a live {@link Bag} view of this bag. Elements are boxed when
+	 * they are read through the view, which does not accept {@code null}
+	 * elements. The view's iterators and entry set do not support element
+	 * removal. The view's iterators are fail-fast: they throw a
+	 * {@link ConcurrentModificationException} if this bag is modified
+	 * after their creation.
+	 *
+	 * @return a {@code Bag} view of this bag.
+	 */
+	public Bag<Integer> asBag()
+	{
+		return new BagView();
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof IntHashBag)) {
+			return false;
+		}
+		IntHashBag bag = (IntHashBag) o;
+		if (size != bag.size || distinct != bag.distinct) {
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (counts[i] > 0 && bag.count(keys[i]) != counts[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (counts[i] > 0) {
+				hash += keys[i] ^ counts[i];
+			}
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		return asBag().toString();
+	}
+
+	/* Returns the slot holding e, or the empty slot where e belongs. */
+	private int slot(int e)
+	{
+		int mask = keys.length - 1;
+		int i = HashTables.hash(e) & mask;
+		while (counts[i] > 0 && keys[i] != e) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/* Sets the count of e, which must be the key of (or belong to) slot i. */
+	private void put(int i, int e, int count)
+	{
+		modCount++;
+		if (counts[i] == 0) {
+			if (count > 0) {
+				keys[i] = e;
+				counts[i] = count;
+				if (++distinct > HashTables.threshold(keys.length)) {
+					rehash(HashTables.grow(keys.length));
+				}
+			}
+		} else if (count > 0) {
+			counts[i] = count;
+		} else {
+			delete(i);
+		}
+	}
+
+	/* Empties slot i, shifting back the following entries of its run. */
+	private void delete(int i)
+	{
+		int mask = keys.length - 1;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (counts[j] == 0) {
+				break;
+			}
+			int k = HashTables.hash(keys[j]) & mask;
+			if (i <= j ? i < k && k <= j : i < k || k <= j) {
+				continue;
+			}
+			keys[i] = keys[j];
+			counts[i] = counts[j];
+			i = j;
+		}
+		counts[i] = 0;
+		distinct--;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new int[capacity];
+		counts = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldCounts[i] > 0) {
+				int j = HashTables.hash(oldKeys[i]) & mask;
+				while (counts[j] > 0) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = oldKeys[i];
+				counts[j] = oldCounts[i];
+			}
+		}
+	}
+
+	private final class BagView extends AbstractBag<Integer>
+	{
+		BagView()
+		{
+			/* ... */
+		}
+
+		@Override
+		public boolean add(Integer e)
+		{
+			return IntHashBag.this.add(e.intValue());
+		}
+
+		@Override
+		public int add(Integer e, int occurrences)
+		{
+			return IntHashBag.this.add(e.intValue(), occurrences);
+		}
+
+		@Override
+		public boolean remove(Object o)
+		{
+			return o instanceof Integer
+				&& IntHashBag.this.remove(((Integer) o).intValue());
+		}
+
+		@Override
+		public int remove(Integer e, int occurrences)
+		{
+			Parameters.checkCondition(occurrences >= 0);
+			return e == null ? 0
+				: IntHashBag.this.remove(e.intValue(), occurrences);
+		}
+
+		@Override
+		public int setCount(Integer e, int count)
+		{
+			return IntHashBag.this.setCount(e.intValue(), count);
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> c)
+		{
+			boolean removed = false;
+			for (Object o : c) {
+				if (o instanceof Integer) {
+					removed |= IntHashBag.this.setCount(
+						((Integer) o).intValue(), 0) > 0;
+				}
+			}
+			return removed;
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> c)
+		{
+			int[] removed = new int[distinct];
+			int n = 0;
+			for (int i = 0; i < keys.length; i++) {
+				if (counts[i] > 0 && !c.contains(keys[i])) {
+					removed[n++] = keys[i];
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				IntHashBag.this.setCount(removed[i], 0);
+			}
+			return n > 0;
+		}
+
+		@Override
+		public void clear()
+		{
+			IntHashBag.this.clear();
+		}
+
+		@Override
+		public int count(Integer e)
+		{
+			return e == null ? 0 : IntHashBag.this.count(e.intValue());
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			return o instanceof Integer
+				&& IntHashBag.this.contains(((Integer) o).intValue());
+		}
+
+		@Override
+		public boolean isEmpty()
+		{
+			return IntHashBag.this.isEmpty();
+		}
+
+		@Override
+		public int size()
+		{
+			return IntHashBag.this.size();
+		}
+
+		@Override
+		public Iterator<Integer> iterator()
+		{
+			return new BagIterator();
+		}
+
+		@Override
+		public Set<Bag.Entry<Integer>> entrySet()
+		{
+			return new AbstractSet<Bag.Entry<Integer>>() {
+				@Override
+				public Iterator<Bag.Entry<Integer>> iterator()
+				{
+					return new EntryIterator();
+				}
+
+				@Override
+				public int size()
+				{
+					return distinct;
+				}
+			};
+		}
+	}
+
+	private final class BagIterator implements Iterator<Integer>
+	{
+		private final int[] k = keys;
+		private final int[] c = counts;
+		private final int expectedModCount = modCount;
+		private int next;
+		private int current;
+		private int remaining;
+
+		BagIterator()
+		{
+			advance();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return remaining > 0 || next < c.length;
+		}
+
+		@Override
+		public Integer next()
+		{
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (remaining == 0) {
+				if (next == c.length) {
+					throw new NoSuchElementException();
+				}
+				current = k[next];
+				remaining = c[next];
+				next++;
+				advance();
+			}
+			remaining--;
+			return current;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		private void advance()
+		{
+			while (next < c.length && c[next] == 0) {
+				next++;
+			}
+		}
+	}
+
+	private final class EntryIterator implements Iterator<Bag.Entry<Integer>>
+	{
+		private final int[] k = keys;
+		private final int[] c = counts;
+		private final int expectedModCount = modCount;
+		private int next;
+
+		EntryIterator()
+		{
+			advance();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return next < c.length;
+		}
+
+		@Override
+		public Bag.Entry<Integer> next()
+		{
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Bag.Entry<Integer> entry = AbstractBagEntry.of(k[next], c[next]);
+			next++;
+			advance();
+			return entry;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		private void advance()
+		{
+			while (next < c.length && c[next] == 0) {
+				next++;
+			}
+		}
+	}
+}
@@ -0,0 +1,453 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A set of {@code int}s. Elements are stored unboxed in an open-addressing hash
+ * table (4 bytes per slot, the table growing whenever it becomes 3/4 full and
+ * never shrinking, even when elements are removed), so that {@link #add(int)},
+ * {@link #remove(int)} and {@link #contains(int)} never allocate, except when
+ * the table grows. {@link #asSet()} provides a boxed view of instances of this
+ * class for APIs expecting {@link Set}s. Instances of this class are not
+ * thread-safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class IntHashSet implements Serializable
+{
+	private static final long serialVersionUID = 2957180460325127793L;
+
+	/** Callback receiving the elements of an {@link IntHashSet}. */
+	public interface Visitor
+	{
+		/**
+		 * Visits the given element.
+		 *
+		 * @param e the visited element.
+		 */
+		void visit(int e);
+	}
+
+	/* Empty slots hold 0, the presence of 0 itself is tracked apart. */
+	private int[] keys;
+	private boolean zero;
+	private int size;
+	private transient int modCount;
+
+	/** Creates a new empty {@code IntHashSet}. */
+	public IntHashSet()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty {@code IntHashSet} able to hold the given number
+	 * of elements without being resized.
+	 *
+	 * @param expectedSize the expected number of elements.
+	 *
+	 * @throws IllegalArgumentException if {@code expectedSize < 0}.
+	 */
+	public IntHashSet(int expectedSize)
+	{
+		Parameters.checkCondition(expectedSize >= 0);
+		this.keys = new int[HashTables.capacity(expectedSize)];
+	}
+
+	/**
+	 * Creates a new {@code IntHashSet} containing the given elements.
+	 *
+	 * @param elements the elements to use to populate the created set.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 */
+	public IntHashSet(int... elements)
+	{
+		this(elements.length);
+		for (int e : elements) {
+			add(e);
+		}
+	}
+
+	/**
+	 * Adds the given element to this set.
+	 *
+	 * @param e the element to add.
+	 *
+	 * @return whether this set did not already contain {@code e}.
+	 */
+	public boolean add(int e)
+	{
+		if (e == 0) {
+			if (zero) {
+				return false;
+			}
+			zero = true;
+			size++;
+			modCount++;
+			return true;
+		}
+		int i = slot(e);
+		if (keys[i] == e) {
+			return false;
+		}
+		keys[i] = e;
+		modCount++;
+		if (++size > HashTables.threshold(keys.length)) {
+			rehash(HashTables.grow(keys.length));
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the given element from this set.
+	 *
+	 * @param e the element to remove.
+	 *
+	 * @return whether this set contained {@code e}.
+	 */
+	public boolean remove(int e)
+	{
+		if (e == 0) {
+			if (!zero) {
+				return false;
+			}
+			zero = false;
+			size--;
+			modCount++;
+			return true;
+		}
+		int i = slot(e);
+		if (keys[i] != e) {
+			return false;
+		}
+		delete(i);
+		size--;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Returns whether this set contains the given element.
+	 *
+	 * @param e the element to search for.
+	 *
+	 * @return whether this set contains {@code e}.
+	 */
+	public boolean contains(int e)
+	{
+		return e == 0 ? zero : keys[slot(e)] == e;
+	}
+
+	/**
+	 * Returns the number of elements in this set.
+	 *
+	 * @return the number of elements in this set.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns whether this set is empty.
+	 *
+	 * @return whether this set is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/** Removes all the elements of this set. */
+	public void clear()
+	{
+		modCount++;
+		Arrays.fill(keys, 0);
+		zero = false;
+		size = 0;
+	}
+
+	/**
+	 * Passes each element of this set to the given {@code Visitor}. The
+	 * visitor must not modify this set.
+	 *
+	 * @param visitor the visitor.
+	 *
+	 * @throws NullPointerException if {@code visitor} is {@code null}.
+	 */
+	public void forEach(Visitor visitor)
+	{
+		Parameters.checkNotNull(visitor);
+		if (zero) {
+			visitor.visit(0);
+		}
+		for (int key : keys) {
+			if (key != 0) {
+				visitor.visit(key);
+			}
+		}
+	}
+
+	/**
+	 * Returns an array containing all the elements of this set.
+	 *
+	 * @return the elements of this set.
+	 */
+	public int[] toArray()
+	{
+		int[] elements = new int[size];
+		int n = 0;
+		if (zero) {
+			elements[n++] = 0;
+		}
+		for (int key : keys) {
+			if (key != 0) {
+				elements[n++] = key;
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns a live {@link Set} view of this set. Elements are boxed when
+	 * they are read through the view, which does not accept {@code null}
+	 * elements. The view's iterators do not support element removal and
+	 * are fail-fast: they throw a {@link ConcurrentModificationException}
+	 * if this set is modified after their creation.
+	 *
+	 * @return a {@code Set} view of this set.
+	 */
+	public Set<Integer> asSet()
+	{
+		return new SetView();
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof IntHashSet)) {
+			return false;
+		}
+		IntHashSet set = (IntHashSet) o;
+		if (size != set.size || zero != set.zero) {
+			return false;
+		}
+		for (int key : keys) {
+			if (key != 0 && !set.contains(key)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 0;
+		for (int key : keys) {
+			hash += key;
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		return asSet().toString();
+	}
+
+	/* Returns the slot holding e, or the empty slot where e belongs. */
+	private int slot(int e)
+	{
+		int mask = keys.length - 1;
+		int i = HashTables.hash(e) & mask;
+		while (keys[i] != 0 && keys[i] != e) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/* Empties slot i, shifting back the following entries of its run. */
+	private void delete(int i)
+	{
+		int mask = keys.length - 1;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == 0) {
+				break;
+			}
+			int k = HashTables.hash(keys[j]) & mask;
+			if (i <= j ? i < k && k <= j : i < k || k <= j) {
+				continue;
+			}
+			keys[i] = keys[j];
+			i = j;
+		}
+		keys[i] = 0;
+	}
+
+	private void rehash(int capacity)
+	{
+		int[] oldKeys = keys;
+		keys = new int[capacity];
+		int mask = capacity - 1;
+		for (int key : oldKeys) {
+			if (key != 0) {
+				int j = HashTables.hash(key) & mask;
+				while (keys[j] != 0) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = key;
+			}
+		}
+	}
+
+	private final class SetView extends AbstractSet<Integer>
+	{
+		SetView()
+		{
+			/* ... */
+		}
+
+		@Override
+		public boolean add(Integer e)
+		{
+			return IntHashSet.this.add(e.intValue());
+		}
+
+		@Override
+		public boolean remove(Object o)
+		{
+			return o instanceof Integer
+				&& IntHashSet.this.remove(((Integer) o).intValue());
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> c)
+		{
+			boolean removed = false;
+			for (Object o : c) {
+				removed |= remove(o);
+			}
+			return removed;
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> c)
+		{
+			int[] elements = IntHashSet.this.toArray();
+			boolean removed = false;
+			for (int e : elements) {
+				if (!c.contains(e)) {
+					removed |= IntHashSet.this.remove(e);
+				}
+			}
+			return removed;
+		}
+
+		@Override
+		public void clear()
+		{
+			IntHashSet.this.clear();
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			return o instanceof Integer
+				&& IntHashSet.this.contains(((Integer) o).intValue());
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public Iterator<Integer> iterator()
+		{
+			return new SetIterator();
+		}
+	}
+
+	private final class SetIterator implements Iterator<Integer>
+	{
+		private final int[] k = keys;
+		private final int expectedModCount = modCount;
+		private boolean z = zero;
+		private int next;
+
+		SetIterator()
+		{
+			advance();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return z || next < k.length;
+		}
+
+		@Override
+		public Integer next()
+		{
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (z) {
+				z = false;
+				return 0;
+			}
+			if (next == k.length) {
+				throw new NoSuchElementException();
+			}
+			int e = k[next++];
+			advance();
+			return e;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		private void advance()
+		{
+			while (next < k.length && k[next] == 0) {
+				next++;
+			}
+		}
+	}
+}
@@ -0,0 +1,453 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A set of {@code long}s. Elements are stored unboxed in an open-addressing
+ * hash table (8 bytes per slot, the table growing whenever it becomes 3/4 full
+ * and never shrinking, even when elements are removed), so that
+ * {@link #add(long)}, {@link #remove(long)} and {@link #contains(long)} never
+ * allocate, except when the table grows. {@link #asSet()} provides a boxed view
+ * of instances of this class for APIs expecting {@link Set}s. Instances of this
+ * class are not thread-safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class LongHashSet implements Serializable
+{
+	private static final long serialVersionUID = 8140356916427330482L;
+
+	/** Callback receiving the elements of a {@link LongHashSet}. */
+	public interface Visitor
+	{
+		/**
+		 * Visits the given element.
+		 *
+		 * @param e the visited element.
+		 */
+		void visit(long e);
+	}
+
+	/* Empty slots hold 0, the presence of 0 itself is tracked apart. */
+	private long[] keys;
+	private boolean zero;
+	private int size;
+	private transient int modCount;
+
+	/** Creates a new empty {@code LongHashSet}. */
+	public LongHashSet()
+	{
+		this(16);
+	}
+
+	/**
+	 * Creates a new empty {@code LongHashSet} able to hold the given number
+	 * of elements without being resized.
+	 *
+	 * @param expectedSize the expected number of elements.
+	 *
+	 * @throws IllegalArgumentException if {@code expectedSize < 0}.
+	 */
+	public LongHashSet(int expectedSize)
+	{
+		Parameters.checkCondition(expectedSize >= 0);
+		this.keys = new long[HashTables.capacity(expectedSize)];
+	}
+
+	/**
+	 * Creates a new {@code LongHashSet} containing the given elements.
+	 *
+	 * @param elements the elements to use to populate the created set.
+	 *
+	 * @throws NullPointerException if {@code elements} is {@code null}.
+	 */
+	public LongHashSet(long... elements)
+	{
+		this(elements.length);
+		for (long e : elements) {
+			add(e);
+		}
+	}
+
+	/**
+	 * Adds the given element to this set.
+	 *
+	 * @param e the element to add.
+	 *
+	 * @return whether this set did not already contain {@code e}.
+	 */
+	public boolean add(long e)
+	{
+		if (e == 0) {
+			if (zero) {
+				return false;
+			}
+			zero = true;
+			size++;
+			modCount++;
+			return true;
+		}
+		int i = slot(e);
+		if (keys[i] == e) {
+			return false;
+		}
+		keys[i] = e;
+		modCount++;
+		if (++size > HashTables.threshold(keys.length)) {
+			rehash(HashTables.grow(keys.length));
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the given element from this set.
+	 *
+	 * @param e the element to remove.
+	 *
+	 * @return whether this set contained {@code e}.
+	 */
+	public boolean remove(long e)
+	{
+		if (e == 0) {
+			if (!zero) {
+				return false;
+			}
+			zero = false;
+			size--;
+			modCount++;
+			return true;
+		}
+		int i = slot(e);
+		if (keys[i] != e) {
+			return false;
+		}
+		delete(i);
+		size--;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Returns whether this set contains the given element.
+	 *
+	 * @param e the element to search for.
+	 *
+	 * @return whether this set contains {@code e}.
+	 */
+	public boolean contains(long e)
+	{
+		return e == 0 ? zero : keys[slot(e)] == e;
+	}
+
+	/**
+	 * Returns the number of elements in this set.
+	 *
+	 * @return the number of elements in this set.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns whether this set is empty.
+	 *
+	 * @return whether this set is empty.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/** Removes all the elements of this set. */
+	public void clear()
+	{
+		modCount++;
+		Arrays.fill(keys, 0);
+		zero = false;
+		size = 0;
+	}
+
+	/**
+	 * Passes each element of this set to the given {@code Visitor}. The
+	 * visitor must not modify this set.
+	 *
+	 * @param visitor the visitor.
+	 *
+	 * @throws NullPointerException if {@code visitor} is {@code null}.
+	 */
+	public void forEach(Visitor visitor)
+	{
+		Parameters.checkNotNull(visitor);
+		if (zero) {
+			visitor.visit(0);
+		}
+		for (long key : keys) {
+			if (key != 0) {
+				visitor.visit(key);
+			}
+		}
+	}
+
+	/**
+	 * Returns an array containing all the elements of this set.
+	 *
+	 * @return the elements of this set.
+	 */
+	public long[] toArray()
+	{
+		long[] elements = new long[size];
+		int n = 0;
+		if (zero) {
+			elements[n++] = 0;
+		}
+		for (long key : keys) {
+			if (key != 0) {
+				elements[n++] = key;
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns a live {@link Set} view of this set. Elements are boxed when
+	 * they are read through the view, which does not accept {@code null}
+	 * elements. The view's iterators do not support element removal and
+	 * are fail-fast: they throw a {@link ConcurrentModificationException}
+	 * if this set is modified after their creation.
+	 *
+	 * @return a {@code Set} view of this set.
+	 */
+	public Set<Long> asSet()
+	{
+		return new SetView();
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof LongHashSet)) {
+			return false;
+		}
+		LongHashSet set = (LongHashSet) o;
+		if (size != set.size || zero != set.zero) {
+			return false;
+		}
+		for (long key : keys) {
+			if (key != 0 && !set.contains(key)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 0;
+		for (long key : keys) {
+			hash += (int) (key ^ (key >>> 32));
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		return asSet().toString();
+	}
+
+	/* Returns the slot holding e, or the empty slot where e belongs. */
+	private int slot(long e)
+	{
+		int mask = keys.length - 1;
+		int i = HashTables.hash(e) & mask;
+		while (keys[i] != 0 && keys[i] != e) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/* Empties slot i, shifting back the following entries of its run. */
+	private void delete(int i)
+	{
+		int mask = keys.length - 1;
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (keys[j] == 0) {
+				break;
+			}
+			int k = HashTables.hash(keys[j]) & mask;
+			if (i <= j ? i < k && k <= j : i < k || k <= j) {
+				continue;
+			}
+			keys[i] = keys[j];
+			i = j;
+		}
+		keys[i] = 0;
+	}
+
+	private void rehash(int capacity)
+	{
+		long[] oldKeys = keys;
+		keys = new long[capacity];
+		int mask = capacity - 1;
+		for (long key : oldKeys) {
+			if (key != 0) {
+				int j = HashTables.hash(key) & mask;
+				while (keys[j] != 0) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = key;
+			}
+		}
+	}
+
+	private final class SetView extends AbstractSet<Long>
+	{
+		SetView()
+		{
+			/* ... */
+		}
+
+		@Override
+		public boolean add(Long e)
+		{
+			return LongHashSet.this.add(e.longValue());
+		}
+
+		@Override
+		public boolean remove(Object o)
+		{
+			return o instanceof Long
+				&& LongHashSet.this.remove(((Long) o).longValue());
+		}
+
+		@Override
+		public boolean removeAll(Collection<?> c)
+		{
+			boolean removed = false;
+			for (Object o : c) {
+				removed |= remove(o);
+			}
+			return removed;
+		}
+
+		@Override
+		public boolean retainAll(Collection<?> c)
+		{
+			long[] elements = LongHashSet.this.toArray();
+			boolean removed = false;
+			for (long e : elements) {
+				if (!c.contains(e)) {
+					removed |= LongHashSet.this.remove(e);
+				}
+			}
+			return removed;
+		}
+
+		@Override
+		public void clear()
+		{
+			LongHashSet.this.clear();
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			return o instanceof Long
+				&& LongHashSet.this.contains(((Long) o).longValue());
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public Iterator<Long> iterator()
+		{
+			return new SetIterator();
+		}
+	}
+
+	private final class SetIterator implements Iterator<Long>
+	{
+		private final long[] k = keys;
+		private final int expectedModCount = modCount;
+		private boolean z = zero;
+		private int next;
+
+		SetIterator()
+		{
+			advance();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return z || next < k.length;
+		}
+
+		@Override
+		public Long next()
+		{
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (z) {
+				z = false;
+				return 0L;
+			}
+			if (next == k.length) {
+				throw new NoSuchElementException();
+			}
+			long e = k[next++];
+			advance();
+			return e;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		private void advance()
+		{
+			while (next < k.length && k[next] == 0) {
+				next++;
+			}
+		}
+	}
+}
@@ -0,0 +1,599 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Persistent {@link java.util.List}: it can't be modified in place, but
+ * {@link #with(int, Object)}, {@link #plus(Object)} and {@link #withoutLast()}
+ * return modified versions sharing most of their structure with the original,
+ * in {@code O(log32(n))} time and space. This implementation is a radix-
+ * balanced trie of 32-slot arrays, whose last (possibly partial) leaf is kept
+ * apart so that appending is amortized constant time. Batches of updates are
+ * best performed through a {@link Builder}. Accepts {@code null} values.
+ *
+ * @param <E> the type of the {@code List}'s elements.
+ *
+ * @author Osman KOCAK
+ */
+public final class PersistentList<E> extends AbstractList<E>
+	implements RandomAccess, Serializable
+{
+	private static final long serialVersionUID = 5286105961430271937L;
+
+	/**
+	 * {@code PersistentList} builder. Not thread-safe. Nodes created by a
+	 * builder are updated in place until {@link #build()} is called; the
+	 * built lists are never affected by subsequent updates.
+	 *
+	 * @param <E> the type of the {@code List}'s elements.
+	 */
+	public static final class Builder<E>
+	{
+		private Object edit;
+		private int size;
+		private int shift;
+		private Node root;
+		private Object[] tail;
+
+		/** Creates a new {@code Builder} starting from an empty list. */
+		public Builder()
+		{
+			this(EMPTY);
+		}
+
+		private Builder(PersistentList<?> list)
+		{
+			this.edit = new Object();
+			this.size = list.size;
+			this.shift = list.shift;
+			this.root = list.root;
+			this.tail = Arrays.copyOf(list.tail, WIDTH);
+		}
+
+		/**
+		 * Adds the given values to the end of the {@code List} being
+		 * built.
+		 *
+		 * @param values the values to add.
+		 *
+		 * @return this object.
+		 *
+		 * @throws NullPointerException if {@code values} is {@code null}.
+		 */
+		public Builder<E> add(E... values)
+		{
+			return add(Arrays.asList(values));
+		}
+
+		/**
+		 * Adds all the values contained in the given {@code Iterable}
+		 * to the end of the {@code List} being built.
+		 *
+		 * @param values the values to add.
+		 *
+		 * @return this object.
+		 *
+		 * @throws NullPointerException if {@code values} is {@code null}.
+		 */
+		public Builder<E> add(Iterable<? extends E> values)
+		{
+			for (E value : values) {
+				append(value);
+			}
+			return this;
+		}
+
+		/**
+		 * Replaces the value at the given index in the {@code List}
+		 * being built.
+		 *
+		 * @param index the index of the value to replace.
+		 * @param value the new value.
+		 *
+		 * @return this object.
+		 *
+		 * @throws IndexOutOfBoundsException if {@code index} is out of
+		 *	range.
+		 */
+		public Builder<E> set(int index, E value)
+		{
+			checkIndex(index, size);
+			if (index >= tailOffset(size)) {
+				tail[index & MASK] = value;
+			} else {
+				root = set(shift, root, index, value);
+			}
+			return this;
+		}
+
+		/**
+		 * Returns the number of elements in the {@code List} being
+		 * built.
+		 *
+		 * @return the number of elements in the {@code List} being built.
+		 */
+		public int size()
+		{
+			return size;
+		}
+
+		/**
+		 * Finalizes the creation of the {@code PersistentList}.
+		 *
+		 * @return an instance of {@code PersistentList}.
+		 */
+		public PersistentList<E> build()
+		{
+			if (size == 0) {
+				return empty();
+			}
+			edit = new Object();
+			Object[] t = Arrays.copyOf(tail, size - tailOffset(size));
+			return new PersistentList<E>(size, shift, root, t);
+		}
+
+		private void append(E value)
+		{
+			if (size - tailOffset(size) < WIDTH) {
+				tail[size & MASK] = value;
+				size++;
+				return;
+			}
+			Node leaf = new Node(edit, tail);
+			tail = new Object[WIDTH];
+			tail[0] = value;
+			if ((size >>> BITS) > (1 << shift)) {
+				Node node = new Node(edit, new Object[WIDTH]);
+				node.array[0] = root;
+				node.array[1] = path(edit, shift, leaf);
+				root = node;
+				shift += BITS;
+			} else {
+				root = push(shift, root, leaf);
+			}
+			size++;
+		}
+
+		private Node push(int level, Node parent, Node leaf)
+		{
+			Node node = editable(parent);
+			int i = ((size - 1) >>> level) & MASK;
+			if (level == BITS) {
+				node.array[i] = leaf;
+			} else {
+				Node child = (Node) node.array[i];
+				node.array[i] = child == null
+					? path(edit, level - BITS, leaf)
+					: push(level - BITS, child, leaf);
+			}
+			return node;
+		}
+
+		private Node set(int level, Node parent, int index, Object value)
+		{
+			Node node = editable(parent);
+			int i = (index >>> level) & MASK;
+			if (level == 0) {
+				node.array[i] = value;
+			} else {
+				node.array[i] = set(level - BITS,
+					(Node) node.array[i], index, value);
+			}
+			return node;
+		}
+
+		private Node editable(Node node)
+		{
+			if (node.edit == edit) {
+				return node;
+			}
+			return new Node(edit, node.array.clone());
+		}
+	}
+
+	private static final int BITS = 5;
+	private static final int WIDTH = 1 << BITS;
+	private static final int MASK = WIDTH - 1;
+
+	private static final PersistentList<Object> EMPTY =
+		new PersistentList<Object>(0, BITS, new Node(null,
+			new Object[WIDTH]), new Object[0]);
+
+	/**
+	 * Returns the empty {@code PersistentList}.
+	 *
+	 * @param <E> the type of the {@code List}'s elements.
+	 *
+	 * @return the empty {@code PersistentList}.
+	 */
+	public static <E> PersistentList<E> empty()
+	{
+		return (PersistentList<E>) EMPTY;
+	}
+
+	/**
+	 * Creates a new {@code PersistentList} from the given {@code Iterable}.
+	 *
+	 * @param <E> the type of the {@code List}'s elements.
+	 * @param i the source {@code Iterable}.
+	 *
+	 * @return the created {@code PersistentList}.
+	 *
+	 * @throws NullPointerException if {@code i} is {@code null}.
+	 */
+	public static <E> PersistentList<E> copyOf(Iterable<? extends E> i)
+	{
+		if (i instanceof PersistentList) {
+			return (PersistentList<E>) i;
+		}
+		return new Builder<E>().add(i).build();
+	}
+
+	/**
+	 * Creates a new {@code PersistentList} containing the given elements.
+	 *
+	 * @param <E> the type of the {@code List}'s elements.
+	 * @param values the {@code List}'s elements.
+	 *
+	 * @return the created {@code PersistentList}.
+	 *
+	 * @throws NullPointerException if {@code values} is {@code null}.
+	 */
+	public static <E> PersistentList<E> of(E... values)
+	{
+		return new Builder<E>().add(values).build();
+	}
+
+	private final int size;
+	private final int shift;
+	private final Node root;
+	private final Object[] tail;
+
+	private PersistentList(int size, int shift, Node root, Object[] tail)
+	{
+		this.size = size;
+		this.shift = shift;
+		this.root = root;
+		this.tail = tail;
+	}
+
+	/**
+	 * Returns a {@code PersistentList} containing the elements of this list
+	 * with the one at the given index replaced by {@code e}.
+	 *
+	 * @param index the index of the element to replace.
+	 * @param e the new element.
+	 *
+	 * @return the updated list.
+	 *
+	 * @throws IndexOutOfBoundsException if {@code index} is out of range.
+	 */
+	public PersistentList<E> with(int index, E e)
+	{
+		checkIndex(index, size);
+		if (index >= tailOffset(size)) {
+			Object[] t = tail.clone();
+			t[index & MASK] = e;
+			return new PersistentList<E>(size, shift, root, t);
+		}
+		return new PersistentList<E>(size, shift,
+			with(shift, root, index, e), tail);
+	}
+
+	/**
+	 * Returns a {@code PersistentList} containing the elements of this list
+	 * followed by {@code e}.
+	 *
+	 * @param e the element to append.
+	 *
+	 * @return the updated list.
+	 *
+	 * @throws IllegalStateException if this list already contains
+	 *	{@code Integer.MAX_VALUE} elements.
+	 */
+	public PersistentList<E> plus(E e)
+	{
+		if (size == Integer.MAX_VALUE) {
+			throw new IllegalStateException("Too many elements");
+		}
+		if (size - tailOffset(size) < WIDTH) {
+			Object[] t = Arrays.copyOf(tail, tail.length + 1);
+			t[tail.length] = e;
+			return new PersistentList<E>(size + 1, shift, root, t);
+		}
+		Node leaf = new Node(null, tail);
+		Node r;
+		int s = shift;
+		if ((size >>> BITS) > (1 << shift)) {
+			r = new Node(null, new Object[WIDTH]);
+			r.array[0] = root;
+			r.array[1] = path(null, shift, leaf);
+			s += BITS;
+		} else {
+			r = push(shift, root, leaf);
+		}
+		return new PersistentList<E>(size + 1, s, r, new Object[]{e});
+	}
+
+	/**
+	 * Returns a {@code PersistentList} containing the elements of this list
+	 * except the last one.
+	 *
+	 * @return the updated list.
+	 *
+	 * @throws IllegalStateException if this list is empty.
+	 */
+	public PersistentList<E> withoutLast()
+	{
+		if (size == 0) {
+			throw new IllegalStateException("Empty list");
+		}
+		if (size == 1) {
+			return empty();
+		}
+		if (tail.length > 1) {
+			Object[] t = Arrays.copyOf(tail, tail.length - 1);
+			return new PersistentList<E>(size - 1, shift, root, t);
+		}
+		Object[] t = leafFor(size - 2);
+		Node r = pop(shift, root);
+		int s = shift;
+		if (r == null) {
+			r = EMPTY.root;
+		}
+		if (shift > BITS && r.array[1] == null) {
+			r = (Node) r.array[0];
+			s -= BITS;
+		}
+		return new PersistentList<E>(size - 1, s, r, t);
+	}
+
+	/**
+	 * Returns a new {@code Builder} initialized with the elements of this
+	 * list. This takes constant time: the builder copies the nodes it
+	 * modifies.
+	 *
+	 * @return a new {@code Builder} initialized with this list.
+	 */
+	public Builder<E> toBuilder()
+	{
+		return new Builder<E>(this);
+	}
+
+	@Override
+	public E get(int index)
+	{
+		checkIndex(index, size);
+		return (E) leafFor(index)[index & MASK];
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public Iterator<E> iterator()
+	{
+		return new ListIterator();
+	}
+
+	@Override
+	public boolean add(E e)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void add(int index, E e)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends E> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public E set(int index, E e)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public E remove(int index)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void clear()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	private Object[] leafFor(int index)
+	{
+		if (index >= tailOffset(size)) {
+			return tail;
+		}
+		Node node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Node) node.array[(index >>> level) & MASK];
+		}
+		return node.array;
+	}
+
+	private Node push(int level, Node parent, Node leaf)
+	{
+		Node node = new Node(null, parent.array.clone());
+		int i = ((size - 1) >>> level) & MASK;
+		if (level == BITS) {
+			node.array[i] = leaf;
+		} else {
+			Node child = (Node) parent.array[i];
+			node.array[i] = child == null
+				? path(null, level - BITS, leaf)
+				: push(level - BITS, child, leaf);
+		}
+		return node;
+	}
+
+	private Node pop(int level, Node parent)
+	{
+		int i = ((size - 2) >>> level) & MASK;
+		if (level > BITS) {
+			Node child = pop(level - BITS, (Node) parent.array[i]);
+			if (child == null && i == 0) {
+				return null;
+			}
+			Node node = new Node(null, parent.array.clone());
+			node.array[i] = child;
+			return node;
+		}
+		if (i == 0) {
+			return null;
+		}
+		Node node = new Node(null, parent.array.clone());
+		node.array[i] = null;
+		return node;
+	}
+
+	private static Node with(int level, Node parent, int index, Object e)
+	{
+		Node node = new Node(null, parent.array.clone());
+		int i = (index >>> level) & MASK;
+		if (level == 0) {
+			node.array[i] = e;
+		} else {
+			node.array[i] = with(level - BITS, (Node) parent.array[i],
+				index, e);
+		}
+		return node;
+	}
+
+	/* Returns a branch of the given height ending with the given leaf. */
+	private static Node path(Object edit, int level, Node leaf)
+	{
+		if (level == 0) {
+			return leaf;
+		}
+		Node node = new Node(edit, new Object[WIDTH]);
+		node.array[0] = path(edit, level - BITS, leaf);
+		return node;
+	}
+
+	/* Index of the first element of the tail. */
+	private static int tailOffset(int size)
+	{
+		return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+	}
+
+	private static void checkIndex(int index, int size)
+	{
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(
+				"Index: " + index + ", size: " + size);
+		}
+	}
+
+	/* Walks the leaves, instead of descending the trie for each element. */
+	private final class ListIterator implements Iterator<E>
+	{
+		private int next;
+		private Object[] leaf;
+
+		ListIterator()
+		{
+			/* ... */
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return next < size;
+		}
+
+		@Override
+		public E next()
+		{
+			if (next >= size) {
+				throw new NoSuchElementException();
+			}
+			if ((next & MASK) == 0 || leaf == null) {
+				leaf = leafFor(next);
+			}
+			return (E) leaf[next++ & MASK];
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static final class Node implements Serializable
+	{
+		private static final long serialVersionUID = 3660213895227617418L;
+
+		/* The builder owning this node, if any. */
+		final transient Object edit;
+		final Object[] array;
+
+		Node(Object edit, Object[] array)
+		{
+			this.edit = edit;
+			this.array = array;
+		}
+	}
+}
@@ -0,0 +1,900 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import org.kocakosm.pitaya.util.XObjects;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Persistent {@link Map}: it can't be modified in place, but {@link #with}
+ * and {@link #without} return modified versions sharing most of their
+ * structure with the original, in {@code O(log32(n))} time and space. This
+ * implementation is a hash-array-mapped trie (compressed, canonical variant:
+ * entries are stored inline in the nodes, before the sub-nodes). Batches of
+ * updates are best performed through a {@link Builder}, which updates the
+ * nodes it has created itself in place. Iteration order is unspecified.
+ * Accepts {@code null} values and the {@code null} key.
+ *
+ * @param <K> the type of the {@code Map}'s keys.
+ * @param <V> the type of the {@code Map}'s values.
+ *
+ * @author Osman KOCAK
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V>
+	implements Serializable
+{
+	private static final long serialVersionUID = 1302647315864286459L;
+
+	/**
+	 * {@code PersistentMap} builder. Not thread-safe. Nodes created by a
+	 * builder are updated in place until {@link #build()} is called, so a
+	 * batch of {@code n} updates allocates far less than {@code n} calls to
+	 * {@link PersistentMap#with}. A builder can still be used after
+	 * {@link #build()}: the built maps are never affected.
+	 *
+	 * @param <K> the type of the {@code Map}'s keys.
+	 * @param <V> the type of the {@code Map}'s values.
+	 */
+	public static final class Builder<K, V>
+	{
+		private Object edit;
+		private Node<K, V> root;
+		private int size;
+
+		/** Creates a new {@code Builder} starting from an empty map. */
+		public Builder()
+		{
+			this(PersistentMap.<K, V>emptyNode(), 0);
+		}
+
+		private Builder(Node<K, V> root, int size)
+		{
+			this.edit = new Object();
+			this.root = root;
+			this.size = size;
+		}
+
+		/**
+		 * Associates the specified value with the specified key in the
+		 * {@code Map} being built.
+		 *
+		 * @param key the key.
+		 * @param value the value.
+		 *
+		 * @return this object.
+		 */
+		public Builder<K, V> put(K key, V value)
+		{
+			Change change = new Change();
+			root = root.put(edit, key, value, hash(key), 0, change);
+			if (change.added) {
+				size++;
+			}
+			return this;
+		}
+
+		/**
+		 * Copies all of the mappings from the specified {@code Map} to
+		 * the {@code Map} being built.
+		 *
+		 * @param map mappings to be copied.
+		 *
+		 * @return this object.
+		 *
+		 * @throws NullPointerException if {@code map} is {@code null}.
+		 */
+		public Builder<K, V> put(Map<? extends K, ? extends V> map)
+		{
+			for (Entry<? extends K, ? extends V> e : map.entrySet()) {
+				put(e.getKey(), e.getValue());
+			}
+			return this;
+		}
+
+		/**
+		 * Removes the mapping for the specified key from the
+		 * {@code Map} being built, if present.
+		 *
+		 * @param key the key.
+		 *
+		 * @return this object.
+		 */
+		public Builder<K, V> remove(Object key)
+		{
+			Change change = new Change();
+			root = root.remove(edit, key, hash(key), 0, change);
+			if (change.removed) {
+				size--;
+			}
+			return this;
+		}
+
+		/**
+		 * Returns the number of mappings in the {@code Map} being built.
+		 *
+		 * @return the number of mappings in the {@code Map} being built.
+		 */
+		public int size()
+		{
+			return size;
+		}
+
+		/**
+		 * Finalizes the creation of the {@code PersistentMap}.
+		 *
+		 * @return an instance of {@code PersistentMap}.
+		 */
+		public PersistentMap<K, V> build()
+		{
+			edit = new Object();
+			return size == 0 ? PersistentMap.<K, V>empty()
+				: new PersistentMap<K, V>(root, size);
+		}
+	}
+
+	private static final PersistentMap<Object, Object> EMPTY =
+		new PersistentMap<Object, Object>(new BitmapNode<Object, Object>(
+			null, 0, 0, new Object[0]), 0);
+
+	private static final Object NOT_FOUND = new Object();
+
+	/**
+	 * Returns the empty {@code PersistentMap}.
+	 *
+	 * @param <K> the type of the {@code Map}'s keys.
+	 * @param <V> the type of the {@code Map}'s values.
+	 *
+	 * @return the empty {@code PersistentMap}.
+	 */
+	public static <K, V> PersistentMap<K, V> empty()
+	{
+		return (PersistentMap<K, V>) EMPTY;
+	}
+
+	/**
+	 * Creates a new {@code PersistentMap} from the given {@code Map}.
+	 *
+	 * @param <K> the type of the {@code Map}'s keys.
+	 * @param <V> the type of the {@code Map}'s values.
+	 * @param map the source {@code Map}.
+	 *
+	 * @return the created {@code PersistentMap}.
+	 *
+	 * @throws NullPointerException if {@code map} is {@code null}.
+	 */
+	public static <K, V> PersistentMap<K, V> copyOf(
+		Map<? extends K, ? extends V> map)
+	{
+		if (map instanceof PersistentMap) {
+			return (PersistentMap<K, V>) map;
+		}
+		return new Builder<K, V>().put(map).build();
+	}
+
+	private static <K, V> Node<K, V> emptyNode()
+	{
+		return (Node<K, V>) EMPTY.root;
+	}
+
+	private final Node<K, V> root;
+	private final int size;
+	private transient Set<Entry<K, V>> entrySet;
+
+	private PersistentMap(Node<K, V> root, int size)
+	{
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Returns a {@code PersistentMap} containing the mappings of this map
+	 * plus the given one, which replaces any previous mapping for
+	 * {@code key}. Returns this map if it already maps {@code key} to
+	 * {@code value}.
+	 *
+	 * @param key the key.
+	 * @param value the value.
+	 *
+	 * @return the updated map.
+	 */
+	public PersistentMap<K, V> with(K key, V value)
+	{
+		Change change = new Change();
+		Node<K, V> node = root.put(null, key, value, hash(key), 0, change);
+		if (node == root) {
+			return this;
+		}
+		return new PersistentMap<K, V>(node, change.added ? size + 1 : size);
+	}
+
+	/**
+	 * Returns a {@code PersistentMap} containing the mappings of this map
+	 * except the one for the given key. Returns this map if it doesn't
+	 * contain {@code key}.
+	 *
+	 * @param key the key.
+	 *
+	 * @return the updated map.
+	 */
+	public PersistentMap<K, V> without(Object key)
+	{
+		Change change = new Change();
+		Node<K, V> node = root.remove(null, key, hash(key), 0, change);
+		if (node == root) {
+			return this;
+		}
+		return size == 1 ? PersistentMap.<K, V>empty()
+			: new PersistentMap<K, V>(node, size - 1);
+	}
+
+	/**
+	 * Returns a new {@code Builder} initialized with the mappings of this
+	 * map. This takes constant time: the builder copies the nodes it
+	 * modifies.
+	 *
+	 * @return a new {@code Builder} initialized with this map.
+	 */
+	public Builder<K, V> toBuilder()
+	{
+		return new Builder<K, V>(root, size);
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return root.find(key, hash(key), 0) != NOT_FOUND;
+	}
+
+	@Override
+	public V get(Object key)
+	{
+		Object value = root.find(key, hash(key), 0);
+		return value == NOT_FOUND ? null : (V) value;
+	}
+
+	@Override
+	public V put(K key, V value)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public V remove(Object key)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void clear()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public Set<Entry<K, V>> entrySet()
+	{
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+		}
+		return entrySet;
+	}
+
+	/**
+	 * Returns an iterator over the keys of this map, that doesn't create
+	 * any intermediate entry.
+	 *
+	 * @return an iterator over the keys of this map.
+	 */
+	Iterator<K> keyIterator()
+	{
+		return new NodeIterator<K>() {
+			@Override
+			K get(Node<K, V> node, int i)
+			{
+				return node.keyAt(i);
+			}
+		};
+	}
+
+	private Object writeReplace()
+	{
+		return new SerializedForm<K, V>(this);
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws InvalidObjectException
+	{
+		throw new InvalidObjectException("Proxy required");
+	}
+
+	private static int hash(Object key)
+	{
+		int h = key == null ? 0 : key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static int bit(int hash, int shift)
+	{
+		return 1 << ((hash >>> shift) & 31);
+	}
+
+	private final class EntrySet extends AbstractSet<Entry<K, V>>
+	{
+		EntrySet()
+		{
+			/* ... */
+		}
+
+		@Override
+		public Iterator<Entry<K, V>> iterator()
+		{
+			return new NodeIterator<Entry<K, V>>() {
+				@Override
+				Entry<K, V> get(Node<K, V> node, int i)
+				{
+					return new SimpleImmutableEntry<K, V>(
+						node.keyAt(i), node.valueAt(i));
+				}
+			};
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			if (!(o instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> entry = (Entry<?, ?>) o;
+			Object key = entry.getKey();
+			Object value = root.find(key, hash(key), 0);
+			return value != NOT_FOUND
+				&& XObjects.equal(value, entry.getValue());
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+	}
+
+	/* Depth-first traversal: each node's entries, then its sub-nodes. */
+	private abstract class NodeIterator<T> implements Iterator<T>
+	{
+		private final Node<K, V>[] nodes = new Node[8];
+		private final int[] entries = new int[8];
+		private final int[] children = new int[8];
+		private int depth;
+
+		NodeIterator()
+		{
+			nodes[0] = root;
+			advance();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return depth >= 0;
+		}
+
+		@Override
+		public T next()
+		{
+			if (depth < 0) {
+				throw new NoSuchElementException();
+			}
+			T next = get(nodes[depth], entries[depth]++);
+			advance();
+			return next;
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		abstract T get(Node<K, V> node, int i);
+
+		/* Moves to the next entry, sets depth to -1 if there is none. */
+		private void advance()
+		{
+			while (depth >= 0) {
+				Node<K, V> node = nodes[depth];
+				if (entries[depth] < node.payloadArity()) {
+					return;
+				}
+				if (children[depth] < node.nodeArity()) {
+					Node<K, V> child = node.nodeAt(children[depth]++);
+					depth++;
+					nodes[depth] = child;
+					entries[depth] = 0;
+					children[depth] = 0;
+				} else {
+					nodes[depth--] = null;
+				}
+			}
+		}
+	}
+
+	/* Records the effect of an update on the map's size. */
+	private static final class Change
+	{
+		boolean added;
+		boolean removed;
+
+		Change()
+		{
+			/* ... */
+		}
+	}
+
+	/*
+	 * Serialization proxy: the trie's layout depends on the keys' hash
+	 * codes, which may differ from one JVM to another (enums, identity
+	 * hashes...), so only the entries are written and the trie is rebuilt
+	 * when read.
+	 */
+	private static final class SerializedForm<K, V> implements Serializable
+	{
+		private static final long serialVersionUID = 5717389204682257019L;
+
+		private transient PersistentMap<K, V> map;
+
+		SerializedForm(PersistentMap<K, V> map)
+		{
+			this.map = map;
+		}
+
+		private void writeObject(ObjectOutputStream out)
+			throws IOException
+		{
+			out.defaultWriteObject();
+			out.writeInt(map.size);
+			for (Entry<K, V> entry : map.entrySet()) {
+				out.writeObject(entry.getKey());
+				out.writeObject(entry.getValue());
+			}
+		}
+
+		private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException
+		{
+			in.defaultReadObject();
+			int size = in.readInt();
+			if (size < 0) {
+				throw new InvalidObjectException("Negative size");
+			}
+			Builder<K, V> builder = new Builder<K, V>();
+			for (int i = 0; i < size; i++) {
+				builder.put((K) in.readObject(), (V) in.readObject());
+			}
+			map = builder.build();
+		}
+
+		private Object readResolve()
+		{
+			return map;
+		}
+	}
+
+	private abstract static class Node<K, V>
+	{
+		/* The builder owning this node, if any. */
+		Object edit;
+
+		Node(Object edit)
+		{
+			this.edit = edit;
+		}
+
+		abstract Object find(Object key, int hash, int shift);
+
+		abstract Node<K, V> put(Object edit, K key, V value, int hash,
+			int shift, Change change);
+
+		abstract Node<K, V> remove(Object edit, Object key, int hash,
+			int shift, Change change);
+
+		abstract int payloadArity();
+
+		abstract int nodeArity();
+
+		abstract K keyAt(int i);
+
+		abstract V valueAt(int i);
+
+		abstract Node<K, V> nodeAt(int i);
+
+		final boolean isOwnedBy(Object edit)
+		{
+			return edit != null && edit == this.edit;
+		}
+	}
+
+	/*
+	 * Inner node: the 32 possible hash fragments at this level are either
+	 * absent, an inline entry (dataMap) or a sub-node (nodeMap). Content
+	 * holds the entries' keys and values, then the sub-nodes:
+	 * [k0, v0, k1, v1, ..., n0, n1, ...], all ordered by hash fragment.
+	 */
+	private static final class BitmapNode<K, V> extends Node<K, V>
+	{
+		private int dataMap;
+		private int nodeMap;
+		private Object[] content;
+
+		BitmapNode(Object edit, int dataMap, int nodeMap, Object[] content)
+		{
+			super(edit);
+			this.dataMap = dataMap;
+			this.nodeMap = nodeMap;
+			this.content = content;
+		}
+
+		@Override
+		Object find(Object key, int hash, int shift)
+		{
+			int bit = bit(hash, shift);
+			if ((dataMap & bit) != 0) {
+				int i = index(dataMap, bit);
+				return XObjects.equal(key, content[2 * i])
+					? content[2 * i + 1] : NOT_FOUND;
+			}
+			if ((nodeMap & bit) != 0) {
+				return nodeAt(index(nodeMap, bit))
+					.find(key, hash, shift + 5);
+			}
+			return NOT_FOUND;
+		}
+
+		@Override
+		Node<K, V> put(Object edit, K key, V value, int hash, int shift,
+			Change change)
+		{
+			int bit = bit(hash, shift);
+			if ((dataMap & bit) != 0) {
+				int i = index(dataMap, bit);
+				K k = keyAt(i);
+				if (XObjects.equal(key, k)) {
+					if (content[2 * i + 1] == value) {
+						return this;
+					}
+					BitmapNode<K, V> node = editable(edit);
+					node.content[2 * i + 1] = value;
+					return node;
+				}
+				Node<K, V> child = merge(edit, k, valueAt(i), hash(k),
+					key, value, hash, shift + 5);
+				change.added = true;
+				return dataToNode(edit, bit, child);
+			}
+			if ((nodeMap & bit) != 0) {
+				int i = index(nodeMap, bit);
+				Node<K, V> child = nodeAt(i);
+				Node<K, V> updated = child.put(edit, key, value, hash,
+					shift + 5, change);
+				if (updated == child) {
+					return this;
+				}
+				BitmapNode<K, V> node = editable(edit);
+				node.content[2 * payloadArity() + i] = updated;
+				return node;
+			}
+			change.added = true;
+			return insertData(edit, bit, key, value);
+		}
+
+		@Override
+		Node<K, V> remove(Object edit, Object key, int hash, int shift,
+			Change change)
+		{
+			int bit = bit(hash, shift);
+			if ((dataMap & bit) != 0) {
+				int i = index(dataMap, bit);
+				if (!XObjects.equal(key, content[2 * i])) {
+					return this;
+				}
+				change.removed = true;
+				return removeData(edit, bit);
+			}
+			if ((nodeMap & bit) != 0) {
+				int i = index(nodeMap, bit);
+				Node<K, V> child = nodeAt(i);
+				Node<K, V> updated = child.remove(edit, key, hash,
+					shift + 5, change);
+				if (updated == child) {
+					return this;
+				}
+				if (updated.payloadArity() == 1
+					&& updated.nodeArity() == 0) {
+					return nodeToData(edit, bit, updated.keyAt(0),
+						updated.valueAt(0));
+				}
+				BitmapNode<K, V> node = editable(edit);
+				node.content[2 * payloadArity() + i] = updated;
+				return node;
+			}
+			return this;
+		}
+
+		@Override
+		int payloadArity()
+		{
+			return Integer.bitCount(dataMap);
+		}
+
+		@Override
+		int nodeArity()
+		{
+			return Integer.bitCount(nodeMap);
+		}
+
+		@Override
+		K keyAt(int i)
+		{
+			return (K) content[2 * i];
+		}
+
+		@Override
+		V valueAt(int i)
+		{
+			return (V) content[2 * i + 1];
+		}
+
+		@Override
+		Node<K, V> nodeAt(int i)
+		{
+			return (Node<K, V>) content[2 * payloadArity() + i];
+		}
+
+		private BitmapNode<K, V> editable(Object edit)
+		{
+			if (isOwnedBy(edit)) {
+				return this;
+			}
+			return new BitmapNode<K, V>(edit, dataMap, nodeMap,
+				content.clone());
+		}
+
+		private Node<K, V> update(Object edit, int dataMap, int nodeMap,
+			Object[] content)
+		{
+			if (isOwnedBy(edit)) {
+				this.dataMap = dataMap;
+				this.nodeMap = nodeMap;
+				this.content = content;
+				return this;
+			}
+			return new BitmapNode<K, V>(edit, dataMap, nodeMap, content);
+		}
+
+		private Node<K, V> insertData(Object edit, int bit, K key, V value)
+		{
+			int i = 2 * index(dataMap, bit);
+			Object[] a = new Object[content.length + 2];
+			System.arraycopy(content, 0, a, 0, i);
+			a[i] = key;
+			a[i + 1] = value;
+			System.arraycopy(content, i, a, i + 2, content.length - i);
+			return update(edit, dataMap | bit, nodeMap, a);
+		}
+
+		private Node<K, V> removeData(Object edit, int bit)
+		{
+			int i = 2 * index(dataMap, bit);
+			Object[] a = new Object[content.length - 2];
+			System.arraycopy(content, 0, a, 0, i);
+			System.arraycopy(content, i + 2, a, i, a.length - i);
+			return update(edit, dataMap ^ bit, nodeMap, a);
+		}
+
+		private Node<K, V> dataToNode(Object edit, int bit, Node<K, V> node)
+		{
+			int i = 2 * index(dataMap, bit);
+			int j = 2 * payloadArity() - 2 + index(nodeMap, bit);
+			Object[] a = new Object[content.length - 1];
+			System.arraycopy(content, 0, a, 0, i);
+			System.arraycopy(content, i + 2, a, i, j - i);
+			a[j] = node;
+			System.arraycopy(content, j + 2, a, j + 1, a.length - j - 1);
+			return update(edit, dataMap ^ bit, nodeMap | bit, a);
+		}
+
+		private Node<K, V> nodeToData(Object edit, int bit, K key, V value)
+		{
+			int i = 2 * index(dataMap, bit);
+			int j = 2 * payloadArity() + index(nodeMap, bit);
+			Object[] a = new Object[content.length + 1];
+			System.arraycopy(content, 0, a, 0, i);
+			a[i] = key;
+			a[i + 1] = value;
+			System.arraycopy(content, i, a, i + 2, j - i);
+			System.arraycopy(content, j + 1, a, j + 2, a.length - j - 2);
+			return update(edit, dataMap | bit, nodeMap ^ bit, a);
+		}
+
+		private static <K, V> Node<K, V> merge(Object edit, K k0, V v0,
+			int h0, K k1, V v1, int h1, int shift)
+		{
+			if (shift >= 32) {
+				return new CollisionNode<K, V>(edit, h0,
+					new Object[]{k0, v0, k1, v1});
+			}
+			int f0 = (h0 >>> shift) & 31;
+			int f1 = (h1 >>> shift) & 31;
+			if (f0 == f1) {
+				Node<K, V> node = merge(edit, k0, v0, h0, k1, v1, h1,
+					shift + 5);
+				return new BitmapNode<K, V>(edit, 0, 1 << f0,
+					new Object[]{node});
+			}
+			Object[] content = f0 < f1
+				? new Object[]{k0, v0, k1, v1}
+				: new Object[]{k1, v1, k0, v0};
+			return new BitmapNode<K, V>(edit, (1 << f0) | (1 << f1), 0,
+				content);
+		}
+
+		private static int index(int map, int bit)
+		{
+			return Integer.bitCount(map & (bit - 1));
+		}
+	}
+
+	/* Leaf holding entries whose keys have the same hash. */
+	private static final class CollisionNode<K, V> extends Node<K, V>
+	{
+		private final int hash;
+		private Object[] content;
+
+		CollisionNode(Object edit, int hash, Object[] content)
+		{
+			super(edit);
+			this.hash = hash;
+			this.content = content;
+		}
+
+		@Override
+		Object find(Object key, int hash, int shift)
+		{
+			int i = indexOf(key);
+			return i < 0 ? NOT_FOUND : content[i + 1];
+		}
+
+		@Override
+		Node<K, V> put(Object edit, K key, V value, int hash, int shift,
+			Change change)
+		{
+			int i = indexOf(key);
+			if (i >= 0) {
+				if (content[i + 1] == value) {
+					return this;
+				}
+				Object[] a = isOwnedBy(edit) ? content : content.clone();
+				a[i + 1] = value;
+				return update(edit, a);
+			}
+			Object[] a = new Object[content.length + 2];
+			System.arraycopy(content, 0, a, 0, content.length);
+			a[content.length] = key;
+			a[content.length + 1] = value;
+			change.added = true;
+			return update(edit, a);
+		}
+
+		@Override
+		Node<K, V> remove(Object edit, Object key, int hash, int shift,
+			Change change)
+		{
+			int i = indexOf(key);
+			if (i < 0) {
+				return this;
+			}
+			change.removed = true;
+			if (content.length == 4) {
+				/* The parent inlines single entry nodes. */
+				int j = 2 - i;
+				return new BitmapNode<K, V>(edit, bit(hash, 0), 0,
+					new Object[]{content[j], content[j + 1]});
+			}
+			Object[] a = new Object[content.length - 2];
+			System.arraycopy(content, 0, a, 0, i);
+			System.arraycopy(content, i + 2, a, i, a.length - i);
+			return update(edit, a);
+		}
+
+		@Override
+		int payloadArity()
+		{
+			return content.length / 2;
+		}
+
+		@Override
+		int nodeArity()
+		{
+			return 0;
+		}
+
+		@Override
+		K keyAt(int i)
+		{
+			return (K) content[2 * i];
+		}
+
+		@Override
+		V valueAt(int i)
+		{
+			return (V) content[2 * i + 1];
+		}
+
+		@Override
+		Node<K, V> nodeAt(int i)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+
+		private int indexOf(Object key)
+		{
+			for (int i = 0; i < content.length; i += 2) {
+				if (XObjects.equal(key, content[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private Node<K, V> update(Object edit, Object[] content)
+		{
+			if (isOwnedBy(edit)) {
+				this.content = content;
+				return this;
+			}
+			return new CollisionNode<K, V>(edit, hash, content);
+		}
+	}
+}
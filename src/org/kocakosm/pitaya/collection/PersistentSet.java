@@ -0,0 +1,352 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Persistent {@link Set}: it can't be modified in place, but {@link #with}
+ * and {@link #without} return modified versions sharing most of their
+ * structure with the original, in {@code O(log32(n))} time and space. This
+ * implementation is backed by a {@link PersistentMap}. Batches of updates are
+ * best performed through a {@link Builder}. Iteration order is unspecified.
+ * Accepts {@code null} values.
+ *
+ * @param <E> the type of the {@code Set}'s elements.
+ *
+ * @author Osman KOCAK
+ */
+public final class PersistentSet<E> extends AbstractSet<E>
+	implements Serializable
+{
+	private static final long serialVersionUID = 8129467305175638242L;
+
+	/**
+	 * {@code PersistentSet} builder. Not thread-safe. Nodes created by a
+	 * builder are updated in place until {@link #build()} is called; the
+	 * built sets are never affected by subsequent updates.
+	 *
+	 * @param <E> the type of the {@code Set}'s elements.
+	 */
+	public static final class Builder<E>
+	{
+		private final PersistentMap.Builder<E, Boolean> inner;
+
+		/** Creates a new {@code Builder} starting from an empty set. */
+		public Builder()
+		{
+			this(new PersistentMap.Builder<E, Boolean>());
+		}
+
+		private Builder(PersistentMap.Builder<E, Boolean> inner)
+		{
+			this.inner = inner;
+		}
+
+		/**
+		 * Adds the given values to the {@code Set} being built.
+		 *
+		 * @param values the values to add.
+		 *
+		 * @return this object.
+		 *
+		 * @throws NullPointerException if {@code values} is {@code null}.
+		 */
+		public Builder<E> add(E... values)
+		{
+			return add(Arrays.asList(values));
+		}
+
+		/**
+		 * Adds all the values contained in the given {@code Iterable}
+		 * to the {@code Set} being built.
+		 *
+		 * @param values the values to add.
+		 *
+		 * @return this object.
+		 *
+		 * @throws NullPointerException if {@code values} is {@code null}.
+		 */
+		public Builder<E> add(Iterable<? extends E> values)
+		{
+			for (E value : values) {
+				inner.put(value, Boolean.TRUE);
+			}
+			return this;
+		}
+
+		/**
+		 * Removes the given value from the {@code Set} being built, if
+		 * present.
+		 *
+		 * @param value the value to remove.
+		 *
+		 * @return this object.
+		 */
+		public Builder<E> remove(Object value)
+		{
+			inner.remove(value);
+			return this;
+		}
+
+		/**
+		 * Returns the number of elements in the {@code Set} being built.
+		 *
+		 * @return the number of elements in the {@code Set} being built.
+		 */
+		public int size()
+		{
+			return inner.size();
+		}
+
+		/**
+		 * Finalizes the creation of the {@code PersistentSet}.
+		 *
+		 * @return an instance of {@code PersistentSet}.
+		 */
+		public PersistentSet<E> build()
+		{
+			return PersistentSet.create(inner.build());
+		}
+	}
+
+	private static final PersistentSet<Object> EMPTY =
+		new PersistentSet<Object>(PersistentMap.<Object, Boolean>empty());
+
+	/**
+	 * Returns the empty {@code PersistentSet}.
+	 *
+	 * @param <E> the type of the {@code Set}'s elements.
+	 *
+	 * @return the empty {@code PersistentSet}.
+	 */
+	public static <E> PersistentSet<E> empty()
+	{
+		return (PersistentSet<E>) EMPTY;
+	}
+
+	/**
+	 * Creates a new {@code PersistentSet} from the given {@code Iterable}.
+	 *
+	 * @param <E> the type of the {@code Set}'s elements.
+	 * @param i the source {@code Iterable}.
+	 *
+	 * @return the created {@code PersistentSet}.
+	 *
+	 * @throws NullPointerException if {@code i} is {@code null}.
+	 */
+	public static <E> PersistentSet<E> copyOf(Iterable<? extends E> i)
+	{
+		if (i instanceof PersistentSet) {
+			return (PersistentSet<E>) i;
+		}
+		return new Builder<E>().add(i).build();
+	}
+
+	/**
+	 * Creates a new {@code PersistentSet} containing the given elements.
+	 *
+	 * @param <E> the type of the {@code Set}'s elements.
+	 * @param values the {@code Set}'s elements.
+	 *
+	 * @return the created {@code PersistentSet}.
+	 *
+	 * @throws NullPointerException if {@code values} is {@code null}.
+	 */
+	public static <E> PersistentSet<E> of(E... values)
+	{
+		return new Builder<E>().add(values).build();
+	}
+
+	private static <E> PersistentSet<E> create(PersistentMap<E, Boolean> map)
+	{
+		return map.isEmpty() ? PersistentSet.<E>empty()
+			: new PersistentSet<E>(map);
+	}
+
+	private final PersistentMap<E, Boolean> map;
+
+	private PersistentSet(PersistentMap<E, Boolean> map)
+	{
+		this.map = map;
+	}
+
+	/**
+	 * Returns a {@code PersistentSet} containing the elements of this set
+	 * plus the given one. Returns this set if it already contains
+	 * {@code e}.
+	 *
+	 * @param e the element to add.
+	 *
+	 * @return the updated set.
+	 */
+	public PersistentSet<E> with(E e)
+	{
+		PersistentMap<E, Boolean> updated = map.with(e, Boolean.TRUE);
+		return updated == map ? this : new PersistentSet<E>(updated);
+	}
+
+	/**
+	 * Returns a {@code PersistentSet} containing the elements of this set
+	 * except the given one. Returns this set if it doesn't contain
+	 * {@code o}.
+	 *
+	 * @param o the element to remove.
+	 *
+	 * @return the updated set.
+	 */
+	public PersistentSet<E> without(Object o)
+	{
+		PersistentMap<E, Boolean> updated = map.without(o);
+		return updated == map ? this : create(updated);
+	}
+
+	/**
+	 * Returns a new {@code Builder} initialized with the elements of this
+	 * set. This takes constant time: the builder copies the nodes it
+	 * modifies.
+	 *
+	 * @return a new {@code Builder} initialized with this set.
+	 */
+	public Builder<E> toBuilder()
+	{
+		return new Builder<E>(map.toBuilder());
+	}
+
+	@Override
+	public int size()
+	{
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return map.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		return map.containsKey(o);
+	}
+
+	@Override
+	public Iterator<E> iterator()
+	{
+		return map.keyIterator();
+	}
+
+	@Override
+	public boolean add(E e)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void clear()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	private Object writeReplace()
+	{
+		return new SerializedForm<E>(this);
+	}
+
+	private void readObject(ObjectInputStream in)
+		throws InvalidObjectException
+	{
+		throw new InvalidObjectException("Proxy required");
+	}
+
+	/* Serialization proxy, see PersistentMap's. */
+	private static final class SerializedForm<E> implements Serializable
+	{
+		private static final long serialVersionUID = 4672913058310465528L;
+
+		private transient PersistentSet<E> set;
+
+		SerializedForm(PersistentSet<E> set)
+		{
+			this.set = set;
+		}
+
+		private void writeObject(ObjectOutputStream out)
+			throws IOException
+		{
+			out.defaultWriteObject();
+			out.writeInt(set.size());
+			for (E e : set) {
+				out.writeObject(e);
+			}
+		}
+
+		private void readObject(ObjectInputStream in)
+			throws IOException, ClassNotFoundException
+		{
+			in.defaultReadObject();
+			int size = in.readInt();
+			if (size < 0) {
+				throw new InvalidObjectException("Negative size");
+			}
+			Builder<E> builder = new Builder<E>();
+			for (int i = 0; i < size; i++) {
+				builder.add((E) in.readObject());
+			}
+			set = builder.build();
+		}
+
+		private Object readResolve()
+		{
+			return set;
+		}
+	}
+}
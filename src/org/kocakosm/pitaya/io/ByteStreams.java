@@ -16,6 +16,8 @@
 
 package org.kocakosm.pitaya.io;
 
+import org.kocakosm.pitaya.security.Digest;
+
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -90,6 +92,35 @@ public final class ByteStreams
 		out.flush();
 	}
 
+	/**
+	 * Copies the content of the given {@code InputStream} into the given
+	 * {@code OutputStream} and returns the digest of the copied bytes. The
+	 * given {@code Digest} engine is reset before the copy starts.
+	 *
+	 * @param in the stream to read from.
+	 * @param out the stream to write on.
+	 * @param digest the {@code Digest} engine to use.
+	 *
+	 * @return the digest of the copied bytes.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IOException if an I/O error occurs during the process.
+	 */
+	public static byte[] copy(InputStream in, OutputStream out, Digest digest)
+		throws IOException
+	{
+		digest.reset();
+		byte[] buf = new byte[4096];
+		int len = in.read(buf);
+		while (len >= 0) {
+			out.write(buf, 0, len);
+			digest.update(buf, 0, len);
+			len = in.read(buf);
+		}
+		out.flush();
+		return digest.digest();
+	}
+
 	/**
 	 * Returns whether the given streams have the same content.
 	 *
@@ -0,0 +1,121 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.io;
+
+import org.kocakosm.pitaya.security.Digest;
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A decorating {@code InputStream} that updates a {@link Digest} engine with
+ * the bytes that are read from the underlying stream. Skipped bytes are read
+ * and fed to the engine as well, so that, once the stream has been consumed,
+ * the engine has seen exactly the stream's content. Marking is not supported.
+ * Instances of this class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class DigestInputStream extends InputStream
+{
+	private final InputStream in;
+	private final Digest digest;
+
+	/**
+	 * Creates a new {@code DigestInputStream}.
+	 *
+	 * @param in the underlying stream.
+	 * @param digest the {@code Digest} engine to update.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public DigestInputStream(InputStream in, Digest digest)
+	{
+		Parameters.checkNotNull(in);
+		Parameters.checkNotNull(digest);
+		this.in = in;
+		this.digest = digest;
+	}
+
+	/**
+	 * Returns the {@code Digest} engine updated by this stream.
+	 *
+	 * @return the underlying {@code Digest} engine.
+	 */
+	public Digest getDigest()
+	{
+		return digest;
+	}
+
+	@Override
+	public int available() throws IOException
+	{
+		return in.available();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		in.close();
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return false;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		int b = in.read();
+		if (b != -1) {
+			digest.update((byte) b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b) throws IOException
+	{
+		return read(b, 0, b.length);
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		int n = in.read(b, off, len);
+		if (n > 0) {
+			digest.update(b, off, n);
+		}
+		return n;
+	}
+
+	@Override
+	public void reset() throws IOException
+	{
+		throw new IOException("mark/reset not supported");
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		return IO.skipByReading(this, n);
+	}
+}
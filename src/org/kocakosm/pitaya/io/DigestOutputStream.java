@@ -0,0 +1,95 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.io;
+
+import org.kocakosm.pitaya.security.Digest;
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A decorating {@code OutputStream} that updates a {@link Digest} engine with
+ * the bytes that are written to the underlying stream. Instances of this class
+ * are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class DigestOutputStream extends OutputStream
+{
+	private final OutputStream out;
+	private final Digest digest;
+
+	/**
+	 * Creates a new {@code DigestOutputStream}.
+	 *
+	 * @param out the underlying stream.
+	 * @param digest the {@code Digest} engine to update.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public DigestOutputStream(OutputStream out, Digest digest)
+	{
+		Parameters.checkNotNull(out);
+		Parameters.checkNotNull(digest);
+		this.out = out;
+		this.digest = digest;
+	}
+
+	/**
+	 * Returns the {@code Digest} engine updated by this stream.
+	 *
+	 * @return the underlying {@code Digest} engine.
+	 */
+	public Digest getDigest()
+	{
+		return digest;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		out.close();
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	@Override
+	public void write(int i) throws IOException
+	{
+		out.write(i);
+		digest.update((byte) i);
+	}
+
+	@Override
+	public void write(byte[] b) throws IOException
+	{
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		out.write(b, off, len);
+		digest.update(b, off, len);
+	}
+}
@@ -19,6 +19,7 @@ package org.kocakosm.pitaya.io;
 import java.io.Closeable;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Common I/O utilities.
@@ -59,6 +60,36 @@ public final class IO
 		}
 	}
 
+	/**
+	 * Skips over {@code n} bytes of the given stream by reading them, so
+	 * that the skipped bytes go through the stream's {@code read} method.
+	 *
+	 * @param in the stream to skip bytes from.
+	 * @param n the number of bytes to skip.
+	 *
+	 * @return the number of bytes actually skipped, {@code 0} if {@code n}
+	 *	is negative.
+	 *
+	 * @throws IOException if {@code in} can't be read.
+	 */
+	static long skipByReading(InputStream in, long n) throws IOException
+	{
+		if (n <= 0) {
+			return 0;
+		}
+		byte[] buf = new byte[(int) Math.min(n, 4096)];
+		long skipped = 0;
+		while (skipped < n) {
+			int len = (int) Math.min(n - skipped, buf.length);
+			int r = in.read(buf, 0, len);
+			if (r < 0) {
+				break;
+			}
+			skipped += r;
+		}
+		return skipped;
+	}
+
 	private IO()
 	{
 		/* ... */
@@ -0,0 +1,121 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.io;
+
+import org.kocakosm.pitaya.security.MAC;
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A decorating {@code InputStream} that updates a {@link MAC} engine with
+ * the bytes that are read from the underlying stream. Skipped bytes are read
+ * and fed to the engine as well, so that, once the stream has been consumed,
+ * the engine has seen exactly the stream's content. Marking is not supported.
+ * Instances of this class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACInputStream extends InputStream
+{
+	private final InputStream in;
+	private final MAC mac;
+
+	/**
+	 * Creates a new {@code MACInputStream}.
+	 *
+	 * @param in the underlying stream.
+	 * @param mac the {@code MAC} engine to update.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public MACInputStream(InputStream in, MAC mac)
+	{
+		Parameters.checkNotNull(in);
+		Parameters.checkNotNull(mac);
+		this.in = in;
+		this.mac = mac;
+	}
+
+	/**
+	 * Returns the {@code MAC} engine updated by this stream.
+	 *
+	 * @return the underlying {@code MAC} engine.
+	 */
+	public MAC getMAC()
+	{
+		return mac;
+	}
+
+	@Override
+	public int available() throws IOException
+	{
+		return in.available();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		in.close();
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return false;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		int b = in.read();
+		if (b != -1) {
+			mac.update((byte) b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b) throws IOException
+	{
+		return read(b, 0, b.length);
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		int n = in.read(b, off, len);
+		if (n > 0) {
+			mac.update(b, off, n);
+		}
+		return n;
+	}
+
+	@Override
+	public void reset() throws IOException
+	{
+		throw new IOException("mark/reset not supported");
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		return IO.skipByReading(this, n);
+	}
+}
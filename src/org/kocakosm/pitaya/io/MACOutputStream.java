@@ -0,0 +1,95 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.io;
+
+import org.kocakosm.pitaya.security.MAC;
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A decorating {@code OutputStream} that updates a {@link MAC} engine with
+ * the bytes that are written to the underlying stream. Instances of this class
+ * are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACOutputStream extends OutputStream
+{
+	private final OutputStream out;
+	private final MAC mac;
+
+	/**
+	 * Creates a new {@code MACOutputStream}.
+	 *
+	 * @param out the underlying stream.
+	 * @param mac the {@code MAC} engine to update.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public MACOutputStream(OutputStream out, MAC mac)
+	{
+		Parameters.checkNotNull(out);
+		Parameters.checkNotNull(mac);
+		this.out = out;
+		this.mac = mac;
+	}
+
+	/**
+	 * Returns the {@code MAC} engine updated by this stream.
+	 *
+	 * @return the underlying {@code MAC} engine.
+	 */
+	public MAC getMAC()
+	{
+		return mac;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		out.close();
+	}
+
+	@Override
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	@Override
+	public void write(int i) throws IOException
+	{
+		out.write(i);
+		mac.update((byte) i);
+	}
+
+	@Override
+	public void write(byte[] b) throws IOException
+	{
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		out.write(b, off, len);
+		mac.update(b, off, len);
+	}
+}
@@ -0,0 +1,605 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.io;
+
+import org.kocakosm.pitaya.charset.UTF8;
+import org.kocakosm.pitaya.security.Algorithm;
+import org.kocakosm.pitaya.security.Digest;
+import org.kocakosm.pitaya.security.Digests;
+import org.kocakosm.pitaya.util.BaseEncoding;
+import org.kocakosm.pitaya.util.BigEndian;
+import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.XObjects;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Merkle tree fingerprint of a file or directory tree. The hash of a regular
+ * file is the digest of its content; the hash of a directory is the digest of
+ * its entries (type, name and hash of each of its regular files and
+ * sub-directories), sorted by name. Other kinds of files are ignored.
+ * Symbolic links are followed, except those leading to one of their own
+ * ancestor directories, which are ignored so that cyclic trees can be walked.
+ * Two trees have the same root hash if and only if they have the same
+ * structure and content (barring digest collisions), and their differences can
+ * be found without visiting their unchanged subtrees.
+ *
+ * File hashes can be cached in a sidecar index, keyed by relative path, size
+ * and last modification date: re-fingerprinting an unchanged tree then only
+ * requires listing directories and reading file attributes. Instances of this
+ * class are immutable.
+ *
+ * @author Osman KOCAK
+ */
+public final class MerkleTree
+{
+	private static final int INDEX_MAGIC = 0x4D4B4C31;
+	private static final byte FILE = 0x00;
+	private static final byte DIRECTORY = 0x01;
+
+	/*
+	 * Files modified less than this many milliseconds before the walk
+	 * started are not indexed: a later modification may not change their
+	 * size nor their timestamp (whose resolution can be as coarse as 2s).
+	 */
+	private static final long RACY_WINDOW = 2000;
+
+	/**
+	 * Builds the Merkle tree of the given file or directory.
+	 *
+	 * @param root the root of the tree.
+	 * @param algorithm the digest algorithm to use.
+	 *
+	 * @return the {@code root}'s Merkle tree.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if the digest algorithm is unknown.
+	 * @throws IOException if {@code root} is neither a regular file nor a
+	 *	directory or if an I/O error occurs during the process.
+	 */
+	public static MerkleTree build(File root, Algorithm<Digest> algorithm)
+		throws IOException
+	{
+		return new Builder(root, algorithm, null, null).build();
+	}
+
+	/**
+	 * Builds the Merkle tree of the given file or directory, files being
+	 * hashed concurrently using the given {@code Executor}.
+	 *
+	 * @param root the root of the tree.
+	 * @param algorithm the digest algorithm to use.
+	 * @param executor the {@code Executor} to use.
+	 *
+	 * @return the {@code root}'s Merkle tree.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if the digest algorithm is unknown.
+	 * @throws IOException if {@code root} is neither a regular file nor a
+	 *	directory or if an I/O error occurs during the process.
+	 */
+	public static MerkleTree build(File root, Algorithm<Digest> algorithm,
+		Executor executor) throws IOException
+	{
+		Parameters.checkNotNull(executor);
+		return new Builder(root, algorithm, null, executor).build();
+	}
+
+	/**
+	 * Builds the Merkle tree of the given file or directory, reusing the
+	 * file hashes recorded in the given index and updating it afterwards.
+	 * A missing, unreadable or corrupted index is silently rebuilt. If the
+	 * index is located within the tree, it is not part of the tree.
+	 *
+	 * @param root the root of the tree.
+	 * @param algorithm the digest algorithm to use.
+	 * @param index the sidecar index file.
+	 *
+	 * @return the {@code root}'s Merkle tree.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if the digest algorithm is unknown.
+	 * @throws IOException if {@code root} is neither a regular file nor a
+	 *	directory, if the index can't be written or if an I/O error
+	 *	occurs during the process.
+	 */
+	public static MerkleTree build(File root, Algorithm<Digest> algorithm,
+		File index) throws IOException
+	{
+		Parameters.checkNotNull(index);
+		return new Builder(root, algorithm, index, null).build();
+	}
+
+	/**
+	 * Builds the Merkle tree of the given file or directory, reusing the
+	 * file hashes recorded in the given index and updating it afterwards.
+	 * Files that are not indexed (or whose size or last modification date
+	 * have changed) are hashed concurrently using the given
+	 * {@code Executor}. A missing, unreadable or corrupted index is silently
+	 * rebuilt. If the index is located within the tree, it is not part of
+	 * the tree.
+	 *
+	 * @param root the root of the tree.
+	 * @param algorithm the digest algorithm to use.
+	 * @param index the sidecar index file.
+	 * @param executor the {@code Executor} to use.
+	 *
+	 * @return the {@code root}'s Merkle tree.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if the digest algorithm is unknown.
+	 * @throws IOException if {@code root} is neither a regular file nor a
+	 *	directory, if the index can't be written or if an I/O error
+	 *	occurs during the process.
+	 */
+	public static MerkleTree build(File root, Algorithm<Digest> algorithm,
+		File index, Executor executor) throws IOException
+	{
+		Parameters.checkNotNull(index);
+		Parameters.checkNotNull(executor);
+		return new Builder(root, algorithm, index, executor).build();
+	}
+
+	/**
+	 * Returns the paths of the topmost differing entries of the given trees.
+	 * Paths are relative to the trees' roots and use {@code '/'} as name
+	 * separator; the empty path denotes the roots themselves (returned
+	 * when one of them is not a directory). Entries that exist in only one
+	 * of the trees are reported as well, while subtrees having the same
+	 * hash are not visited.
+	 *
+	 * @param t1 the first tree.
+	 * @param t2 the second tree.
+	 *
+	 * @return the paths of the topmost differing entries, in name order.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public static List<String> diff(MerkleTree t1, MerkleTree t2)
+	{
+		Parameters.checkNotNull(t1);
+		Parameters.checkNotNull(t2);
+		List<String> paths = new ArrayList<String>();
+		diff(t1, t2, "", paths);
+		return paths;
+	}
+
+	private static void diff(MerkleTree t1, MerkleTree t2, String path,
+		List<String> paths)
+	{
+		if (t1.directory == t2.directory && Arrays.equals(t1.hash, t2.hash)) {
+			return;
+		}
+		if (!t1.directory || !t2.directory) {
+			paths.add(path);
+			return;
+		}
+		List<MerkleTree> c1 = t1.children;
+		List<MerkleTree> c2 = t2.children;
+		int i = 0;
+		int j = 0;
+		while (i < c1.size() || j < c2.size()) {
+			int cmp = i == c1.size() ? 1 : j == c2.size() ? -1
+				: c1.get(i).name.compareTo(c2.get(j).name);
+			if (cmp < 0) {
+				paths.add(path(path, c1.get(i++).name));
+			} else if (cmp > 0) {
+				paths.add(path(path, c2.get(j++).name));
+			} else {
+				MerkleTree child = c1.get(i++);
+				diff(child, c2.get(j++), path(path, child.name), paths);
+			}
+		}
+	}
+
+	private static String path(String parent, String name)
+	{
+		return parent.length() == 0 ? name : parent + "/" + name;
+	}
+
+	private final String name;
+	private final boolean directory;
+	private final long size;
+	private final byte[] hash;
+	private final List<MerkleTree> children;
+
+	private MerkleTree(String name, boolean directory, long size,
+		byte[] hash, List<MerkleTree> children)
+	{
+		this.name = name;
+		this.directory = directory;
+		this.size = size;
+		this.hash = hash;
+		this.children = children;
+	}
+
+	/**
+	 * Returns the name of the file or directory represented by this tree.
+	 *
+	 * @return this tree's name.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Returns whether this tree represents a directory.
+	 *
+	 * @return whether this tree represents a directory.
+	 */
+	public boolean isDirectory()
+	{
+		return directory;
+	}
+
+	/**
+	 * Returns the size of the file represented by this tree, or the total
+	 * size of the files it contains if it represents a directory.
+	 *
+	 * @return this tree's size, in bytes.
+	 */
+	public long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns this tree's hash.
+	 *
+	 * @return this tree's hash.
+	 */
+	public byte[] getHash()
+	{
+		return hash.clone();
+	}
+
+	/**
+	 * Returns this tree's sub-trees, sorted by name. The returned list is
+	 * empty if this tree does not represent a directory.
+	 *
+	 * @return this tree's sub-trees.
+	 */
+	public List<MerkleTree> getChildren()
+	{
+		return children;
+	}
+
+	/**
+	 * Returns the sub-tree having the given name, if any.
+	 *
+	 * @param name the name of the sub-tree to return.
+	 *
+	 * @return the sub-tree having the given name or {@code null}.
+	 *
+	 * @throws NullPointerException if {@code name} is {@code null}.
+	 */
+	public MerkleTree getChild(String name)
+	{
+		Parameters.checkNotNull(name);
+		int low = 0;
+		int high = children.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			MerkleTree child = children.get(mid);
+			int cmp = child.name.compareTo(name);
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString()
+	{
+		return XObjects.toStringBuilder("MerkleTree").append("name", name)
+			.append("hash", BaseEncoding.BASE_16.encode(hash))
+			.toString();
+	}
+
+	private static final class Builder
+	{
+		private final File root;
+		private final Algorithm<Digest> algorithm;
+		private final File index;
+		private final File tmpIndex;
+		private final Executor executor;
+		private final long start;
+		private final Map<String, Entry> cache;
+		private final List<Entry> entries;
+		private final List<Entry> pending;
+		private final Set<String> ancestors;
+
+		Builder(File root, Algorithm<Digest> algorithm, File index,
+			Executor executor)
+		{
+			Parameters.checkNotNull(root);
+			Digests.newDigest(algorithm);
+			this.root = root;
+			this.algorithm = algorithm;
+			this.index = index == null ? null : index.getAbsoluteFile();
+			this.tmpIndex = index == null ? null
+				: new File(this.index.getPath() + ".tmp");
+			this.executor = executor;
+			this.start = System.currentTimeMillis();
+			this.cache = new HashMap<String, Entry>();
+			this.entries = new ArrayList<Entry>();
+			this.pending = new ArrayList<Entry>();
+			this.ancestors = new HashSet<String>();
+		}
+
+		MerkleTree build() throws IOException
+		{
+			if (index != null) {
+				readIndex();
+			}
+			Node node = scan(root, "");
+			if (node == null) {
+				throw new IOException("Not a file nor a directory: "
+					+ root);
+			}
+			hashPendingFiles();
+			MerkleTree tree = toTree(node);
+			if (index != null) {
+				writeIndex();
+			}
+			return tree;
+		}
+
+		private Node scan(File f, String path) throws IOException
+		{
+			if (f.isFile()) {
+				Entry entry = new Entry(path, f.length(),
+					f.lastModified());
+				Entry cached = cache.get(path);
+				if (cached != null && cached.size == entry.size
+					&& cached.lastModified == entry.lastModified) {
+					entry.hash = cached.hash;
+				} else {
+					entry.file = f;
+					pending.add(entry);
+				}
+				entries.add(entry);
+				return new Node(f.getName(), entry);
+			}
+			if (!f.isDirectory()) {
+				return null;
+			}
+			String[] names = f.list();
+			if (names == null) {
+				throw new IOException("Can't list " + f);
+			}
+			String canonicalPath = f.getCanonicalPath();
+			if (!ancestors.add(canonicalPath)) {
+				return null;
+			}
+			Arrays.sort(names);
+			Node node = new Node(f.getName(), null);
+			for (String name : names) {
+				File child = new File(f, name);
+				if (isIndex(child)) {
+					continue;
+				}
+				Node n = scan(child, path(path, name));
+				if (n != null) {
+					node.children.add(n);
+				}
+			}
+			ancestors.remove(canonicalPath);
+			return node;
+		}
+
+		private boolean isIndex(File f)
+		{
+			if (index == null) {
+				return false;
+			}
+			File file = f.getAbsoluteFile();
+			return file.equals(index) || file.equals(tmpIndex);
+		}
+
+		private void hashPendingFiles() throws IOException
+		{
+			if (executor == null || pending.size() < 2) {
+				for (Entry entry : pending) {
+					entry.hash = Digests.digest(entry.file, algorithm);
+				}
+				return;
+			}
+			List<FutureTask<byte[]>> tasks = new ArrayList<FutureTask<byte[]>>();
+			try {
+				for (final Entry entry : pending) {
+					FutureTask<byte[]> task = new FutureTask<byte[]>(
+						new Callable<byte[]>() {
+						@Override
+						public byte[] call() throws IOException
+						{
+							return Digests.digest(entry.file,
+								algorithm);
+						}
+					});
+					tasks.add(task);
+					executor.execute(task);
+				}
+				for (int i = 0; i < tasks.size(); i++) {
+					pending.get(i).hash = await(tasks.get(i));
+				}
+			} finally {
+				for (FutureTask<byte[]> task : tasks) {
+					task.cancel(true);
+				}
+			}
+		}
+
+		private byte[] await(FutureTask<byte[]> task) throws IOException
+		{
+			try {
+				return task.get();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted", ex);
+			} catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IOException(cause);
+			}
+		}
+
+		private MerkleTree toTree(Node node)
+		{
+			if (node.entry != null) {
+				return new MerkleTree(node.name, false,
+					node.entry.size, node.entry.hash,
+					Collections.<MerkleTree>emptyList());
+			}
+			List<MerkleTree> children = new ArrayList<MerkleTree>();
+			Digest digest = Digests.newDigest(algorithm);
+			long size = 0;
+			for (Node n : node.children) {
+				MerkleTree child = toTree(n);
+				byte[] name = UTF8.encode(child.name);
+				digest.update(child.directory ? DIRECTORY : FILE);
+				digest.update(BigEndian.encode(name.length));
+				digest.update(name);
+				digest.update(child.hash);
+				size += child.size;
+				children.add(child);
+			}
+			return new MerkleTree(node.name, true, size,
+				digest.digest(), Collections.unmodifiableList(children));
+		}
+
+		private void readIndex()
+		{
+			if (!index.isFile()) {
+				return;
+			}
+			DataInputStream in = null;
+			try {
+				in = new DataInputStream(XFiles.newInputStream(index));
+				if (in.readInt() != INDEX_MAGIC
+					|| !in.readUTF().equals(algorithm.toString())) {
+					return;
+				}
+				int count = in.readInt();
+				for (int i = 0; i < count; i++) {
+					Entry entry = new Entry(in.readUTF(),
+						in.readLong(), in.readLong());
+					entry.hash = new byte[in.readUnsignedShort()];
+					in.readFully(entry.hash);
+					cache.put(entry.path, entry);
+				}
+			} catch (IOException ex) {
+				cache.clear();
+			} finally {
+				IO.close(in);
+			}
+		}
+
+		private void writeIndex() throws IOException
+		{
+			DataOutputStream out = null;
+			try {
+				out = new DataOutputStream(
+					XFiles.newOutputStream(tmpIndex));
+				List<Entry> indexed = new ArrayList<Entry>();
+				for (Entry entry : entries) {
+					if (entry.lastModified < start - RACY_WINDOW) {
+						indexed.add(entry);
+					}
+				}
+				out.writeInt(INDEX_MAGIC);
+				out.writeUTF(algorithm.toString());
+				out.writeInt(indexed.size());
+				for (Entry entry : indexed) {
+					out.writeUTF(entry.path);
+					out.writeLong(entry.size);
+					out.writeLong(entry.lastModified);
+					out.writeShort(entry.hash.length);
+					out.write(entry.hash);
+				}
+				out.flush();
+			} finally {
+				IO.close(out);
+			}
+			if (!tmpIndex.renameTo(index)) {
+				if (!index.delete() || !tmpIndex.renameTo(index)) {
+					throw new IOException("Can't write " + index);
+				}
+			}
+		}
+	}
+
+	private static final class Node
+	{
+		final String name;
+		final Entry entry;
+		final List<Node> children;
+
+		Node(String name, Entry entry)
+		{
+			this.name = name;
+			this.entry = entry;
+			this.children = new ArrayList<Node>();
+		}
+	}
+
+	private static final class Entry
+	{
+		final String path;
+		final long size;
+		final long lastModified;
+		byte[] hash;
+		File file;
+
+		Entry(String path, long size, long lastModified)
+		{
+			this.path = path;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -30,14 +30,29 @@ import java.util.Random;
  */
 public final class RandomInputStream extends InputStream
 {
-	private static final Random PRNG = new Random();
-
 	private final Random prng;
 
-	/** Creates a new {@code RandomInputStream}. */
+	/**
+	 * Creates a new {@code RandomInputStream}. Each thread reading from the
+	 * returned stream uses its own fast, non cryptographic, generator, so
+	 * that concurrent readers do not contend with each other.
+	 */
 	public RandomInputStream()
 	{
-		this(PRNG);
+		this.prng = null;
+	}
+
+	/**
+	 * Creates a new {@code RandomInputStream} that reads data from a fast,
+	 * non cryptographic, generator initialized with the given seed. Streams
+	 * created with the same seed return the same data (as long as they are
+	 * read from a single thread).
+	 *
+	 * @param seed the generator's seed.
+	 */
+	public RandomInputStream(long seed)
+	{
+		this.prng = new SplitMixRandom(seed);
 	}
 
 	/**
@@ -56,14 +71,21 @@ public final class RandomInputStream extends InputStream
 	@Override
 	public int read()
 	{
+		if (prng == null) {
+			return SplitMixRandom.current().nextInt(256);
+		}
+		if (prng instanceof SplitMixRandom) {
+			synchronized (prng) {
+				return prng.nextInt(256);
+			}
+		}
 		return prng.nextInt(256);
 	}
 
 	@Override
 	public int read(byte[] b)
 	{
-		prng.nextBytes(b);
-		return b.length;
+		return read(b, 0, b.length);
 	}
 
 	@Override
@@ -72,9 +94,27 @@ public final class RandomInputStream extends InputStream
 		if (off < 0 || len < 0 || off + len > b.length) {
 			throw new IndexOutOfBoundsException();
 		}
-		byte[] tmp = new byte[len];
-		prng.nextBytes(tmp);
-		System.arraycopy(tmp, 0, b, off, len);
+		if (prng == null) {
+			SplitMixRandom.current().nextBytes(b, off, len);
+		} else if (prng instanceof SplitMixRandom) {
+			synchronized (prng) {
+				((SplitMixRandom) prng).nextBytes(b, off, len);
+			}
+		} else if (off == 0 && len == b.length) {
+			prng.nextBytes(b);
+		} else if (prng.getClass() == Random.class) {
+			/* Same algorithm as Random.nextBytes, without copy. */
+			for (int i = off, end = off + len; i < end;) {
+				int rnd = prng.nextInt();
+				for (int n = Math.min(end - i, 4); n-- > 0; rnd >>= 8) {
+					b[i++] = (byte) rnd;
+				}
+			}
+		} else {
+			byte[] tmp = new byte[len];
+			prng.nextBytes(tmp);
+			System.arraycopy(tmp, 0, b, off, len);
+		}
 		return len;
 	}
 }
@@ -31,13 +31,13 @@ import java.util.Random;
  */
 public final class RandomReader extends Reader
 {
-	private static final Random PRNG = new Random();
-
 	private final Random prng;
 	private final char[] alphabet;
 
 	/**
-	 * Creates a new {@code RandomReader}.
+	 * Creates a new {@code RandomReader}. Each thread reading from the
+	 * returned stream uses its own fast, non cryptographic, generator, so
+	 * that concurrent readers do not contend with each other.
 	 *
 	 * @param alphabet the source alphabet to use.
 	 *
@@ -46,7 +46,26 @@ public final class RandomReader extends Reader
 	 */
 	public RandomReader(char... alphabet)
 	{
-		this(PRNG, alphabet);
+		Parameters.checkCondition(alphabet.length > 0);
+		this.prng = null;
+		this.alphabet = Arrays.copyOf(alphabet, alphabet.length);
+	}
+
+	/**
+	 * Creates a new {@code RandomReader} that reads characters using a
+	 * fast, non cryptographic, generator initialized with the given seed.
+	 * Readers created with the same seed and alphabet return the same
+	 * characters (as long as they are read from a single thread).
+	 *
+	 * @param seed the generator's seed.
+	 * @param alphabet the source alphabet to use.
+	 *
+	 * @throws NullPointerException if {@code alphabet} is {@code null}.
+	 * @throws IllegalArgumentException if {@code alphabet} is empty.
+	 */
+	public RandomReader(long seed, char... alphabet)
+	{
+		this(new SplitMixRandom(seed), alphabet);
 	}
 
 	/**
@@ -69,16 +88,21 @@ public final class RandomReader extends Reader
 	@Override
 	public int read()
 	{
-		return alphabet[prng.nextInt(alphabet.length)];
+		if (prng == null) {
+			return next(SplitMixRandom.current());
+		}
+		if (prng instanceof SplitMixRandom) {
+			synchronized (prng) {
+				return next(prng);
+			}
+		}
+		return next(prng);
 	}
 
 	@Override
 	public int read(char[] cbuf)
 	{
-		for (int i = 0; i < cbuf.length; i++) {
-			cbuf[i] = (char) read();
-		}
-		return cbuf.length;
+		return read(cbuf, 0, cbuf.length);
 	}
 
 	@Override
@@ -87,8 +111,14 @@ public final class RandomReader extends Reader
 		if (off < 0 || len < 0 || off + len > cbuf.length) {
 			throw new IndexOutOfBoundsException();
 		}
-		for (int i = 0; i < len; i++) {
-			cbuf[off + i] = (char) read();
+		if (prng == null) {
+			fill(SplitMixRandom.current(), cbuf, off, len);
+		} else if (prng instanceof SplitMixRandom) {
+			synchronized (prng) {
+				fill(prng, cbuf, off, len);
+			}
+		} else {
+			fill(prng, cbuf, off, len);
 		}
 		return len;
 	}
@@ -98,4 +128,16 @@ public final class RandomReader extends Reader
 	{
 		/* ... */
 	}
+
+	private char next(Random rnd)
+	{
+		return alphabet[rnd.nextInt(alphabet.length)];
+	}
+
+	private void fill(Random rnd, char[] cbuf, int off, int len)
+	{
+		for (int i = off; i < off + len; i++) {
+			cbuf[i] = next(rnd);
+		}
+	}
 }
@@ -0,0 +1,148 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.io;
+
+import java.util.Random;
+
+/**
+ * Fast, non cryptographic, pseudo random number generator based on the
+ * SplitMix64 algorithm (the one behind Java 8's {@code SplittableRandom}).
+ * Unlike {@link Random}, instances of this class are NOT thread safe: they are
+ * meant to be either confined to a thread (see {@link #current()}) or guarded
+ * by their users.
+ *
+ * @author Osman KOCAK
+ */
+final class SplitMixRandom extends Random
+{
+	private static final long serialVersionUID = 1L;
+	private static final long GAMMA = 0x9E3779B97F4A7C15L;
+	private static final ThreadLocal<SplitMixRandom> CURRENT =
+		new ThreadLocal<SplitMixRandom>() {
+			@Override
+			protected SplitMixRandom initialValue()
+			{
+				return new SplitMixRandom();
+			}
+		};
+
+	/**
+	 * Returns the calling thread's own {@code SplitMixRandom} instance.
+	 *
+	 * @return the calling thread's {@code SplitMixRandom}.
+	 */
+	static SplitMixRandom current()
+	{
+		return CURRENT.get();
+	}
+
+	private long state;
+
+	/** Creates a new {@code SplitMixRandom} with an arbitrary seed. */
+	SplitMixRandom()
+	{
+		super();
+	}
+
+	/**
+	 * Creates a new {@code SplitMixRandom} with the given seed. Instances
+	 * created with the same seed produce the same sequence of values.
+	 *
+	 * @param seed the initial seed.
+	 */
+	SplitMixRandom(long seed)
+	{
+		super(seed);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed)
+	{
+		super.setSeed(seed);
+		state = mix64(seed);
+	}
+
+	@Override
+	public long nextLong()
+	{
+		return mix64(state += GAMMA);
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return (int) (nextLong() >>> 32);
+	}
+
+	@Override
+	public void nextBytes(byte[] bytes)
+	{
+		nextBytes(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Fills the given range of the given array with random bytes.
+	 *
+	 * @param bytes the array to fill.
+	 * @param off the range's start offset.
+	 * @param len the range's length.
+	 *
+	 * @throws NullPointerException if {@code bytes} is {@code null}.
+	 * @throws IndexOutOfBoundsException if the range is not valid.
+	 */
+	void nextBytes(byte[] bytes, int off, int len)
+	{
+		if (off < 0 || len < 0 || off + len > bytes.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		int i = off;
+		int end = off + len;
+		long s = state;
+		while (end - i >= 8) {
+			long rnd = mix64(s += GAMMA);
+			bytes[i] = (byte) rnd;
+			bytes[i + 1] = (byte) (rnd >>> 8);
+			bytes[i + 2] = (byte) (rnd >>> 16);
+			bytes[i + 3] = (byte) (rnd >>> 24);
+			bytes[i + 4] = (byte) (rnd >>> 32);
+			bytes[i + 5] = (byte) (rnd >>> 40);
+			bytes[i + 6] = (byte) (rnd >>> 48);
+			bytes[i + 7] = (byte) (rnd >>> 56);
+			i += 8;
+		}
+		if (i < end) {
+			for (long rnd = mix64(s += GAMMA); i < end; rnd >>>= 8) {
+				bytes[i++] = (byte) rnd;
+			}
+		}
+		state = s;
+	}
+
+	@Override
+	protected int next(int bits)
+	{
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	private static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
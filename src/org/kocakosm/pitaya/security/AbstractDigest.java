@@ -16,6 +16,10 @@
 
 package org.kocakosm.pitaya.security;
 
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.nio.ByteBuffer;
+
 /**
  * Abstract skeleton implementation of the {@link Digest} interface.
  *
@@ -26,6 +30,9 @@ abstract class AbstractDigest implements Digest
 	private final String name;
 	private final int length;
 
+	/** The {@link DigestPool} that created this engine, if any. */
+	Object owner;
+
 	/**
 	 * Creates a new {@code AbstractDigest}.
 	 *
@@ -44,12 +51,105 @@ abstract class AbstractDigest implements Digest
 		return length;
 	}
 
+	@Override
+	public abstract AbstractDigest copy();
+
+	/**
+	 * Restores the state of the given engine into this one. The given
+	 * engine must implement the same algorithm as this one and remains
+	 * unaffected.
+	 *
+	 * @param state the engine whose state must be restored.
+	 *
+	 * @throws ClassCastException if {@code state} doesn't implement the
+	 *	same algorithm as this engine.
+	 */
+	abstract void restore(AbstractDigest state);
+
+	@Override
+	public byte[] exportState()
+	{
+		DigestState.Writer out = new DigestState.Writer(name, length);
+		writeState(out);
+		return out.toByteArray();
+	}
+
+	@Override
+	public Digest importState(byte[] state)
+	{
+		DigestState.Reader in = new DigestState.Reader(name, length, state);
+		AbstractDigest imported = copy();
+		imported.readState(in);
+		in.end();
+		restore(imported);
+		return this;
+	}
+
+	/**
+	 * Writes this engine's intermediate state. This implementation throws
+	 * an {@code UnsupportedOperationException}.
+	 *
+	 * @param out the state writer.
+	 *
+	 * @throws UnsupportedOperationException if this engine's state can't
+	 *	be exported.
+	 */
+	void writeState(DigestState.Writer out)
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Reads a state previously written by {@link #writeState} into this
+	 * engine. This implementation throws an
+	 * {@code UnsupportedOperationException}.
+	 *
+	 * @param in the state reader.
+	 *
+	 * @throws IllegalArgumentException if the state is invalid.
+	 * @throws UnsupportedOperationException if this engine's state can't
+	 *	be imported.
+	 */
+	void readState(DigestState.Reader in)
+	{
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public Digest update(byte... input)
 	{
 		return update(input, 0, input.length);
 	}
 
+	/**
+	 * Updates the digest using the remaining bytes of the given buffer
+	 * when it is backed by an accessible array. This method does nothing
+	 * and returns {@code false} otherwise.
+	 *
+	 * @param input the buffer with which to update the digest.
+	 *
+	 * @return whether the buffer was backed by an accessible array.
+	 */
+	boolean updateFromArray(ByteBuffer input)
+	{
+		if (!input.hasArray()) {
+			return false;
+		}
+		int pos = input.position();
+		int len = input.remaining();
+		update(input.array(), input.arrayOffset() + pos, len);
+		input.position(pos + len);
+		return true;
+	}
+
+	@Override
+	public byte[] digest()
+	{
+		byte[] out = new byte[length];
+		digestInto(out, 0);
+		return out;
+	}
+
 	@Override
 	public byte[] digest(byte... input)
 	{
@@ -62,6 +162,75 @@ abstract class AbstractDigest implements Digest
 		return update(input, off, len).digest();
 	}
 
+	@Override
+	public Digest digestAll(byte[][] inputs, byte[] out, int off)
+	{
+		checkOutput(out, off, inputs.length);
+		reset();
+		for (byte[] input : inputs) {
+			update(input, 0, input.length).digestInto(out, off);
+			off += length;
+		}
+		return this;
+	}
+
+	@Override
+	public Digest digestAll(byte[] input, int[] offsets, int[] lengths,
+		byte[] out, int off)
+	{
+		Parameters.checkNotNull(input);
+		Parameters.checkCondition(offsets.length == lengths.length);
+		checkOutput(out, off, offsets.length);
+		for (int i = 0; i < offsets.length; i++) {
+			int o = offsets[i];
+			int len = lengths[i];
+			if (o < 0 || len < 0 || o > input.length - len) {
+				throw new IndexOutOfBoundsException();
+			}
+		}
+		reset();
+		for (int i = 0; i < offsets.length; i++) {
+			update(input, offsets[i], lengths[i]).digestInto(out, off);
+			off += length;
+		}
+		return this;
+	}
+
+	/**
+	 * Checks that {@code length()} bytes can be written into the given
+	 * array, starting at the specified offset.
+	 *
+	 * @param out the output buffer.
+	 * @param off the output offset.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code off + length()} is greater than {@code out}'s length.
+	 */
+	void checkOutput(byte[] out, int off)
+	{
+		checkOutput(out, off, 1);
+	}
+
+	/**
+	 * Checks that {@code n} digests can be written contiguously into the
+	 * given array, starting at the specified offset.
+	 *
+	 * @param out the output buffer.
+	 * @param off the output offset.
+	 * @param n the number of digests.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code off + n * length()} is greater than {@code out}'s length.
+	 */
+	void checkOutput(byte[] out, int off, int n)
+	{
+		if (off < 0 || off > out.length - (long) n * length) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
 	@Override
 	public String toString()
 	{
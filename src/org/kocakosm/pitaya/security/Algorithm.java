@@ -55,6 +55,33 @@ public final class Algorithm<T>
 	/** The Keccak-512 digest algorithm. */
 	public static final Algorithm<Digest> KECCAK512 = new Algorithm<Digest>("Keccak-512");
 
+	/** The SHA3-224 digest algorithm. */
+	public static final Algorithm<Digest> SHA3_224 = new Algorithm<Digest>("SHA3-224");
+
+	/** The SHA3-256 digest algorithm. */
+	public static final Algorithm<Digest> SHA3_256 = new Algorithm<Digest>("SHA3-256");
+
+	/** The SHA3-384 digest algorithm. */
+	public static final Algorithm<Digest> SHA3_384 = new Algorithm<Digest>("SHA3-384");
+
+	/** The SHA3-512 digest algorithm. */
+	public static final Algorithm<Digest> SHA3_512 = new Algorithm<Digest>("SHA3-512");
+
+	/** The SHAKE128 extendable-output function (256-bit output). */
+	public static final Algorithm<Digest> SHAKE128 = new Algorithm<Digest>("SHAKE128");
+
+	/** The SHAKE256 extendable-output function (512-bit output). */
+	public static final Algorithm<Digest> SHAKE256 = new Algorithm<Digest>("SHAKE256");
+
+	/** The BLAKE2b-512 digest algorithm. */
+	public static final Algorithm<Digest> BLAKE2B_512 = new Algorithm<Digest>("BLAKE2b-512");
+
+	/** The BLAKE2s-256 digest algorithm. */
+	public static final Algorithm<Digest> BLAKE2S_256 = new Algorithm<Digest>("BLAKE2s-256");
+
+	/** The BLAKE3 digest algorithm (256-bit output). */
+	public static final Algorithm<Digest> BLAKE3 = new Algorithm<Digest>("BLAKE3");
+
 	/** The HMAC-MD2 MAC algorithm. */
 	public static final Algorithm<MAC> HMAC_MD2 = new Algorithm<MAC>("HMAC-MD2");
 
@@ -85,6 +112,24 @@ public final class Algorithm<T>
 	/** The HMAC-Keccak-512 MAC algorithm. */
 	public static final Algorithm<MAC> HMAC_KECCAK512 = new Algorithm<MAC>("HMAC-Keccak-512");
 
+	/** The HMAC-SHA3-224 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_SHA3_224 = new Algorithm<MAC>("HMAC-SHA3-224");
+
+	/** The HMAC-SHA3-256 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_SHA3_256 = new Algorithm<MAC>("HMAC-SHA3-256");
+
+	/** The HMAC-SHA3-384 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_SHA3_384 = new Algorithm<MAC>("HMAC-SHA3-384");
+
+	/** The HMAC-SHA3-512 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_SHA3_512 = new Algorithm<MAC>("HMAC-SHA3-512");
+
+	/** The HMAC-BLAKE2b-512 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_BLAKE2B_512 = new Algorithm<MAC>("HMAC-BLAKE2b-512");
+
+	/** The HMAC-BLAKE2s-256 MAC algorithm. */
+	public static final Algorithm<MAC> HMAC_BLAKE2S_256 = new Algorithm<MAC>("HMAC-BLAKE2s-256");
+
 	private final String name;
 
 	private Algorithm(String name)
@@ -0,0 +1,468 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.LittleEndian;
+import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.XArrays;
+import org.kocakosm.pitaya.util.XObjects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The Argon2id Key Derivation Function (RFC 9106, version 0x13). Instances of
+ * this class are immutable. The whole memory is allocated at once, as a single
+ * {@code long[]}, when a key is derived. When an {@link Executor} is given, the
+ * lanes of each segment are filled concurrently; otherwise they are filled one
+ * after the other.
+ *
+ * @author Osman KOCAK
+ */
+final class Argon2 implements KDF
+{
+	private static final int VERSION = 0x13;
+	private static final int ARGON2ID = 2;
+	private static final int SYNC_POINTS = 4;
+
+	/** Number of 64-bit words in a 1 KiB block. */
+	private static final int BLOCK_WORDS = 128;
+
+	private final int memoryCost;
+	private final int timeCost;
+	private final int parallelism;
+	private final int dkLen;
+	private final byte[] key;
+	private final byte[] associatedData;
+	private final Executor executor;
+
+	/**
+	 * Creates a new {@code Argon2} instance.
+	 *
+	 * @param memoryCost the memory size, in kibibytes.
+	 * @param timeCost the number of passes over the memory.
+	 * @param parallelism the number of lanes.
+	 * @param dkLen the desired length for derived keys, in bytes.
+	 * @param key the secret value (pepper), may be empty.
+	 * @param associatedData the associated data, may be empty.
+	 * @param executor the {@code Executor} to use, {@code null} to fill the
+	 *	lanes sequentially.
+	 *
+	 * @throws NullPointerException if {@code key} or {@code associatedData}
+	 *	is {@code null}.
+	 * @throws IllegalArgumentException if {@code timeCost} or
+	 *	{@code parallelism} is negative, if {@code parallelism} is not
+	 *	less than 2 ^ 24, if {@code memoryCost} is less than
+	 *	{@code 8 * parallelism} or not less than 2 ^ 24, or if
+	 *	{@code dkLen} is less than 4.
+	 */
+	Argon2(int memoryCost, int timeCost, int parallelism, int dkLen,
+		byte[] key, byte[] associatedData, Executor executor)
+	{
+		Parameters.checkCondition(timeCost > 0 && dkLen >= 4);
+		Parameters.checkCondition(parallelism > 0
+			&& parallelism < (1 << 24));
+		Parameters.checkCondition(memoryCost >= 8 * parallelism
+			&& memoryCost < (1 << 24));
+		this.memoryCost = memoryCost;
+		this.timeCost = timeCost;
+		this.parallelism = parallelism;
+		this.dkLen = dkLen;
+		this.key = XArrays.copyOf(key);
+		this.associatedData = XArrays.copyOf(associatedData);
+		this.executor = executor;
+	}
+
+	@Override
+	public byte[] deriveKey(byte[] secret, byte[] salt)
+	{
+		Parameters.checkNotNull(secret);
+		Parameters.checkNotNull(salt);
+		Memory memory = new Memory();
+		memory.init(h0(secret, salt));
+		List<Lane> lanes = new ArrayList<Lane>(parallelism);
+		for (int i = 0; i < parallelism; i++) {
+			lanes.add(new Lane(memory, i));
+		}
+		for (int pass = 0; pass < timeCost; pass++) {
+			for (int slice = 0; slice < SYNC_POINTS; slice++) {
+				for (Lane lane : lanes) {
+					lane.position(pass, slice);
+				}
+				if (executor == null || parallelism == 1) {
+					for (Lane lane : lanes) {
+						lane.run();
+					}
+				} else {
+					Tasks.run(executor, lanes);
+				}
+			}
+		}
+		return memory.finish();
+	}
+
+	@Override
+	public String toString()
+	{
+		return XObjects.toStringBuilder("Argon2id")
+			.append("memoryCost", memoryCost)
+			.append("timeCost", timeCost)
+			.append("parallelism", parallelism)
+			.append("dkLen", dkLen).toString();
+	}
+
+	private byte[] h0(byte[] secret, byte[] salt)
+	{
+		Digest h = new Blake2b(64);
+		h.update(LittleEndian.encode(parallelism));
+		h.update(LittleEndian.encode(dkLen));
+		h.update(LittleEndian.encode(memoryCost));
+		h.update(LittleEndian.encode(timeCost));
+		h.update(LittleEndian.encode(VERSION));
+		h.update(LittleEndian.encode(ARGON2ID));
+		for (byte[] b : new byte[][] {secret, salt, key, associatedData}) {
+			h.update(LittleEndian.encode(b.length)).update(b);
+		}
+		return h.digest();
+	}
+
+	/* The variable-length hash function H'. */
+	private static byte[] hash(int len, byte[]... inputs)
+	{
+		byte[] out = new byte[len];
+		Digest h = new Blake2b(Math.min(len, 64));
+		h.update(LittleEndian.encode(len));
+		for (byte[] input : inputs) {
+			h.update(input);
+		}
+		if (len <= 64) {
+			h.digestInto(out, 0);
+			return out;
+		}
+		byte[] v = h.digest();
+		int off = 0;
+		while (len - off > 64) {
+			System.arraycopy(v, 0, out, off, 32);
+			off += 32;
+			if (len - off > 64) {
+				v = h.digest(v);
+			}
+		}
+		new Blake2b(len - off).update(v).digestInto(out, off);
+		return out;
+	}
+
+	private static long fBlaMka(long x, long y)
+	{
+		return x + y + 2 * (x & 0xFFFFFFFFL) * (y & 0xFFFFFFFFL);
+	}
+
+	/*
+	 * Applies the permutation P to 16 words of v: the k-th word is
+	 * v[off + (k / 2) * stride + (k % 2)].
+	 */
+	private static void permute(long[] v, int off, int stride)
+	{
+		int i0 = off, i1 = off + stride, i2 = off + 2 * stride;
+		int i3 = off + 3 * stride, i4 = off + 4 * stride;
+		int i5 = off + 5 * stride, i6 = off + 6 * stride;
+		int i7 = off + 7 * stride;
+		long w0 = v[i0], w1 = v[i0 + 1], w2 = v[i1], w3 = v[i1 + 1];
+		long w4 = v[i2], w5 = v[i2 + 1], w6 = v[i3], w7 = v[i3 + 1];
+		long w8 = v[i4], w9 = v[i4 + 1], w10 = v[i5], w11 = v[i5 + 1];
+		long w12 = v[i6], w13 = v[i6 + 1], w14 = v[i7], w15 = v[i7 + 1];
+		w0 = fBlaMka(w0, w4);
+		w12 = Long.rotateRight(w12 ^ w0, 32);
+		w8 = fBlaMka(w8, w12);
+		w4 = Long.rotateRight(w4 ^ w8, 24);
+		w0 = fBlaMka(w0, w4);
+		w12 = Long.rotateRight(w12 ^ w0, 16);
+		w8 = fBlaMka(w8, w12);
+		w4 = Long.rotateRight(w4 ^ w8, 63);
+		w1 = fBlaMka(w1, w5);
+		w13 = Long.rotateRight(w13 ^ w1, 32);
+		w9 = fBlaMka(w9, w13);
+		w5 = Long.rotateRight(w5 ^ w9, 24);
+		w1 = fBlaMka(w1, w5);
+		w13 = Long.rotateRight(w13 ^ w1, 16);
+		w9 = fBlaMka(w9, w13);
+		w5 = Long.rotateRight(w5 ^ w9, 63);
+		w2 = fBlaMka(w2, w6);
+		w14 = Long.rotateRight(w14 ^ w2, 32);
+		w10 = fBlaMka(w10, w14);
+		w6 = Long.rotateRight(w6 ^ w10, 24);
+		w2 = fBlaMka(w2, w6);
+		w14 = Long.rotateRight(w14 ^ w2, 16);
+		w10 = fBlaMka(w10, w14);
+		w6 = Long.rotateRight(w6 ^ w10, 63);
+		w3 = fBlaMka(w3, w7);
+		w15 = Long.rotateRight(w15 ^ w3, 32);
+		w11 = fBlaMka(w11, w15);
+		w7 = Long.rotateRight(w7 ^ w11, 24);
+		w3 = fBlaMka(w3, w7);
+		w15 = Long.rotateRight(w15 ^ w3, 16);
+		w11 = fBlaMka(w11, w15);
+		w7 = Long.rotateRight(w7 ^ w11, 63);
+		w0 = fBlaMka(w0, w5);
+		w15 = Long.rotateRight(w15 ^ w0, 32);
+		w10 = fBlaMka(w10, w15);
+		w5 = Long.rotateRight(w5 ^ w10, 24);
+		w0 = fBlaMka(w0, w5);
+		w15 = Long.rotateRight(w15 ^ w0, 16);
+		w10 = fBlaMka(w10, w15);
+		w5 = Long.rotateRight(w5 ^ w10, 63);
+		w1 = fBlaMka(w1, w6);
+		w12 = Long.rotateRight(w12 ^ w1, 32);
+		w11 = fBlaMka(w11, w12);
+		w6 = Long.rotateRight(w6 ^ w11, 24);
+		w1 = fBlaMka(w1, w6);
+		w12 = Long.rotateRight(w12 ^ w1, 16);
+		w11 = fBlaMka(w11, w12);
+		w6 = Long.rotateRight(w6 ^ w11, 63);
+		w2 = fBlaMka(w2, w7);
+		w13 = Long.rotateRight(w13 ^ w2, 32);
+		w8 = fBlaMka(w8, w13);
+		w7 = Long.rotateRight(w7 ^ w8, 24);
+		w2 = fBlaMka(w2, w7);
+		w13 = Long.rotateRight(w13 ^ w2, 16);
+		w8 = fBlaMka(w8, w13);
+		w7 = Long.rotateRight(w7 ^ w8, 63);
+		w3 = fBlaMka(w3, w4);
+		w14 = Long.rotateRight(w14 ^ w3, 32);
+		w9 = fBlaMka(w9, w14);
+		w4 = Long.rotateRight(w4 ^ w9, 24);
+		w3 = fBlaMka(w3, w4);
+		w14 = Long.rotateRight(w14 ^ w3, 16);
+		w9 = fBlaMka(w9, w14);
+		w4 = Long.rotateRight(w4 ^ w9, 63);
+		v[i0] = w0;
+		v[i0 + 1] = w1;
+		v[i1] = w2;
+		v[i1 + 1] = w3;
+		v[i2] = w4;
+		v[i2 + 1] = w5;
+		v[i3] = w6;
+		v[i3 + 1] = w7;
+		v[i4] = w8;
+		v[i4 + 1] = w9;
+		v[i5] = w10;
+		v[i5 + 1] = w11;
+		v[i6] = w12;
+		v[i6 + 1] = w13;
+		v[i7] = w14;
+		v[i7 + 1] = w15;
+	}
+
+	/*
+	 * The compression function G: writes G(x, y) into out (or XORs it into
+	 * out when xor is true). x, y and out are blocks of the given arrays,
+	 * r and t are scratch blocks.
+	 */
+	private static void compress(long[] x, int xOff, long[] y, int yOff,
+		long[] out, int outOff, boolean xor, long[] r, long[] t)
+	{
+		for (int i = 0; i < BLOCK_WORDS; i++) {
+			r[i] = x[xOff + i] ^ y[yOff + i];
+		}
+		if (xor) {
+			for (int i = 0; i < BLOCK_WORDS; i++) {
+				t[i] = r[i] ^ out[outOff + i];
+			}
+		} else {
+			System.arraycopy(r, 0, t, 0, BLOCK_WORDS);
+		}
+		for (int i = 0; i < 8; i++) {
+			permute(r, 16 * i, 2);
+		}
+		for (int i = 0; i < 8; i++) {
+			permute(r, 2 * i, 16);
+		}
+		for (int i = 0; i < BLOCK_WORDS; i++) {
+			out[outOff + i] = t[i] ^ r[i];
+		}
+	}
+
+	/* The memory matrix, shared by all lanes. */
+	private final class Memory
+	{
+		final long[] blocks;
+		final int laneLength;
+		final int segmentLength;
+		final int blockCount;
+
+		Memory()
+		{
+			int segments = parallelism * SYNC_POINTS;
+			this.segmentLength = memoryCost / segments;
+			this.blockCount = segmentLength * segments;
+			this.laneLength = segmentLength * SYNC_POINTS;
+			this.blocks = new long[blockCount * BLOCK_WORDS];
+		}
+
+		void init(byte[] h0)
+		{
+			for (int l = 0; l < parallelism; l++) {
+				for (int i = 0; i < 2; i++) {
+					byte[] b = hash(1024, h0,
+						LittleEndian.encode(i),
+						LittleEndian.encode(l));
+					int off = (l * laneLength + i) * BLOCK_WORDS;
+					for (int j = 0; j < BLOCK_WORDS; j++) {
+						blocks[off + j] = LittleEndian
+							.decodeLong(b, j << 3);
+					}
+				}
+			}
+			Arrays.fill(h0, (byte) 0);
+		}
+
+		byte[] finish()
+		{
+			long[] c = new long[BLOCK_WORDS];
+			for (int l = 0; l < parallelism; l++) {
+				int off = (l * laneLength + laneLength - 1)
+					* BLOCK_WORDS;
+				for (int j = 0; j < BLOCK_WORDS; j++) {
+					c[j] ^= blocks[off + j];
+				}
+			}
+			byte[] block = new byte[1024];
+			for (int j = 0; j < BLOCK_WORDS; j++) {
+				LittleEndian.encode(c[j], block, j << 3);
+			}
+			Arrays.fill(blocks, 0L);
+			return hash(dkLen, block);
+		}
+	}
+
+	/* Fills one segment (a lane's slice) of the memory. */
+	private final class Lane implements Runnable
+	{
+		private final Memory memory;
+		private final int lane;
+		private final long[] r = new long[BLOCK_WORDS];
+		private final long[] t = new long[BLOCK_WORDS];
+		private final long[] zero = new long[BLOCK_WORDS];
+		private final long[] input = new long[BLOCK_WORDS];
+		private final long[] addresses = new long[BLOCK_WORDS];
+		private int pass;
+		private int slice;
+
+		Lane(Memory memory, int lane)
+		{
+			this.memory = memory;
+			this.lane = lane;
+		}
+
+		void position(int pass, int slice)
+		{
+			this.pass = pass;
+			this.slice = slice;
+		}
+
+		@Override
+		public void run()
+		{
+			long[] blocks = memory.blocks;
+			int laneLength = memory.laneLength;
+			int segmentLength = memory.segmentLength;
+			boolean independent = pass == 0 && slice < SYNC_POINTS / 2;
+			if (independent) {
+				Arrays.fill(input, 0L);
+				input[0] = pass;
+				input[1] = lane;
+				input[2] = slice;
+				input[3] = memory.blockCount;
+				input[4] = timeCost;
+				input[5] = ARGON2ID;
+			}
+			int start = 0;
+			if (pass == 0 && slice == 0) {
+				start = 2;
+				if (independent) {
+					nextAddresses();
+				}
+			}
+			int cur = lane * laneLength + slice * segmentLength + start;
+			int prev = cur % laneLength == 0 ? cur + laneLength - 1
+				: cur - 1;
+			for (int i = start; i < segmentLength; i++, cur++, prev++) {
+				if (cur % laneLength == 1) {
+					prev = cur - 1;
+				}
+				long rand;
+				if (independent) {
+					if (i % BLOCK_WORDS == 0) {
+						nextAddresses();
+					}
+					rand = addresses[i % BLOCK_WORDS];
+				} else {
+					rand = blocks[prev * BLOCK_WORDS];
+				}
+				int refLane = (int) ((rand >>> 32) % parallelism);
+				if (pass == 0 && slice == 0) {
+					refLane = lane;
+				}
+				int refIndex = index(i, rand & 0xFFFFFFFFL,
+					refLane == lane);
+				int ref = refLane * laneLength + refIndex;
+				compress(blocks, prev * BLOCK_WORDS, blocks,
+					ref * BLOCK_WORDS, blocks, cur * BLOCK_WORDS,
+					pass > 0, r, t);
+			}
+		}
+
+		private void nextAddresses()
+		{
+			input[6]++;
+			compress(zero, 0, input, 0, addresses, 0, false, r, t);
+			compress(zero, 0, addresses, 0, addresses, 0, false, r, t);
+		}
+
+		/* Maps a pseudo-random value to a reference block index. */
+		private int index(int i, long rand, boolean sameLane)
+		{
+			int laneLength = memory.laneLength;
+			int segmentLength = memory.segmentLength;
+			long area;
+			if (pass == 0) {
+				if (slice == 0) {
+					area = i - 1;
+				} else if (sameLane) {
+					area = slice * segmentLength + i - 1;
+				} else {
+					area = slice * segmentLength
+						+ (i == 0 ? -1 : 0);
+				}
+			} else if (sameLane) {
+				area = laneLength - segmentLength + i - 1;
+			} else {
+				area = laneLength - segmentLength
+					+ (i == 0 ? -1 : 0);
+			}
+			long x = (rand * rand) >>> 32;
+			long relative = area - 1 - ((area * x) >>> 32);
+			long start = 0;
+			if (pass != 0 && slice != SYNC_POINTS - 1) {
+				start = (slice + 1) * segmentLength;
+			}
+			return (int) ((start + relative) % laneLength);
+		}
+	}
+}
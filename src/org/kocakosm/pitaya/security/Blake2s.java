@@ -0,0 +1,328 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.LittleEndian;
+import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.XArrays;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The BLAKE2s digest algorithm (RFC 7693), optionally keyed. Instances of this
+ * class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+final class Blake2s extends AbstractDigest
+{
+	private static final int BLOCK_LENGTH = 64;
+
+	private static final int[] IV = new int[] {
+		0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A, 0x510E527F,
+		0x9B05688C, 0x1F83D9AB, 0x5BE0CD19
+	};
+
+	private static final byte[][] SIGMA = new byte[][] {
+		{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+		{14, 10, 4, 8, 9, 15, 13, 6, 1, 12, 0, 2, 11, 7, 5, 3},
+		{11, 8, 12, 0, 5, 2, 15, 13, 10, 14, 3, 6, 7, 1, 9, 4},
+		{7, 9, 3, 1, 13, 12, 11, 14, 2, 6, 5, 10, 4, 0, 15, 8},
+		{9, 0, 5, 7, 2, 4, 10, 15, 14, 1, 11, 12, 6, 8, 3, 13},
+		{2, 12, 6, 10, 0, 11, 8, 3, 4, 13, 7, 5, 15, 14, 1, 9},
+		{12, 5, 1, 15, 14, 13, 4, 10, 0, 7, 6, 3, 9, 2, 8, 11},
+		{13, 11, 7, 14, 12, 1, 3, 9, 5, 0, 15, 4, 8, 6, 2, 10},
+		{6, 15, 14, 9, 11, 3, 0, 8, 12, 2, 13, 7, 1, 4, 10, 5},
+		{10, 2, 8, 4, 7, 6, 1, 5, 15, 11, 9, 14, 3, 12, 13, 0}
+	};
+
+	/** Chaining value (8 32-bit words). */
+	private final int[] h;
+
+	/** Message block being compressed (16 32-bit words). */
+	private final int[] m;
+
+	/** Input buffer. */
+	private final byte[] buffer;
+
+	/** Secret key, empty if unkeyed. */
+	private final byte[] key;
+
+	/** Number of bytes in the input buffer. */
+	private int bufferLen;
+
+	/** Number of bytes compressed so far. */
+	private long t;
+
+	/**
+	 * Creates a new ready to use unkeyed {@code Blake2s}.
+	 *
+	 * @param length the digest length, in bytes (between 1 and 32).
+	 *
+	 * @throws IllegalArgumentException if {@code length} is not between 1
+	 *	and 32.
+	 */
+	Blake2s(int length)
+	{
+		this(length, new byte[0]);
+	}
+
+	/**
+	 * Creates a new ready to use keyed {@code Blake2s}.
+	 *
+	 * @param length the digest length, in bytes (between 1 and 32).
+	 * @param key the secret key (at most 32 bytes), may be empty.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 * @throws IllegalArgumentException if {@code length} is not between 1
+	 *	and 32, or if {@code key} is longer than 32 bytes.
+	 */
+	Blake2s(int length, byte[] key)
+	{
+		super("BLAKE2s-" + length * 8, length);
+		Parameters.checkCondition(length > 0 && length <= 32);
+		Parameters.checkCondition(key.length <= 32);
+		this.h = new int[8];
+		this.m = new int[16];
+		this.buffer = new byte[BLOCK_LENGTH];
+		this.key = XArrays.copyOf(key);
+		reset();
+	}
+
+	@Override
+	public Digest reset()
+	{
+		System.arraycopy(IV, 0, h, 0, 8);
+		h[0] ^= 0x01010000 ^ (key.length << 8) ^ length();
+		t = 0L;
+		bufferLen = 0;
+		if (key.length > 0) {
+			System.arraycopy(key, 0, buffer, 0, key.length);
+			for (int i = key.length; i < BLOCK_LENGTH; i++) {
+				buffer[i] = 0;
+			}
+			bufferLen = BLOCK_LENGTH;
+		}
+		return this;
+	}
+
+	@Override
+	public Blake2s copy()
+	{
+		Blake2s copy = new Blake2s(length(), key);
+		copy.restore(this);
+		return copy;
+	}
+
+	@Override
+	void restore(AbstractDigest state)
+	{
+		Blake2s blake2s = (Blake2s) state;
+		System.arraycopy(blake2s.h, 0, h, 0, 8);
+		System.arraycopy(blake2s.buffer, 0, buffer, 0, BLOCK_LENGTH);
+		bufferLen = blake2s.bufferLen;
+		t = blake2s.t;
+	}
+
+	@Override
+	void writeState(DigestState.Writer out)
+	{
+		out.writeInts(h).writeLong(t);
+		out.writeBytes(buffer, 0, bufferLen);
+	}
+
+	@Override
+	void readState(DigestState.Reader in)
+	{
+		in.readInts(h);
+		t = in.readLong();
+		bufferLen = in.readBytes(buffer);
+	}
+
+	@Override
+	public Digest update(byte input)
+	{
+		if (bufferLen == BLOCK_LENGTH) {
+			processBuffer();
+		}
+		buffer[bufferLen++] = input;
+		return this;
+	}
+
+	@Override
+	public Digest update(byte[] input, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > input.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		int index = off;
+		int remaining = len;
+		while (remaining > 0) {
+			if (bufferLen == BLOCK_LENGTH) {
+				processBuffer();
+			}
+			if (bufferLen == 0 && remaining > BLOCK_LENGTH) {
+				/* The last block must stay buffered. */
+				count(BLOCK_LENGTH);
+				compress(input, index, false);
+				index += BLOCK_LENGTH;
+				remaining -= BLOCK_LENGTH;
+			} else {
+				int cpLen = Math.min(BLOCK_LENGTH - bufferLen,
+					remaining);
+				System.arraycopy(input, index, buffer, bufferLen,
+					cpLen);
+				bufferLen += cpLen;
+				index += cpLen;
+				remaining -= cpLen;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Digest update(ByteBuffer input)
+	{
+		if (!updateFromArray(input)) {
+			while (input.hasRemaining()) {
+				if (bufferLen == BLOCK_LENGTH) {
+					processBuffer();
+				}
+				int cpLen = Math.min(BLOCK_LENGTH - bufferLen,
+					input.remaining());
+				input.get(buffer, bufferLen, cpLen);
+				bufferLen += cpLen;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Digest digestInto(byte[] out, int off)
+	{
+		checkOutput(out, off);
+		count(bufferLen);
+		for (int i = bufferLen; i < BLOCK_LENGTH; i++) {
+			buffer[i] = 0;
+		}
+		compress(buffer, 0, true);
+		int len = length();
+		for (int i = 0; i < len; i++) {
+			out[off + i] = (byte) (h[i >>> 2] >>> ((i & 3) << 3));
+		}
+		return reset();
+	}
+
+	private void processBuffer()
+	{
+		count(BLOCK_LENGTH);
+		compress(buffer, 0, false);
+		bufferLen = 0;
+	}
+
+	private void count(int n)
+	{
+		t += n;
+	}
+
+	private void compress(byte[] block, int off, boolean last)
+	{
+		for (int i = 0; i < 16; i++) {
+			m[i] = LittleEndian.decodeInt(block, off + (i << 2));
+		}
+		int v0 = h[0], v1 = h[1], v2 = h[2], v3 = h[3];
+		int v4 = h[4], v5 = h[5], v6 = h[6], v7 = h[7];
+		int v8 = IV[0], v9 = IV[1], v10 = IV[2], v11 = IV[3];
+		int v12 = IV[4] ^ (int) t, v13 = IV[5] ^ (int) (t >>> 32);
+		int v14 = last ? ~IV[6] : IV[6], v15 = IV[7];
+		for (int r = 0; r < 10; r++) {
+			byte[] s = SIGMA[r];
+			v0 += v4 + m[s[0]];
+			v12 = Integer.rotateRight(v12 ^ v0, 16);
+			v8 += v12;
+			v4 = Integer.rotateRight(v4 ^ v8, 12);
+			v0 += v4 + m[s[1]];
+			v12 = Integer.rotateRight(v12 ^ v0, 8);
+			v8 += v12;
+			v4 = Integer.rotateRight(v4 ^ v8, 7);
+			v1 += v5 + m[s[2]];
+			v13 = Integer.rotateRight(v13 ^ v1, 16);
+			v9 += v13;
+			v5 = Integer.rotateRight(v5 ^ v9, 12);
+			v1 += v5 + m[s[3]];
+			v13 = Integer.rotateRight(v13 ^ v1, 8);
+			v9 += v13;
+			v5 = Integer.rotateRight(v5 ^ v9, 7);
+			v2 += v6 + m[s[4]];
+			v14 = Integer.rotateRight(v14 ^ v2, 16);
+			v10 += v14;
+			v6 = Integer.rotateRight(v6 ^ v10, 12);
+			v2 += v6 + m[s[5]];
+			v14 = Integer.rotateRight(v14 ^ v2, 8);
+			v10 += v14;
+			v6 = Integer.rotateRight(v6 ^ v10, 7);
+			v3 += v7 + m[s[6]];
+			v15 = Integer.rotateRight(v15 ^ v3, 16);
+			v11 += v15;
+			v7 = Integer.rotateRight(v7 ^ v11, 12);
+			v3 += v7 + m[s[7]];
+			v15 = Integer.rotateRight(v15 ^ v3, 8);
+			v11 += v15;
+			v7 = Integer.rotateRight(v7 ^ v11, 7);
+			v0 += v5 + m[s[8]];
+			v15 = Integer.rotateRight(v15 ^ v0, 16);
+			v10 += v15;
+			v5 = Integer.rotateRight(v5 ^ v10, 12);
+			v0 += v5 + m[s[9]];
+			v15 = Integer.rotateRight(v15 ^ v0, 8);
+			v10 += v15;
+			v5 = Integer.rotateRight(v5 ^ v10, 7);
+			v1 += v6 + m[s[10]];
+			v12 = Integer.rotateRight(v12 ^ v1, 16);
+			v11 += v12;
+			v6 = Integer.rotateRight(v6 ^ v11, 12);
+			v1 += v6 + m[s[11]];
+			v12 = Integer.rotateRight(v12 ^ v1, 8);
+			v11 += v12;
+			v6 = Integer.rotateRight(v6 ^ v11, 7);
+			v2 += v7 + m[s[12]];
+			v13 = Integer.rotateRight(v13 ^ v2, 16);
+			v8 += v13;
+			v7 = Integer.rotateRight(v7 ^ v8, 12);
+			v2 += v7 + m[s[13]];
+			v13 = Integer.rotateRight(v13 ^ v2, 8);
+			v8 += v13;
+			v7 = Integer.rotateRight(v7 ^ v8, 7);
+			v3 += v4 + m[s[14]];
+			v14 = Integer.rotateRight(v14 ^ v3, 16);
+			v9 += v14;
+			v4 = Integer.rotateRight(v4 ^ v9, 12);
+			v3 += v4 + m[s[15]];
+			v14 = Integer.rotateRight(v14 ^ v3, 8);
+			v9 += v14;
+			v4 = Integer.rotateRight(v4 ^ v9, 7);
+		}
+		h[0] ^= v0 ^ v8;
+		h[1] ^= v1 ^ v9;
+		h[2] ^= v2 ^ v10;
+		h[3] ^= v3 ^ v11;
+		h[4] ^= v4 ^ v12;
+		h[5] ^= v5 ^ v13;
+		h[6] ^= v6 ^ v14;
+		h[7] ^= v7 ^ v15;
+	}
+}
@@ -0,0 +1,524 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.LittleEndian;
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * The BLAKE3 digest algorithm, optionally keyed. The input is split into
+ * 1 KiB chunks whose chaining values are merged into a binary tree. When an
+ * {@link Executor} is given, runs of complete chunks are hashed concurrently.
+ * Instances of this class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+final class Blake3 extends AbstractDigest
+{
+	private static final int BLOCK_LENGTH = 64;
+	private static final int CHUNK_LENGTH = 1024;
+
+	/** Maximum number of chunks hashed in one concurrent batch. */
+	private static final int MAX_BATCH = 256;
+
+	/** Number of chunks hashed by each task of a batch. */
+	private static final int TASK_CHUNKS = 16;
+
+	private static final int CHUNK_START = 1;
+	private static final int CHUNK_END = 2;
+	private static final int PARENT = 4;
+	private static final int ROOT = 8;
+	private static final int KEYED_HASH = 16;
+
+	private static final int[] IV = new int[] {
+		0x6A09E667, 0xBB67AE85, 0x3C6EF372, 0xA54FF53A, 0x510E527F,
+		0x9B05688C, 0x1F83D9AB, 0x5BE0CD19
+	};
+
+	private static final byte[][] SCHEDULE = new byte[][] {
+		{0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+		{2, 6, 3, 10, 7, 0, 4, 13, 1, 11, 12, 5, 9, 14, 15, 8},
+		{3, 4, 10, 12, 13, 2, 7, 14, 6, 5, 9, 0, 11, 15, 8, 1},
+		{10, 7, 12, 9, 14, 3, 13, 15, 4, 0, 11, 2, 5, 8, 1, 6},
+		{12, 13, 9, 11, 15, 10, 14, 8, 7, 2, 5, 3, 0, 1, 6, 4},
+		{9, 14, 11, 5, 8, 12, 15, 1, 13, 3, 0, 10, 2, 6, 4, 7},
+		{11, 15, 5, 0, 1, 9, 8, 6, 14, 10, 2, 12, 3, 4, 7, 13}
+	};
+
+	/*
+	 * The compression function: writes the 16 output words into out. h and
+	 * m are the 8 input chaining value words and the 16 message words.
+	 */
+	private static void compress(int[] h, int[] m, long counter, int len,
+		int flags, int[] out)
+	{
+		int v0 = h[0], v1 = h[1], v2 = h[2], v3 = h[3];
+		int v4 = h[4], v5 = h[5], v6 = h[6], v7 = h[7];
+		int v8 = IV[0], v9 = IV[1], v10 = IV[2], v11 = IV[3];
+		int v12 = (int) counter, v13 = (int) (counter >>> 32);
+		int v14 = len, v15 = flags;
+		for (int r = 0; r < 7; r++) {
+			byte[] s = SCHEDULE[r];
+			v0 += v4 + m[s[0]];
+			v12 = Integer.rotateRight(v12 ^ v0, 16);
+			v8 += v12;
+			v4 = Integer.rotateRight(v4 ^ v8, 12);
+			v0 += v4 + m[s[1]];
+			v12 = Integer.rotateRight(v12 ^ v0, 8);
+			v8 += v12;
+			v4 = Integer.rotateRight(v4 ^ v8, 7);
+			v1 += v5 + m[s[2]];
+			v13 = Integer.rotateRight(v13 ^ v1, 16);
+			v9 += v13;
+			v5 = Integer.rotateRight(v5 ^ v9, 12);
+			v1 += v5 + m[s[3]];
+			v13 = Integer.rotateRight(v13 ^ v1, 8);
+			v9 += v13;
+			v5 = Integer.rotateRight(v5 ^ v9, 7);
+			v2 += v6 + m[s[4]];
+			v14 = Integer.rotateRight(v14 ^ v2, 16);
+			v10 += v14;
+			v6 = Integer.rotateRight(v6 ^ v10, 12);
+			v2 += v6 + m[s[5]];
+			v14 = Integer.rotateRight(v14 ^ v2, 8);
+			v10 += v14;
+			v6 = Integer.rotateRight(v6 ^ v10, 7);
+			v3 += v7 + m[s[6]];
+			v15 = Integer.rotateRight(v15 ^ v3, 16);
+			v11 += v15;
+			v7 = Integer.rotateRight(v7 ^ v11, 12);
+			v3 += v7 + m[s[7]];
+			v15 = Integer.rotateRight(v15 ^ v3, 8);
+			v11 += v15;
+			v7 = Integer.rotateRight(v7 ^ v11, 7);
+			v0 += v5 + m[s[8]];
+			v15 = Integer.rotateRight(v15 ^ v0, 16);
+			v10 += v15;
+			v5 = Integer.rotateRight(v5 ^ v10, 12);
+			v0 += v5 + m[s[9]];
+			v15 = Integer.rotateRight(v15 ^ v0, 8);
+			v10 += v15;
+			v5 = Integer.rotateRight(v5 ^ v10, 7);
+			v1 += v6 + m[s[10]];
+			v12 = Integer.rotateRight(v12 ^ v1, 16);
+			v11 += v12;
+			v6 = Integer.rotateRight(v6 ^ v11, 12);
+			v1 += v6 + m[s[11]];
+			v12 = Integer.rotateRight(v12 ^ v1, 8);
+			v11 += v12;
+			v6 = Integer.rotateRight(v6 ^ v11, 7);
+			v2 += v7 + m[s[12]];
+			v13 = Integer.rotateRight(v13 ^ v2, 16);
+			v8 += v13;
+			v7 = Integer.rotateRight(v7 ^ v8, 12);
+			v2 += v7 + m[s[13]];
+			v13 = Integer.rotateRight(v13 ^ v2, 8);
+			v8 += v13;
+			v7 = Integer.rotateRight(v7 ^ v8, 7);
+			v3 += v4 + m[s[14]];
+			v14 = Integer.rotateRight(v14 ^ v3, 16);
+			v9 += v14;
+			v4 = Integer.rotateRight(v4 ^ v9, 12);
+			v3 += v4 + m[s[15]];
+			v14 = Integer.rotateRight(v14 ^ v3, 8);
+			v9 += v14;
+			v4 = Integer.rotateRight(v4 ^ v9, 7);
+		}
+		out[8] = v8 ^ h[0];
+		out[9] = v9 ^ h[1];
+		out[10] = v10 ^ h[2];
+		out[11] = v11 ^ h[3];
+		out[12] = v12 ^ h[4];
+		out[13] = v13 ^ h[5];
+		out[14] = v14 ^ h[6];
+		out[15] = v15 ^ h[7];
+		out[0] = v0 ^ v8;
+		out[1] = v1 ^ v9;
+		out[2] = v2 ^ v10;
+		out[3] = v3 ^ v11;
+		out[4] = v4 ^ v12;
+		out[5] = v5 ^ v13;
+		out[6] = v6 ^ v14;
+		out[7] = v7 ^ v15;
+	}
+
+	private static void decode(byte[] in, int off, int[] m)
+	{
+		for (int i = 0; i < 16; i++) {
+			m[i] = LittleEndian.decodeInt(in, off + (i << 2));
+		}
+	}
+
+	/*
+	 * Computes the chaining value of the complete chunk starting at off
+	 * into cv. m and out are scratch arrays of 16 words.
+	 */
+	private static void chunk(byte[] in, int off, long counter, int[] key,
+		int flags, int[] cv, int[] m, int[] out)
+	{
+		System.arraycopy(key, 0, cv, 0, 8);
+		for (int i = 0; i < CHUNK_LENGTH / BLOCK_LENGTH; i++) {
+			int f = flags;
+			if (i == 0) {
+				f |= CHUNK_START;
+			}
+			if (i == CHUNK_LENGTH / BLOCK_LENGTH - 1) {
+				f |= CHUNK_END;
+			}
+			decode(in, off + i * BLOCK_LENGTH, m);
+			compress(cv, m, counter, BLOCK_LENGTH, f, out);
+			System.arraycopy(out, 0, cv, 0, 8);
+		}
+	}
+
+	private final int[] key;
+	private final int flags;
+	private final Executor executor;
+
+	/** Chaining values of the pending subtrees (at most 54). */
+	private final int[] stack;
+	private int stackLen;
+
+	/** The current chunk's state. */
+	private final int[] cv;
+	private final byte[] block;
+	private int blockLen;
+	private int blocksCompressed;
+	private long chunkCounter;
+
+	/** Scratch arrays. */
+	private final int[] m;
+	private final int[] out;
+
+	/**
+	 * Creates a new ready to use {@code Blake3}.
+	 *
+	 * @param length the digest length, in bytes.
+	 * @param key the secret key (32 bytes), {@code null} for unkeyed
+	 *	hashing.
+	 * @param executor the {@code Executor} to use to hash chunks, may be
+	 *	{@code null}, in which case chunks are hashed on the caller's
+	 *	thread.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is negative or if
+	 *	{@code key} is not 32 bytes long.
+	 */
+	Blake3(int length, byte[] key, Executor executor)
+	{
+		super("BLAKE3", length);
+		Parameters.checkCondition(length > 0);
+		Parameters.checkCondition(key == null || key.length == 32);
+		this.key = new int[8];
+		if (key == null) {
+			System.arraycopy(IV, 0, this.key, 0, 8);
+			this.flags = 0;
+		} else {
+			for (int i = 0; i < 8; i++) {
+				this.key[i] = LittleEndian.decodeInt(key, i << 2);
+			}
+			this.flags = KEYED_HASH;
+		}
+		this.executor = executor;
+		this.stack = new int[54 * 8];
+		this.cv = new int[8];
+		this.block = new byte[BLOCK_LENGTH];
+		this.m = new int[16];
+		this.out = new int[16];
+		reset();
+	}
+
+	private Blake3(Blake3 blake3)
+	{
+		super("BLAKE3", blake3.length());
+		this.key = blake3.key.clone();
+		this.flags = blake3.flags;
+		this.executor = blake3.executor;
+		this.stack = new int[54 * 8];
+		this.cv = new int[8];
+		this.block = new byte[BLOCK_LENGTH];
+		this.m = new int[16];
+		this.out = new int[16];
+		restore(blake3);
+	}
+
+	@Override
+	public Digest reset()
+	{
+		stackLen = 0;
+		startChunk(0L);
+		return this;
+	}
+
+	@Override
+	public Blake3 copy()
+	{
+		return new Blake3(this);
+	}
+
+	@Override
+	void restore(AbstractDigest state)
+	{
+		Blake3 blake3 = (Blake3) state;
+		System.arraycopy(blake3.stack, 0, stack, 0, blake3.stackLen * 8);
+		stackLen = blake3.stackLen;
+		System.arraycopy(blake3.cv, 0, cv, 0, 8);
+		System.arraycopy(blake3.block, 0, block, 0, BLOCK_LENGTH);
+		blockLen = blake3.blockLen;
+		blocksCompressed = blake3.blocksCompressed;
+		chunkCounter = blake3.chunkCounter;
+	}
+
+	@Override
+	void writeState(DigestState.Writer state)
+	{
+		state.writeInt(stackLen);
+		for (int i = 0; i < stackLen * 8; i++) {
+			state.writeInt(stack[i]);
+		}
+		state.writeInts(cv).writeLong(chunkCounter);
+		state.writeInt(blocksCompressed);
+		state.writeBytes(block, 0, blockLen);
+	}
+
+	@Override
+	void readState(DigestState.Reader state)
+	{
+		stackLen = state.readInt(0, 54);
+		for (int i = 0; i < stackLen * 8; i++) {
+			stack[i] = state.readInt();
+		}
+		state.readInts(cv);
+		chunkCounter = state.readLong();
+		state.check(chunkCounter >= 0);
+		state.check(Long.bitCount(chunkCounter) == stackLen);
+		blocksCompressed = state.readInt(0,
+			CHUNK_LENGTH / BLOCK_LENGTH - 1);
+		blockLen = state.readBytes(block);
+	}
+
+	@Override
+	public Digest update(byte input)
+	{
+		if (chunkLength() == CHUNK_LENGTH) {
+			endChunk();
+		}
+		if (blockLen == BLOCK_LENGTH) {
+			compressBlock();
+		}
+		block[blockLen++] = input;
+		return this;
+	}
+
+	@Override
+	public Digest update(byte[] input, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > input.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (len > 0) {
+			if (chunkLength() == CHUNK_LENGTH) {
+				endChunk();
+			}
+			if (chunkLength() == 0 && len > CHUNK_LENGTH) {
+				/* The last chunk must stay buffered. */
+				int n = Math.min((len - 1) / CHUNK_LENGTH, MAX_BATCH);
+				hashChunks(input, off, n);
+				off += n * CHUNK_LENGTH;
+				len -= n * CHUNK_LENGTH;
+				continue;
+			}
+			int cpLen = Math.min(CHUNK_LENGTH - chunkLength(), len);
+			while (cpLen > 0) {
+				if (blockLen == BLOCK_LENGTH) {
+					compressBlock();
+				}
+				int n = Math.min(BLOCK_LENGTH - blockLen, cpLen);
+				System.arraycopy(input, off, block, blockLen, n);
+				blockLen += n;
+				off += n;
+				len -= n;
+				cpLen -= n;
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Digest update(ByteBuffer input)
+	{
+		if (!updateFromArray(input)) {
+			byte[] buf = new byte[Math.min(input.remaining(), 8192)];
+			while (input.hasRemaining()) {
+				int len = Math.min(buf.length, input.remaining());
+				input.get(buf, 0, len);
+				update(buf, 0, len);
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Digest digestInto(byte[] output, int off)
+	{
+		checkOutput(output, off);
+		int[] h = cv.clone();
+		for (int i = blockLen; i < BLOCK_LENGTH; i++) {
+			block[i] = 0;
+		}
+		decode(block, 0, m);
+		long counter = chunkCounter;
+		int len = blockLen;
+		int f = flags | CHUNK_END;
+		if (blocksCompressed == 0) {
+			f |= CHUNK_START;
+		}
+		for (int i = stackLen - 1; i >= 0; i--) {
+			compress(h, m, counter, len, f, out);
+			System.arraycopy(stack, i * 8, m, 0, 8);
+			System.arraycopy(out, 0, m, 8, 8);
+			System.arraycopy(key, 0, h, 0, 8);
+			counter = 0L;
+			len = BLOCK_LENGTH;
+			f = flags | PARENT;
+		}
+		int n = length();
+		for (long i = 0; n > 0; i++) {
+			compress(h, m, i, len, f | ROOT, out);
+			int cpLen = Math.min(n, 64);
+			for (int j = 0; j < cpLen; j++) {
+				output[off++] = (byte) (out[j >>> 2] >>> ((j & 3) << 3));
+			}
+			n -= cpLen;
+		}
+		return reset();
+	}
+
+	private int chunkLength()
+	{
+		return blocksCompressed * BLOCK_LENGTH + blockLen;
+	}
+
+	private void startChunk(long counter)
+	{
+		System.arraycopy(key, 0, cv, 0, 8);
+		chunkCounter = counter;
+		blockLen = 0;
+		blocksCompressed = 0;
+	}
+
+	private void compressBlock()
+	{
+		decode(block, 0, m);
+		int f = flags;
+		if (blocksCompressed == 0) {
+			f |= CHUNK_START;
+		}
+		compress(cv, m, chunkCounter, BLOCK_LENGTH, f, out);
+		System.arraycopy(out, 0, cv, 0, 8);
+		blocksCompressed++;
+		blockLen = 0;
+	}
+
+	/* Completes the current (full) chunk and starts the next one. */
+	private void endChunk()
+	{
+		decode(block, 0, m);
+		compress(cv, m, chunkCounter, BLOCK_LENGTH, flags | CHUNK_END, out);
+		addChunk(out, 0, chunkCounter + 1);
+		startChunk(chunkCounter + 1);
+	}
+
+	/* Hashes the n complete chunks starting at off. */
+	private void hashChunks(byte[] input, int off, int n)
+	{
+		if (executor == null || n < 2 * TASK_CHUNKS) {
+			int[] chunkCV = new int[8];
+			for (int i = 0; i < n; i++) {
+				chunk(input, off + i * CHUNK_LENGTH, chunkCounter + i,
+					key, flags, chunkCV, m, out);
+				addChunk(chunkCV, 0, chunkCounter + i + 1);
+			}
+		} else {
+			int[] cvs = new int[n * 8];
+			List<Chunks> tasks = new ArrayList<Chunks>();
+			for (int i = 0; i < n; i += TASK_CHUNKS) {
+				tasks.add(new Chunks(input, off, i,
+					Math.min(TASK_CHUNKS, n - i), cvs));
+			}
+			Tasks.run(executor, tasks);
+			for (int i = 0; i < n; i++) {
+				addChunk(cvs, i * 8, chunkCounter + i + 1);
+			}
+		}
+		startChunk(chunkCounter + n);
+	}
+
+	/*
+	 * Pushes the chaining value of a chunk onto the stack, merging the
+	 * completed subtrees. total is the number of chunks hashed so far.
+	 */
+	private void addChunk(int[] chunkCV, int cvOff, long total)
+	{
+		System.arraycopy(chunkCV, cvOff, m, 8, 8);
+		while ((total & 1) == 0) {
+			stackLen--;
+			System.arraycopy(stack, stackLen * 8, m, 0, 8);
+			compress(key, m, 0L, BLOCK_LENGTH, flags | PARENT, out);
+			System.arraycopy(out, 0, m, 8, 8);
+			total >>>= 1;
+		}
+		System.arraycopy(m, 8, stack, stackLen * 8, 8);
+		stackLen++;
+	}
+
+	private final class Chunks implements Runnable
+	{
+		private final byte[] input;
+		private final int off;
+		private final int first;
+		private final int count;
+		private final int[] cvs;
+
+		Chunks(byte[] input, int off, int first, int count, int[] cvs)
+		{
+			this.input = input;
+			this.off = off;
+			this.first = first;
+			this.count = count;
+			this.cvs = cvs;
+		}
+
+		@Override
+		public void run()
+		{
+			int[] chunkCV = new int[8];
+			int[] words = new int[16];
+			int[] output = new int[16];
+			for (int i = first; i < first + count; i++) {
+				chunk(input, off + i * CHUNK_LENGTH,
+					chunkCounter + i, key, flags, chunkCV,
+					words, output);
+				System.arraycopy(chunkCV, 0, cvs, i * 8, 8);
+			}
+		}
+	}
+}
@@ -16,6 +16,8 @@
 
 package org.kocakosm.pitaya.security;
 
+import java.nio.ByteBuffer;
+
 /**
  * A digest engine. Note that implementations of this interface are not meant to
  * be thread-safe.
@@ -40,6 +42,14 @@ public interface Digest
 	 */
 	Digest reset();
 
+	/**
+	 * Returns an independent copy of this engine, in the same state as this
+	 * one. Updating the copy doesn't affect this engine, and vice versa.
+	 *
+	 * @return a copy of this engine.
+	 */
+	Digest copy();
+
 	/**
 	 * Updates the digest using the given byte.
 	 *
@@ -76,6 +86,21 @@ public interface Digest
 	 */
 	Digest update(byte[] input, int off, int len);
 
+	/**
+	 * Updates the digest using the remaining bytes of the given buffer,
+	 * that is, the bytes between its position and its limit. Upon return,
+	 * the buffer's position is equal to its limit. Direct buffers (and
+	 * memory-mapped file regions) are read without being copied into an
+	 * intermediate heap array.
+	 *
+	 * @param input the buffer with which to update the digest.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 */
+	Digest update(ByteBuffer input);
+
 	/**
 	 * Completes the hash computation. Note that the engine is reset after
 	 * this call is made.
@@ -84,6 +109,22 @@ public interface Digest
 	 */
 	byte[] digest();
 
+	/**
+	 * Completes the hash computation and writes the resulting digest into
+	 * the given array, starting at the specified offset. Note that the
+	 * engine is reset after this call is made.
+	 *
+	 * @param out the output buffer.
+	 * @param off the output offset.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code off + length()} is greater than {@code out}'s length.
+	 */
+	Digest digestInto(byte[] out, int off);
+
 	/**
 	 * Performs a final update on the digest using the specified array of
 	 * bytes, then completes the digest computation. That is, this method
@@ -118,4 +159,86 @@ public interface Digest
 	 *	{@code off + len} is greater than {@code input}'s length.
 	 */
 	byte[] digest(byte[] input, int off, int len);
+
+	/**
+	 * Computes the digests of all the given messages and writes them,
+	 * contiguously and in order, into the given array, starting at the
+	 * specified offset. The i-th digest thus occupies the bytes from
+	 * {@code off + i * length()} (inclusive) to
+	 * {@code off + (i + 1) * length()} (exclusive). This engine is reset
+	 * before the first message is hashed and after the last one is.
+	 *
+	 * @param inputs the messages to hash.
+	 * @param out the output buffer.
+	 * @param off the output offset.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}
+	 *	or if {@code inputs} contains {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code off + inputs.length * length()} is greater than
+	 *	{@code out}'s length.
+	 */
+	Digest digestAll(byte[][] inputs, byte[] out, int off);
+
+	/**
+	 * Computes the digests of the messages found in the given array and
+	 * writes them, contiguously and in order, into the given output array,
+	 * starting at the specified offset. The i-th message starts at
+	 * {@code offsets[i]} and is {@code lengths[i]} bytes long; its digest
+	 * occupies the bytes from {@code off + i * length()} (inclusive) to
+	 * {@code off + (i + 1) * length()} (exclusive). This engine is reset
+	 * before the first message is hashed and after the last one is.
+	 *
+	 * @param input the array containing the messages to hash.
+	 * @param offsets the messages' offsets.
+	 * @param lengths the messages' lengths.
+	 * @param out the output buffer.
+	 * @param off the output offset.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if {@code offsets} and
+	 *	{@code lengths} don't have the same length.
+	 * @throws IndexOutOfBoundsException if one of the messages doesn't fit
+	 *	in {@code input}, if {@code off} is negative or if
+	 *	{@code off + offsets.length * length()} is greater than
+	 *	{@code out}'s length.
+	 */
+	Digest digestAll(byte[] input, int[] offsets, int[] lengths, byte[] out,
+		int off);
+
+	/**
+	 * Exports this engine's intermediate state (that is, the state reached
+	 * after all the updates made since the last reset) as a compact byte
+	 * array. The returned state can later be given to the
+	 * {@link #importState(byte[])} method of any engine implementing the
+	 * same algorithm, possibly in another process, to resume the hash
+	 * computation. This engine's state is unaffected.
+	 *
+	 * @return this engine's intermediate state.
+	 *
+	 * @throws UnsupportedOperationException if this engine's state can't
+	 *	be exported.
+	 */
+	byte[] exportState();
+
+	/**
+	 * Replaces this engine's state with the given one, as previously
+	 * returned by {@link #exportState()}. This engine's state is left
+	 * unchanged if the given state is invalid.
+	 *
+	 * @param state the state to import.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code state} is {@code null}.
+	 * @throws IllegalArgumentException if {@code state} is not a valid
+	 *	state for this engine's algorithm.
+	 * @throws UnsupportedOperationException if this engine's state can't
+	 *	be imported.
+	 */
+	Digest importState(byte[] state);
 }
@@ -0,0 +1,152 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.util.ArrayDeque;
+
+/**
+ * A thread-safe pool of {@link Digest} engines. Each thread gets its own cache
+ * of engines, so that acquiring and releasing engines involves neither
+ * allocation nor synchronization once the cache is warm. Engines are reset
+ * when they are released. Pools are meant to be long-lived (typically stored
+ * in a {@code static} field): each one holds its engines in a
+ * {@link ThreadLocal}.
+ *
+ * @author Osman KOCAK
+ */
+public final class DigestPool
+{
+	/** Maximum number of engines cached per thread. */
+	private static final int MAX_CACHED = 4;
+
+	private final Algorithm<Digest> algorithm;
+	private final ThreadLocal<ArrayDeque<Digest>> cache;
+
+	/**
+	 * Creates a new {@code DigestPool}.
+	 *
+	 * @param algorithm the digest algorithm of the pooled engines.
+	 *
+	 * @throws NullPointerException if {@code algorithm} is {@code null}.
+	 * @throws IllegalArgumentException if the given algorithm is unknown.
+	 */
+	public DigestPool(Algorithm<Digest> algorithm)
+	{
+		this.algorithm = algorithm;
+		this.cache = new ThreadLocal<ArrayDeque<Digest>>() {
+			@Override
+			protected ArrayDeque<Digest> initialValue()
+			{
+				return new ArrayDeque<Digest>(MAX_CACHED);
+			}
+		};
+		release(newDigest());
+	}
+
+	/**
+	 * Returns a ready to use {@code Digest} engine, taken from the calling
+	 * thread's cache if possible. The returned engine should be given back
+	 * to the pool with {@link #release(Digest)} once it is no longer used.
+	 *
+	 * @return a {@code Digest} engine.
+	 */
+	public Digest acquire()
+	{
+		Digest digest = cache.get().pollFirst();
+		return digest == null ? newDigest() : digest;
+	}
+
+	/**
+	 * Resets the given {@code Digest} engine and puts it back into the
+	 * calling thread's cache. The engine must have been obtained from this
+	 * pool and must not be used anymore by the caller. Engines created
+	 * elsewhere (even by another pool of the same algorithm) and engines
+	 * already in the calling thread's cache are rejected.
+	 *
+	 * @param digest the {@code Digest} engine to release.
+	 *
+	 * @throws NullPointerException if {@code digest} is {@code null}.
+	 * @throws IllegalArgumentException if {@code digest} wasn't created
+	 *	by this pool or has already been released.
+	 */
+	public void release(Digest digest)
+	{
+		Parameters.checkNotNull(digest);
+		Parameters.checkCondition(digest instanceof AbstractDigest
+			&& ((AbstractDigest) digest).owner == this);
+		ArrayDeque<Digest> digests = cache.get();
+		/* Pooled engines don't override equals: this is an identity check. */
+		Parameters.checkCondition(!digests.contains(digest));
+		digest.reset();
+		if (digests.size() < MAX_CACHED) {
+			digests.addFirst(digest);
+		}
+	}
+
+	/**
+	 * Computes the digest of the given input using a pooled engine.
+	 *
+	 * @param input the input to hash.
+	 *
+	 * @return the resulting digest.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 */
+	public byte[] digest(byte... input)
+	{
+		return digest(input, 0, input.length);
+	}
+
+	/**
+	 * Computes the digest of the given input using a pooled engine.
+	 *
+	 * @param input the input to hash.
+	 * @param off the input's start offset.
+	 * @param len the number of bytes to hash.
+	 *
+	 * @return the resulting digest.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+	 *	negative or if {@code off + len} is greater than
+	 *	{@code input}'s length.
+	 */
+	public byte[] digest(byte[] input, int off, int len)
+	{
+		Digest digest = acquire();
+		try {
+			return digest.digest(input, off, len);
+		} finally {
+			release(digest);
+		}
+	}
+
+	private Digest newDigest()
+	{
+		AbstractDigest digest = (AbstractDigest) Factory.newDigest(algorithm);
+		digest.owner = this;
+		return digest;
+	}
+
+	@Override
+	public String toString()
+	{
+		return algorithm + " pool";
+	}
+}
@@ -0,0 +1,227 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.charset.UTF8;
+import org.kocakosm.pitaya.util.BigEndian;
+import org.kocakosm.pitaya.util.ByteBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Serialization helpers for digest engines' intermediate states. An exported
+ * state starts with the engine's name and digest length, so that it can't be
+ * imported into an engine implementing another algorithm; integers are encoded
+ * in big-endian order and byte arrays are prefixed with their length.
+ *
+ * @author Osman KOCAK
+ */
+final class DigestState
+{
+	/** Writes an engine's state. */
+	static final class Writer
+	{
+		private final ByteBuffer buffer;
+
+		/**
+		 * Creates a new {@code Writer}.
+		 *
+		 * @param name the engine's name.
+		 * @param length the engine's digest length.
+		 */
+		Writer(String name, int length)
+		{
+			this.buffer = new ByteBuffer(64);
+			byte[] n = UTF8.encode(name);
+			writeBytes(n, 0, n.length);
+			writeInt(length);
+		}
+
+		Writer writeBoolean(boolean b)
+		{
+			buffer.append((byte) (b ? 1 : 0));
+			return this;
+		}
+
+		Writer writeInt(int n)
+		{
+			buffer.append(BigEndian.encode(n));
+			return this;
+		}
+
+		Writer writeLong(long n)
+		{
+			buffer.append(BigEndian.encode(n));
+			return this;
+		}
+
+		Writer writeInts(int[] a)
+		{
+			for (int n : a) {
+				writeInt(n);
+			}
+			return this;
+		}
+
+		Writer writeLongs(long[] a)
+		{
+			for (long n : a) {
+				writeLong(n);
+			}
+			return this;
+		}
+
+		Writer writeBytes(byte[] b, int off, int len)
+		{
+			writeInt(len);
+			buffer.append(b, off, len);
+			return this;
+		}
+
+		byte[] toByteArray()
+		{
+			return buffer.toByteArray();
+		}
+	}
+
+	/** Reads an engine's state. */
+	static final class Reader
+	{
+		private final byte[] state;
+		private int pos;
+
+		/**
+		 * Creates a new {@code Reader}.
+		 *
+		 * @param name the engine's name.
+		 * @param length the engine's digest length.
+		 * @param state the state to read.
+		 *
+		 * @throws NullPointerException if {@code state} is {@code null}.
+		 * @throws IllegalArgumentException if {@code state} hasn't been
+		 *	exported from an engine with the given name and length.
+		 */
+		Reader(String name, int length, byte[] state)
+		{
+			this.state = state;
+			byte[] n = UTF8.encode(name);
+			byte[] actual = new byte[n.length];
+			check(readBytes(actual) == n.length && Arrays.equals(n, actual));
+			check(readInt() == length);
+		}
+
+		boolean readBoolean()
+		{
+			require(1);
+			byte b = state[pos++];
+			check(b == 0 || b == 1);
+			return b == 1;
+		}
+
+		int readInt()
+		{
+			require(4);
+			int n = BigEndian.decodeInt(state, pos);
+			pos += 4;
+			return n;
+		}
+
+		/* Reads an int and checks that it belongs to [min, max]. */
+		int readInt(int min, int max)
+		{
+			int n = readInt();
+			check(n >= min && n <= max);
+			return n;
+		}
+
+		long readLong()
+		{
+			require(8);
+			long n = BigEndian.decodeLong(state, pos);
+			pos += 8;
+			return n;
+		}
+
+		void readInts(int[] a)
+		{
+			for (int i = 0; i < a.length; i++) {
+				a[i] = readInt();
+			}
+		}
+
+		void readLongs(long[] a)
+		{
+			for (int i = 0; i < a.length; i++) {
+				a[i] = readLong();
+			}
+		}
+
+		/* Reads at most b.length bytes, returns the number of bytes read. */
+		int readBytes(byte[] b)
+		{
+			int len = readInt(0, b.length);
+			require(len);
+			System.arraycopy(state, pos, b, 0, len);
+			pos += len;
+			return len;
+		}
+
+		/* Reads a byte array whose length is not known in advance. */
+		byte[] readBytes()
+		{
+			int len = readInt(0, Integer.MAX_VALUE);
+			require(len);
+			byte[] b = new byte[len];
+			System.arraycopy(state, pos, b, 0, len);
+			pos += len;
+			return b;
+		}
+
+		/* Checks that the whole state has been read. */
+		void end()
+		{
+			check(pos == state.length);
+		}
+
+		/**
+		 * Checks the given condition, which is expected to be met by a
+		 * valid state.
+		 *
+		 * @param condition the condition to check.
+		 *
+		 * @throws IllegalArgumentException if {@code condition} is
+		 *	{@code false}.
+		 */
+		void check(boolean condition)
+		{
+			if (!condition) {
+				throw new IllegalArgumentException(
+					"Invalid digest state");
+			}
+		}
+
+		private void require(int n)
+		{
+			check(n <= state.length - pos);
+		}
+	}
+
+	private DigestState()
+	{
+		/* ... */
+	}
+}
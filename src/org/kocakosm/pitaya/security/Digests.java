@@ -16,10 +16,21 @@
 
 package org.kocakosm.pitaya.security;
 
+import org.kocakosm.pitaya.io.IO;
 import org.kocakosm.pitaya.util.CannotHappenException;
+import org.kocakosm.pitaya.util.Parameters;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Somme commonly used digest algorithms. None of the {@link Digest} instances
@@ -29,6 +40,24 @@ import java.security.NoSuchAlgorithmException;
  */
 public final class Digests
 {
+	private static final long MAPPING_WINDOW = 1L << 26;
+
+	/**
+	 * Returns a new {@code Digest} instance implementing the given
+	 * algorithm.
+	 *
+	 * @param algorithm the digest algorithm.
+	 *
+	 * @return a new {@code Digest} instance.
+	 *
+	 * @throws NullPointerException if {@code algorithm} is {@code null}.
+	 * @throws IllegalArgumentException if the given algorithm is unknown.
+	 */
+	public static Digest newDigest(Algorithm<Digest> algorithm)
+	{
+		return Factory.newDigest(algorithm);
+	}
+
 	/**
 	 * Returns a new MD2 {@code Digest} instance.
 	 *
@@ -96,7 +125,7 @@ public final class Digests
 	 */
 	public static Digest keccak224()
 	{
-		return new Keccak(28);
+		return Keccak.keccak(28);
 	}
 
 	/**
@@ -106,7 +135,7 @@ public final class Digests
 	 */
 	public static Digest keccak256()
 	{
-		return new Keccak(32);
+		return Keccak.keccak(32);
 	}
 
 	/**
@@ -116,7 +145,7 @@ public final class Digests
 	 */
 	public static Digest keccak384()
 	{
-		return new Keccak(48);
+		return Keccak.keccak(48);
 	}
 
 	/**
@@ -126,23 +155,427 @@ public final class Digests
 	 */
 	public static Digest keccak512()
 	{
-		return new Keccak(64);
+		return Keccak.keccak(64);
+	}
+
+	/**
+	 * Returns a new SHA3-224 {@code Digest} instance.
+	 *
+	 * @return a new SHA3-224 {@code Digest} instance.
+	 */
+	public static Digest sha3_224()
+	{
+		return Keccak.sha3(28);
+	}
+
+	/**
+	 * Returns a new SHA3-256 {@code Digest} instance.
+	 *
+	 * @return a new SHA3-256 {@code Digest} instance.
+	 */
+	public static Digest sha3_256()
+	{
+		return Keccak.sha3(32);
+	}
+
+	/**
+	 * Returns a new SHA3-384 {@code Digest} instance.
+	 *
+	 * @return a new SHA3-384 {@code Digest} instance.
+	 */
+	public static Digest sha3_384()
+	{
+		return Keccak.sha3(48);
+	}
+
+	/**
+	 * Returns a new SHA3-512 {@code Digest} instance.
+	 *
+	 * @return a new SHA3-512 {@code Digest} instance.
+	 */
+	public static Digest sha3_512()
+	{
+		return Keccak.sha3(64);
+	}
+
+	/**
+	 * Returns a new BLAKE2b {@code Digest} instance whose output length is
+	 * 64 bytes.
+	 *
+	 * @return a new BLAKE2b-512 {@code Digest} instance.
+	 */
+	public static Digest blake2b()
+	{
+		return new Blake2b(64);
+	}
+
+	/**
+	 * Returns a new BLAKE2b {@code Digest} instance with the given output
+	 * length.
+	 *
+	 * @param length the output length (in bytes), between 1 and 64.
+	 *
+	 * @return a new BLAKE2b {@code Digest} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is not between 1
+	 *	and 64.
+	 */
+	public static Digest blake2b(int length)
+	{
+		return new Blake2b(length);
+	}
+
+	/**
+	 * Returns a new BLAKE2s {@code Digest} instance whose output length is
+	 * 32 bytes.
+	 *
+	 * @return a new BLAKE2s-256 {@code Digest} instance.
+	 */
+	public static Digest blake2s()
+	{
+		return new Blake2s(32);
+	}
+
+	/**
+	 * Returns a new BLAKE2s {@code Digest} instance with the given output
+	 * length.
+	 *
+	 * @param length the output length (in bytes), between 1 and 32.
+	 *
+	 * @return a new BLAKE2s {@code Digest} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is not between 1
+	 *	and 32.
+	 */
+	public static Digest blake2s(int length)
+	{
+		return new Blake2s(length);
+	}
+
+	/**
+	 * Returns a new BLAKE3 {@code Digest} instance whose output length is
+	 * 32 bytes.
+	 *
+	 * @return a new BLAKE3 {@code Digest} instance.
+	 */
+	public static Digest blake3()
+	{
+		return new Blake3(32, null, null);
+	}
+
+	/**
+	 * Returns a new BLAKE3 {@code Digest} instance with the given output
+	 * length.
+	 *
+	 * @param length the output length (in bytes).
+	 *
+	 * @return a new BLAKE3 {@code Digest} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is negative.
+	 */
+	public static Digest blake3(int length)
+	{
+		return new Blake3(length, null, null);
+	}
+
+	/**
+	 * Returns a new BLAKE3 {@code Digest} instance with the given output
+	 * length, which hashes large inputs' chunks concurrently using the
+	 * given {@code Executor}. The result is the same as the one obtained
+	 * from {@link #blake3(int)}.
+	 *
+	 * @param length the output length (in bytes).
+	 * @param executor the {@code Executor} to use to hash chunks.
+	 *
+	 * @return a new BLAKE3 {@code Digest} instance.
+	 *
+	 * @throws NullPointerException if {@code executor} is {@code null}.
+	 * @throws IllegalArgumentException if {@code length} is negative.
+	 */
+	public static Digest blake3(int length, Executor executor)
+	{
+		Parameters.checkNotNull(executor);
+		return new Blake3(length, null, executor);
+	}
+
+	/**
+	 * Returns a new SHAKE128 {@code XOF} instance whose {@link
+	 * XOF#digest() digest} method returns 32 bytes.
+	 *
+	 * @return a new SHAKE128 {@code XOF} instance.
+	 */
+	public static XOF shake128()
+	{
+		return Keccak.shake128(32);
+	}
+
+	/**
+	 * Returns a new SHAKE128 {@code XOF} instance whose {@link
+	 * XOF#digest() digest} method returns {@code length} bytes.
+	 *
+	 * @param length the default output length (in bytes).
+	 *
+	 * @return a new SHAKE128 {@code XOF} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is negative.
+	 */
+	public static XOF shake128(int length)
+	{
+		return Keccak.shake128(length);
+	}
+
+	/**
+	 * Returns a new SHAKE256 {@code XOF} instance whose {@link
+	 * XOF#digest() digest} method returns 64 bytes.
+	 *
+	 * @return a new SHAKE256 {@code XOF} instance.
+	 */
+	public static XOF shake256()
+	{
+		return Keccak.shake256(64);
+	}
+
+	/**
+	 * Returns a new SHAKE256 {@code XOF} instance whose {@link
+	 * XOF#digest() digest} method returns {@code length} bytes.
+	 *
+	 * @param length the default output length (in bytes).
+	 *
+	 * @return a new SHAKE256 {@code XOF} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is negative.
+	 */
+	public static XOF shake256(int length)
+	{
+		return Keccak.shake256(length);
+	}
+
+	/**
+	 * Computes the digests of all the given messages using the specified
+	 * algorithm. The digests are returned concatenated, in order, in a
+	 * single array: the i-th digest starts at index {@code i * length},
+	 * where {@code length} is the algorithm's digest length.
+	 *
+	 * @param algorithm the digest algorithm to use.
+	 * @param inputs the messages to hash.
+	 *
+	 * @return the concatenated digests.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}
+	 *	or if {@code inputs} contains {@code null}.
+	 * @throws IllegalArgumentException if the digest algorithm is unknown.
+	 */
+	public static byte[] digestAll(Algorithm<Digest> algorithm,
+		byte[]... inputs)
+	{
+		Digest digest = Factory.newDigest(algorithm);
+		byte[] out = new byte[inputs.length * digest.length()];
+		digest.digestAll(inputs, out, 0);
+		return out;
+	}
+
+	/**
+	 * Returns a new tree hashing {@code Digest} built on the given digest
+	 * algorithm. The input is split into chunks of {@code chunkSize} bytes
+	 * whose digests are combined into a root digest. Chunks are hashed on
+	 * the caller's thread.
+	 *
+	 * @param algorithm the underlying digest algorithm.
+	 * @param chunkSize the chunks' size, in bytes.
+	 *
+	 * @return a new tree hashing {@code Digest} instance.
+	 *
+	 * @throws NullPointerException if {@code algorithm} is {@code null}.
+	 * @throws IllegalArgumentException if {@code chunkSize} is negative or
+	 *	if the digest algorithm is unknown.
+	 */
+	public static Digest treeHash(Algorithm<Digest> algorithm, int chunkSize)
+	{
+		return new TreeHash(algorithm, chunkSize, null);
+	}
+
+	/**
+	 * Returns a new tree hashing {@code Digest} built on the given digest
+	 * algorithm, whose chunks are hashed concurrently using the given
+	 * {@code Executor}. The result is the same as the one obtained from
+	 * {@link #treeHash(Algorithm, int)}.
+	 *
+	 * @param algorithm the underlying digest algorithm.
+	 * @param chunkSize the chunks' size, in bytes.
+	 * @param executor the {@code Executor} to use to hash chunks.
+	 *
+	 * @return a new tree hashing {@code Digest} instance.
+	 *
+	 * @throws NullPointerException if {@code algorithm} or {@code executor}
+	 *	is {@code null}.
+	 * @throws IllegalArgumentException if {@code chunkSize} is negative or
+	 *	if the digest algorithm is unknown.
+	 */
+	public static Digest treeHash(Algorithm<Digest> algorithm, int chunkSize,
+		Executor executor)
+	{
+		Parameters.checkNotNull(executor);
+		return new TreeHash(algorithm, chunkSize, executor);
+	}
+
+	/**
+	 * Returns a new ParallelHash128 {@code Digest} instance (NIST SP
+	 * 800-185), whose output length is 32 bytes. Blocks are hashed on the
+	 * caller's thread.
+	 *
+	 * @param blockSize the block size, in bytes.
+	 * @param customization the customization string.
+	 *
+	 * @return a new ParallelHash128 {@code Digest} instance.
+	 *
+	 * @throws NullPointerException if {@code customization} is
+	 *	{@code null}.
+	 * @throws IllegalArgumentException if {@code blockSize} is negative.
+	 */
+	public static Digest parallelHash128(int blockSize, byte[] customization)
+	{
+		return new ParallelHash(128, blockSize, customization, null);
+	}
+
+	/**
+	 * Returns a new ParallelHash128 {@code Digest} instance (NIST SP
+	 * 800-185), whose output length is 32 bytes and whose blocks are
+	 * hashed concurrently using the given {@code Executor}.
+	 *
+	 * @param blockSize the block size, in bytes.
+	 * @param customization the customization string.
+	 * @param executor the {@code Executor} to use to hash blocks.
+	 *
+	 * @return a new ParallelHash128 {@code Digest} instance.
+	 *
+	 * @throws NullPointerException if {@code customization} or
+	 *	{@code executor} is {@code null}.
+	 * @throws IllegalArgumentException if {@code blockSize} is negative.
+	 */
+	public static Digest parallelHash128(int blockSize, byte[] customization,
+		Executor executor)
+	{
+		Parameters.checkNotNull(executor);
+		return new ParallelHash(128, blockSize, customization, executor);
+	}
+
+	/**
+	 * Returns a new ParallelHash256 {@code Digest} instance (NIST SP
+	 * 800-185), whose output length is 64 bytes. Blocks are hashed on the
+	 * caller's thread.
+	 *
+	 * @param blockSize the block size, in bytes.
+	 * @param customization the customization string.
+	 *
+	 * @return a new ParallelHash256 {@code Digest} instance.
+	 *
+	 * @throws NullPointerException if {@code customization} is
+	 *	{@code null}.
+	 * @throws IllegalArgumentException if {@code blockSize} is negative.
+	 */
+	public static Digest parallelHash256(int blockSize, byte[] customization)
+	{
+		return new ParallelHash(256, blockSize, customization, null);
+	}
+
+	/**
+	 * Returns a new ParallelHash256 {@code Digest} instance (NIST SP
+	 * 800-185), whose output length is 64 bytes and whose blocks are
+	 * hashed concurrently using the given {@code Executor}.
+	 *
+	 * @param blockSize the block size, in bytes.
+	 * @param customization the customization string.
+	 * @param executor the {@code Executor} to use to hash blocks.
+	 *
+	 * @return a new ParallelHash256 {@code Digest} instance.
+	 *
+	 * @throws NullPointerException if {@code customization} or
+	 *	{@code executor} is {@code null}.
+	 * @throws IllegalArgumentException if {@code blockSize} is negative.
+	 */
+	public static Digest parallelHash256(int blockSize, byte[] customization,
+		Executor executor)
+	{
+		Parameters.checkNotNull(executor);
+		return new ParallelHash(256, blockSize, customization, executor);
+	}
+
+	/**
+	 * Computes the digest of the given file's content using the specified
+	 * algorithm. The file is memory-mapped and fed to the digest engine by
+	 * large windows, without being copied into heap arrays.
+	 *
+	 * @param f the file to hash.
+	 * @param algorithm the digest algorithm to use.
+	 *
+	 * @return the file's digest.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if the digest algorithm is unknown.
+	 * @throws java.io.FileNotFoundException if {@code f} doesn't exist, or
+	 *	if it is a directory rather than a regular file, or if it can't
+	 *	be read.
+	 * @throws IOException if an I/O error occurs during the process.
+	 */
+	public static byte[] digest(File f, Algorithm<Digest> algorithm)
+		throws IOException
+	{
+		Digest digest = Factory.newDigest(algorithm);
+		FileInputStream in = new FileInputStream(f);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			for (long pos = 0; pos < size; pos += MAPPING_WINDOW) {
+				long len = Math.min(MAPPING_WINDOW, size - pos);
+				digest.update(channel.map(FileChannel.MapMode.READ_ONLY,
+					pos, len));
+			}
+		} finally {
+			IO.close(in);
+		}
+		return digest.digest();
 	}
 
 	private static final class BuiltInDigest extends AbstractDigest
 	{
+		/*
+		 * Provider lookups are costly, engines are cloned from these
+		 * (never updated) prototypes instead.
+		 */
+		private static final Map<String, MessageDigest> PROTOTYPES =
+			prototypes("MD5", "SHA1", "SHA-256", "SHA-512");
+
+		private static Map<String, MessageDigest> prototypes(
+			String... algorithms)
+		{
+			Map<String, MessageDigest> prototypes =
+				new HashMap<String, MessageDigest>();
+			for (String algorithm : algorithms) {
+				try {
+					prototypes.put(algorithm,
+						MessageDigest.getInstance(algorithm));
+				} catch (NoSuchAlgorithmException ex) {
+					throw new CannotHappenException(ex);
+				}
+			}
+			return prototypes;
+		}
+
 		static Digest create(String algorithm)
 		{
-			MessageDigest md;
+			return new BuiltInDigest(clone(PROTOTYPES.get(algorithm)));
+		}
+
+		private static MessageDigest clone(MessageDigest md)
+		{
 			try {
-				md = MessageDigest.getInstance(algorithm);
-			} catch (NoSuchAlgorithmException ex) {
+				return (MessageDigest) md.clone();
+			} catch (CloneNotSupportedException ex) {
 				throw new CannotHappenException(ex);
 			}
-			return new BuiltInDigest(md);
 		}
 
-		private final MessageDigest md;
+		private MessageDigest md;
 
 		private BuiltInDigest(MessageDigest md)
 		{
@@ -157,6 +590,18 @@ public final class Digests
 			return this;
 		}
 
+		@Override
+		public BuiltInDigest copy()
+		{
+			return new BuiltInDigest(clone(md));
+		}
+
+		@Override
+		void restore(AbstractDigest state)
+		{
+			md = clone(((BuiltInDigest) state).md);
+		}
+
 		@Override
 		public Digest update(byte input)
 		{
@@ -184,6 +629,25 @@ public final class Digests
 			return md.digest();
 		}
 
+		@Override
+		public Digest update(ByteBuffer input)
+		{
+			md.update(input);
+			return this;
+		}
+
+		@Override
+		public Digest digestInto(byte[] out, int off)
+		{
+			checkOutput(out, off);
+			try {
+				md.digest(out, off, length());
+			} catch (DigestException ex) {
+				throw new CannotHappenException(ex);
+			}
+			return this;
+		}
+
 		@Override
 		public byte[] digest(byte... input)
 		{
@@ -18,13 +18,72 @@ package org.kocakosm.pitaya.security;
 
 import org.kocakosm.pitaya.util.Parameters;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Utility class to easily create instances of {@link Digest} and {@link MAC}.
+ * Digests are copied from prototypes held in a table keyed by algorithm, so
+ * that creating an engine doesn't involve any provider lookup.
  *
  * @author Osman KOCAK
  */
 final class Factory
 {
+	private static final Map<Algorithm<Digest>, AbstractDigest> DIGESTS =
+		new HashMap<Algorithm<Digest>, AbstractDigest>();
+	private static final Map<Algorithm<MAC>, HMACSpec> MACS =
+		new HashMap<Algorithm<MAC>, HMACSpec>();
+
+	static {
+		digest(Algorithm.MD2, Digests.md2());
+		digest(Algorithm.MD4, Digests.md4());
+		digest(Algorithm.MD5, Digests.md5());
+		digest(Algorithm.SHA1, Digests.sha1());
+		digest(Algorithm.SHA256, Digests.sha256());
+		digest(Algorithm.SHA512, Digests.sha512());
+		digest(Algorithm.KECCAK224, Digests.keccak224());
+		digest(Algorithm.KECCAK256, Digests.keccak256());
+		digest(Algorithm.KECCAK384, Digests.keccak384());
+		digest(Algorithm.KECCAK512, Digests.keccak512());
+		digest(Algorithm.SHA3_224, Digests.sha3_224());
+		digest(Algorithm.SHA3_256, Digests.sha3_256());
+		digest(Algorithm.SHA3_384, Digests.sha3_384());
+		digest(Algorithm.SHA3_512, Digests.sha3_512());
+		digest(Algorithm.SHAKE128, Digests.shake128());
+		digest(Algorithm.SHAKE256, Digests.shake256());
+		digest(Algorithm.BLAKE2B_512, Digests.blake2b());
+		digest(Algorithm.BLAKE2S_256, Digests.blake2s());
+		digest(Algorithm.BLAKE3, Digests.blake3());
+		hmac(Algorithm.HMAC_MD2, Algorithm.MD2, 16);
+		hmac(Algorithm.HMAC_MD4, Algorithm.MD4, 64);
+		hmac(Algorithm.HMAC_MD5, Algorithm.MD5, 64);
+		hmac(Algorithm.HMAC_SHA1, Algorithm.SHA1, 64);
+		hmac(Algorithm.HMAC_SHA256, Algorithm.SHA256, 64);
+		hmac(Algorithm.HMAC_SHA512, Algorithm.SHA512, 128);
+		hmac(Algorithm.HMAC_KECCAK224, Algorithm.KECCAK224, 144);
+		hmac(Algorithm.HMAC_KECCAK256, Algorithm.KECCAK256, 136);
+		hmac(Algorithm.HMAC_KECCAK384, Algorithm.KECCAK384, 104);
+		hmac(Algorithm.HMAC_KECCAK512, Algorithm.KECCAK512, 72);
+		hmac(Algorithm.HMAC_SHA3_224, Algorithm.SHA3_224, 144);
+		hmac(Algorithm.HMAC_SHA3_256, Algorithm.SHA3_256, 136);
+		hmac(Algorithm.HMAC_SHA3_384, Algorithm.SHA3_384, 104);
+		hmac(Algorithm.HMAC_SHA3_512, Algorithm.SHA3_512, 72);
+		hmac(Algorithm.HMAC_BLAKE2B_512, Algorithm.BLAKE2B_512, 128);
+		hmac(Algorithm.HMAC_BLAKE2S_256, Algorithm.BLAKE2S_256, 64);
+	}
+
+	private static void digest(Algorithm<Digest> algorithm, Digest prototype)
+	{
+		DIGESTS.put(algorithm, (AbstractDigest) prototype);
+	}
+
+	private static void hmac(Algorithm<MAC> algorithm,
+		Algorithm<Digest> digest, int blockSize)
+	{
+		MACS.put(algorithm, new HMACSpec(digest, blockSize));
+	}
+
 	/**
 	 * Creates and returns a {@link Digest} instance corresponding to the
 	 * given algorithm.
@@ -39,31 +98,11 @@ final class Factory
 	static Digest newDigest(Algorithm<Digest> algorithm)
 	{
 		Parameters.checkNotNull(algorithm);
-		Digest digest;
-		if (algorithm == Algorithm.MD2) {
-			digest = Digests.md2();
-		} else if (algorithm == Algorithm.MD4) {
-			digest = Digests.md4();
-		} else if (algorithm == Algorithm.MD5) {
-			digest = Digests.md5();
-		} else if (algorithm == Algorithm.SHA1) {
-			digest = Digests.sha1();
-		} else if (algorithm == Algorithm.SHA256) {
-			digest = Digests.sha256();
-		} else if (algorithm == Algorithm.SHA512) {
-			digest = Digests.sha512();
-		} else if (algorithm == Algorithm.KECCAK224) {
-			digest = Digests.keccak224();
-		} else if (algorithm == Algorithm.KECCAK256) {
-			digest = Digests.keccak256();
-		} else if (algorithm == Algorithm.KECCAK384) {
-			digest = Digests.keccak384();
-		} else if (algorithm == Algorithm.KECCAK512) {
-			digest = Digests.keccak512();
-		} else {
+		AbstractDigest prototype = DIGESTS.get(algorithm);
+		if (prototype == null) {
 			throw new IllegalArgumentException("Unknown algorithm");
 		}
-		return digest;
+		return prototype.copy();
 	}
 
 	/**
@@ -81,31 +120,23 @@ final class Factory
 	static MAC newMAC(Algorithm<MAC> algorithm, byte[] key)
 	{
 		Parameters.checkNotNull(algorithm);
-		MAC mac;
-		if (algorithm == Algorithm.HMAC_MD2) {
-			mac = HMAC.md2(key);
-		} else if (algorithm == Algorithm.HMAC_MD4) {
-			mac = HMAC.md4(key);
-		} else if (algorithm == Algorithm.HMAC_MD5) {
-			mac = HMAC.md5(key);
-		} else if (algorithm == Algorithm.HMAC_SHA1) {
-			mac = HMAC.sha1(key);
-		} else if (algorithm == Algorithm.HMAC_SHA256) {
-			mac = HMAC.sha256(key);
-		} else if (algorithm == Algorithm.HMAC_SHA512) {
-			mac = HMAC.sha512(key);
-		} else if (algorithm == Algorithm.HMAC_KECCAK224) {
-			mac = HMAC.keccak224(key);
-		} else if (algorithm == Algorithm.HMAC_KECCAK256) {
-			mac = HMAC.keccak256(key);
-		} else if (algorithm == Algorithm.HMAC_KECCAK384) {
-			mac = HMAC.keccak384(key);
-		} else if (algorithm == Algorithm.HMAC_KECCAK512) {
-			mac = HMAC.keccak512(key);
-		} else {
+		HMACSpec spec = MACS.get(algorithm);
+		if (spec == null) {
 			throw new IllegalArgumentException("Unknown algorithm");
 		}
-		return mac;
+		return HMAC.create(key, newDigest(spec.digest), spec.blockSize);
+	}
+
+	private static final class HMACSpec
+	{
+		final Algorithm<Digest> digest;
+		final int blockSize;
+
+		HMACSpec(Algorithm<Digest> digest, int blockSize)
+		{
+			this.digest = digest;
+			this.blockSize = blockSize;
+		}
 	}
 
 	private Factory()
@@ -16,7 +16,7 @@
 
 package org.kocakosm.pitaya.security;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 /**
  * Somme commonly used HMAC (Hash-based Message Authentication Code) engines. A
@@ -173,16 +173,159 @@ public final class HMAC
 		return new Engine(key, Digests.keccak512(), 72);
 	}
 
+	/**
+	 * Returns a new HMAC-SHA3-224 engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new HMAC-SHA3-224 engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC sha3_224(byte... key)
+	{
+		return new Engine(key, Digests.sha3_224(), 144);
+	}
+
+	/**
+	 * Returns a new HMAC-SHA3-256 engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new HMAC-SHA3-256 engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC sha3_256(byte... key)
+	{
+		return new Engine(key, Digests.sha3_256(), 136);
+	}
+
+	/**
+	 * Returns a new HMAC-SHA3-384 engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new HMAC-SHA3-384 engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC sha3_384(byte... key)
+	{
+		return new Engine(key, Digests.sha3_384(), 104);
+	}
+
+	/**
+	 * Returns a new HMAC-SHA3-512 engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new HMAC-SHA3-512 engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC sha3_512(byte... key)
+	{
+		return new Engine(key, Digests.sha3_512(), 72);
+	}
+
+	/**
+	 * Returns a new HMAC-BLAKE2b-512 engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new HMAC-BLAKE2b-512 engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC blake2b_512(byte... key)
+	{
+		return new Engine(key, Digests.blake2b(), 128);
+	}
+
+	/**
+	 * Returns a new HMAC-BLAKE2s-256 engine.
+	 *
+	 * @param key the HMAC's secret key.
+	 *
+	 * @return a new HMAC-BLAKE2s-256 engine.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	public static MAC blake2s_256(byte... key)
+	{
+		return new Engine(key, Digests.blake2s(), 64);
+	}
+
+	/**
+	 * Creates a new HMAC engine.
+	 *
+	 * @param key the secret key.
+	 * @param digest the underlying digest engine.
+	 * @param blockSize the digest's block size, in bytes.
+	 *
+	 * @return the created {@code MAC} instance.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 */
+	static MAC create(byte[] key, Digest digest, int blockSize)
+	{
+		return new Engine(key, digest, blockSize);
+	}
+
+	/**
+	 * Sets the owner of the given engine, which must have been created by
+	 * this class. Used by {@link MACPool} to recognize its own engines.
+	 *
+	 * @param mac the engine.
+	 * @param owner the engine's owner.
+	 *
+	 * @return the given engine.
+	 */
+	static MAC setOwner(MAC mac, Object owner)
+	{
+		((Engine) mac).owner = owner;
+		return mac;
+	}
+
+	/**
+	 * Returns the owner of the given engine, if any.
+	 *
+	 * @param mac the engine.
+	 *
+	 * @return the given engine's owner, or {@code null}.
+	 */
+	static Object getOwner(MAC mac)
+	{
+		return mac instanceof Engine ? ((Engine) mac).owner : null;
+	}
+
 	private static final class Engine implements MAC
 	{
-		private final byte[] key;
-		private final Digest digest;
+		private final AbstractDigest digest;
+		private final AbstractDigest inner;
+		private final AbstractDigest outer;
+		private final byte[] hash;
+		private final String name;
+		private Object owner;
 
 		Engine(byte[] key, Digest digest, int blockSize)
 		{
 			byte[] k = key.length > blockSize ? digest.digest(key) : key;
-			this.key = Arrays.copyOf(k, blockSize);
-			this.digest = digest;
+			byte[] ipad = new byte[blockSize];
+			byte[] opad = new byte[blockSize];
+			for (int i = 0; i < blockSize; i++) {
+				byte b = i < k.length ? k[i] : 0;
+				ipad[i] = (byte) (b ^ 0x36);
+				opad[i] = (byte) (b ^ 0x5c);
+			}
+			this.digest = (AbstractDigest) digest;
+			this.inner = this.digest.copy();
+			this.inner.update(ipad);
+			this.outer = this.digest.copy();
+			this.outer.update(opad);
+			this.hash = new byte[digest.length()];
+			this.name = "HMAC-" + digest;
 			reset();
 		}
 
@@ -195,10 +338,7 @@ public final class HMAC
 		@Override
 		public MAC reset()
 		{
-			digest.reset();
-			for (byte b : key) {
-				digest.update((byte) ((b & 0xFF) ^ 0x36));
-			}
+			digest.restore(inner);
 			return this;
 		}
 
@@ -223,18 +363,33 @@ public final class HMAC
 			return this;
 		}
 
+		@Override
+		public MAC update(ByteBuffer input)
+		{
+			digest.update(input);
+			return this;
+		}
+
 		@Override
 		public byte[] digest()
 		{
-			byte[] hash = digest.digest();
-			for (byte b : key) {
-				digest.update((byte) ((b & 0xFF) ^ 0x5c));
-			}
-			byte[] hmac = digest.digest(hash);
-			reset();
+			byte[] hmac = new byte[hash.length];
+			digestInto(hmac, 0);
 			return hmac;
 		}
 
+		@Override
+		public MAC digestInto(byte[] out, int off)
+		{
+			if (off < 0 || off > out.length - hash.length) {
+				throw new IndexOutOfBoundsException();
+			}
+			digest.digestInto(hash, 0);
+			digest.restore(outer);
+			digest.update(hash).digestInto(out, off);
+			return reset();
+		}
+
 		@Override
 		public byte[] digest(byte... input)
 		{
@@ -250,7 +405,7 @@ public final class HMAC
 		@Override
 		public String toString()
 		{
-			return "HMAC-" + digest;
+			return name;
 		}
 	}
 
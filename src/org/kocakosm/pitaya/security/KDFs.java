@@ -16,6 +16,10 @@
 
 package org.kocakosm.pitaya.security;
 
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.util.concurrent.Executor;
+
 /**
  * Somme commonly used key derivation function algorithms.
  *
@@ -65,6 +69,33 @@ public final class KDFs
 		return new PBKDF2(mac, iterationCount, dkLen);
 	}
 
+	/**
+	 * Creates and returns a new immutable {@code KDF} instance implementing
+	 * the PBKDF2 algorithm (RFC 2898), whose blocks are computed
+	 * concurrently using the given {@code Executor}. This only speeds up
+	 * the derivation of keys longer than the MAC algorithm's output length,
+	 * derived keys being identical to those of {@link #pbkdf2(Algorithm,
+	 * int, int)}.
+	 *
+	 * @param mac the MAC algorithm to use.
+	 * @param iterationCount the desired number of iterations.
+	 * @param dkLen the desired length for derived keys, in bytes.
+	 * @param executor the {@code Executor} to use.
+	 *
+	 * @return the created {@code KDF} instance.
+	 *
+	 * @throws NullPointerException if {@code mac} or {@code executor} is
+	 *	{@code null}.
+	 * @throws IllegalArgumentException if {@code iterationCount} or
+	 *	{@code dkLen} is negative, or if the MAC algorithm is unknown.
+	 */
+	public static KDF pbkdf2(Algorithm<MAC> mac, int iterationCount,
+		int dkLen, Executor executor)
+	{
+		Parameters.checkNotNull(executor);
+		return new PBKDF2(mac, iterationCount, dkLen, executor);
+	}
+
 	/**
 	 * Creates and returns a new immutable {@code KDF} instance implementing
 	 * the HKDF algorithm (RFC 5869).
@@ -107,6 +138,88 @@ public final class KDFs
 		return new SCrypt(r, n, p, dkLen);
 	}
 
+	/**
+	 * Creates and returns a new immutable {@code KDF} instance implementing
+	 * the SCrypt algorithm (RFC 7914), whose {@code p} independent mixing
+	 * lanes are computed concurrently using the given {@code Executor}.
+	 * Derived keys are identical to those of {@link #scrypt(int, int, int,
+	 * int)}, but each lane being computed with its own working memory, up
+	 * to {@code p * 128 * r * n} bytes may be used at once.
+	 *
+	 * @param r the block size parameter.
+	 * @param n the CPU/Memory cost parameter.
+	 * @param p the parallelization parameter.
+	 * @param dkLen the desired length for derived keys, in bytes.
+	 * @param executor the {@code Executor} to use.
+	 *
+	 * @return the created {@code KDF} instance.
+	 *
+	 * @throws NullPointerException if {@code executor} is {@code null}.
+	 * @throws IllegalArgumentException if {@code r, dkLen} or {@code p} is
+	 *	negative, or if {@code n} is not greater than 1 or if it is not
+	 *	a power of 2 or if it is not less than 2 ^ (128 * r / 8), or if
+	 *	{@code p} is greater than ((2 ^ 32 - 1) * 32) / (128 * r).
+	 */
+	public static KDF scrypt(int r, int n, int p, int dkLen,
+		Executor executor)
+	{
+		Parameters.checkNotNull(executor);
+		return new SCrypt(r, n, p, dkLen, executor);
+	}
+
+	/**
+	 * Creates and returns a new immutable {@code KDF} instance implementing
+	 * the Argon2id algorithm (RFC 9106). Lanes are filled sequentially.
+	 *
+	 * @param memoryCost the memory size, in kibibytes.
+	 * @param timeCost the number of passes over the memory.
+	 * @param parallelism the number of lanes.
+	 * @param dkLen the desired length for derived keys, in bytes.
+	 *
+	 * @return the created {@code KDF} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code timeCost} or
+	 *	{@code parallelism} is negative, if {@code parallelism} is not
+	 *	less than 2 ^ 24, if {@code memoryCost} is less than
+	 *	{@code 8 * parallelism} or not less than 2 ^ 24, or if
+	 *	{@code dkLen} is less than 4.
+	 */
+	public static KDF argon2id(int memoryCost, int timeCost,
+		int parallelism, int dkLen)
+	{
+		return new Argon2(memoryCost, timeCost, parallelism, dkLen,
+			new byte[0], new byte[0], null);
+	}
+
+	/**
+	 * Creates and returns a new immutable {@code KDF} instance implementing
+	 * the Argon2id algorithm (RFC 9106), whose lanes are filled
+	 * concurrently using the given {@code Executor}. Derived keys are
+	 * identical to those of {@link #argon2id(int, int, int, int)}.
+	 *
+	 * @param memoryCost the memory size, in kibibytes.
+	 * @param timeCost the number of passes over the memory.
+	 * @param parallelism the number of lanes.
+	 * @param dkLen the desired length for derived keys, in bytes.
+	 * @param executor the {@code Executor} to use.
+	 *
+	 * @return the created {@code KDF} instance.
+	 *
+	 * @throws NullPointerException if {@code executor} is {@code null}.
+	 * @throws IllegalArgumentException if {@code timeCost} or
+	 *	{@code parallelism} is negative, if {@code parallelism} is not
+	 *	less than 2 ^ 24, if {@code memoryCost} is less than
+	 *	{@code 8 * parallelism} or not less than 2 ^ 24, or if
+	 *	{@code dkLen} is less than 4.
+	 */
+	public static KDF argon2id(int memoryCost, int timeCost,
+		int parallelism, int dkLen, Executor executor)
+	{
+		Parameters.checkNotNull(executor);
+		return new Argon2(memoryCost, timeCost, parallelism, dkLen,
+			new byte[0], new byte[0], executor);
+	}
+
 	private KDFs()
 	{
 		/* ... */
@@ -19,14 +19,19 @@ package org.kocakosm.pitaya.security;
 import org.kocakosm.pitaya.util.LittleEndian;
 import org.kocakosm.pitaya.util.Parameters;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 
 /**
- * The Keccak digest algorithm. Instances of this class are not thread safe.
+ * The Keccak sponge, providing the original Keccak digest algorithms as well as
+ * the SHA-3 digest algorithms and the SHAKE extendable-output functions (FIPS
+ * 202), and the cSHAKE extendable-output functions (NIST SP 800-185).
+ * Instances of this class are not thread safe.
  *
  * @author Osman KOCAK
  */
-final class Keccak extends AbstractDigest
+final class Keccak extends AbstractDigest implements XOF
 {
 	private static final long[] RC = new long[] {
 		0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL,
@@ -38,39 +43,214 @@ final class Keccak extends AbstractDigest
 		0x000000000000800aL, 0x800000008000000aL, 0x8000000080008081L,
 		0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
 	};
-	private static final int[] R = new int[] {
-		0, 1, 62, 28, 27, 36, 44, 6, 55, 20, 3, 10, 43,
-		25, 39, 41, 45, 15, 21, 8, 18, 2, 61, 56, 14
-	};
 
-	private final long[] A;
-	private final long[] B;
-	private final long[] C;
-	private final long[] D;
-	private final int blockLen;
-	private final byte[] buffer;
-	private int bufferLen;
+	/**
+	 * Creates a new ready to use Keccak {@code Digest}.
+	 *
+	 * @param length the digest length (in bytes).
+	 *
+	 * @return the created {@code Keccak} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is not one of 28,
+	 *	32, 48 or 64.
+	 */
+	static Keccak keccak(int length)
+	{
+		checkDigestLength(length);
+		return new Keccak("Keccak-" + length * 8, length, 2 * length, 0x01,
+			null);
+	}
 
 	/**
-	 * Creates a new ready to use {@code Keccak}.
+	 * Creates a new ready to use SHA-3 {@code Digest}.
 	 *
 	 * @param length the digest length (in bytes).
 	 *
+	 * @return the created {@code Keccak} instance.
+	 *
 	 * @throws IllegalArgumentException if {@code length} is not one of 28,
 	 *	32, 48 or 64.
 	 */
-	Keccak(int length)
+	static Keccak sha3(int length)
+	{
+		checkDigestLength(length);
+		return new Keccak("SHA3-" + length * 8, length, 2 * length, 0x06,
+			null);
+	}
+
+	/**
+	 * Creates a new ready to use SHAKE128 {@code XOF}.
+	 *
+	 * @param length the default output length (in bytes).
+	 *
+	 * @return the created {@code Keccak} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is negative.
+	 */
+	static Keccak shake128(int length)
+	{
+		Parameters.checkCondition(length > 0);
+		return new Keccak("SHAKE128", length, 32, 0x1F, null);
+	}
+
+	/**
+	 * Creates a new ready to use SHAKE256 {@code XOF}.
+	 *
+	 * @param length the default output length (in bytes).
+	 *
+	 * @return the created {@code Keccak} instance.
+	 *
+	 * @throws IllegalArgumentException if {@code length} is negative.
+	 */
+	static Keccak shake256(int length)
+	{
+		Parameters.checkCondition(length > 0);
+		return new Keccak("SHAKE256", length, 64, 0x1F, null);
+	}
+
+	/**
+	 * Creates a new ready to use cSHAKE128 {@code XOF}. Note that when both
+	 * {@code n} and {@code s} are empty, cSHAKE128 is SHAKE128.
+	 *
+	 * @param length the default output length (in bytes).
+	 * @param n the function-name string.
+	 * @param s the customization string.
+	 *
+	 * @return the created {@code Keccak} instance.
+	 *
+	 * @throws NullPointerException if {@code n} or {@code s} is
+	 *	{@code null}.
+	 * @throws IllegalArgumentException if {@code length} is negative.
+	 */
+	static Keccak cshake128(int length, byte[] n, byte[] s)
+	{
+		Parameters.checkCondition(length > 0);
+		if (n.length == 0 && s.length == 0) {
+			return shake128(length);
+		}
+		return new Keccak("cSHAKE128", length, 32, 0x04,
+			bytepad(n, s, 168));
+	}
+
+	/**
+	 * Creates a new ready to use cSHAKE256 {@code XOF}. Note that when both
+	 * {@code n} and {@code s} are empty, cSHAKE256 is SHAKE256.
+	 *
+	 * @param length the default output length (in bytes).
+	 * @param n the function-name string.
+	 * @param s the customization string.
+	 *
+	 * @return the created {@code Keccak} instance.
+	 *
+	 * @throws NullPointerException if {@code n} or {@code s} is
+	 *	{@code null}.
+	 * @throws IllegalArgumentException if {@code length} is negative.
+	 */
+	static Keccak cshake256(int length, byte[] n, byte[] s)
+	{
+		Parameters.checkCondition(length > 0);
+		if (n.length == 0 && s.length == 0) {
+			return shake256(length);
+		}
+		return new Keccak("cSHAKE256", length, 64, 0x04,
+			bytepad(n, s, 136));
+	}
+
+	/**
+	 * Returns the NIST SP 800-185 left_encode encoding of the given value.
+	 *
+	 * @param x the value to encode, must not be negative.
+	 *
+	 * @return the encoded value.
+	 */
+	static byte[] leftEncode(long x)
+	{
+		int n = encodedLength(x);
+		byte[] out = new byte[n + 1];
+		out[0] = (byte) n;
+		for (int i = 1; i <= n; i++) {
+			out[i] = (byte) (x >>> ((n - i) << 3));
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the NIST SP 800-185 right_encode encoding of the given value.
+	 *
+	 * @param x the value to encode, must not be negative.
+	 *
+	 * @return the encoded value.
+	 */
+	static byte[] rightEncode(long x)
+	{
+		int n = encodedLength(x);
+		byte[] out = new byte[n + 1];
+		out[n] = (byte) n;
+		for (int i = 0; i < n; i++) {
+			out[i] = (byte) (x >>> ((n - i - 1) << 3));
+		}
+		return out;
+	}
+
+	private static int encodedLength(long x)
+	{
+		int n = 1;
+		while (n < 8 && (x >>> (n << 3)) != 0) {
+			n++;
+		}
+		return n;
+	}
+
+	/* bytepad(encode_string(n) || encode_string(s), w) */
+	private static byte[] bytepad(byte[] n, byte[] s, int w)
+	{
+		byte[] lw = leftEncode(w);
+		byte[] ln = leftEncode((long) n.length << 3);
+		byte[] ls = leftEncode((long) s.length << 3);
+		int len = lw.length + ln.length + n.length + ls.length + s.length;
+		byte[] out = new byte[(len + w - 1) / w * w];
+		int off = 0;
+		for (byte[] part : new byte[][] {lw, ln, n, ls, s}) {
+			System.arraycopy(part, 0, out, off, part.length);
+			off += part.length;
+		}
+		return out;
+	}
+
+	private static void checkDigestLength(int length)
 	{
-		super("Keccak-" + length * 8, length);
 		Parameters.checkCondition(length == 28 || length == 32
 			|| length == 48 || length == 64);
+	}
+
+	private final long[] A;
+	private final int blockLen;
+	private final byte suffix;
+	private final byte[] prefix;
+	private final byte[] buffer;
+	private int bufferLen;
+	private boolean squeezing;
+
+	/**
+	 * Creates a new ready to use {@code Keccak}.
+	 *
+	 * @param name the algorithm's name.
+	 * @param length the digest length (in bytes).
+	 * @param capacity the sponge's capacity (in bytes).
+	 * @param suffix the domain separation bits, followed by the first bit
+	 *	of the padding.
+	 * @param prefix the blocks to absorb upon reset, may be {@code null}.
+	 */
+	private Keccak(String name, int length, int capacity, int suffix,
+		byte[] prefix)
+	{
+		super(name, length);
 		this.A = new long[25];
-		this.B = new long[25];
-		this.C = new long[5];
-		this.D = new long[5];
-		this.blockLen = 200 - 2 * length;
+		this.blockLen = 200 - capacity;
+		this.suffix = (byte) suffix;
+		this.prefix = prefix;
 		this.buffer = new byte[blockLen];
-		this.bufferLen = 0;
+		reset();
 	}
 
 	@Override
@@ -80,12 +260,68 @@ final class Keccak extends AbstractDigest
 			A[i] = 0L;
 		}
 		bufferLen = 0;
+		squeezing = false;
+		if (prefix != null) {
+			for (int i = 0; i < prefix.length; i += blockLen) {
+				absorb(prefix, i);
+			}
+		}
 		return this;
 	}
 
+	@Override
+	public Keccak copy()
+	{
+		Keccak copy = new Keccak(toString(), length(), 200 - blockLen,
+			suffix, prefix);
+		copy.restore(this);
+		return copy;
+	}
+
+	@Override
+	void restore(AbstractDigest state)
+	{
+		Keccak keccak = (Keccak) state;
+		System.arraycopy(keccak.A, 0, A, 0, 25);
+		System.arraycopy(keccak.buffer, 0, buffer, 0, blockLen);
+		bufferLen = keccak.bufferLen;
+		squeezing = keccak.squeezing;
+	}
+
+	@Override
+	void writeState(DigestState.Writer out)
+	{
+		if (prefix != null) {
+			out.writeBytes(prefix, 0, prefix.length);
+		}
+		out.writeLongs(A).writeBoolean(squeezing);
+		if (squeezing) {
+			out.writeInt(bufferLen);
+		} else {
+			out.writeBytes(buffer, 0, bufferLen);
+		}
+	}
+
+	@Override
+	void readState(DigestState.Reader in)
+	{
+		if (prefix != null) {
+			in.check(Arrays.equals(prefix, in.readBytes()));
+		}
+		in.readLongs(A);
+		squeezing = in.readBoolean();
+		if (squeezing) {
+			bufferLen = in.readInt(0, blockLen);
+		} else {
+			bufferLen = in.readBytes(buffer);
+			in.check(bufferLen < blockLen);
+		}
+	}
+
 	@Override
 	public Digest update(byte input)
 	{
+		checkNotSqueezing();
 		buffer[bufferLen] = input;
 		if (++bufferLen == blockLen) {
 			processBuffer();
@@ -96,9 +332,10 @@ final class Keccak extends AbstractDigest
 	@Override
 	public Digest update(byte[] input, int off, int len)
 	{
+		checkNotSqueezing();
 		int index = off;
 		int remaining = len;
-		while (remaining > 0) {
+		if (bufferLen > 0) {
 			int cpLen = Math.min(blockLen - bufferLen, remaining);
 			System.arraycopy(input, index, buffer, bufferLen, cpLen);
 			bufferLen += cpLen;
@@ -108,28 +345,86 @@ final class Keccak extends AbstractDigest
 				processBuffer();
 			}
 		}
+		while (remaining >= blockLen) {
+			absorb(input, index);
+			remaining -= blockLen;
+			index += blockLen;
+		}
+		System.arraycopy(input, index, buffer, bufferLen, remaining);
+		bufferLen += remaining;
 		return this;
 	}
 
 	@Override
-	public byte[] digest()
+	public Digest update(ByteBuffer input)
 	{
-		addPadding();
-		processBuffer();
-		byte[] tmp = new byte[length() * 8];
-		for (int i = 0; i < length(); i += 8) {
-			LittleEndian.encode(A[i >>> 3], tmp, i);
+		checkNotSqueezing();
+		if (updateFromArray(input)) {
+			return this;
+		}
+		while (bufferLen > 0 && input.hasRemaining()) {
+			update(input.get());
+		}
+		if (input.remaining() >= blockLen) {
+			ByteBuffer in = input.slice();
+			in.order(ByteOrder.LITTLE_ENDIAN);
+			while (in.remaining() >= blockLen) {
+				for (int i = 0; i < blockLen >>> 3; i++) {
+					A[i] ^= in.getLong();
+				}
+				keccakf();
+			}
+			input.position(input.position() + in.position());
+		}
+		int len = input.remaining();
+		input.get(buffer, bufferLen, len);
+		bufferLen += len;
+		return this;
+	}
+
+	@Override
+	public Digest digestInto(byte[] out, int off)
+	{
+		squeeze(out, off, length());
+		return reset();
+	}
+
+	@Override
+	public XOF squeeze(byte[] out, int off, int len)
+	{
+		if (off < 0 || len < 0 || off + len > out.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (!squeezing) {
+			addPadding();
+			processBuffer();
+			squeezing = true;
+		}
+		for (int i = off; i < off + len; i++) {
+			if (bufferLen == blockLen) {
+				keccakf();
+				bufferLen = 0;
+			}
+			long lane = A[bufferLen >>> 3];
+			out[i] = (byte) (lane >>> ((bufferLen & 7) << 3));
+			bufferLen++;
+		}
+		return this;
+	}
+
+	private void checkNotSqueezing()
+	{
+		if (squeezing) {
+			throw new IllegalStateException("Squeezing has started");
 		}
-		reset();
-		return Arrays.copyOf(tmp, length());
 	}
 
 	private void addPadding()
 	{
 		if (bufferLen + 1 == buffer.length) {
-			buffer[bufferLen] = (byte) 0x81;
+			buffer[bufferLen] = (byte) (suffix | 0x80);
 		} else {
-			buffer[bufferLen] = (byte) 0x01;
+			buffer[bufferLen] = suffix;
 			for (int i = bufferLen + 1; i < buffer.length - 1; i++) {
 				buffer[i] = 0;
 			}
@@ -139,59 +434,160 @@ final class Keccak extends AbstractDigest
 
 	private void processBuffer()
 	{
-		for (int i = 0; i < buffer.length; i += 8) {
-			A[i >>> 3] ^= LittleEndian.decodeLong(buffer, i);
-		}
-		keccakf();
+		absorb(buffer, 0);
 		bufferLen = 0;
 	}
 
-	private void keccakf()
+	/* XORs the block starting at off into the state, then permutes it. */
+	private void absorb(byte[] in, int off)
 	{
-		for (int n = 0; n < 24; n++) {
-			round(n);
+		for (int i = 0; i < blockLen; i += 8) {
+			A[i >>> 3] ^= LittleEndian.decodeLong(in, off + i);
 		}
+		keccakf();
 	}
 
-	private void round(int n)
+	/*
+	 * The Keccak-f[1600] permutation. The lane at (x, y) is held in the
+	 * local variable aYX (a01 is the lane at x = 1, y = 0).
+	 */
+	private void keccakf()
 	{
-		for (int x = 0; x < 5; x++) {
-			C[x] = A[index(x, 0)] ^ A[index(x, 1)] ^ A[index(x, 2)]
-				^ A[index(x, 3)] ^ A[index(x, 4)];
-		}
-		for (int x = 0; x < 5; x++) {
-			D[x] = C[index(x + 4)] ^ rot(C[index(x + 1)], 1);
-			for (int y = 0; y < 5; y++) {
-				A[index(x, y)] ^= D[x];
-			}
-		}
-		for (int x = 0; x < 5; x++) {
-			for (int y = 0; y < 5; y++) {
-				int i = index(x, y);
-				B[index(y, x * 2 + 3 * y)] = rot(A[i], R[i]);
-			}
-		}
-		for (int x = 0; x < 5; x++) {
-			for (int y = 0; y < 5; y++) {
-				int i = index(x, y);
-				A[i] = B[i] ^ (~B[index(x + 1, y)] & B[index(x + 2, y)]);
-			}
-		}
-		A[0] ^= RC[n];
-	}
+		long a00 = A[0], a01 = A[1], a02 = A[2], a03 = A[3], a04 = A[4];
+		long a05 = A[5], a06 = A[6], a07 = A[7], a08 = A[8], a09 = A[9];
+		long a10 = A[10], a11 = A[11], a12 = A[12], a13 = A[13];
+		long a14 = A[14], a15 = A[15], a16 = A[16], a17 = A[17];
+		long a18 = A[18], a19 = A[19], a20 = A[20], a21 = A[21];
+		long a22 = A[22], a23 = A[23], a24 = A[24];
+		for (int n = 0; n < 24; n++) {
+			/* Theta */
+			long c0 = a00 ^ a05 ^ a10 ^ a15 ^ a20;
+			long c1 = a01 ^ a06 ^ a11 ^ a16 ^ a21;
+			long c2 = a02 ^ a07 ^ a12 ^ a17 ^ a22;
+			long c3 = a03 ^ a08 ^ a13 ^ a18 ^ a23;
+			long c4 = a04 ^ a09 ^ a14 ^ a19 ^ a24;
+			long d0 = c4 ^ Long.rotateLeft(c1, 1);
+			long d1 = c0 ^ Long.rotateLeft(c2, 1);
+			long d2 = c1 ^ Long.rotateLeft(c3, 1);
+			long d3 = c2 ^ Long.rotateLeft(c4, 1);
+			long d4 = c3 ^ Long.rotateLeft(c0, 1);
+			a00 ^= d0;
+			a05 ^= d0;
+			a10 ^= d0;
+			a15 ^= d0;
+			a20 ^= d0;
+			a01 ^= d1;
+			a06 ^= d1;
+			a11 ^= d1;
+			a16 ^= d1;
+			a21 ^= d1;
+			a02 ^= d2;
+			a07 ^= d2;
+			a12 ^= d2;
+			a17 ^= d2;
+			a22 ^= d2;
+			a03 ^= d3;
+			a08 ^= d3;
+			a13 ^= d3;
+			a18 ^= d3;
+			a23 ^= d3;
+			a04 ^= d4;
+			a09 ^= d4;
+			a14 ^= d4;
+			a19 ^= d4;
+			a24 ^= d4;
 
-	private long rot(long w, int r)
-	{
-		return Long.rotateLeft(w, r);
-	}
+			/* Rho and Pi */
+			long t = Long.rotateLeft(a01, 1);
+			a01 = Long.rotateLeft(a06, 44);
+			a06 = Long.rotateLeft(a09, 20);
+			a09 = Long.rotateLeft(a22, 61);
+			a22 = Long.rotateLeft(a14, 39);
+			a14 = Long.rotateLeft(a20, 18);
+			a20 = Long.rotateLeft(a02, 62);
+			a02 = Long.rotateLeft(a12, 43);
+			a12 = Long.rotateLeft(a13, 25);
+			a13 = Long.rotateLeft(a19, 8);
+			a19 = Long.rotateLeft(a23, 56);
+			a23 = Long.rotateLeft(a15, 41);
+			a15 = Long.rotateLeft(a04, 27);
+			a04 = Long.rotateLeft(a24, 14);
+			a24 = Long.rotateLeft(a21, 2);
+			a21 = Long.rotateLeft(a08, 55);
+			a08 = Long.rotateLeft(a16, 45);
+			a16 = Long.rotateLeft(a05, 36);
+			a05 = Long.rotateLeft(a03, 28);
+			a03 = Long.rotateLeft(a18, 21);
+			a18 = Long.rotateLeft(a17, 15);
+			a17 = Long.rotateLeft(a11, 10);
+			a11 = Long.rotateLeft(a07, 6);
+			a07 = Long.rotateLeft(a10, 3);
+			a10 = t;
 
-	private int index(int x)
-	{
-		return x % 5;
-	}
+			/* Chi */
+			c0 = a00 ^ (~a01 & a02);
+			c1 = a01 ^ (~a02 & a03);
+			a02 ^= ~a03 & a04;
+			a03 ^= ~a04 & a00;
+			a04 ^= ~a00 & a01;
+			a00 = c0;
+			a01 = c1;
+			c0 = a05 ^ (~a06 & a07);
+			c1 = a06 ^ (~a07 & a08);
+			a07 ^= ~a08 & a09;
+			a08 ^= ~a09 & a05;
+			a09 ^= ~a05 & a06;
+			a05 = c0;
+			a06 = c1;
+			c0 = a10 ^ (~a11 & a12);
+			c1 = a11 ^ (~a12 & a13);
+			a12 ^= ~a13 & a14;
+			a13 ^= ~a14 & a10;
+			a14 ^= ~a10 & a11;
+			a10 = c0;
+			a11 = c1;
+			c0 = a15 ^ (~a16 & a17);
+			c1 = a16 ^ (~a17 & a18);
+			a17 ^= ~a18 & a19;
+			a18 ^= ~a19 & a15;
+			a19 ^= ~a15 & a16;
+			a15 = c0;
+			a16 = c1;
+			c0 = a20 ^ (~a21 & a22);
+			c1 = a21 ^ (~a22 & a23);
+			a22 ^= ~a23 & a24;
+			a23 ^= ~a24 & a20;
+			a24 ^= ~a20 & a21;
+			a20 = c0;
+			a21 = c1;
 
-	private int index(int x, int y)
-	{
-		return index(x) + 5 * index(y);
+			/* Iota */
+			a00 ^= RC[n];
+		}
+		A[0] = a00;
+		A[1] = a01;
+		A[2] = a02;
+		A[3] = a03;
+		A[4] = a04;
+		A[5] = a05;
+		A[6] = a06;
+		A[7] = a07;
+		A[8] = a08;
+		A[9] = a09;
+		A[10] = a10;
+		A[11] = a11;
+		A[12] = a12;
+		A[13] = a13;
+		A[14] = a14;
+		A[15] = a15;
+		A[16] = a16;
+		A[17] = a17;
+		A[18] = a18;
+		A[19] = a19;
+		A[20] = a20;
+		A[21] = a21;
+		A[22] = a22;
+		A[23] = a23;
+		A[24] = a24;
 	}
 }
@@ -0,0 +1,112 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Exposes a keyed digest engine (such as keyed BLAKE2 or BLAKE3) as a
+ * {@link MAC}. Instances of this class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+final class KeyedDigest implements MAC
+{
+	private final Digest digest;
+
+	/**
+	 * Creates a new {@code KeyedDigest}.
+	 *
+	 * @param digest the keyed digest engine.
+	 */
+	KeyedDigest(Digest digest)
+	{
+		this.digest = digest;
+	}
+
+	@Override
+	public int length()
+	{
+		return digest.length();
+	}
+
+	@Override
+	public MAC reset()
+	{
+		digest.reset();
+		return this;
+	}
+
+	@Override
+	public MAC update(byte input)
+	{
+		digest.update(input);
+		return this;
+	}
+
+	@Override
+	public MAC update(byte... input)
+	{
+		digest.update(input);
+		return this;
+	}
+
+	@Override
+	public MAC update(byte[] input, int off, int len)
+	{
+		digest.update(input, off, len);
+		return this;
+	}
+
+	@Override
+	public MAC update(ByteBuffer input)
+	{
+		digest.update(input);
+		return this;
+	}
+
+	@Override
+	public byte[] digest()
+	{
+		return digest.digest();
+	}
+
+	@Override
+	public MAC digestInto(byte[] out, int off)
+	{
+		digest.digestInto(out, off);
+		return this;
+	}
+
+	@Override
+	public byte[] digest(byte... input)
+	{
+		return digest.digest(input);
+	}
+
+	@Override
+	public byte[] digest(byte[] input, int off, int len)
+	{
+		return digest.digest(input, off, len);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Keyed-" + digest;
+	}
+}
@@ -16,6 +16,8 @@
 
 package org.kocakosm.pitaya.security;
 
+import java.nio.ByteBuffer;
+
 /**
  * MAC (Message Authentication Code) engine. A MAC provides a way to check the
  * integrity of information transmitted over or stored in an unreliable medium,
@@ -80,6 +82,19 @@ public interface MAC
 	 */
 	MAC update(byte[] input, int off, int len);
 
+	/**
+	 * Updates the MAC using the remaining bytes of the given buffer, that
+	 * is, the bytes between its position and its limit. Upon return, the
+	 * buffer's position is equal to its limit.
+	 *
+	 * @param input the buffer with which to update the MAC.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 */
+	MAC update(ByteBuffer input);
+
 	/**
 	 * Completes the MAC computation. Note that the engine is reset after
 	 * this call is made.
@@ -88,6 +103,22 @@ public interface MAC
 	 */
 	byte[] digest();
 
+	/**
+	 * Completes the MAC computation and writes the resulting MAC into the
+	 * given array, starting at the specified offset. Note that the engine
+	 * is reset after this call is made.
+	 *
+	 * @param out the output buffer.
+	 * @param off the output offset.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code off + length()} is greater than {@code out}'s length.
+	 */
+	MAC digestInto(byte[] out, int off);
+
 	/**
 	 * Performs a final update on the MAC using the specified array of
 	 * bytes, then completes the MAC computation. That is, this method first
@@ -0,0 +1,153 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.XArrays;
+
+import java.util.ArrayDeque;
+
+/**
+ * A thread-safe pool of {@link MAC} engines sharing the same algorithm and
+ * secret key. Each thread gets its own cache of engines, so that acquiring and
+ * releasing engines involves neither allocation nor synchronization once the
+ * cache is warm. Engines are reset when they are released. Pools are meant to
+ * be long-lived (typically one per key): each one holds its engines in a
+ * {@link ThreadLocal}.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACPool
+{
+	/** Maximum number of engines cached per thread. */
+	private static final int MAX_CACHED = 4;
+
+	private final Algorithm<MAC> algorithm;
+	private final byte[] key;
+	private final ThreadLocal<ArrayDeque<MAC>> cache;
+
+	/**
+	 * Creates a new {@code MACPool}.
+	 *
+	 * @param algorithm the MAC algorithm of the pooled engines.
+	 * @param key the secret key.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalArgumentException if the given algorithm is unknown.
+	 */
+	public MACPool(Algorithm<MAC> algorithm, byte... key)
+	{
+		this.key = XArrays.copyOf(key);
+		this.algorithm = algorithm;
+		this.cache = new ThreadLocal<ArrayDeque<MAC>>() {
+			@Override
+			protected ArrayDeque<MAC> initialValue()
+			{
+				return new ArrayDeque<MAC>(MAX_CACHED);
+			}
+		};
+		release(newMAC());
+	}
+
+	/**
+	 * Returns a ready to use {@code MAC} engine, taken from the calling
+	 * thread's cache if possible. The returned engine should be given back
+	 * to the pool with {@link #release(MAC)} once it is no longer used.
+	 *
+	 * @return a {@code MAC} engine.
+	 */
+	public MAC acquire()
+	{
+		MAC mac = cache.get().pollFirst();
+		return mac == null ? newMAC() : mac;
+	}
+
+	/**
+	 * Resets the given {@code MAC} engine and puts it back into the calling
+	 * thread's cache. The engine must have been obtained from this pool and
+	 * must not be used anymore by the caller. Engines created elsewhere
+	 * (even by another pool of the same algorithm, whose key may differ)
+	 * and engines already in the calling thread's cache are rejected.
+	 *
+	 * @param mac the {@code MAC} engine to release.
+	 *
+	 * @throws NullPointerException if {@code mac} is {@code null}.
+	 * @throws IllegalArgumentException if {@code mac} wasn't created by
+	 *	this pool or has already been released.
+	 */
+	public void release(MAC mac)
+	{
+		Parameters.checkNotNull(mac);
+		Parameters.checkCondition(HMAC.getOwner(mac) == this);
+		ArrayDeque<MAC> macs = cache.get();
+		/* Pooled engines don't override equals: this is an identity check. */
+		Parameters.checkCondition(!macs.contains(mac));
+		mac.reset();
+		if (macs.size() < MAX_CACHED) {
+			macs.addFirst(mac);
+		}
+	}
+
+	/**
+	 * Computes the MAC of the given input using a pooled engine.
+	 *
+	 * @param input the input to authenticate.
+	 *
+	 * @return the resulting MAC.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 */
+	public byte[] mac(byte... input)
+	{
+		return mac(input, 0, input.length);
+	}
+
+	/**
+	 * Computes the MAC of the given input using a pooled engine.
+	 *
+	 * @param input the input to authenticate.
+	 * @param off the input's start offset.
+	 * @param len the number of bytes to authenticate.
+	 *
+	 * @return the resulting MAC.
+	 *
+	 * @throws NullPointerException if {@code input} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} or {@code len} is
+	 *	negative or if {@code off + len} is greater than
+	 *	{@code input}'s length.
+	 */
+	public byte[] mac(byte[] input, int off, int len)
+	{
+		MAC mac = acquire();
+		try {
+			return mac.digest(input, off, len);
+		} finally {
+			release(mac);
+		}
+	}
+
+	private MAC newMAC()
+	{
+		return HMAC.setOwner(Factory.newMAC(algorithm, key), this);
+	}
+
+	@Override
+	public String toString()
+	{
+		return algorithm + " pool";
+	}
+}
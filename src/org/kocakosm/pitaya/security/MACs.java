@@ -0,0 +1,85 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+/**
+ * Keyed hash functions usable as {@link MAC}s, without the HMAC construction.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACs
+{
+	/**
+	 * Returns a new keyed BLAKE2b {@code MAC} instance.
+	 *
+	 * @param length the MAC's length, in bytes (between 1 and 64).
+	 * @param key the secret key (between 1 and 64 bytes).
+	 *
+	 * @return a new keyed BLAKE2b {@code MAC} instance.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 * @throws IllegalArgumentException if {@code length} is not between 1
+	 *	and 64, or if {@code key}'s length is not between 1 and 64.
+	 */
+	public static MAC blake2b(int length, byte... key)
+	{
+		Parameters.checkCondition(key.length > 0);
+		return new KeyedDigest(new Blake2b(length, key));
+	}
+
+	/**
+	 * Returns a new keyed BLAKE2s {@code MAC} instance.
+	 *
+	 * @param length the MAC's length, in bytes (between 1 and 32).
+	 * @param key the secret key (between 1 and 32 bytes).
+	 *
+	 * @return a new keyed BLAKE2s {@code MAC} instance.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 * @throws IllegalArgumentException if {@code length} is not between 1
+	 *	and 32, or if {@code key}'s length is not between 1 and 32.
+	 */
+	public static MAC blake2s(int length, byte... key)
+	{
+		Parameters.checkCondition(key.length > 0);
+		return new KeyedDigest(new Blake2s(length, key));
+	}
+
+	/**
+	 * Returns a new keyed BLAKE3 {@code MAC} instance, whose length is 32
+	 * bytes.
+	 *
+	 * @param key the secret key (32 bytes).
+	 *
+	 * @return a new keyed BLAKE3 {@code MAC} instance.
+	 *
+	 * @throws NullPointerException if {@code key} is {@code null}.
+	 * @throws IllegalArgumentException if {@code key} is not 32 bytes long.
+	 */
+	public static MAC blake3(byte... key)
+	{
+		Parameters.checkNotNull(key);
+		return new KeyedDigest(new Blake3(32, key, null));
+	}
+
+	private MACs()
+	{
+		/* ... */
+	}
+}
@@ -16,6 +16,9 @@
 
 package org.kocakosm.pitaya.security;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * The MD2 digest algorithm. Instances of this class are not thread safe.
  *
@@ -86,10 +89,10 @@ final class MD2 extends AbstractDigest
 	private final byte[] buffer;
 
 	/** Current checksum. */
-	private byte[] checksum;
+	private final byte[] checksum;
 
 	/** Work buffer. */
-	private byte[] X;
+	private final byte[] X;
 
 	/** Number of bytes in the input buffer. */
 	private int bufferLen;
@@ -99,6 +102,8 @@ final class MD2 extends AbstractDigest
 	{
 		super("MD2", DIGEST_LENGTH);
 		this.buffer = new byte[BLOCK_LENGTH];
+		this.checksum = new byte[BLOCK_LENGTH];
+		this.X = new byte[BLOCK_LENGTH * 3];
 		reset();
 	}
 
@@ -106,11 +111,48 @@ final class MD2 extends AbstractDigest
 	public Digest reset()
 	{
 		bufferLen = 0;
-		checksum = new byte[BLOCK_LENGTH];
-		X = new byte[BLOCK_LENGTH * 3];
+		Arrays.fill(checksum, (byte) 0);
+		Arrays.fill(X, (byte) 0);
 		return this;
 	}
 
+	@Override
+	public MD2 copy()
+	{
+		MD2 copy = new MD2();
+		copy.restore(this);
+		return copy;
+	}
+
+	@Override
+	void restore(AbstractDigest state)
+	{
+		MD2 md2 = (MD2) state;
+		bufferLen = md2.bufferLen;
+		System.arraycopy(md2.buffer, 0, buffer, 0, BLOCK_LENGTH);
+		System.arraycopy(md2.checksum, 0, checksum, 0, BLOCK_LENGTH);
+		System.arraycopy(md2.X, 0, X, 0, BLOCK_LENGTH * 3);
+	}
+
+	@Override
+	void writeState(DigestState.Writer out)
+	{
+		out.writeBytes(buffer, 0, bufferLen);
+		out.writeBytes(checksum, 0, BLOCK_LENGTH);
+		out.writeBytes(X, 0, BLOCK_LENGTH);
+	}
+
+	@Override
+	void readState(DigestState.Reader in)
+	{
+		bufferLen = in.readBytes(buffer);
+		in.check(bufferLen < BLOCK_LENGTH);
+		in.check(in.readBytes(checksum) == BLOCK_LENGTH);
+		byte[] x = new byte[BLOCK_LENGTH];
+		in.check(in.readBytes(x) == BLOCK_LENGTH);
+		System.arraycopy(x, 0, X, 0, BLOCK_LENGTH);
+	}
+
 	@Override
 	public Digest update(byte input)
 	{
@@ -138,15 +180,32 @@ final class MD2 extends AbstractDigest
 	}
 
 	@Override
-	public byte[] digest()
+	public Digest update(ByteBuffer input)
+	{
+		if (updateFromArray(input)) {
+			return this;
+		}
+		while (input.hasRemaining()) {
+			int cpLen = Math.min(BLOCK_LENGTH - bufferLen,
+				input.remaining());
+			input.get(buffer, bufferLen, cpLen);
+			bufferLen += cpLen;
+			if (bufferLen == BLOCK_LENGTH) {
+				processBuffer();
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Digest digestInto(byte[] out, int off)
 	{
+		checkOutput(out, off);
 		addPadding();
 		processBuffer();
 		processChecksum();
-		byte[] hash = new byte[DIGEST_LENGTH];
-		System.arraycopy(X, 0, hash, 0, DIGEST_LENGTH);
-		reset();
-		return hash;
+		System.arraycopy(X, 0, out, off, DIGEST_LENGTH);
+		return reset();
 	}
 
 	private void addPadding()
@@ -18,6 +18,8 @@ package org.kocakosm.pitaya.security;
 
 import org.kocakosm.pitaya.util.LittleEndian;
 
+import java.nio.ByteBuffer;
+
 /**
  * The MD4 digest algorithm. Instances of this class are not thread safe.
  *
@@ -61,6 +63,41 @@ final class MD4 extends AbstractDigest
 		return this;
 	}
 
+	@Override
+	public MD4 copy()
+	{
+		MD4 copy = new MD4();
+		copy.restore(this);
+		return copy;
+	}
+
+	@Override
+	void restore(AbstractDigest state)
+	{
+		MD4 md4 = (MD4) state;
+		count = md4.count;
+		bufferLen = md4.bufferLen;
+		System.arraycopy(md4.state, 0, this.state, 0, 4);
+		System.arraycopy(md4.buffer, 0, buffer, 0, BLOCK_LENGTH);
+	}
+
+	@Override
+	void writeState(DigestState.Writer out)
+	{
+		out.writeLong(count).writeInts(state);
+		out.writeBytes(buffer, 0, bufferLen);
+	}
+
+	@Override
+	void readState(DigestState.Reader in)
+	{
+		count = in.readLong();
+		in.check(count >= 0 && count % BLOCK_LENGTH == 0);
+		in.readInts(state);
+		bufferLen = in.readBytes(buffer);
+		in.check(bufferLen < BLOCK_LENGTH);
+	}
+
 	@Override
 	public Digest update(byte input)
 	{
@@ -90,30 +127,51 @@ final class MD4 extends AbstractDigest
 	}
 
 	@Override
-	public byte[] digest()
+	public Digest update(ByteBuffer input)
 	{
+		if (updateFromArray(input)) {
+			return this;
+		}
+		while (input.hasRemaining()) {
+			int cpLen = Math.min(BLOCK_LENGTH - bufferLen,
+				input.remaining());
+			input.get(buffer, bufferLen, cpLen);
+			bufferLen += cpLen;
+			if (bufferLen == BLOCK_LENGTH) {
+				processBuffer();
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Digest digestInto(byte[] out, int off)
+	{
+		checkOutput(out, off);
 		addPadding();
-		byte[] hash = new byte[DIGEST_LENGTH];
-		LittleEndian.encode(state[0], hash, 0);
-		LittleEndian.encode(state[1], hash, 4);
-		LittleEndian.encode(state[2], hash, 8);
-		LittleEndian.encode(state[3], hash, 12);
-		reset();
-		return hash;
+		LittleEndian.encode(state[0], out, off);
+		LittleEndian.encode(state[1], out, off + 4);
+		LittleEndian.encode(state[2], out, off + 8);
+		LittleEndian.encode(state[3], out, off + 12);
+		return reset();
 	}
 
 	/** Adds the padding bits and the message length to the input data. */
 	private void addPadding()
 	{
-		int len = BLOCK_LENGTH - bufferLen;
-		if (len < 9) {
-			len += BLOCK_LENGTH;
-		}
-		byte[] padding = new byte[len];
-		padding[0] = (byte) 0x80;
 		long bits = (count + bufferLen) << 3;
-		LittleEndian.encode(bits, padding, len - 8);
-		update(padding);
+		buffer[bufferLen++] = (byte) 0x80;
+		if (bufferLen > BLOCK_LENGTH - 8) {
+			while (bufferLen < BLOCK_LENGTH) {
+				buffer[bufferLen++] = 0;
+			}
+			processBuffer();
+		}
+		while (bufferLen < BLOCK_LENGTH - 8) {
+			buffer[bufferLen++] = 0;
+		}
+		LittleEndian.encode(bits, buffer, BLOCK_LENGTH - 8);
+		processBuffer();
 	}
 
 	private void processBuffer()
@@ -17,13 +17,19 @@
 package org.kocakosm.pitaya.security;
 
 import org.kocakosm.pitaya.util.BigEndian;
-import org.kocakosm.pitaya.util.ByteBuffer;
 import org.kocakosm.pitaya.util.Parameters;
 import org.kocakosm.pitaya.util.XObjects;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 /**
  * PBKDF2 Key Derivation Function (RFC 2898). Instances of this class are
- * immutable.
+ * immutable. When an {@link Executor} is given, the blocks of derived keys
+ * longer than the MAC's output are computed concurrently; otherwise they are
+ * computed one after the other.
  *
  * @author Osman KOCAK
  */
@@ -32,6 +38,7 @@ final class PBKDF2 implements KDF
 	private final int dkLen;
 	private final int iterationCount;
 	private final Algorithm<MAC> algorithm;
+	private final Executor executor;
 
 	/**
 	 * Creates a new {@code PBKDF2} instance.
@@ -45,6 +52,26 @@ final class PBKDF2 implements KDF
 	 *	{@code dkLen} is negative, or if the MAC algorithm is unknown.
 	 */
 	PBKDF2(Algorithm<MAC> algorithm, int iterationCount, int dkLen)
+	{
+		this(algorithm, iterationCount, dkLen, null);
+	}
+
+	/**
+	 * Creates a new {@code PBKDF2} instance whose blocks are computed
+	 * concurrently using the given {@code Executor}.
+	 *
+	 * @param algorithm the MAC algorithm to use.
+	 * @param iterationCount the desired number of iterations.
+	 * @param dkLen the desired length for derived keys, in bytes.
+	 * @param executor the {@code Executor} to use, {@code null} to compute
+	 *	the blocks sequentially.
+	 *
+	 * @throws NullPointerException if {@code algorithm} is {@code null}.
+	 * @throws IllegalArgumentException if {@code iterationCount} or
+	 *	{@code dkLen} is negative, or if the MAC algorithm is unknown.
+	 */
+	PBKDF2(Algorithm<MAC> algorithm, int iterationCount, int dkLen,
+		Executor executor)
 	{
 		Parameters.checkCondition(dkLen > 0);
 		Parameters.checkCondition(iterationCount > 0);
@@ -52,26 +79,74 @@ final class PBKDF2 implements KDF
 		this.algorithm = algorithm;
 		this.iterationCount = iterationCount;
 		this.dkLen = dkLen;
+		this.executor = executor;
 	}
 
 	@Override
 	public byte[] deriveKey(byte[] secret, byte[] salt)
 	{
 		MAC mac = Factory.newMAC(algorithm, secret);
-		int d = (int) Math.ceil((double) dkLen / mac.length());
-		ByteBuffer t = new ByteBuffer(d * mac.length());
-		for (int i = 1; i <= d; i++) {
-			byte[] f = mac.update(salt).digest(BigEndian.encode(i));
-			byte[] u = f;
-			for (int j = 1; j < iterationCount; j++) {
-				u = mac.digest(u);
-				for (int k = 0; k < f.length; k++) {
-					f[k] ^= u[k];
-				}
+		int hLen = mac.length();
+		int d = (dkLen + hLen - 1) / hLen;
+		byte[] t = new byte[d * hLen];
+		if (executor == null || d == 1) {
+			byte[] u = new byte[hLen];
+			byte[] index = new byte[4];
+			for (int i = 1; i <= d; i++) {
+				BigEndian.encode(i, index, 0);
+				f(mac, salt, index, u, t, (i - 1) * hLen);
 			}
-			t.append(f);
+		} else {
+			List<Block> blocks = new ArrayList<Block>(d);
+			for (int i = 1; i <= d; i++) {
+				blocks.add(new Block(secret, salt, i, t));
+			}
+			Tasks.run(executor, blocks);
+		}
+		return t.length == dkLen ? t : Arrays.copyOf(t, dkLen);
+	}
+
+	/*
+	 * Computes the block whose big-endian encoded index is given and writes
+	 * it into out, starting at off. u is used as working memory.
+	 */
+	private void f(MAC mac, byte[] salt, byte[] index, byte[] u, byte[] out,
+		int off)
+	{
+		mac.update(salt).update(index).digestInto(u, 0);
+		System.arraycopy(u, 0, out, off, u.length);
+		for (int j = 1; j < iterationCount; j++) {
+			mac.update(u).digestInto(u, 0);
+			for (int k = 0; k < u.length; k++) {
+				out[off + k] ^= u[k];
+			}
+		}
+	}
+
+	/* A block of the derived key, computed using its own MAC engine. */
+	private final class Block implements Runnable
+	{
+		private final byte[] secret;
+		private final byte[] salt;
+		private final int i;
+		private final byte[] out;
+
+		Block(byte[] secret, byte[] salt, int i, byte[] out)
+		{
+			this.secret = secret;
+			this.salt = salt;
+			this.i = i;
+			this.out = out;
+		}
+
+		@Override
+		public void run()
+		{
+			MAC mac = Factory.newMAC(algorithm, secret);
+			byte[] u = new byte[mac.length()];
+			byte[] index = BigEndian.encode(i);
+			f(mac, salt, index, u, out, (i - 1) * u.length);
 		}
-		return t.toByteArray(0, dkLen);
 	}
 
 	@Override
@@ -0,0 +1,107 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.charset.ASCII;
+import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.XArrays;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The ParallelHash128 and ParallelHash256 digest algorithms (NIST SP 800-185),
+ * with output lengths of 256 and 512 bits respectively. Instances of this class
+ * are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+final class ParallelHash extends TreeDigest
+{
+	private static final byte[] N = ASCII.encode("ParallelHash");
+
+	private static AbstractDigest root(int strength, byte[] s)
+	{
+		Parameters.checkCondition(strength == 128 || strength == 256);
+		return strength == 128 ? Keccak.cshake128(32, N, s)
+			: Keccak.cshake256(64, N, s);
+	}
+
+	private final int strength;
+	private final int blockSize;
+	private final byte[] customization;
+	private final Executor executor;
+
+	/**
+	 * Creates a new ready to use {@code ParallelHash}.
+	 *
+	 * @param strength the security strength, either 128 or 256 (bits).
+	 * @param blockSize the block size, in bytes.
+	 * @param customization the customization string.
+	 * @param executor the {@code Executor} to use to hash blocks, may be
+	 *	{@code null}, in which case blocks are hashed on the caller's
+	 *	thread.
+	 *
+	 * @throws NullPointerException if {@code customization} is
+	 *	{@code null}.
+	 * @throws IllegalArgumentException if {@code strength} is neither 128
+	 *	nor 256, or if {@code blockSize} is negative.
+	 */
+	ParallelHash(int strength, int blockSize, byte[] customization,
+		Executor executor)
+	{
+		super("ParallelHash" + strength,
+			root(strength, XArrays.copyOf(customization)),
+			strength / 4, blockSize, executor);
+		this.strength = strength;
+		this.blockSize = blockSize;
+		this.customization = XArrays.copyOf(customization);
+		this.executor = executor;
+		reset();
+	}
+
+	@Override
+	TreeDigest newInstance()
+	{
+		return new ParallelHash(strength, blockSize, customization,
+			executor);
+	}
+
+	@Override
+	Digest newLeafDigest()
+	{
+		return strength == 128 ? Keccak.shake128(32) : Keccak.shake256(64);
+	}
+
+	@Override
+	void hashChunk(Digest engine, byte[] chunk, int len, byte[] out)
+	{
+		engine.update(chunk, 0, len).digestInto(out, 0);
+	}
+
+	@Override
+	void begin(Digest root)
+	{
+		root.update(Keccak.leftEncode(blockSize));
+	}
+
+	@Override
+	void end(Digest root, long leaves)
+	{
+		root.update(Keccak.rightEncode(leaves));
+		root.update(Keccak.rightEncode(length() * 8L));
+	}
+}
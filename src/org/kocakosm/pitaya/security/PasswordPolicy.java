@@ -0,0 +1,290 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+import org.kocakosm.pitaya.util.XObjects;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Passwords}' hashing parameters. A policy has target SCrypt
+ * parameters, used to hash new passwords, and a window of accepted parameters,
+ * used when verifying stored hashes. Hashes whose parameters are within the
+ * window but differ from the target ones can be verified but should be
+ * {@linkplain Passwords#needsRehash(byte[], PasswordPolicy) upgraded}.
+ * Instances of this class are immutable.
+ *
+ * @author Osman KOCAK
+ */
+public final class PasswordPolicy
+{
+	/** The default policy: r = 8, n = 2^14, p = 1, no other accepted value. */
+	public static final PasswordPolicy DEFAULT = new PasswordPolicy(8, 1 << 14, 1);
+
+	private static final int MAX_RP = 255;
+	private static final int CALIBRATION_N = 1 << 10;
+
+	private final int r;
+	private final int n;
+	private final int p;
+	private final int minR;
+	private final int minN;
+	private final int minP;
+	private final int maxR;
+	private final int maxN;
+	private final int maxP;
+
+	/**
+	 * Benchmarks SCrypt on the current machine and returns the strongest
+	 * policy whose hashing time and memory usage fit the given budget. The
+	 * block size {@code r} is kept at 8; {@code n} is raised while both the
+	 * time and memory budgets allow it, then {@code p} uses up the remaining
+	 * time. The returned policy is never weaker than {@link #DEFAULT}, and
+	 * its minimum parameters are the default ones, so that existing hashes
+	 * remain verifiable and can be upgraded lazily. Note that calibration
+	 * takes roughly twice the given latency.
+	 *
+	 * @param maxLatency the maximum time a password hashing should take.
+	 * @param unit {@code maxLatency}'s unit.
+	 * @param maxMemory the maximum memory a password hashing should use,
+	 *	in bytes.
+	 *
+	 * @return the calibrated policy.
+	 *
+	 * @throws NullPointerException if {@code unit} is {@code null}.
+	 * @throws IllegalArgumentException if {@code maxLatency} is negative or
+	 *	if {@code maxMemory} is less than the default policy's
+	 *	{@linkplain #memory() memory usage}.
+	 */
+	public static PasswordPolicy calibrate(long maxLatency, TimeUnit unit,
+		long maxMemory)
+	{
+		Parameters.checkCondition(maxLatency >= 0);
+		Parameters.checkCondition(maxMemory >= DEFAULT.memory());
+		long budget = unit.toNanos(maxLatency);
+		int r = DEFAULT.r;
+		benchmark(r, CALIBRATION_N);
+		long time = benchmark(r, DEFAULT.n);
+		int n = DEFAULT.n;
+		while (2 * time <= budget && memory(r, 2 * n) <= maxMemory
+			&& isValid(r, 2 * n, 1)) {
+			n *= 2;
+			time *= 2;
+		}
+		if (n > DEFAULT.n) {
+			time = benchmark(r, n);
+			if (time > budget) {
+				n /= 2;
+				time /= 2;
+			}
+		}
+		int p = (int) Math.max(1, Math.min(MAX_RP, budget / time));
+		return new PasswordPolicy(r, n, p, DEFAULT.r, DEFAULT.n,
+			DEFAULT.p, r, n, p);
+	}
+
+	private static long benchmark(int r, int n)
+	{
+		KDF scrypt = KDFs.scrypt(r, n, 1, 32);
+		long start = System.nanoTime();
+		scrypt.deriveKey(new byte[8], new byte[16]);
+		return Math.max(1, System.nanoTime() - start);
+	}
+
+	private static long memory(int r, int n)
+	{
+		return 128L * r * n;
+	}
+
+	private static boolean isValid(int r, int n, int p)
+	{
+		return SCrypt.areValid(r, n, p) && r <= MAX_RP && p <= MAX_RP
+			&& 32L * r * n <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Creates a new {@code PasswordPolicy} that only accepts the given
+	 * parameters.
+	 *
+	 * @param r the SCrypt block size parameter.
+	 * @param n the SCrypt CPU/Memory cost parameter.
+	 * @param p the SCrypt parallelization parameter.
+	 *
+	 * @throws IllegalArgumentException if {@code r} or {@code p} is not in
+	 *	the [1, 255] range, or if {@code n} is not a power of 2 greater
+	 *	than 1, or if the parameters are not valid SCrypt parameters.
+	 */
+	public PasswordPolicy(int r, int n, int p)
+	{
+		this(r, n, p, r, n, p, r, n, p);
+	}
+
+	private PasswordPolicy(int r, int n, int p, int minR, int minN,
+		int minP, int maxR, int maxN, int maxP)
+	{
+		Parameters.checkCondition(isValid(r, n, p));
+		Parameters.checkCondition(isValid(minR, minN, minP));
+		Parameters.checkCondition(isValid(maxR, maxN, maxP));
+		Parameters.checkCondition(minR <= r && r <= maxR);
+		Parameters.checkCondition(minN <= n && n <= maxN);
+		Parameters.checkCondition(minP <= p && p <= maxP);
+		this.r = r;
+		this.n = n;
+		this.p = p;
+		this.minR = minR;
+		this.minN = minN;
+		this.minP = minP;
+		this.maxR = maxR;
+		this.maxN = maxN;
+		this.maxP = maxP;
+	}
+
+	/**
+	 * Returns a copy of this policy that also accepts hashes whose
+	 * parameters are as low as the given ones.
+	 *
+	 * @param r the minimum accepted block size parameter.
+	 * @param n the minimum accepted CPU/Memory cost parameter.
+	 * @param p the minimum accepted parallelization parameter.
+	 *
+	 * @return the created policy.
+	 *
+	 * @throws IllegalArgumentException if the given parameters are not
+	 *	valid or if one of them is greater than its target value.
+	 */
+	public PasswordPolicy withMinimum(int r, int n, int p)
+	{
+		return new PasswordPolicy(this.r, this.n, this.p, r, n, p, maxR,
+			maxN, maxP);
+	}
+
+	/**
+	 * Returns a copy of this policy that also accepts hashes whose
+	 * parameters are as high as the given ones. Keep in mind that the
+	 * maximum parameters bound the work an attacker-supplied hash may
+	 * cause during verification.
+	 *
+	 * @param r the maximum accepted block size parameter.
+	 * @param n the maximum accepted CPU/Memory cost parameter.
+	 * @param p the maximum accepted parallelization parameter.
+	 *
+	 * @return the created policy.
+	 *
+	 * @throws IllegalArgumentException if the given parameters are not
+	 *	valid or if one of them is less than its target value.
+	 */
+	public PasswordPolicy withMaximum(int r, int n, int p)
+	{
+		return new PasswordPolicy(this.r, this.n, this.p, minR, minN,
+			minP, r, n, p);
+	}
+
+	/**
+	 * Returns the target SCrypt block size parameter.
+	 *
+	 * @return the target block size parameter.
+	 */
+	public int r()
+	{
+		return r;
+	}
+
+	/**
+	 * Returns the target SCrypt CPU/Memory cost parameter.
+	 *
+	 * @return the target CPU/Memory cost parameter.
+	 */
+	public int n()
+	{
+		return n;
+	}
+
+	/**
+	 * Returns the target SCrypt parallelization parameter.
+	 *
+	 * @return the target parallelization parameter.
+	 */
+	public int p()
+	{
+		return p;
+	}
+
+	/**
+	 * Returns the amount of memory, in bytes, used to hash a password with
+	 * the target parameters.
+	 *
+	 * @return the memory used by a password hashing.
+	 */
+	public long memory()
+	{
+		return memory(r, n);
+	}
+
+	boolean isTarget(int r, int n, int p)
+	{
+		return r == this.r && n == this.n && p == this.p;
+	}
+
+	boolean accepts(int r, int n, int p)
+	{
+		return r >= minR && r <= maxR && n >= minN && n <= maxN
+			&& p >= minP && p <= maxP;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof PasswordPolicy)) {
+			return false;
+		}
+		PasswordPolicy policy = (PasswordPolicy) o;
+		return isTarget(policy.r, policy.n, policy.p)
+			&& minR == policy.minR && minN == policy.minN
+			&& minP == policy.minP && maxR == policy.maxR
+			&& maxN == policy.maxN && maxP == policy.maxP;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 7;
+		hash = 71 * hash + r;
+		hash = 71 * hash + n;
+		hash = 71 * hash + p;
+		hash = 71 * hash + minR;
+		hash = 71 * hash + minN;
+		hash = 71 * hash + minP;
+		hash = 71 * hash + maxR;
+		hash = 71 * hash + maxN;
+		hash = 71 * hash + maxP;
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		return XObjects.toStringBuilder("PasswordPolicy").append("r", r)
+			.append("n", n).append("p", p).append("min",
+			minR + "/" + minN + "/" + minP).append("max",
+			maxR + "/" + maxN + "/" + maxP).toString();
+	}
+}
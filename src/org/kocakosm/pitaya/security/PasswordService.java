@@ -0,0 +1,408 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.security;
+
+import static org.kocakosm.pitaya.util.Parameters.checkCondition;
+import static org.kocakosm.pitaya.util.Parameters.checkNotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous facade over {@link Passwords}. Passwords are hashed and
+ * verified on a dedicated, bounded pool of worker threads: at most
+ * {@code threads + maxQueued} requests may be pending at any time. When the
+ * service is saturated, requests are either rejected immediately or, if a
+ * timeout is given, the caller is blocked until room is available (or the
+ * timeout expires). Instances of this class are thread-safe; they should be
+ * {@linkplain #shutdown() shut down} once no longer needed.
+ *
+ * @author Osman KOCAK
+ */
+public final class PasswordService
+{
+	private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+	private final PasswordPolicy policy;
+	private final Semaphore permits;
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong completed;
+	private final AtomicLong rejected;
+	private final AtomicLong totalLatency;
+	private final AtomicLong maxLatency;
+
+	/**
+	 * Creates a new {@code PasswordService}.
+	 *
+	 * @param threads the number of worker threads.
+	 * @param maxQueued the maximum number of requests that may wait for an
+	 *	available worker.
+	 *
+	 * @throws IllegalArgumentException if {@code threads} is not strictly
+	 *	positive or if {@code maxQueued} is negative.
+	 */
+	public PasswordService(int threads, int maxQueued)
+	{
+		this(threads, maxQueued, PasswordPolicy.DEFAULT);
+	}
+
+	/**
+	 * Creates a new {@code PasswordService} that hashes and verifies
+	 * passwords according to the given policy.
+	 *
+	 * @param threads the number of worker threads.
+	 * @param maxQueued the maximum number of requests that may wait for an
+	 *	available worker.
+	 * @param policy the hashing policy.
+	 *
+	 * @throws NullPointerException if {@code policy} is {@code null}.
+	 * @throws IllegalArgumentException if {@code threads} is not strictly
+	 *	positive or if {@code maxQueued} is negative.
+	 */
+	public PasswordService(int threads, int maxQueued, PasswordPolicy policy)
+	{
+		checkCondition(threads > 0);
+		checkCondition(maxQueued >= 0);
+		this.policy = checkNotNull(policy);
+		this.permits = new Semaphore(threads + maxQueued);
+		this.completed = new AtomicLong();
+		this.rejected = new AtomicLong();
+		this.totalLatency = new AtomicLong();
+		this.maxLatency = new AtomicLong();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L,
+			TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+			new WorkerFactory()) {
+			@Override
+			protected void afterExecute(Runnable task, Throwable t)
+			{
+				permits.release();
+			}
+		};
+	}
+
+	/**
+	 * Asynchronously hashes the given password, as per
+	 * {@link Passwords#hash(char[], PasswordPolicy)}. The password is
+	 * copied, so the caller may clear the given array as soon as this
+	 * method returns. If the service is saturated, the request is
+	 * rejected immediately.
+	 *
+	 * @param password the password to hash.
+	 *
+	 * @return the hashed password's {@code Future}.
+	 *
+	 * @throws NullPointerException if {@code password} is {@code null}.
+	 * @throws RejectedExecutionException if the service is saturated or
+	 *	has been shut down.
+	 */
+	public Future<byte[]> hash(char[] password)
+	{
+		checkNotNull(password);
+		reserve();
+		return submit(new Hash(password));
+	}
+
+	/**
+	 * Asynchronously hashes the given password, as per
+	 * {@link Passwords#hash(char[], PasswordPolicy)}. The password is
+	 * copied, so the caller may clear the given array as soon as this
+	 * method returns. If the service is saturated, the calling thread is
+	 * blocked until room is available or until the given timeout expires.
+	 *
+	 * @param password the password to hash.
+	 * @param timeout the maximum time to wait for room in the service.
+	 * @param unit the timeout's unit.
+	 *
+	 * @return the hashed password's {@code Future}.
+	 *
+	 * @throws NullPointerException if {@code password} or {@code unit} is
+	 *	{@code null}.
+	 * @throws RejectedExecutionException if the service is still saturated
+	 *	once the timeout has expired or if it has been shut down.
+	 * @throws IllegalStateException if the current thread is interrupted
+	 *	while waiting.
+	 */
+	public Future<byte[]> hash(char[] password, long timeout, TimeUnit unit)
+	{
+		checkNotNull(password);
+		reserve(timeout, unit);
+		return submit(new Hash(password));
+	}
+
+	/**
+	 * Asynchronously verifies that the given password matches the hashed
+	 * one, as per {@link Passwords#verify(char[], byte[], PasswordPolicy)}.
+	 * The arguments are copied, so the caller may clear them as soon as
+	 * this method returns. If the service is saturated, the request is
+	 * rejected immediately.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 *
+	 * @return the verification result's {@code Future}.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws RejectedExecutionException if the service is saturated or
+	 *	has been shut down.
+	 */
+	public Future<Boolean> verify(char[] password, byte[] hash)
+	{
+		checkNotNull(password);
+		checkNotNull(hash);
+		reserve();
+		return submit(new Verify(password, hash));
+	}
+
+	/**
+	 * Asynchronously verifies that the given password matches the hashed
+	 * one, as per {@link Passwords#verify(char[], byte[], PasswordPolicy)}.
+	 * The arguments are copied, so the caller may clear them as soon as
+	 * this method returns. If the service is saturated, the calling
+	 * thread is blocked until room is available or until the given
+	 * timeout expires.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 * @param timeout the maximum time to wait for room in the service.
+	 * @param unit the timeout's unit.
+	 *
+	 * @return the verification result's {@code Future}.
+	 *
+	 * @throws NullPointerException if {@code password}, {@code hash} or
+	 *	{@code unit} is {@code null}.
+	 * @throws RejectedExecutionException if the service is still saturated
+	 *	once the timeout has expired or if it has been shut down.
+	 * @throws IllegalStateException if the current thread is interrupted
+	 *	while waiting.
+	 */
+	public Future<Boolean> verify(char[] password, byte[] hash,
+		long timeout, TimeUnit unit)
+	{
+		checkNotNull(password);
+		checkNotNull(hash);
+		reserve(timeout, unit);
+		return submit(new Verify(password, hash));
+	}
+
+	/**
+	 * Returns the number of requests that are waiting for a worker thread.
+	 *
+	 * @return the current queue depth.
+	 */
+	public int queueDepth()
+	{
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * Returns the number of requests that have been processed so far,
+	 * whether successfully or not.
+	 *
+	 * @return the number of completed requests.
+	 */
+	public long completed()
+	{
+		return completed.get();
+	}
+
+	/**
+	 * Returns the number of requests that have been rejected so far.
+	 *
+	 * @return the number of rejected requests.
+	 */
+	public long rejected()
+	{
+		return rejected.get();
+	}
+
+	/**
+	 * Returns the average time spent processing a request, excluding the
+	 * time spent waiting in the queue, or {@code 0} if no request has been
+	 * completed yet.
+	 *
+	 * @param unit the unit of the returned duration.
+	 *
+	 * @return the average processing latency.
+	 *
+	 * @throws NullPointerException if {@code unit} is {@code null}.
+	 */
+	public long averageLatency(TimeUnit unit)
+	{
+		long n = completed.get();
+		long total = totalLatency.get();
+		return unit.convert(n == 0 ? 0 : total / n, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the longest time spent processing a request, excluding the
+	 * time spent waiting in the queue, or {@code 0} if no request has been
+	 * completed yet.
+	 *
+	 * @param unit the unit of the returned duration.
+	 *
+	 * @return the maximum processing latency.
+	 *
+	 * @throws NullPointerException if {@code unit} is {@code null}.
+	 */
+	public long maxLatency(TimeUnit unit)
+	{
+		return unit.convert(maxLatency.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Initiates an orderly shutdown of this service: pending requests are
+	 * processed, but new ones are rejected.
+	 */
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns whether this service has been shut down.
+	 *
+	 * @return whether this service has been shut down.
+	 */
+	public boolean isShutdown()
+	{
+		return executor.isShutdown();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PasswordService [threads=" + executor.getCorePoolSize()
+			+ ", queueDepth=" + queueDepth() + "]";
+	}
+
+	private void reserve()
+	{
+		if (!permits.tryAcquire()) {
+			rejected.incrementAndGet();
+			throw new RejectedExecutionException("Service saturated");
+		}
+	}
+
+	private void reserve(long timeout, TimeUnit unit)
+	{
+		checkNotNull(unit);
+		try {
+			if (!permits.tryAcquire(timeout, unit)) {
+				rejected.incrementAndGet();
+				throw new RejectedExecutionException(
+					"Service saturated");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private <T> Future<T> submit(Callable<T> task)
+	{
+		try {
+			return executor.submit(task);
+		} catch (RejectedExecutionException ex) {
+			permits.release();
+			rejected.incrementAndGet();
+			throw ex;
+		}
+	}
+
+	private void record(long latency)
+	{
+		completed.incrementAndGet();
+		totalLatency.addAndGet(latency);
+		long max = maxLatency.get();
+		while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+			max = maxLatency.get();
+		}
+	}
+
+	private final class Hash implements Callable<byte[]>
+	{
+		private final char[] password;
+
+		Hash(char[] password)
+		{
+			this.password = password.clone();
+		}
+
+		@Override
+		public byte[] call()
+		{
+			long start = System.nanoTime();
+			try {
+				return Passwords.hash(password, policy);
+			} finally {
+				Arrays.fill(password, '\0');
+				record(System.nanoTime() - start);
+			}
+		}
+	}
+
+	private final class Verify implements Callable<Boolean>
+	{
+		private final char[] password;
+		private final byte[] hash;
+
+		Verify(char[] password, byte[] hash)
+		{
+			this.password = password.clone();
+			this.hash = hash.clone();
+		}
+
+		@Override
+		public Boolean call()
+		{
+			long start = System.nanoTime();
+			try {
+				return Boolean.valueOf(
+					Passwords.verify(password, hash, policy));
+			} finally {
+				Arrays.fill(password, '\0');
+				record(System.nanoTime() - start);
+			}
+		}
+	}
+
+	private static final class WorkerFactory implements ThreadFactory
+	{
+		private final int pool = POOL_COUNT.incrementAndGet();
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable task)
+		{
+			String name = "pitaya-passwords-" + pool + "-"
+				+ count.incrementAndGet();
+			Thread thread = new Thread(task, name);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
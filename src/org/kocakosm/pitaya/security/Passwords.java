@@ -18,6 +18,7 @@ package org.kocakosm.pitaya.security;
 
 import org.kocakosm.pitaya.charset.UTF8;
 import org.kocakosm.pitaya.util.ByteBuffer;
+import org.kocakosm.pitaya.util.Parameters;
 
 import java.security.SecureRandom;
 import java.util.Arrays;
@@ -30,14 +31,11 @@ import java.util.Random;
  */
 public final class Passwords
 {
-	private static final int R = 8;
-	private static final int P = 1;
-	private static final int N = 1 << 14;
-	private static final int R_MIN = 8;
-	private static final int P_MIN = 1;
-	private static final int N_MIN = 1 << 14;
 	private static final int SALT_LENGTH = 16;
 	private static final int HASH_LENGTH = 32;
+	private static final int PARAMS_LENGTH = 3;
+	private static final int LENGTH = HASH_LENGTH + SALT_LENGTH + PARAMS_LENGTH;
+	private static final int MAX_LOG_N = 30;
 	private static final Random PRNG = new SecureRandom();
 	private static final char[] ALPHABET = new char[] {
 		'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M',
@@ -73,7 +71,24 @@ public final class Passwords
 	 */
 	public static byte[] hash(char[] password)
 	{
-		return hash(password, salt(), R, N, P);
+		return hash(password, PasswordPolicy.DEFAULT);
+	}
+
+	/**
+	 * Hashes the given password (using {@linkplain KDFs#scrypt SCrypt})
+	 * with the given policy's target parameters. Hashing parameters are
+	 * appended to the returned result.
+	 *
+	 * @param password the password to hash.
+	 * @param policy the hashing policy.
+	 *
+	 * @return the hashed password.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public static byte[] hash(char[] password, PasswordPolicy policy)
+	{
+		return hash(password, salt(), policy.r(), policy.n(), policy.p());
 	}
 
 	/**
@@ -88,25 +103,70 @@ public final class Passwords
 	 */
 	public static boolean verify(char[] password, byte[] hash)
 	{
-		byte[] h = Arrays.copyOf(hash, HASH_LENGTH + SALT_LENGTH + 3);
-		int n = 1 << (h[HASH_LENGTH + SALT_LENGTH] & 0xFF);
+		return verify(password, hash, PasswordPolicy.DEFAULT);
+	}
+
+	/**
+	 * Verifies that the given password matches the hashed one. Hashes
+	 * whose parameters are not accepted by the given policy, or are not
+	 * valid scrypt parameters, never match.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 * @param policy the hashing policy.
+	 *
+	 * @return whether the given password matches the hashed one.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public static boolean verify(char[] password, byte[] hash,
+		PasswordPolicy policy)
+	{
+		byte[] h = Arrays.copyOf(hash, LENGTH);
+		int logN = h[HASH_LENGTH + SALT_LENGTH] & 0xFF;
 		int r = h[HASH_LENGTH + SALT_LENGTH + 1] & 0xFF;
 		int p = h[HASH_LENGTH + SALT_LENGTH + 2] & 0xFF;
-		if (n > N || n < N_MIN || r > R || r < R_MIN || p > P || p < P_MIN) {
+		if (logN > MAX_LOG_N || !policy.accepts(r, 1 << logN, p)
+			|| !SCrypt.areValid(r, 1 << logN, p)) {
 			return false;
 		}
 		byte[] salt = new byte[SALT_LENGTH];
 		System.arraycopy(h, HASH_LENGTH, salt, 0, SALT_LENGTH);
-		return areEqual(h, hash(password, salt, r, n, p));
+		return areEqual(h, hash(password, salt, r, 1 << logN, p));
+	}
+
+	/**
+	 * Returns whether the given hashed password should be recomputed
+	 * because it was not made with the given policy's target parameters.
+	 * This is meant to be called after a successful verification, when the
+	 * plain password is at hand, so that stored hashes can be upgraded.
+	 *
+	 * @param hash the hashed password.
+	 * @param policy the hashing policy.
+	 *
+	 * @return whether the given hash should be recomputed.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public static boolean needsRehash(byte[] hash, PasswordPolicy policy)
+	{
+		Parameters.checkNotNull(policy);
+		if (hash.length != LENGTH) {
+			return true;
+		}
+		int logN = hash[HASH_LENGTH + SALT_LENGTH] & 0xFF;
+		int r = hash[HASH_LENGTH + SALT_LENGTH + 1] & 0xFF;
+		int p = hash[HASH_LENGTH + SALT_LENGTH + 2] & 0xFF;
+		return logN > MAX_LOG_N || !policy.isTarget(r, 1 << logN, p);
 	}
 
 	private static byte[] hash(char[] password, byte[] salt, int r, int n, int p)
 	{
 		KDF scrypt = KDFs.scrypt(r, n, p, HASH_LENGTH);
-		ByteBuffer buf = new ByteBuffer(HASH_LENGTH + SALT_LENGTH + 3);
+		ByteBuffer buf = new ByteBuffer(LENGTH);
 		buf.append(scrypt.deriveKey(UTF8.encode(password), salt));
 		buf.append(salt);
-		buf.append((byte) Math.round(Math.log(n) / Math.log(2)));
+		buf.append((byte) Integer.numberOfTrailingZeros(n));
 		buf.append((byte) r, (byte) p);
 		return buf.toByteArray();
 	}
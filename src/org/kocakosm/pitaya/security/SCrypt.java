@@ -16,16 +16,19 @@
 
 package org.kocakosm.pitaya.security;
 
-import org.kocakosm.pitaya.util.ByteBuffer;
 import org.kocakosm.pitaya.util.LittleEndian;
 import org.kocakosm.pitaya.util.Parameters;
 import org.kocakosm.pitaya.util.XObjects;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * SCrypt Key Derivation Function (RFC 7914). Instances of this class are
- * immutable.
+ * immutable. When an {@link Executor} is given, the {@code p} independent
+ * mixing lanes are computed concurrently, each one using its own working
+ * memory; otherwise they are computed one after the other.
  *
  * @author Osman KOCAK
  */
@@ -35,6 +38,7 @@ final class SCrypt implements KDF
 	private final int n;
 	private final int p;
 	private final int dkLen;
+	private final Executor executor;
 
 	/**
 	 * Creates a new {@code SCrypt} instance.
@@ -51,27 +55,75 @@ final class SCrypt implements KDF
 	 */
 	SCrypt(int r, int n, int p, int dkLen)
 	{
-		Parameters.checkCondition(r > 0 && p > 0 && dkLen > 0);
-		Parameters.checkCondition(n > 1 && (n & (n - 1)) == 0);
-		Parameters.checkCondition(r == 1 ? n < (1 << 16) : true);
-		Parameters.checkCondition((long) p * r < (1 << 30));
+		this(r, n, p, dkLen, null);
+	}
+
+	/**
+	 * Creates a new {@code SCrypt} instance whose mixing lanes are computed
+	 * concurrently using the given {@code Executor}.
+	 *
+	 * @param r the block size parameter.
+	 * @param n the CPU/Memory cost parameter.
+	 * @param p the parallelization parameter.
+	 * @param dkLen the desired length for derived keys, in bytes.
+	 * @param executor the {@code Executor} to use, {@code null} to compute
+	 *	the mixing lanes sequentially.
+	 *
+	 * @throws IllegalArgumentException if {@code r, dkLen} or {@code p} is
+	 *	negative, or if {@code n} is not greater than 1 or if it is not
+	 *	a power of 2 or if it is not less than 2 ^ (128 * r / 8), or if
+	 *	{@code p} is greater than ((2 ^ 32 - 1) * 32) / (128 * r).
+	 */
+	SCrypt(int r, int n, int p, int dkLen, Executor executor)
+	{
+		Parameters.checkCondition(areValid(r, n, p) && dkLen > 0);
 		this.r = r;
 		this.n = n;
 		this.p = p;
 		this.dkLen = dkLen;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns whether the given cost parameters are accepted by this
+	 * class' constructors.
+	 *
+	 * @param r the block size parameter.
+	 * @param n the CPU/Memory cost parameter.
+	 * @param p the parallelization parameter.
+	 *
+	 * @return whether the given parameters are valid.
+	 */
+	static boolean areValid(int r, int n, int p)
+	{
+		return r > 0 && p > 0 && n > 1 && (n & (n - 1)) == 0
+			&& (r == 1 ? n < (1 << 16) : true)
+			&& (long) p * r < (1 << 30);
 	}
 
 	@Override
 	public byte[] deriveKey(byte[] secret, byte[] salt)
 	{
-		KDF pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA256, 1, p * 128 * r);
+		int len = 128 * r;
+		KDF pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA256, 1, p * len);
 		byte[] b = pbkdf2.deriveKey(secret, salt);
-		ByteBuffer buffer = new ByteBuffer(p * 128 * r);
-		for (int i = 0; i < p; i++) {
-			buffer.append(roMix(slice(b, i * 128 * r, 128 * r)));
+		if (executor == null || p == 1) {
+			int[] x = new int[32 * r];
+			int[] y = new int[32 * r];
+			int[] v = new int[32 * r * n];
+			int[] t = new int[16];
+			for (int i = 0; i < p; i++) {
+				roMix(b, i * len, x, y, v, t);
+			}
+		} else {
+			List<Lane> lanes = new ArrayList<Lane>(p);
+			for (int i = 0; i < p; i++) {
+				lanes.add(new Lane(b, i * len));
+			}
+			Tasks.run(executor, lanes);
 		}
 		pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA256, 1, dkLen);
-		return pbkdf2.deriveKey(secret, buffer.toByteArray());
+		return pbkdf2.deriveKey(secret, b);
 	}
 
 	@Override
@@ -82,103 +134,135 @@ final class SCrypt implements KDF
 			.toString();
 	}
 
-	private byte[] roMix(byte[] x)
+	/*
+	 * Mixes, in place, the 128 * r bytes of b starting at off. The other
+	 * arrays are working memory: x and y must hold 32 * r words, v must
+	 * hold 32 * r * n words and t must hold 16 words.
+	 */
+	private void roMix(byte[] b, int off, int[] x, int[] y, int[] v, int[] t)
 	{
-		int len = x.length;
-		ByteBuffer v = new ByteBuffer(n * len);
-		for (int i = 0; i < n; i++) {
-			v.append(x);
-			x = blockMix(x);
+		int len = 32 * r;
+		for (int i = 0; i < len; i++) {
+			x[i] = LittleEndian.decodeInt(b, off + i * 4);
+		}
+		for (int i = 0; i < n; i += 2) {
+			System.arraycopy(x, 0, v, i * len, len);
+			blockMix(x, y, t);
+			System.arraycopy(y, 0, v, (i + 1) * len, len);
+			blockMix(y, x, t);
 		}
-		int offset = (2 * r - 1) * 64;
-		for (int i = 0; i < n; i++) {
-			int j = LittleEndian.decodeInt(x, offset) & (n - 1);
-			x = blockMix(xor(x, v.toByteArray(j * len, len)));
+		int last = len - 16;
+		for (int i = 0; i < n; i += 2) {
+			xor(x, v, (x[last] & (n - 1)) * len);
+			blockMix(x, y, t);
+			xor(y, v, (y[last] & (n - 1)) * len);
+			blockMix(y, x, t);
+		}
+		for (int i = 0; i < len; i++) {
+			LittleEndian.encode(x[i], b, off + i * 4);
 		}
-		return x;
 	}
 
-	private byte[] blockMix(byte[] in)
+	/* Writes BlockMix(in) into out, using t as working memory. */
+	private void blockMix(int[] in, int[] out, int[] t)
 	{
-		byte[] x = slice(in, (2 * r - 1) * 64, 64);
-		ByteBuffer buffer = new ByteBuffer(128 * r);
+		System.arraycopy(in, in.length - 16, t, 0, 16);
 		for (int i = 0; i < 2 * r; i++) {
-			x = salsa20(xor(x, slice(in, i * 64, 64)), 8);
-			buffer.append(x);
-		}
-		byte[] y = buffer.toByteArray();
-		byte[] b = new byte[in.length];
-		for (int i = 0; i < r; i++) {
-			System.arraycopy(y, (i * 2) * 64, b, i * 64, 64);
-		}
-		for (int i = 0; i < r; i++) {
-			System.arraycopy(y, (i * 2 + 1) * 64, b, (i + r) * 64, 64);
+			for (int k = 0; k < 16; k++) {
+				t[k] ^= in[i * 16 + k];
+			}
+			salsa20(t);
+			int j = (i >>> 1) + (i & 1) * r;
+			System.arraycopy(t, 0, out, j * 16, 16);
 		}
-		return b;
 	}
 
-	private byte[] salsa20(byte[] buf, int rounds)
+	/* Applies, in place, the Salsa20/8 core to the given 16 words. */
+	private void salsa20(int[] b)
 	{
-		int[] in = new int[16];
-		for (int i = 0; i < 16; i++) {
-			in[i] = LittleEndian.decodeInt(buf, i * 4);
-		}
-		int[] x = Arrays.copyOf(in, in.length);
-		for (int i = rounds; i > 0; i -= 2) {
-			x[ 4] ^= Integer.rotateLeft(x[ 0] + x[12], 7);
-			x[ 8] ^= Integer.rotateLeft(x[ 4] + x[ 0], 9);
-			x[12] ^= Integer.rotateLeft(x[ 8] + x[ 4], 13);
-			x[ 0] ^= Integer.rotateLeft(x[12] + x[ 8], 18);
-			x[ 9] ^= Integer.rotateLeft(x[ 5] + x[ 1], 7);
-			x[13] ^= Integer.rotateLeft(x[ 9] + x[ 5], 9);
-			x[ 1] ^= Integer.rotateLeft(x[13] + x[ 9], 13);
-			x[ 5] ^= Integer.rotateLeft(x[ 1] + x[13], 18);
-			x[14] ^= Integer.rotateLeft(x[10] + x[ 6], 7);
-			x[ 2] ^= Integer.rotateLeft(x[14] + x[10], 9);
-			x[ 6] ^= Integer.rotateLeft(x[ 2] + x[14], 13);
-			x[10] ^= Integer.rotateLeft(x[ 6] + x[ 2], 18);
-			x[ 3] ^= Integer.rotateLeft(x[15] + x[11], 7);
-			x[ 7] ^= Integer.rotateLeft(x[ 3] + x[15], 9);
-			x[11] ^= Integer.rotateLeft(x[ 7] + x[ 3], 13);
-			x[15] ^= Integer.rotateLeft(x[11] + x[ 7], 18);
-			x[ 1] ^= Integer.rotateLeft(x[ 0] + x[ 3], 7);
-			x[ 2] ^= Integer.rotateLeft(x[ 1] + x[ 0], 9);
-			x[ 3] ^= Integer.rotateLeft(x[ 2] + x[ 1], 13);
-			x[ 0] ^= Integer.rotateLeft(x[ 3] + x[ 2], 18);
-			x[ 6] ^= Integer.rotateLeft(x[ 5] + x[ 4], 7);
-			x[ 7] ^= Integer.rotateLeft(x[ 6] + x[ 5], 9);
-			x[ 4] ^= Integer.rotateLeft(x[ 7] + x[ 6], 13);
-			x[ 5] ^= Integer.rotateLeft(x[ 4] + x[ 7], 18);
-			x[11] ^= Integer.rotateLeft(x[10] + x[ 9], 7);
-			x[ 8] ^= Integer.rotateLeft(x[11] + x[10], 9);
-			x[ 9] ^= Integer.rotateLeft(x[ 8] + x[11], 13);
-			x[10] ^= Integer.rotateLeft(x[ 9] + x[ 8], 18);
-			x[12] ^= Integer.rotateLeft(x[15] + x[14], 7);
-			x[13] ^= Integer.rotateLeft(x[12] + x[15], 9);
-			x[14] ^= Integer.rotateLeft(x[13] + x[12], 13);
-			x[15] ^= Integer.rotateLeft(x[14] + x[13], 18);
-		}
-		byte[] out = new byte[64];
-		for (int i = 0; i < 16; i++) {
-			LittleEndian.encode(x[i] + in[i], out, i * 4);
+		int x0 = b[0], x1 = b[1], x2 = b[2], x3 = b[3];
+		int x4 = b[4], x5 = b[5], x6 = b[6], x7 = b[7];
+		int x8 = b[8], x9 = b[9], x10 = b[10], x11 = b[11];
+		int x12 = b[12], x13 = b[13], x14 = b[14], x15 = b[15];
+		for (int i = 8; i > 0; i -= 2) {
+			x4  ^= Integer.rotateLeft(x0  + x12, 7);
+			x8  ^= Integer.rotateLeft(x4  + x0,  9);
+			x12 ^= Integer.rotateLeft(x8  + x4,  13);
+			x0  ^= Integer.rotateLeft(x12 + x8,  18);
+			x9  ^= Integer.rotateLeft(x5  + x1,  7);
+			x13 ^= Integer.rotateLeft(x9  + x5,  9);
+			x1  ^= Integer.rotateLeft(x13 + x9,  13);
+			x5  ^= Integer.rotateLeft(x1  + x13, 18);
+			x14 ^= Integer.rotateLeft(x10 + x6,  7);
+			x2  ^= Integer.rotateLeft(x14 + x10, 9);
+			x6  ^= Integer.rotateLeft(x2  + x14, 13);
+			x10 ^= Integer.rotateLeft(x6  + x2,  18);
+			x3  ^= Integer.rotateLeft(x15 + x11, 7);
+			x7  ^= Integer.rotateLeft(x3  + x15, 9);
+			x11 ^= Integer.rotateLeft(x7  + x3,  13);
+			x15 ^= Integer.rotateLeft(x11 + x7,  18);
+			x1  ^= Integer.rotateLeft(x0  + x3,  7);
+			x2  ^= Integer.rotateLeft(x1  + x0,  9);
+			x3  ^= Integer.rotateLeft(x2  + x1,  13);
+			x0  ^= Integer.rotateLeft(x3  + x2,  18);
+			x6  ^= Integer.rotateLeft(x5  + x4,  7);
+			x7  ^= Integer.rotateLeft(x6  + x5,  9);
+			x4  ^= Integer.rotateLeft(x7  + x6,  13);
+			x5  ^= Integer.rotateLeft(x4  + x7,  18);
+			x11 ^= Integer.rotateLeft(x10 + x9,  7);
+			x8  ^= Integer.rotateLeft(x11 + x10, 9);
+			x9  ^= Integer.rotateLeft(x8  + x11, 13);
+			x10 ^= Integer.rotateLeft(x9  + x8,  18);
+			x12 ^= Integer.rotateLeft(x15 + x14, 7);
+			x13 ^= Integer.rotateLeft(x12 + x15, 9);
+			x14 ^= Integer.rotateLeft(x13 + x12, 13);
+			x15 ^= Integer.rotateLeft(x14 + x13, 18);
 		}
-		return out;
+		b[0] += x0;
+		b[1] += x1;
+		b[2] += x2;
+		b[3] += x3;
+		b[4] += x4;
+		b[5] += x5;
+		b[6] += x6;
+		b[7] += x7;
+		b[8] += x8;
+		b[9] += x9;
+		b[10] += x10;
+		b[11] += x11;
+		b[12] += x12;
+		b[13] += x13;
+		b[14] += x14;
+		b[15] += x15;
 	}
 
-	private byte[] slice(byte[] src, int off, int len)
+	/* A mixing lane, computed using its own working memory. */
+	private final class Lane implements Runnable
 	{
-		byte[] slice = new byte[len];
-		System.arraycopy(src, off, slice, 0, len);
-		return slice;
+		private final byte[] b;
+		private final int off;
+
+		Lane(byte[] b, int off)
+		{
+			this.b = b;
+			this.off = off;
+		}
+
+		@Override
+		public void run()
+		{
+			int[] x = new int[32 * r];
+			int[] y = new int[32 * r];
+			int[] v = new int[32 * r * n];
+			roMix(b, off, x, y, v, new int[16]);
+		}
 	}
 
-	private byte[] xor(byte[] x, byte[] y)
+	/* XORs x with the x.length words of v starting at off. */
+	private void xor(int[] x, int[] v, int off)
 	{
-		int len = x.length;
-		byte[] z = new byte[len];
-		for (int k = 0; k < len; k++) {
-			z[k] = (byte) (x[k] ^ y[k]);
+		for (int i = 0; i < x.length; i++) {
+			x[i] ^= v[off + i];
 		}
-		return z;
 	}
 }
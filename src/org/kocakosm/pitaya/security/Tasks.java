@@ -0,0 +1,104 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs independent computations on an {@link Executor} and waits for their
+ * completion.
+ *
+ * @author Osman KOCAK
+ */
+final class Tasks
+{
+	/**
+	 * Submits the given tasks to the given {@code Executor} and waits until
+	 * all of them have completed. If one of the tasks fails, the remaining
+	 * ones are cancelled and the failure is propagated to the caller.
+	 *
+	 * @param executor the {@code Executor} to use.
+	 * @param tasks the tasks to run.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 * @throws IllegalStateException if the current thread is interrupted
+	 *	while waiting for the tasks to complete.
+	 * @throws RuntimeException if one of the tasks throws an unchecked
+	 *	exception, it is rethrown as is.
+	 */
+	static void run(Executor executor, List<? extends Runnable> tasks)
+	{
+		List<FutureTask<Void>> futures = new ArrayList<FutureTask<Void>>();
+		try {
+			for (Runnable task : tasks) {
+				FutureTask<Void> future = new FutureTask<Void>(task, null);
+				futures.add(future);
+				executor.execute(future);
+			}
+			for (FutureTask<Void> future : futures) {
+				await(future);
+			}
+		} finally {
+			for (FutureTask<Void> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Waits for the given computation to complete and returns its result.
+	 *
+	 * @param <T> the type of the computation's result.
+	 * @param future the computation to wait for.
+	 *
+	 * @return the computation's result.
+	 *
+	 * @throws NullPointerException if {@code future} is {@code null}.
+	 * @throws IllegalStateException if the current thread is interrupted
+	 *	while waiting for the computation to complete.
+	 * @throws RuntimeException if the computation throws an unchecked
+	 *	exception, it is rethrown as is.
+	 */
+	static <T> T await(Future<T> future)
+	{
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(ex);
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private Tasks()
+	{
+		/* ... */
+	}
+}
@@ -0,0 +1,274 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Skeleton implementation of two-level tree hashing modes. The input is split
+ * into fixed-size chunks whose digests (the leaves) are absorbed, in order,
+ * into a root digest engine. Leaves are either computed on the caller's thread
+ * or, when an {@link Executor} is given, concurrently. Instances of this class
+ * are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+abstract class TreeDigest extends AbstractDigest
+{
+	/** Maximum number of chunks being hashed concurrently. */
+	private static final int MAX_PENDING = 64;
+
+	private final AbstractDigest root;
+	private final Executor executor;
+	private final LinkedList<FutureTask<byte[]>> pending;
+	private final byte[] digest;
+	private byte[] chunk;
+	private int chunkLen;
+	private long count;
+	private Digest leaf;
+
+	/**
+	 * Creates a new {@code TreeDigest}. Subclasses must call {@link #reset()}
+	 * at the end of their constructor.
+	 *
+	 * @param name the digest algorithm's name.
+	 * @param root the engine into which leaves are absorbed.
+	 * @param leafLength the length of the leaves, in bytes.
+	 * @param chunkSize the chunks' size, in bytes.
+	 * @param executor the {@code Executor} to use to compute leaves, may be
+	 *	{@code null}.
+	 *
+	 * @throws IllegalArgumentException if {@code chunkSize} is negative.
+	 */
+	TreeDigest(String name, AbstractDigest root, int leafLength,
+		int chunkSize, Executor executor)
+	{
+		super(name, root.length());
+		Parameters.checkCondition(chunkSize > 0);
+		this.root = root;
+		this.executor = executor;
+		this.pending = new LinkedList<FutureTask<byte[]>>();
+		this.digest = new byte[leafLength];
+		this.chunk = new byte[chunkSize];
+	}
+
+	/**
+	 * Returns a new, freshly reset, instance of this tree digest.
+	 *
+	 * @return a new instance of this tree digest.
+	 */
+	abstract TreeDigest newInstance();
+
+	/**
+	 * Returns a new engine with which chunks are hashed.
+	 *
+	 * @return a new leaf digest engine.
+	 */
+	abstract Digest newLeafDigest();
+
+	/**
+	 * Hashes the given chunk with the given leaf digest engine.
+	 *
+	 * @param engine the engine to use.
+	 * @param chunk the chunk to hash.
+	 * @param len the chunk's length, in bytes.
+	 * @param out the output buffer.
+	 */
+	abstract void hashChunk(Digest engine, byte[] chunk, int len, byte[] out);
+
+	/**
+	 * Absorbs the data preceding the leaves into the given (freshly reset)
+	 * root engine.
+	 *
+	 * @param root the root engine.
+	 */
+	abstract void begin(Digest root);
+
+	/**
+	 * Absorbs the data following the leaves into the given root engine.
+	 *
+	 * @param root the root engine.
+	 * @param leaves the total number of leaves.
+	 */
+	abstract void end(Digest root, long leaves);
+
+	@Override
+	public Digest reset()
+	{
+		for (FutureTask<byte[]> task : pending) {
+			task.cancel(true);
+		}
+		pending.clear();
+		chunkLen = 0;
+		count = 0;
+		begin(root.reset());
+		return this;
+	}
+
+	@Override
+	public TreeDigest copy()
+	{
+		TreeDigest copy = newInstance();
+		copy.restore(this);
+		return copy;
+	}
+
+	@Override
+	void restore(AbstractDigest state)
+	{
+		TreeDigest tree = (TreeDigest) state;
+		tree.drain();
+		reset();
+		root.restore(tree.root);
+		System.arraycopy(tree.chunk, 0, chunk, 0, tree.chunkLen);
+		chunkLen = tree.chunkLen;
+		count = tree.count;
+	}
+
+	@Override
+	void writeState(DigestState.Writer out)
+	{
+		drain();
+		byte[] state = root.exportState();
+		out.writeInt(chunk.length).writeBytes(state, 0, state.length);
+		out.writeLong(count).writeBytes(chunk, 0, chunkLen);
+	}
+
+	@Override
+	void readState(DigestState.Reader in)
+	{
+		in.check(in.readInt() == chunk.length);
+		root.importState(in.readBytes());
+		count = in.readLong();
+		in.check(count >= 0);
+		chunkLen = in.readBytes(chunk);
+		in.check(chunkLen < chunk.length);
+	}
+
+	@Override
+	public Digest update(byte input)
+	{
+		chunk[chunkLen++] = input;
+		if (chunkLen == chunk.length) {
+			processChunk();
+		}
+		return this;
+	}
+
+	@Override
+	public Digest update(byte[] input, int off, int len)
+	{
+		if (off < 0 || len < 0 || off > input.length - len) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (len > 0) {
+			int cpLen = Math.min(chunk.length - chunkLen, len);
+			System.arraycopy(input, off, chunk, chunkLen, cpLen);
+			chunkLen += cpLen;
+			off += cpLen;
+			len -= cpLen;
+			if (chunkLen == chunk.length) {
+				processChunk();
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Digest update(ByteBuffer input)
+	{
+		while (input.hasRemaining()) {
+			int cpLen = Math.min(chunk.length - chunkLen,
+				input.remaining());
+			input.get(chunk, chunkLen, cpLen);
+			chunkLen += cpLen;
+			if (chunkLen == chunk.length) {
+				processChunk();
+			}
+		}
+		return this;
+	}
+
+	@Override
+	public Digest digestInto(byte[] out, int off)
+	{
+		checkOutput(out, off);
+		if (chunkLen > 0) {
+			processChunk();
+		}
+		drain();
+		end(root, count);
+		root.digestInto(out, off);
+		return reset();
+	}
+
+	/* Waits for all pending leaves and absorbs them into the root. */
+	private void drain()
+	{
+		while (!pending.isEmpty()) {
+			root.update(Tasks.await(pending.removeFirst()));
+		}
+	}
+
+	private void processChunk()
+	{
+		count++;
+		if (executor == null) {
+			if (leaf == null) {
+				leaf = newLeafDigest();
+			}
+			hashChunk(leaf, chunk, chunkLen, digest);
+			root.update(digest);
+		} else {
+			if (pending.size() == MAX_PENDING) {
+				root.update(Tasks.await(pending.removeFirst()));
+			}
+			FutureTask<byte[]> task = new FutureTask<byte[]>(
+				new Leaf(chunk, chunkLen));
+			executor.execute(task);
+			pending.addLast(task);
+			chunk = new byte[chunk.length];
+		}
+		chunkLen = 0;
+	}
+
+	private final class Leaf implements Callable<byte[]>
+	{
+		private final byte[] chunk;
+		private final int len;
+
+		Leaf(byte[] chunk, int len)
+		{
+			this.chunk = chunk;
+			this.len = len;
+		}
+
+		@Override
+		public byte[] call()
+		{
+			byte[] out = new byte[digest.length];
+			hashChunk(newLeafDigest(), chunk, len, out);
+			return out;
+		}
+	}
+}
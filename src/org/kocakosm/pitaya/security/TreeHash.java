@@ -0,0 +1,102 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.util.BigEndian;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Tree hashing mode over any digest algorithm H. The input is split into
+ * chunks of a fixed size; the tree's digest is
+ * {@code H(0x01 || L(0) || ... || L(n - 1) || n || chunkSize)}, where
+ * {@code L(i) = H(0x00 || chunk(i))}, {@code n} is the number of chunks
+ * (encoded as a 64-bit big-endian integer) and {@code chunkSize} is encoded
+ * as a 32-bit big-endian integer. Instances of this class are not thread safe.
+ *
+ * @author Osman KOCAK
+ */
+final class TreeHash extends TreeDigest
+{
+	private static final byte LEAF = 0x00;
+	private static final byte NODE = 0x01;
+
+	private final Algorithm<Digest> algorithm;
+	private final int chunkSize;
+	private final Executor executor;
+
+	/**
+	 * Creates a new ready to use {@code TreeHash}.
+	 *
+	 * @param algorithm the digest algorithm to use.
+	 * @param chunkSize the chunks' size, in bytes.
+	 * @param executor the {@code Executor} to use to hash chunks, may be
+	 *	{@code null}, in which case chunks are hashed on the caller's
+	 *	thread.
+	 *
+	 * @throws NullPointerException if {@code algorithm} is {@code null}.
+	 * @throws IllegalArgumentException if {@code chunkSize} is negative or
+	 *	if the digest algorithm is unknown.
+	 */
+	TreeHash(Algorithm<Digest> algorithm, int chunkSize, Executor executor)
+	{
+		this(algorithm, (AbstractDigest) Factory.newDigest(algorithm),
+			chunkSize, executor);
+	}
+
+	private TreeHash(Algorithm<Digest> algorithm, AbstractDigest root,
+		int chunkSize, Executor executor)
+	{
+		super("Tree-" + algorithm, root, root.length(), chunkSize,
+			executor);
+		this.algorithm = algorithm;
+		this.chunkSize = chunkSize;
+		this.executor = executor;
+		reset();
+	}
+
+	@Override
+	TreeDigest newInstance()
+	{
+		return new TreeHash(algorithm, chunkSize, executor);
+	}
+
+	@Override
+	Digest newLeafDigest()
+	{
+		return Factory.newDigest(algorithm);
+	}
+
+	@Override
+	void hashChunk(Digest engine, byte[] chunk, int len, byte[] out)
+	{
+		engine.update(LEAF).update(chunk, 0, len).digestInto(out, 0);
+	}
+
+	@Override
+	void begin(Digest root)
+	{
+		root.update(NODE);
+	}
+
+	@Override
+	void end(Digest root, long leaves)
+	{
+		root.update(BigEndian.encode(leaves));
+		root.update(BigEndian.encode(chunkSize));
+	}
+}
@@ -0,0 +1,256 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.security;
+
+import org.kocakosm.pitaya.charset.UTF8;
+import org.kocakosm.pitaya.util.BigEndian;
+import org.kocakosm.pitaya.util.Parameters;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, expiring cache of successful password verifications, meant to
+ * sit in front of {@link Passwords#verify(char[], byte[], PasswordPolicy)}
+ * when the same credentials are verified over and over (HTTP basic
+ * authentication for instance). Entries are keyed by an HMAC-SHA256 of the
+ * stored hash and of the candidate password, computed with a random key that
+ * never leaves the instance: neither passwords nor anything that could be
+ * used to verify them elsewhere are retained. Failed verifications are never
+ * cached. Instances of this class are thread-safe.
+ *
+ * @author Osman KOCAK
+ */
+public final class VerificationCache
+{
+	private static final int KEY_LENGTH = 32;
+
+	private final int maxSize;
+	private final long ttl;
+	private final PasswordPolicy policy;
+	private final MACPool macs;
+	private final Map<Tag, Long> entries;
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+
+	/**
+	 * Creates a new {@code VerificationCache} using the default password
+	 * policy.
+	 *
+	 * @param maxSize the maximum number of cached verifications.
+	 * @param ttl the time during which a verification remains cached.
+	 * @param unit {@code ttl}'s unit.
+	 *
+	 * @throws NullPointerException if {@code unit} is {@code null}.
+	 * @throws IllegalArgumentException if {@code maxSize} or {@code ttl}
+	 *	is negative.
+	 */
+	public VerificationCache(int maxSize, long ttl, TimeUnit unit)
+	{
+		this(maxSize, ttl, unit, PasswordPolicy.DEFAULT);
+	}
+
+	/**
+	 * Creates a new {@code VerificationCache}.
+	 *
+	 * @param maxSize the maximum number of cached verifications.
+	 * @param ttl the time during which a verification remains cached.
+	 * @param unit {@code ttl}'s unit.
+	 * @param policy the password policy used for actual verifications.
+	 *
+	 * @throws NullPointerException if {@code unit} or {@code policy} is
+	 *	{@code null}.
+	 * @throws IllegalArgumentException if {@code maxSize} or {@code ttl}
+	 *	is negative.
+	 */
+	public VerificationCache(int maxSize, long ttl, TimeUnit unit,
+		PasswordPolicy policy)
+	{
+		Parameters.checkCondition(maxSize >= 0);
+		Parameters.checkCondition(ttl >= 0);
+		this.maxSize = maxSize;
+		this.ttl = unit.toNanos(ttl);
+		this.policy = Parameters.checkNotNull(policy);
+		byte[] key = new byte[KEY_LENGTH];
+		new SecureRandom().nextBytes(key);
+		this.macs = new MACPool(Algorithm.HMAC_SHA256, key);
+		Arrays.fill(key, (byte) 0);
+		this.entries = new LinkedHashMap<Tag, Long>();
+		this.hits = new AtomicLong();
+		this.misses = new AtomicLong();
+	}
+
+	/**
+	 * Verifies that the given password matches the hashed one. If this
+	 * very verification has succeeded recently, the cached result is
+	 * returned; otherwise the password is verified with
+	 * {@link Passwords#verify(char[], byte[], PasswordPolicy)} and the
+	 * result is cached if it is positive.
+	 *
+	 * @param password the password to verify.
+	 * @param hash the hashed password.
+	 *
+	 * @return whether the given password matches the hashed one.
+	 *
+	 * @throws NullPointerException if one of the arguments is {@code null}.
+	 */
+	public boolean verify(char[] password, byte[] hash)
+	{
+		Tag tag = tag(password, hash);
+		if (contains(tag)) {
+			hits.incrementAndGet();
+			return true;
+		}
+		misses.incrementAndGet();
+		boolean verified = Passwords.verify(password, hash, policy);
+		if (verified) {
+			put(tag);
+		}
+		return verified;
+	}
+
+	/**
+	 * Returns the number of verifications that were answered by the cache.
+	 *
+	 * @return the number of cache hits.
+	 */
+	public long hits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of verifications that were not answered by the
+	 * cache.
+	 *
+	 * @return the number of cache misses.
+	 */
+	public long misses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of verifications currently cached (expired ones
+	 * excluded).
+	 *
+	 * @return the number of cached verifications.
+	 */
+	public synchronized int size()
+	{
+		purge(System.nanoTime());
+		return entries.size();
+	}
+
+	/** Removes all the cached verifications. */
+	public synchronized void clear()
+	{
+		entries.clear();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "VerificationCache [size=" + size() + ", hits=" + hits()
+			+ ", misses=" + misses() + "]";
+	}
+
+	private Tag tag(char[] password, byte[] hash)
+	{
+		byte[] encoded = UTF8.encode(password);
+		MAC mac = macs.acquire();
+		try {
+			mac.update(BigEndian.encode(hash.length));
+			mac.update(hash);
+			return new Tag(mac.digest(encoded));
+		} finally {
+			macs.release(mac);
+			Arrays.fill(encoded, (byte) 0);
+		}
+	}
+
+	private synchronized boolean contains(Tag tag)
+	{
+		Long expiry = entries.get(tag);
+		if (expiry == null) {
+			return false;
+		}
+		if (expiry.longValue() - System.nanoTime() <= 0) {
+			entries.remove(tag);
+			return false;
+		}
+		return true;
+	}
+
+	private synchronized void put(Tag tag)
+	{
+		long now = System.nanoTime();
+		purge(now);
+		entries.remove(tag);
+		entries.put(tag, Long.valueOf(now + ttl));
+		Iterator<Tag> eldest = entries.keySet().iterator();
+		while (entries.size() > maxSize) {
+			eldest.next();
+			eldest.remove();
+		}
+	}
+
+	/* Entries are ordered by expiry date, since they all have the same TTL. */
+	private void purge(long now)
+	{
+		Iterator<Long> expiries = entries.values().iterator();
+		while (expiries.hasNext() && expiries.next().longValue() - now <= 0) {
+			expiries.remove();
+		}
+	}
+
+	private static final class Tag
+	{
+		private final byte[] bytes;
+		private final int hash;
+
+		Tag(byte[] bytes)
+		{
+			this.bytes = bytes;
+			this.hash = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (o == this) {
+				return true;
+			}
+			if (!(o instanceof Tag)) {
+				return false;
+			}
+			return Arrays.equals(bytes, ((Tag) o).bytes);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+/**
+ * An extendable-output function (XOF) engine, that is, a {@link Digest} whose
+ * output can be extended to any desired length. Output bytes are obtained by
+ * squeezing the engine once all the input has been given to it. Note that
+ * implementations of this interface are not meant to be thread-safe.
+ *
+ * @see Digests
+ *
+ * @author Osman KOCAK
+ */
+public interface XOF extends Digest
+{
+	/**
+	 * Squeezes the specified number of output bytes into the given array,
+	 * starting at the specified offset. The first call to this method
+	 * completes the input and subsequent calls return the following output
+	 * bytes. The engine can't be updated anymore until it is reset. Note
+	 * that {@link #digest()} squeezes the next {@link #length()} bytes and
+	 * resets the engine.
+	 *
+	 * @param out the output buffer.
+	 * @param off the output offset.
+	 * @param len the number of bytes to squeeze.
+	 *
+	 * @return this object.
+	 *
+	 * @throws NullPointerException if {@code out} is {@code null}.
+	 * @throws IndexOutOfBoundsException if {@code off} is negative or if
+	 *	{@code off + len} is greater than {@code out}'s length.
+	 */
+	XOF squeeze(byte[] out, int off, int len);
+}
@@ -223,4 +223,34 @@ public final class ArrayBagTest
 		bag2 = null;
 		assertFalse(bag1.equals(bag2));
 	}
+
+	@Test
+	public void testAddOccurrences()
+	{
+		Bag<String> bag = new ArrayBag<String>("a", "b");
+		assertEquals(1, bag.add("a", 2));
+		assertEquals(0, bag.add("c", 0));
+		assertEquals(Arrays.asList("a", "b", "a", "a"),
+			Arrays.asList(bag.toArray()));
+	}
+
+	@Test
+	public void testSetCount()
+	{
+		Bag<String> bag = new ArrayBag<String>("a", "b", "a");
+		assertEquals(2, bag.setCount("a", 1));
+		assertEquals(0, bag.setCount("c", 2));
+		assertEquals(1, bag.count("a"));
+		assertEquals(2, bag.count("c"));
+		assertEquals(4, bag.size());
+	}
+
+	@Test
+	public void testAddAllBag()
+	{
+		Bag<String> bag = new ArrayBag<String>("a");
+		assertTrue(bag.addAll(new HashBag<String>("a", "b", "a")));
+		assertEquals(3, bag.count("a"));
+		assertEquals(1, bag.count("b"));
+	}
 }
@@ -18,11 +18,17 @@ package org.kocakosm.pitaya.collection;
 
 import static org.junit.Assert.*;
 
+import org.kocakosm.pitaya.io.ObjectCodec;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -235,6 +241,109 @@ public final class ConcurrentHashBagTest
 		assertArrayEquals(in, out);
 	}
 
+	@Test
+	public void testIteratorRemoveAfterHasNext()
+	{
+		Bag<String> bag = new ConcurrentHashBag<String>("a", "b");
+		Iterator<String> iterator = bag.iterator();
+		String first = iterator.next();
+		assertTrue(iterator.hasNext());
+		iterator.remove();
+		assertEquals(1, bag.size());
+		assertFalse(bag.contains(first));
+		String second = iterator.next();
+		assertFalse(iterator.hasNext());
+		iterator.remove();
+		assertTrue(bag.isEmpty());
+		assertFalse(first.equals(second));
+	}
+
+	@Test
+	public void testIteratorRemove()
+	{
+		Bag<Long> bag = new ConcurrentHashBag<Long>(1L, 2L, 1L, 3L, 1L);
+		Iterator<Long> iterator = bag.iterator();
+		List<Long> seen = new ArrayList<Long>();
+		while (iterator.hasNext()) {
+			Long e = iterator.next();
+			seen.add(e);
+			if (e != 3L) {
+				iterator.remove();
+			}
+		}
+		Collections.sort(seen);
+		assertEquals(Arrays.asList(1L, 1L, 1L, 2L, 3L), seen);
+		assertEquals(new ConcurrentHashBag<Long>(3L), bag);
+		assertEquals(1, bag.size());
+		try {
+			bag.iterator().remove();
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals(1, bag.size());
+		}
+	}
+
+	@Test
+	public void testManyOccurrences()
+	{
+		Bag<String> bag = new ConcurrentHashBag<String>();
+		for (int i = 0; i < 1000000; i++) {
+			bag.add("hot");
+		}
+		bag.add("cold");
+		assertEquals(1000000, bag.count("hot"));
+		assertEquals(1000001, bag.size());
+		assertTrue(bag.remove("hot"));
+		assertEquals(999999, bag.count("hot"));
+		int n = 0;
+		for (String e : bag) {
+			n++;
+		}
+		assertEquals(1000000, n);
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		Bag<String> bag = new ConcurrentHashBag<String>("a", "b", "a", "c", "a");
+		assertEquals(bag, ObjectCodec.decode(ObjectCodec.encode(
+			(ConcurrentHashBag<String>) bag)));
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws Exception
+	{
+		final Bag<Integer> bag = new ConcurrentHashBag<Integer>();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run()
+				{
+					for (int j = 0; j < 20000; j++) {
+						bag.add(j % 3);
+						bag.add(j % 3);
+						bag.remove(j % 3);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(80000, bag.size());
+		assertEquals(26668, bag.count(0));
+		assertEquals(26668, bag.count(1));
+		assertEquals(26664, bag.count(2));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testAddNull()
+	{
+		new ConcurrentHashBag<String>().add(null);
+	}
+
 	@Test
 	public void testEqualsAndHashCode()
 	{
@@ -259,4 +368,96 @@ public final class ConcurrentHashBagTest
 		bag2 = null;
 		assertFalse(bag1.equals(bag2));
 	}
+
+	@Test
+	public void testAddOccurrences()
+	{
+		Bag<String> bag = new ConcurrentHashBag<String>("a", "b");
+		assertEquals(1, bag.add("a", 3));
+		assertEquals(0, bag.add("c", 2));
+		assertEquals(0, bag.add("d", 0));
+		assertEquals(4, bag.count("a"));
+		assertEquals(2, bag.count("c"));
+		assertFalse(bag.contains("d"));
+		assertEquals(7, bag.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testAddNegativeOccurrences()
+	{
+		new ConcurrentHashBag<String>().add("a", -1);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddTooManyOccurrences()
+	{
+		Bag<String> bag = new ConcurrentHashBag<String>();
+		bag.add("a", Integer.MAX_VALUE);
+		bag.add("a", 1);
+	}
+
+	@Test
+	public void testRemoveOccurrences()
+	{
+		Bag<String> bag = new ConcurrentHashBag<String>("a", "a", "a", "b");
+		assertEquals(3, bag.remove("a", 2));
+		assertEquals(1, bag.count("a"));
+		assertEquals(1, bag.remove("b", 5));
+		assertFalse(bag.contains("b"));
+		assertEquals(0, bag.remove("c", 1));
+		assertEquals(1, bag.size());
+	}
+
+	@Test
+	public void testSetCount()
+	{
+		Bag<String> bag = new ConcurrentHashBag<String>("a", "a", "b");
+		assertEquals(2, bag.setCount("a", 5));
+		assertEquals(1, bag.setCount("b", 0));
+		assertEquals(0, bag.setCount("c", 1));
+		assertEquals(5, bag.count("a"));
+		assertFalse(bag.contains("b"));
+		assertEquals(1, bag.count("c"));
+		assertEquals(6, bag.size());
+	}
+
+	@Test
+	public void testEntrySet()
+	{
+		Bag<String> bag = new ConcurrentHashBag<String>("a", "a", "b", "c", "c", "c");
+		Set<Bag.Entry<String>> entries = bag.entrySet();
+		assertEquals(3, entries.size());
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (Bag.Entry<String> entry : entries) {
+			counts.put(entry.getElement(), entry.getCount());
+		}
+		assertEquals(Integer.valueOf(2), counts.get("a"));
+		assertEquals(Integer.valueOf(1), counts.get("b"));
+		assertEquals(Integer.valueOf(3), counts.get("c"));
+
+		Iterator<Bag.Entry<String>> i = entries.iterator();
+		while (i.hasNext()) {
+			if (i.next().getElement().equals("c")) {
+				i.remove();
+			}
+		}
+		assertFalse(bag.contains("c"));
+		assertEquals(3, bag.size());
+		assertEquals(2, entries.size());
+	}
+
+	@Test
+	public void testAddAllBag()
+	{
+		Bag<String> bag = new ConcurrentHashBag<String>("a", "b");
+		Bag<String> other = new ConcurrentHashBag<String>();
+		other.add("a", 1000000);
+		other.add("c", 2);
+		assertTrue(bag.addAll(other));
+		assertEquals(1000001, bag.count("a"));
+		assertEquals(1, bag.count("b"));
+		assertEquals(2, bag.count("c"));
+		assertEquals(1000004, bag.size());
+		assertFalse(bag.addAll(new ConcurrentHashBag<String>()));
+	}
 }
@@ -20,7 +20,10 @@ import static org.junit.Assert.*;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Test;
 
@@ -242,4 +245,70 @@ public final class CopyOnWriteArrayBagTest
 		bag2 = null;
 		assertFalse(bag1.equals(bag2));
 	}
+
+	@Test
+	public void testAddOccurrences()
+	{
+		Bag<String> bag = new CopyOnWriteArrayBag<String>("a", "b");
+		assertEquals(1, bag.add("a", 2));
+		assertEquals(0, bag.add("c", 0));
+		assertEquals(Arrays.asList("a", "b", "a", "a"),
+			Arrays.asList(bag.toArray()));
+	}
+
+	@Test
+	public void testSetCount()
+	{
+		Bag<String> bag = new CopyOnWriteArrayBag<String>("a", "b", "a");
+		assertEquals(2, bag.setCount("a", 1));
+		assertEquals(0, bag.setCount("c", 2));
+		assertEquals(1, bag.count("a"));
+		assertEquals(2, bag.count("c"));
+		assertEquals(4, bag.size());
+	}
+
+	@Test
+	public void testAddAllBag()
+	{
+		Bag<String> bag = new CopyOnWriteArrayBag<String>("a");
+		assertTrue(bag.addAll(new HashBag<String>("a", "b", "a")));
+		assertEquals(3, bag.count("a"));
+		assertEquals(1, bag.count("b"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddOccurrencesOverflow()
+	{
+		new CopyOnWriteArrayBag<String>("a").add("a", Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testConcurrentSetCount() throws Exception
+	{
+		final Bag<String> bag = new CopyOnWriteArrayBag<String>("x", "x",
+			"x");
+		final Set<Integer> previous = Collections.newSetFromMap(
+			new ConcurrentHashMap<Integer, Boolean>());
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run()
+				{
+					for (int j = 0; j < 500; j++) {
+						bag.setCount("x", j % 7);
+						bag.setCount("x", 50);
+						previous.add(bag.add("y", 1));
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(50, bag.count("x"));
+		assertEquals(2000, bag.count("y"));
+		assertEquals(2000, previous.size());
+	}
 }
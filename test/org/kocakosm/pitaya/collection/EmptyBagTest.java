@@ -128,4 +128,16 @@ public final class EmptyBagTest
 		bag2 = null;
 		assertFalse(bag1.equals(bag2));
 	}
+
+	@Test
+	public void testEntrySet()
+	{
+		assertTrue(Bags.emptyBag().entrySet().isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSetCount()
+	{
+		Bags.<String>emptyBag().setCount("Hello", 1);
+	}
 }
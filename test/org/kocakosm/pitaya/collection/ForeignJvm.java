@@ -0,0 +1,85 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import org.kocakosm.pitaya.io.ByteStreams;
+import org.kocakosm.pitaya.io.ObjectCodec;
+import org.kocakosm.pitaya.util.BaseEncoding;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deserializes collections in a fresh JVM, where hash codes of enums and
+ * identity-hashed objects differ from the ones of the current JVM, and checks
+ * that they are still consistent with a {@code HashMap} or {@code HashSet}
+ * built in that JVM.
+ *
+ * @author Osman KOCAK
+ */
+final class ForeignJvm
+{
+	/**
+	 * Returns whether the given {@code Map} or {@code Set}, once
+	 * deserialized in a fresh JVM, is still equal to a copy of itself.
+	 *
+	 * @param collection the {@code Map} or {@code Set} to check.
+	 *
+	 * @return whether the deserialized collection is consistent.
+	 *
+	 * @throws Exception if the child JVM can't be run.
+	 */
+	static boolean isConsistent(Serializable collection) throws Exception
+	{
+		String java = System.getProperty("java.home") + File.separator
+			+ "bin" + File.separator + "java";
+		String data = BaseEncoding.BASE_16.encode(
+			ObjectCodec.encode(collection));
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp",
+			System.getProperty("java.class.path"),
+			ForeignJvm.class.getName(), data);
+		Process process = builder.redirectErrorStream(true).start();
+		ByteStreams.read(process.getInputStream());
+		return process.waitFor() == 0;
+	}
+
+	public static void main(String... args) throws IOException
+	{
+		Object o = ObjectCodec.decode(BaseEncoding.BASE_16.decode(args[0]));
+		boolean consistent;
+		if (o instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) o;
+			Map<?, ?> copy = new HashMap<Object, Object>(map);
+			consistent = map.equals(copy) && copy.equals(map);
+		} else {
+			Set<?> set = (Set<?>) o;
+			Set<?> copy = new HashSet<Object>(set);
+			consistent = set.equals(copy) && copy.equals(set);
+		}
+		System.exit(consistent ? 0 : 1);
+	}
+
+	private ForeignJvm()
+	{
+		/* ... */
+	}
+}
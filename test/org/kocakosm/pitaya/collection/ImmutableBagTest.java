@@ -18,8 +18,14 @@ package org.kocakosm.pitaya.collection;
 
 import static org.junit.Assert.*;
 
+import org.kocakosm.pitaya.io.ObjectCodec;
+import org.kocakosm.pitaya.util.BaseEncoding;
+
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Test;
@@ -31,6 +37,18 @@ import org.junit.Test;
  */
 public final class ImmutableBagTest
 {
+	/* Serialized by an earlier version, whose serial form must be kept. */
+	private static final String LEGACY_FORM =
+		"ACED00057372002B6F72672E6B6F63616B6F736D2E7069746179612E636F"
+		+ "6C6C656374696F6E2E496D6D757461626C6542616702B250D010F9445A02"
+		+ "00014C0005696E6E65727400244C6F72672F6B6F63616B6F736D2F706974"
+		+ "6179612F636F6C6C656374696F6E2F4261673B7870737200276F72672E6B"
+		+ "6F63616B6F736D2E7069746179612E636F6C6C656374696F6E2E41727261"
+		+ "794261671CC011FD838ABDD00200014C0007656E74726965737400104C6A"
+		+ "6176612F7574696C2F4C6973743B7870737200136A6176612E7574696C2E"
+		+ "41727261794C6973747881D21D99C7619D03000149000473697A65787000"
+		+ "000004770400000004740001617400016271007E00087400016378";
+
 	@Test
 	public void testBuilder()
 	{
@@ -180,4 +198,76 @@ public final class ImmutableBagTest
 		String[] out = ImmutableBag.copyOf(in).toArray(new String[0]);
 		assertArrayEquals(in, out);
 	}
+
+	@Test
+	public void testBuilderOccurrences()
+	{
+		Bag<String> bag = new ImmutableBag.Builder<String>()
+			.add("A", 3).add("B").add("A", 0)
+			.add(new HashBag<String>("A", "C")).build();
+		assertEquals(4, bag.count("A"));
+		assertEquals(1, bag.count("B"));
+		assertEquals(1, bag.count("C"));
+		assertEquals(6, bag.size());
+	}
+
+	@Test
+	public void testEntrySet()
+	{
+		Bag<String> bag = ImmutableBag.of("A", "B", "A");
+		assertEquals(new HashSet<Bag.Entry<String>>(
+			new HashBag<String>("A", "A", "B").entrySet()),
+			bag.entrySet());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testEntrySetRemove()
+	{
+		Iterator<Bag.Entry<String>> i = ImmutableBag.of("A")
+			.entrySet().iterator();
+		i.next();
+		i.remove();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAddOccurrences()
+	{
+		ImmutableBag.of().add("Hello", 2);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSetCount()
+	{
+		ImmutableBag.<String>of("Hello").setCount("Hello", 2);
+	}
+
+	@Test
+	public void testIterationOrder()
+	{
+		Bag<String> bag = ImmutableBag.of("a", "b", "a", "c");
+		assertEquals(Arrays.asList("a", "a", "b", "c"),
+			new ArrayList<String>(bag));
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		Bag<String> bag = ImmutableBag.of("a", "b", "a", "c", null);
+		Bag<String> copy = (Bag<String>) ObjectCodec.decode(
+			ObjectCodec.encode((ImmutableBag<String>) bag));
+		assertEquals(bag, copy);
+		assertEquals(new ArrayList<String>(bag),
+			new ArrayList<String>(copy));
+	}
+
+	@Test
+	public void testLegacySerialForm()
+	{
+		Bag<String> bag = (Bag<String>) ObjectCodec.decode(
+			BaseEncoding.BASE_16.decode(LEGACY_FORM));
+		assertTrue(bag instanceof ImmutableBag);
+		assertEquals(ImmutableBag.of("a", "b", "a", "c"), bag);
+		assertEquals(Arrays.asList("a", "a", "b", "c"),
+			new ArrayList<String>(bag));
+	}
 }
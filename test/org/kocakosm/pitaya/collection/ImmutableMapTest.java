@@ -18,10 +18,19 @@ package org.kocakosm.pitaya.collection;
 
 import static org.junit.Assert.*;
 
+import org.kocakosm.pitaya.io.ObjectCodec;
+import org.kocakosm.pitaya.util.BaseEncoding;
+
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -32,6 +41,22 @@ import org.junit.Test;
  */
 public final class ImmutableMapTest
 {
+	/* Serialized by an earlier version, whose serial form must be kept. */
+	private static final String LEGACY_FORM =
+		"ACED00057372002B6F72672E6B6F63616B6F736D2E7069746179612E636F"
+		+ "6C6C656374696F6E2E496D6D757461626C654D6170065D6F33815D444B02"
+		+ "00014C0005696E6E657274000F4C6A6176612F7574696C2F4D61703B7870"
+		+ "737200176A6176612E7574696C2E4C696E6B6564486173684D617034C04E"
+		+ "5C106CC0FB0200015A000B6163636573734F72646572787200116A617661"
+		+ "2E7574696C2E486173684D61700507DAC1C31660D103000246000A6C6F61"
+		+ "64466163746F724900097468726573686F6C6478703F4000000000000C77"
+		+ "0800000010000000067400026B30737200116A6176612E6C616E672E496E"
+		+ "746567657212E2A0A4F781873802000149000576616C7565787200106A61"
+		+ "76612E6C616E672E4E756D62657286AC951D0B94E08B0200007870000000"
+		+ "007400026B317371007E0007000000017400026B327371007E0007000000"
+		+ "027400026B337371007E0007000000037400026B347371007E0007000000"
+		+ "047400026B357371007E0007000000057800";
+
 	@Test
 	public void testBuilder()
 	{
@@ -164,4 +189,138 @@ public final class ImmutableMapTest
 		Map<Long, Long> copy = ImmutableMap.copyOf(in);
 		assertEquals(Arrays.asList(10L, 20L), new ArrayList<Long>(copy.values()));
 	}
+
+	@Test
+	public void testLargeMap()
+	{
+		ImmutableMap.Builder<Integer, String> builder =
+			new ImmutableMap.Builder<Integer, String>();
+		List<Integer> keys = new ArrayList<Integer>();
+		for (int i = 100; i > -100; i--) {
+			builder.put(i * 31, String.valueOf(i));
+			keys.add(i * 31);
+		}
+		builder.put(null, "null");
+		keys.add(null);
+		Map<Integer, String> map = builder.build();
+		assertEquals(201, map.size());
+		assertEquals(keys, new ArrayList<Integer>(map.keySet()));
+		for (int i = 100; i > -100; i--) {
+			assertEquals(String.valueOf(i), map.get(i * 31));
+		}
+		assertEquals("null", map.get(null));
+		assertNull(map.get(1));
+		assertFalse(map.containsKey(1));
+		assertFalse(map.containsKey("31"));
+		assertTrue(map.containsValue("-99"));
+	}
+
+	@Test
+	public void testSmallMaps()
+	{
+		Map<String, Integer> in = new LinkedHashMap<String, Integer>();
+		for (int i = 0; i <= 5; i++) {
+			Map<String, Integer> map = ImmutableMap.copyOf(in);
+			assertEquals(in, map);
+			assertEquals(in.hashCode(), map.hashCode());
+			assertEquals(new ArrayList<String>(in.keySet()),
+				new ArrayList<String>(map.keySet()));
+			assertFalse(map.containsKey("x"));
+			in.put(i == 2 ? null : "k" + i, i);
+		}
+	}
+
+	@Test
+	public void testCopyOfPreservesKeyEquality()
+	{
+		Map<String, Integer> in = new IdentityHashMap<String, Integer>();
+		in.put(new String("a"), 1);
+		in.put(new String("a"), 2);
+		assertEquals(1, ImmutableMap.copyOf(in).size());
+	}
+
+	@Test
+	public void testViews()
+	{
+		Map<Long, Long> map = new ImmutableMap.Builder<Long, Long>()
+			.put(1L, 10L).put(2L, 20L).build();
+		assertSame(map.keySet(), map.keySet());
+		assertSame(map.values(), map.values());
+		assertSame(map.entrySet(), map.entrySet());
+		assertTrue(map.entrySet().contains(
+			new AbstractMap.SimpleEntry<Long, Long>(2L, 20L)));
+		assertFalse(map.entrySet().contains(
+			new AbstractMap.SimpleEntry<Long, Long>(2L, 10L)));
+		assertTrue(map.values().contains(10L));
+		assertSame(map, ImmutableMap.copyOf(map));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testKeySetIteratorRemove()
+	{
+		Map<Long, Long> map = new ImmutableMap.Builder<Long, Long>()
+			.put(1L, 10L).build();
+		Iterator<Long> i = map.keySet().iterator();
+		i.next();
+		i.remove();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testEntrySetValue()
+	{
+		Map<Long, Long> map = new ImmutableMap.Builder<Long, Long>()
+			.put(1L, 10L).build();
+		map.entrySet().iterator().next().setValue(20L);
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		Map<Integer, Integer> in = new LinkedHashMap<Integer, Integer>();
+		for (int i = 0; i < 10; i++) {
+			in.put(i, i * i);
+		}
+		Map<Integer, Integer> map = ImmutableMap.copyOf(in);
+		byte[] bytes = ObjectCodec.encode(
+			(ImmutableMap<Integer, Integer>) map);
+		Map<Integer, Integer> copy =
+			(Map<Integer, Integer>) ObjectCodec.decode(bytes);
+		assertEquals(map, copy);
+		assertEquals(new ArrayList<Integer>(map.keySet()),
+			new ArrayList<Integer>(copy.keySet()));
+	}
+
+	@Test
+	public void testSerializationAcrossJvms() throws Exception
+	{
+		Map<TimeUnit, Integer> in = new LinkedHashMap<TimeUnit, Integer>();
+		for (TimeUnit unit : TimeUnit.values()) {
+			in.put(unit, unit.ordinal());
+		}
+		Map<TimeUnit, Integer> map = ImmutableMap.copyOf(in);
+		assertTrue(ForeignJvm.isConsistent((ImmutableMap<TimeUnit, Integer>) map));
+	}
+
+	@Test
+	public void testEmptySerialization()
+	{
+		Map<String, String> map = ImmutableMap.copyOf(
+			new HashMap<String, String>());
+		assertSame(map, ObjectCodec.decode(
+			ObjectCodec.encode((ImmutableMap<String, String>) map)));
+	}
+
+	@Test
+	public void testLegacySerialForm()
+	{
+		Map<String, Integer> map = (Map<String, Integer>) ObjectCodec.decode(
+			BaseEncoding.BASE_16.decode(LEGACY_FORM));
+		assertTrue(map instanceof ImmutableMap);
+		assertEquals(Arrays.asList("k0", "k1", "k2", "k3", "k4", "k5"),
+			new ArrayList<String>(map.keySet()));
+		assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5),
+			new ArrayList<Integer>(map.values()));
+		assertEquals(Integer.valueOf(3), map.get("k3"));
+		assertFalse(map.containsKey("k6"));
+	}
 }
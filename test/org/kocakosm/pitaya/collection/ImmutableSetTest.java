@@ -18,11 +18,17 @@ package org.kocakosm.pitaya.collection;
 
 import static org.junit.Assert.*;
 
+import org.kocakosm.pitaya.io.ObjectCodec;
+import org.kocakosm.pitaya.util.BaseEncoding;
+
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -33,6 +39,16 @@ import org.junit.Test;
  */
 public final class ImmutableSetTest
 {
+	/* Serialized by an earlier version, whose serial form must be kept. */
+	private static final String LEGACY_FORM =
+		"ACED00057372002B6F72672E6B6F63616B6F736D2E7069746179612E636F"
+		+ "6C6C656374696F6E2E496D6D757461626C655365745D97D5A44F04F2BE02"
+		+ "00014C0005696E6E657274000F4C6A6176612F7574696C2F5365743B7870"
+		+ "737200176A6176612E7574696C2E4C696E6B656448617368536574D86CD7"
+		+ "5A95DD2A1E020000787200116A6176612E7574696C2E48617368536574BA"
+		+ "44859596B8B7340300007870770C000000103F4000000000000674000165"
+		+ "740001647400016374000162740001617400016678";
+
 	@Test
 	public void testBuilder()
 	{
@@ -169,6 +185,91 @@ public final class ImmutableSetTest
 		assertArrayEquals(in, out);
 	}
 
+	@Test
+	public void testLargeSet()
+	{
+		List<Integer> in = new ArrayList<Integer>();
+		for (int i = 100; i > -100; i--) {
+			in.add(i * 31);
+		}
+		in.add(null);
+		Set<Integer> set = ImmutableSet.copyOf(in);
+		assertEquals(201, set.size());
+		assertEquals(in, new ArrayList<Integer>(set));
+		for (Integer e : in) {
+			assertTrue(set.contains(e));
+		}
+		assertFalse(set.contains(1));
+		assertFalse(set.contains("31"));
+		assertEquals(new HashSet<Integer>(in), set);
+		assertEquals(new HashSet<Integer>(in).hashCode(), set.hashCode());
+	}
+
+	@Test
+	public void testSmallSets()
+	{
+		List<String> in = new ArrayList<String>();
+		for (int i = 0; i <= 5; i++) {
+			Set<String> set = ImmutableSet.copyOf(in);
+			assertEquals(new HashSet<String>(in), set);
+			assertEquals(in, new ArrayList<String>(set));
+			assertFalse(set.contains("x"));
+			in.add(i == 2 ? null : "e" + i);
+		}
+	}
+
+	@Test
+	public void testCopyOfImmutableSet()
+	{
+		Set<String> set = ImmutableSet.of("a", "b");
+		assertSame(set, ImmutableSet.copyOf(set));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testIteratorRemove()
+	{
+		Iterator<String> i = ImmutableSet.of("a").iterator();
+		i.next();
+		i.remove();
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		Set<String> set = ImmutableSet.of("a", "b", "c", "d", "e", "f");
+		Set<String> copy = (Set<String>) ObjectCodec.decode(
+			ObjectCodec.encode((ImmutableSet<String>) set));
+		assertEquals(set, copy);
+		assertEquals(new ArrayList<String>(set), new ArrayList<String>(copy));
+	}
+
+	@Test
+	public void testSerializationAcrossJvms() throws Exception
+	{
+		Set<TimeUnit> set = ImmutableSet.of(TimeUnit.values());
+		assertTrue(ForeignJvm.isConsistent((ImmutableSet<TimeUnit>) set));
+	}
+
+	@Test
+	public void testEmptySerialization()
+	{
+		Set<String> set = ImmutableSet.of();
+		assertSame(set, ObjectCodec.decode(
+			ObjectCodec.encode((ImmutableSet<String>) set)));
+	}
+
+	@Test
+	public void testLegacySerialForm()
+	{
+		Set<String> set = (Set<String>) ObjectCodec.decode(
+			BaseEncoding.BASE_16.decode(LEGACY_FORM));
+		assertTrue(set instanceof ImmutableSet);
+		assertEquals(Arrays.asList("e", "d", "c", "b", "a", "f"),
+			new ArrayList<String>(set));
+		assertTrue(set.contains("c"));
+		assertFalse(set.contains("g"));
+	}
+
 	private <T> Set<T> asSet(T... values)
 	{
 		return new HashSet<T>(Arrays.asList(values));
@@ -0,0 +1,242 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.io.ObjectCodec;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link IntHashBag}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class IntHashBagTest
+{
+	@Test
+	public void testAdd()
+	{
+		IntHashBag bag = new IntHashBag();
+		assertTrue(bag.add(0));
+		assertTrue(bag.add(0));
+		assertTrue(bag.add(-7));
+		assertEquals(2, bag.count(0));
+		assertEquals(1, bag.count(-7));
+		assertEquals(3, bag.size());
+		assertEquals(2, bag.distinct());
+	}
+
+	@Test
+	public void testAddOccurrences()
+	{
+		IntHashBag bag = new IntHashBag(1, 2);
+		assertEquals(1, bag.add(1, 3));
+		assertEquals(0, bag.add(3, 2));
+		assertEquals(0, bag.add(4, 0));
+		assertEquals(4, bag.count(1));
+		assertFalse(bag.contains(4));
+		assertEquals(7, bag.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAddTooManyOccurrences()
+	{
+		IntHashBag bag = new IntHashBag();
+		bag.add(1, Integer.MAX_VALUE);
+		bag.add(1);
+	}
+
+	@Test
+	public void testRemove()
+	{
+		IntHashBag bag = new IntHashBag(1, 1, 2);
+		assertTrue(bag.remove(1));
+		assertEquals(1, bag.count(1));
+		assertFalse(bag.remove(3));
+		assertEquals(1, bag.remove(1, 5));
+		assertFalse(bag.contains(1));
+		assertEquals(1, bag.size());
+		assertEquals(1, bag.distinct());
+	}
+
+	@Test
+	public void testSetCount()
+	{
+		IntHashBag bag = new IntHashBag(1, 1, 2);
+		assertEquals(2, bag.setCount(1, 5));
+		assertEquals(1, bag.setCount(2, 0));
+		assertEquals(0, bag.setCount(3, 1));
+		assertEquals(5, bag.count(1));
+		assertFalse(bag.contains(2));
+		assertEquals(6, bag.size());
+	}
+
+	@Test
+	public void testClear()
+	{
+		IntHashBag bag = new IntHashBag(1, 2, 3);
+		bag.clear();
+		assertTrue(bag.isEmpty());
+		assertEquals(0, bag.distinct());
+		assertFalse(bag.contains(1));
+	}
+
+	@Test
+	public void testForEach()
+	{
+		IntHashBag bag = new IntHashBag(1, 2, 2, 3, 3, 3);
+		final Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+		bag.forEach(new IntHashBag.Visitor() {
+			@Override
+			public void visit(int e, int count)
+			{
+				counts.put(e, count);
+			}
+		});
+		assertEquals(3, counts.size());
+		assertEquals(Integer.valueOf(1), counts.get(1));
+		assertEquals(Integer.valueOf(2), counts.get(2));
+		assertEquals(Integer.valueOf(3), counts.get(3));
+	}
+
+	@Test
+	public void testRandomOperations()
+	{
+		Random rnd = new Random(42);
+		IntHashBag bag = new IntHashBag();
+		Map<Integer, Integer> model = new HashMap<Integer, Integer>();
+		long size = 0;
+		for (int i = 0; i < 200000; i++) {
+			int e = rnd.nextInt(5000) * 1024;
+			Integer count = model.get(e);
+			int current = count == null ? 0 : count;
+			int n = rnd.nextInt(4);
+			switch (rnd.nextInt(3)) {
+			case 0:
+				assertEquals(current, bag.add(e, n));
+				current += n;
+				size += n;
+				break;
+			case 1:
+				assertEquals(current, bag.remove(e, n));
+				size -= Math.min(current, n);
+				current = Math.max(0, current - n);
+				break;
+			default:
+				assertEquals(current, bag.setCount(e, n));
+				size += n - current;
+				current = n;
+			}
+			if (current == 0) {
+				model.remove(e);
+			} else {
+				model.put(e, current);
+			}
+		}
+		assertEquals(size, bag.size());
+		assertEquals(model.size(), bag.distinct());
+		for (Map.Entry<Integer, Integer> entry : model.entrySet()) {
+			assertEquals(entry.getValue().intValue(),
+				bag.count(entry.getKey()));
+		}
+	}
+
+	@Test
+	public void testAsBag()
+	{
+		IntHashBag bag = new IntHashBag(1, 2, 2);
+		Bag<Integer> view = bag.asBag();
+		assertEquals(new HashBag<Integer>(1, 2, 2), view);
+		assertEquals(2, view.count(2));
+		assertEquals(0, view.count(null));
+		assertFalse(view.contains("2"));
+		view.add(3, 2);
+		assertEquals(2, bag.count(3));
+		assertTrue(view.remove(Integer.valueOf(1)));
+		assertFalse(bag.contains(1));
+		view.addAll(new HashBag<Integer>(2, 4));
+		assertEquals(3, bag.count(2));
+		assertEquals(1, bag.count(4));
+		assertEquals(3, view.entrySet().size());
+		assertTrue(view.retainAll(Arrays.asList(2, 3)));
+		assertEquals(new HashBag<Integer>(2, 2, 2, 3, 3), view);
+		assertTrue(view.removeAll(Arrays.asList(3)));
+		assertEquals(3, bag.size());
+	}
+
+	@Test
+	public void testAsBagIteratorsAreFailFast()
+	{
+		IntHashBag bag = new IntHashBag(1, 2, 2);
+		Iterator<Integer> elements = bag.asBag().iterator();
+		Iterator<Bag.Entry<Integer>> entries =
+			bag.asBag().entrySet().iterator();
+		elements.next();
+		entries.next();
+		bag.add(2);
+		try {
+			elements.next();
+			fail();
+		} catch (ConcurrentModificationException e) {
+			assertEquals(3, bag.count(2));
+		}
+		try {
+			entries.next();
+			fail();
+		} catch (ConcurrentModificationException e) {
+			assertEquals(4, bag.size());
+		}
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		IntHashBag bag = new IntHashBag(1, 2, 2, 0, -5);
+		assertEquals(bag, ObjectCodec.decode(ObjectCodec.encode(bag)));
+	}
+
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		IntHashBag bag1 = new IntHashBag(1, 2, 3, 1, 2, 3);
+		IntHashBag bag2 = new IntHashBag(3, 1, 2, 3, 1, 2);
+		IntHashBag bag3 = new IntHashBag(1, 2, 3, 1, 2);
+
+		assertTrue(bag1.equals(bag1));
+		assertTrue(bag1.equals(bag2));
+		assertTrue(bag2.equals(bag1));
+		assertTrue(bag1.hashCode() == bag2.hashCode());
+		assertFalse(bag1.equals(bag3));
+		assertFalse(bag3.equals(bag1));
+		assertFalse(bag1.equals(null));
+	}
+
+	@Test
+	public void testToString()
+	{
+		assertEquals("[1, 1]", new IntHashBag(1, 1).toString());
+	}
+}
@@ -0,0 +1,179 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.io.ObjectCodec;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * {@link IntHashSet}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class IntHashSetTest
+{
+	@Test
+	public void testAdd()
+	{
+		IntHashSet set = new IntHashSet();
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertTrue(set.add(-7));
+		assertFalse(set.add(-7));
+		assertTrue(set.contains(0));
+		assertTrue(set.contains(-7));
+		assertEquals(2, set.size());
+	}
+
+	@Test
+	public void testRemove()
+	{
+		IntHashSet set = new IntHashSet(0, 1, 2);
+		assertTrue(set.remove(0));
+		assertFalse(set.remove(0));
+		assertTrue(set.remove(1));
+		assertFalse(set.remove(3));
+		assertEquals(1, set.size());
+		assertTrue(set.contains(2));
+	}
+
+	@Test
+	public void testClear()
+	{
+		IntHashSet set = new IntHashSet(0, 1, 2);
+		set.clear();
+		assertTrue(set.isEmpty());
+		assertFalse(set.contains(0));
+		assertFalse(set.contains(1));
+	}
+
+	@Test
+	public void testForEach()
+	{
+		final Set<Integer> elements = new HashSet<Integer>();
+		new IntHashSet(0, 1, 2).forEach(new IntHashSet.Visitor() {
+			@Override
+			public void visit(int e)
+			{
+				elements.add(e);
+			}
+		});
+		assertEquals(new HashSet<Integer>(Arrays.asList(0, 1, 2)),
+			elements);
+	}
+
+	@Test
+	public void testToArray()
+	{
+		int[] elements = new IntHashSet(3, 0, 1).toArray();
+		Arrays.sort(elements);
+		assertArrayEquals(new int[]{0, 1, 3}, elements);
+	}
+
+	@Test
+	public void testRandomOperations()
+	{
+		Random rnd = new Random(42);
+		IntHashSet set = new IntHashSet();
+		Set<Integer> model = new HashSet<Integer>();
+		for (int i = 0; i < 200000; i++) {
+			int e = (rnd.nextInt(5000) - 100) * 1024;
+			if (rnd.nextBoolean()) {
+				assertEquals(model.add(e), set.add(e));
+			} else {
+				assertEquals(model.remove(e), set.remove(e));
+			}
+		}
+		assertEquals(model, set.asSet());
+	}
+
+	@Test
+	public void testAsSet()
+	{
+		IntHashSet set = new IntHashSet(0, 1, 2);
+		Set<Integer> view = set.asSet();
+		assertEquals(new HashSet<Integer>(Arrays.asList(0, 1, 2)), view);
+		assertEquals(new HashSet<Integer>(Arrays.asList(0, 1, 2))
+			.hashCode(), view.hashCode());
+		assertFalse(view.contains("1"));
+		assertTrue(view.add(3));
+		assertTrue(set.contains(3));
+		assertTrue(view.remove(0));
+		assertFalse(set.contains(0));
+		assertTrue(view.retainAll(Arrays.asList(1, 2)));
+		assertTrue(view.removeAll(Arrays.asList(2)));
+		assertEquals(1, set.size());
+		assertTrue(set.contains(1));
+	}
+
+	@Test
+	public void testAsSetIteratorIsFailFast()
+	{
+		IntHashSet set = new IntHashSet(0, 1, 2);
+		Iterator<Integer> elements = set.asSet().iterator();
+		elements.next();
+		set.remove(2);
+		try {
+			elements.next();
+			fail();
+		} catch (ConcurrentModificationException e) {
+			assertEquals(2, set.size());
+		}
+		elements = set.asSet().iterator();
+		assertTrue(elements.hasNext());
+		set.clear();
+		try {
+			elements.next();
+			fail();
+		} catch (ConcurrentModificationException e) {
+			assertTrue(set.isEmpty());
+		}
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		IntHashSet set = new IntHashSet(0, 1, 2, -5);
+		assertEquals(set, ObjectCodec.decode(ObjectCodec.encode(set)));
+	}
+
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		IntHashSet set1 = new IntHashSet(0, 1, 2);
+		IntHashSet set2 = new IntHashSet(2, 1, 0);
+		IntHashSet set3 = new IntHashSet(1, 2);
+
+		assertTrue(set1.equals(set1));
+		assertTrue(set1.equals(set2));
+		assertTrue(set2.equals(set1));
+		assertTrue(set1.hashCode() == set2.hashCode());
+		assertFalse(set1.equals(set3));
+		assertFalse(set3.equals(set1));
+		assertFalse(set1.equals(null));
+	}
+}
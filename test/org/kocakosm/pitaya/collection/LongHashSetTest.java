@@ -0,0 +1,179 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.io.ObjectCodec;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * {@link LongHashSet}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class LongHashSetTest
+{
+	@Test
+	public void testAdd()
+	{
+		LongHashSet set = new LongHashSet();
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertTrue(set.add(-7));
+		assertFalse(set.add(-7));
+		assertTrue(set.contains(0));
+		assertTrue(set.contains(-7));
+		assertEquals(2, set.size());
+	}
+
+	@Test
+	public void testRemove()
+	{
+		LongHashSet set = new LongHashSet(0, 1, 2);
+		assertTrue(set.remove(0));
+		assertFalse(set.remove(0));
+		assertTrue(set.remove(1));
+		assertFalse(set.remove(3));
+		assertEquals(1, set.size());
+		assertTrue(set.contains(2));
+	}
+
+	@Test
+	public void testClear()
+	{
+		LongHashSet set = new LongHashSet(0, 1, 2);
+		set.clear();
+		assertTrue(set.isEmpty());
+		assertFalse(set.contains(0));
+		assertFalse(set.contains(1));
+	}
+
+	@Test
+	public void testForEach()
+	{
+		final Set<Long> elements = new HashSet<Long>();
+		new LongHashSet(0, 1, 2).forEach(new LongHashSet.Visitor() {
+			@Override
+			public void visit(long e)
+			{
+				elements.add(e);
+			}
+		});
+		assertEquals(new HashSet<Long>(Arrays.asList(0L, 1L, 2L)),
+			elements);
+	}
+
+	@Test
+	public void testToArray()
+	{
+		long[] elements = new LongHashSet(3, 0, 1).toArray();
+		Arrays.sort(elements);
+		assertArrayEquals(new long[]{0L, 1L, 3L}, elements);
+	}
+
+	@Test
+	public void testRandomOperations()
+	{
+		Random rnd = new Random(42);
+		LongHashSet set = new LongHashSet();
+		Set<Long> model = new HashSet<Long>();
+		for (int i = 0; i < 200000; i++) {
+			long e = (rnd.nextInt(5000) - 100) * (1L << 33);
+			if (rnd.nextBoolean()) {
+				assertEquals(model.add(e), set.add(e));
+			} else {
+				assertEquals(model.remove(e), set.remove(e));
+			}
+		}
+		assertEquals(model, set.asSet());
+	}
+
+	@Test
+	public void testAsSet()
+	{
+		LongHashSet set = new LongHashSet(0, 1, 2);
+		Set<Long> view = set.asSet();
+		assertEquals(new HashSet<Long>(Arrays.asList(0L, 1L, 2L)), view);
+		assertEquals(new HashSet<Long>(Arrays.asList(0L, 1L, 2L))
+			.hashCode(), view.hashCode());
+		assertFalse(view.contains("1"));
+		assertTrue(view.add(3L));
+		assertTrue(set.contains(3));
+		assertTrue(view.remove(0L));
+		assertFalse(set.contains(0));
+		assertTrue(view.retainAll(Arrays.asList(1L, 2L)));
+		assertTrue(view.removeAll(Arrays.asList(2L)));
+		assertEquals(1, set.size());
+		assertTrue(set.contains(1));
+	}
+
+	@Test
+	public void testAsSetIteratorIsFailFast()
+	{
+		LongHashSet set = new LongHashSet(0L, 1L, 2L);
+		Iterator<Long> elements = set.asSet().iterator();
+		elements.next();
+		set.remove(2L);
+		try {
+			elements.next();
+			fail();
+		} catch (ConcurrentModificationException e) {
+			assertEquals(2, set.size());
+		}
+		elements = set.asSet().iterator();
+		assertTrue(elements.hasNext());
+		set.clear();
+		try {
+			elements.next();
+			fail();
+		} catch (ConcurrentModificationException e) {
+			assertTrue(set.isEmpty());
+		}
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		LongHashSet set = new LongHashSet(0, 1, 2, -5);
+		assertEquals(set, ObjectCodec.decode(ObjectCodec.encode(set)));
+	}
+
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		LongHashSet set1 = new LongHashSet(0, 1, 2);
+		LongHashSet set2 = new LongHashSet(2, 1, 0);
+		LongHashSet set3 = new LongHashSet(1, 2);
+
+		assertTrue(set1.equals(set1));
+		assertTrue(set1.equals(set2));
+		assertTrue(set2.equals(set1));
+		assertTrue(set1.hashCode() == set2.hashCode());
+		assertFalse(set1.equals(set3));
+		assertFalse(set3.equals(set1));
+		assertFalse(set1.equals(null));
+	}
+}
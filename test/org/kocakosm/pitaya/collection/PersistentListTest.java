@@ -0,0 +1,184 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.io.ObjectCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * {@link PersistentList}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class PersistentListTest
+{
+	@Test
+	public void testOf()
+	{
+		assertEquals(Arrays.asList("a", "b", null),
+			PersistentList.of("a", "b", null));
+		assertTrue(PersistentList.of().isEmpty());
+	}
+
+	@Test
+	public void testPlusAndWithoutLast()
+	{
+		PersistentList<Integer> list = PersistentList.empty();
+		List<PersistentList<Integer>> versions =
+			new ArrayList<PersistentList<Integer>>();
+		for (int i = 0; i < 40000; i++) {
+			versions.add(list);
+			list = list.plus(i);
+		}
+		for (int i = 0; i < 40000; i += 997) {
+			assertEquals(i, versions.get(i).size());
+		}
+		for (int i = 0; i < 40000; i++) {
+			assertEquals(Integer.valueOf(i), list.get(i));
+		}
+		for (int i = 40000; i > 0; i--) {
+			assertEquals(i, list.size());
+			assertEquals(Integer.valueOf(i - 1), list.get(i - 1));
+			list = list.withoutLast();
+		}
+		assertTrue(list.isEmpty());
+		assertEquals(Integer.valueOf(1055), versions.get(1056).get(1055));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testWithoutLastOnEmptyList()
+	{
+		PersistentList.empty().withoutLast();
+	}
+
+	@Test
+	public void testWith()
+	{
+		Random rnd = new Random(42);
+		PersistentList<Integer> list = PersistentList.empty();
+		List<Integer> model = new ArrayList<Integer>();
+		for (int i = 0; i < 5000; i++) {
+			list = list.plus(i);
+			model.add(i);
+		}
+		PersistentList<Integer> original = list;
+		for (int i = 0; i < 10000; i++) {
+			int index = rnd.nextInt(model.size());
+			list = list.with(index, -i);
+			model.set(index, -i);
+		}
+		assertEquals(model, list);
+		for (int i = 0; i < 5000; i++) {
+			assertEquals(Integer.valueOf(i), original.get(i));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetOutOfBounds()
+	{
+		PersistentList.of("a").get(1);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testWithOutOfBounds()
+	{
+		PersistentList.of("a").with(-1, "b");
+	}
+
+	@Test
+	public void testIterator()
+	{
+		List<Integer> model = new ArrayList<Integer>();
+		for (int i = 0; i < 2000; i++) {
+			model.add(i);
+		}
+		List<Integer> copy = new ArrayList<Integer>();
+		for (Integer e : PersistentList.copyOf(model)) {
+			copy.add(e);
+		}
+		assertEquals(model, copy);
+	}
+
+	@Test
+	public void testBuilder()
+	{
+		PersistentList.Builder<Integer> builder =
+			new PersistentList.Builder<Integer>();
+		for (int i = 0; i < 3000; i++) {
+			builder.add(i);
+		}
+		PersistentList<Integer> l1 = builder.build();
+		builder.set(10, -10).set(2999, -2999).add(3000);
+		PersistentList<Integer> l2 = builder.build();
+		assertEquals(3000, l1.size());
+		assertEquals(Integer.valueOf(10), l1.get(10));
+		assertEquals(Integer.valueOf(2999), l1.get(2999));
+		assertEquals(3001, l2.size());
+		assertEquals(Integer.valueOf(-10), l2.get(10));
+		assertEquals(Integer.valueOf(-2999), l2.get(2999));
+		assertEquals(Integer.valueOf(3000), l2.get(3000));
+	}
+
+	@Test
+	public void testToBuilder()
+	{
+		PersistentList<Integer> list = PersistentList.empty();
+		for (int i = 0; i < 100; i++) {
+			list = list.plus(i);
+		}
+		PersistentList<Integer> updated = list.toBuilder()
+			.set(0, -1).add(100).build();
+		assertEquals(100, list.size());
+		assertEquals(Integer.valueOf(0), list.get(0));
+		assertEquals(101, updated.size());
+		assertEquals(Integer.valueOf(-1), updated.get(0));
+		assertEquals(updated, list.with(0, -1).plus(100));
+	}
+
+	@Test
+	public void testCopyOf()
+	{
+		List<String> in = Arrays.asList("a", "b");
+		PersistentList<String> list = PersistentList.copyOf(in);
+		assertEquals(in, list);
+		assertSame(list, PersistentList.copyOf(list));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSet()
+	{
+		PersistentList.of("a").set(0, "b");
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		PersistentList<Integer> list = PersistentList.empty();
+		for (int i = 0; i < 100; i++) {
+			list = list.plus(i);
+		}
+		assertEquals(list, ObjectCodec.decode(ObjectCodec.encode(list)));
+	}
+}
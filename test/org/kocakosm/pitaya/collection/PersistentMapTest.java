@@ -0,0 +1,266 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.io.ObjectCodec;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link PersistentMap}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class PersistentMapTest
+{
+	@Test
+	public void testEmpty()
+	{
+		Map<String, String> map = PersistentMap.empty();
+		assertTrue(map.isEmpty());
+		assertEquals(0, map.size());
+		assertNull(map.get("a"));
+		assertFalse(map.entrySet().iterator().hasNext());
+	}
+
+	@Test
+	public void testWith()
+	{
+		PersistentMap<String, Integer> m0 = PersistentMap.empty();
+		PersistentMap<String, Integer> m1 = m0.with("a", 1);
+		PersistentMap<String, Integer> m2 = m1.with("b", 2);
+		PersistentMap<String, Integer> m3 = m2.with("a", 3);
+		assertEquals(0, m0.size());
+		assertEquals(1, m1.size());
+		assertEquals(Integer.valueOf(1), m1.get("a"));
+		assertEquals(2, m2.size());
+		assertEquals(Integer.valueOf(1), m2.get("a"));
+		assertEquals(2, m3.size());
+		assertEquals(Integer.valueOf(3), m3.get("a"));
+		assertSame(m3, m3.with("a", m3.get("a")));
+	}
+
+	@Test
+	public void testWithout()
+	{
+		PersistentMap<String, Integer> m1 = PersistentMap.<String, Integer>
+			empty().with("a", 1).with("b", 2);
+		PersistentMap<String, Integer> m2 = m1.without("a");
+		assertEquals(2, m1.size());
+		assertEquals(1, m2.size());
+		assertFalse(m2.containsKey("a"));
+		assertTrue(m2.containsKey("b"));
+		assertSame(m2, m2.without("c"));
+		assertTrue(m2.without("b").isEmpty());
+	}
+
+	@Test
+	public void testNullKeyAndValue()
+	{
+		PersistentMap<String, String> map = PersistentMap.<String, String>
+			empty().with(null, "a").with("b", null);
+		assertEquals("a", map.get(null));
+		assertTrue(map.containsKey("b"));
+		assertNull(map.get("b"));
+		assertFalse(map.containsKey("c"));
+		assertFalse(map.without(null).containsKey(null));
+	}
+
+	@Test
+	public void testRandomOperations()
+	{
+		Random rnd = new Random(42);
+		PersistentMap<Integer, Integer> map = PersistentMap.empty();
+		Map<Integer, Integer> model = new HashMap<Integer, Integer>();
+		for (int i = 0; i < 100000; i++) {
+			Integer key = rnd.nextInt(20000);
+			if (rnd.nextInt(3) > 0) {
+				map = map.with(key, i);
+				model.put(key, i);
+			} else {
+				map = map.without(key);
+				model.remove(key);
+			}
+		}
+		assertEquals(model.size(), map.size());
+		assertEquals(model, map);
+		assertEquals(map, model);
+		assertEquals(model.hashCode(), map.hashCode());
+	}
+
+	@Test
+	public void testCollisions()
+	{
+		PersistentMap<Key, Integer> map = PersistentMap.empty();
+		Map<Key, Integer> model = new HashMap<Key, Integer>();
+		for (int i = 0; i < 200; i++) {
+			map = map.with(new Key(i), i);
+			model.put(new Key(i), i);
+		}
+		assertEquals(model, map);
+		for (int i = 0; i < 200; i += 2) {
+			map = map.without(new Key(i));
+			model.remove(new Key(i));
+		}
+		assertEquals(model, map);
+		for (int i = 1; i < 200; i += 2) {
+			map = map.without(new Key(i));
+		}
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testStructuralSharing()
+	{
+		PersistentMap<Integer, Integer> map = PersistentMap.empty();
+		for (int i = 0; i < 1000; i++) {
+			map = map.with(i, i);
+		}
+		PersistentMap<Integer, Integer> updated = map.with(500, -1);
+		assertEquals(Integer.valueOf(500), map.get(500));
+		assertEquals(Integer.valueOf(-1), updated.get(500));
+		assertEquals(1000, updated.size());
+		assertEquals(Integer.valueOf(999), updated.get(999));
+	}
+
+	@Test
+	public void testBuilder()
+	{
+		PersistentMap.Builder<Integer, Integer> builder =
+			new PersistentMap.Builder<Integer, Integer>();
+		for (int i = 0; i < 1000; i++) {
+			builder.put(i, i);
+		}
+		builder.remove(0).remove(-1);
+		PersistentMap<Integer, Integer> m1 = builder.build();
+		builder.put(1, -1).put(1000, 1000).remove(2);
+		PersistentMap<Integer, Integer> m2 = builder.build();
+		assertEquals(999, m1.size());
+		assertEquals(Integer.valueOf(1), m1.get(1));
+		assertTrue(m1.containsKey(2));
+		assertEquals(999, m2.size());
+		assertEquals(Integer.valueOf(-1), m2.get(1));
+		assertFalse(m2.containsKey(2));
+		assertEquals(999, builder.size());
+	}
+
+	@Test
+	public void testToBuilder()
+	{
+		PersistentMap<Integer, Integer> map = PersistentMap.empty();
+		for (int i = 0; i < 100; i++) {
+			map = map.with(i, i);
+		}
+		PersistentMap<Integer, Integer> updated = map.toBuilder()
+			.put(0, -1).remove(1).put(100, 100).build();
+		assertEquals(100, map.size());
+		assertEquals(Integer.valueOf(0), map.get(0));
+		assertTrue(map.containsKey(1));
+		assertEquals(100, updated.size());
+		assertEquals(Integer.valueOf(-1), updated.get(0));
+		assertFalse(updated.containsKey(1));
+	}
+
+	@Test
+	public void testCopyOf()
+	{
+		Map<String, Integer> in = new HashMap<String, Integer>();
+		in.put("a", 1);
+		in.put("b", 2);
+		PersistentMap<String, Integer> map = PersistentMap.copyOf(in);
+		assertEquals(in, map);
+		assertSame(map, PersistentMap.copyOf(map));
+	}
+
+	@Test
+	public void testEntrySet()
+	{
+		PersistentMap<String, Integer> map = PersistentMap.<String, Integer>
+			empty().with("a", 1).with("b", 2);
+		assertSame(map.entrySet(), map.entrySet());
+		assertTrue(map.entrySet().contains(
+			new AbstractMap.SimpleEntry<String, Integer>("a", 1)));
+		assertFalse(map.entrySet().contains(
+			new AbstractMap.SimpleEntry<String, Integer>("a", 2)));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testPut()
+	{
+		PersistentMap.<String, String>empty().put("a", "b");
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		PersistentMap<Key, Integer> map = PersistentMap.empty();
+		for (int i = 0; i < 100; i++) {
+			map = map.with(new Key(i), i);
+		}
+		assertEquals(map, ObjectCodec.decode(ObjectCodec.encode(map)));
+	}
+
+	@Test
+	public void testSerializationAcrossJvms() throws Exception
+	{
+		PersistentMap<TimeUnit, Integer> map = PersistentMap.empty();
+		for (TimeUnit unit : TimeUnit.values()) {
+			map = map.with(unit, unit.ordinal());
+		}
+		assertTrue(ForeignJvm.isConsistent(map));
+	}
+
+	@Test
+	public void testEmptySerialization()
+	{
+		PersistentMap<String, String> map = PersistentMap.empty();
+		assertSame(map, ObjectCodec.decode(ObjectCodec.encode(map)));
+	}
+
+	private static final class Key implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int id;
+
+		Key(int id)
+		{
+			this.id = id;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			return o instanceof Key && ((Key) o).id == id;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return id % 3;
+		}
+	}
+}
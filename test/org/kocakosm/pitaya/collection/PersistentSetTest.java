@@ -0,0 +1,129 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.collection;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.io.ObjectCodec;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link PersistentSet}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class PersistentSetTest
+{
+	@Test
+	public void testOf()
+	{
+		Set<String> set = PersistentSet.of("a", "b", "a", null);
+		assertEquals(new HashSet<String>(Arrays.asList("a", "b", null)), set);
+		assertTrue(PersistentSet.of().isEmpty());
+	}
+
+	@Test
+	public void testWithAndWithout()
+	{
+		PersistentSet<String> s1 = PersistentSet.of("a", "b");
+		PersistentSet<String> s2 = s1.with("c");
+		PersistentSet<String> s3 = s2.without("a");
+		assertEquals(2, s1.size());
+		assertEquals(3, s2.size());
+		assertEquals(2, s3.size());
+		assertTrue(s2.contains("a"));
+		assertFalse(s3.contains("a"));
+		assertSame(s1, s1.with("a"));
+		assertSame(s1, s1.without("c"));
+		assertSame(PersistentSet.empty(), s1.without("a").without("b"));
+	}
+
+	@Test
+	public void testRandomOperations()
+	{
+		Random rnd = new Random(42);
+		PersistentSet<Integer> set = PersistentSet.empty();
+		Set<Integer> model = new HashSet<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			Integer e = rnd.nextInt(20000);
+			if (rnd.nextBoolean()) {
+				set = set.with(e);
+				model.add(e);
+			} else {
+				set = set.without(e);
+				model.remove(e);
+			}
+		}
+		assertEquals(model, set);
+		assertEquals(set, model);
+		assertEquals(model.hashCode(), set.hashCode());
+	}
+
+	@Test
+	public void testBuilder()
+	{
+		PersistentSet<String> s1 = new PersistentSet.Builder<String>()
+			.add("a", "b").add(Arrays.asList("c")).remove("b").build();
+		PersistentSet<String> s2 = s1.toBuilder().add("d").build();
+		assertEquals(new HashSet<String>(Arrays.asList("a", "c")), s1);
+		assertEquals(new HashSet<String>(Arrays.asList("a", "c", "d")),
+			s2);
+	}
+
+	@Test
+	public void testCopyOf()
+	{
+		Set<String> in = new HashSet<String>(Arrays.asList("a", "b"));
+		PersistentSet<String> set = PersistentSet.copyOf(in);
+		assertEquals(in, set);
+		assertSame(set, PersistentSet.copyOf(set));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAdd()
+	{
+		PersistentSet.of().add("a");
+	}
+
+	@Test
+	public void testSerialization()
+	{
+		PersistentSet<Integer> set = PersistentSet.of(1, 2, 3, 4, 5);
+		assertEquals(set, ObjectCodec.decode(ObjectCodec.encode(set)));
+	}
+
+	@Test
+	public void testSerializationAcrossJvms() throws Exception
+	{
+		PersistentSet<TimeUnit> set = PersistentSet.of(TimeUnit.values());
+		assertTrue(ForeignJvm.isConsistent(set));
+	}
+
+	@Test
+	public void testEmptySerialization()
+	{
+		PersistentSet<String> set = PersistentSet.empty();
+		assertSame(set, ObjectCodec.decode(ObjectCodec.encode(set)));
+	}
+}
@@ -18,6 +18,9 @@ package org.kocakosm.pitaya.io;
 
 import static org.junit.Assert.*;
 
+import org.kocakosm.pitaya.security.Digest;
+import org.kocakosm.pitaya.security.Digests;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
@@ -68,6 +71,20 @@ public final class ByteStreamsTest
 		assertArrayEquals(DATA, out.toByteArray());
 	}
 
+	@Test
+	public void testCopyWithDigest() throws Exception
+	{
+		byte[] data = new byte[10000];
+		new RandomInputStream(42).read(data);
+		InputStream in = new ByteArrayInputStream(data);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Digest sha256 = Digests.sha256();
+		sha256.update((byte) 42);
+		byte[] digest = ByteStreams.copy(in, out, sha256);
+		assertArrayEquals(data, out.toByteArray());
+		assertArrayEquals(Digests.sha256().digest(data), digest);
+	}
+
 	@Test
 	public void testEqual() throws Exception
 	{
@@ -0,0 +1,105 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.io;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.security.HMAC;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * {@link MACInputStream}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACInputStreamTest
+{
+	private static final byte[] KEY = "key".getBytes();
+	private static final byte[] DATA = new byte[10000];
+
+	static {
+		new RandomInputStream(42).read(DATA);
+	}
+
+	@Test
+	public void testRead() throws IOException
+	{
+		MACInputStream in = newStream();
+		byte[] buf = new byte[DATA.length];
+		buf[0] = (byte) in.read();
+		for (int off = 1; off < buf.length;) {
+			off += in.read(buf, off, Math.min(1000, buf.length - off));
+		}
+		assertEquals(-1, in.read());
+		assertEquals(-1, in.read(buf));
+		assertArrayEquals(DATA, buf);
+		assertArrayEquals(HMAC.sha256(KEY).digest(DATA), in.getMAC().digest());
+	}
+
+	@Test
+	public void testSkip() throws IOException
+	{
+		MACInputStream in = newStream();
+		assertEquals(5000, in.skip(5000));
+		assertEquals(5000, in.skip(6000));
+		assertEquals(0, in.skip(1));
+		assertArrayEquals(HMAC.sha256(KEY).digest(DATA), in.getMAC().digest());
+	}
+
+	@Test
+	public void testSkipNonPositive() throws IOException
+	{
+		MACInputStream in = newStream();
+		assertEquals(0, in.skip(-1));
+		assertEquals(0, in.skip(0));
+		assertEquals(10000, in.skip(10000));
+		assertArrayEquals(HMAC.sha256(KEY).digest(DATA), in.getMAC().digest());
+	}
+
+	@Test
+	public void testMarkIsNotSupported()
+	{
+		MACInputStream in = newStream();
+		assertFalse(in.markSupported());
+		in.mark(10);
+		try {
+			in.reset();
+			fail();
+		} catch (IOException ex) {
+			assertEquals("mark/reset not supported", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testAvailableAndClose() throws IOException
+	{
+		MACInputStream in = newStream();
+		assertEquals(DATA.length, in.available());
+		in.close();
+	}
+
+	private static MACInputStream newStream()
+	{
+		return new MACInputStream(new ByteArrayInputStream(DATA),
+			HMAC.sha256(KEY));
+	}
+}
@@ -0,0 +1,55 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.io;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.security.HMAC;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * {@link MACOutputStream}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACOutputStreamTest
+{
+	private static final byte[] KEY = "key".getBytes();
+
+	@Test
+	public void testWrite() throws IOException
+	{
+		byte[] data = new byte[10000];
+		new RandomInputStream(42).read(data);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		MACOutputStream stream = new MACOutputStream(out, HMAC.sha256(KEY));
+		stream.write(data[0]);
+		stream.write(data, 1, 999);
+		byte[] tail = new byte[9000];
+		System.arraycopy(data, 1000, tail, 0, tail.length);
+		stream.write(tail);
+		stream.flush();
+		stream.close();
+		assertArrayEquals(data, out.toByteArray());
+		assertArrayEquals(HMAC.sha256(KEY).digest(data), stream.getMAC().digest());
+	}
+}
@@ -0,0 +1,277 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.io;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.security.Algorithm;
+import org.kocakosm.pitaya.security.Digests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link MerkleTree}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class MerkleTreeTest
+{
+	private static final long PAST = System.currentTimeMillis() - 3600000;
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testFile() throws IOException
+	{
+		File f = write(tmp.newFolder(), "a.txt", "Hello");
+		MerkleTree tree = MerkleTree.build(f, Algorithm.SHA256);
+		assertEquals("a.txt", tree.getName());
+		assertFalse(tree.isDirectory());
+		assertEquals(5, tree.getSize());
+		assertTrue(tree.getChildren().isEmpty());
+		assertArrayEquals(Digests.digest(f, Algorithm.SHA256),
+			tree.getHash());
+	}
+
+	@Test
+	public void testDirectory() throws IOException
+	{
+		File root = createTree(tmp.newFolder());
+		MerkleTree tree = MerkleTree.build(root, Algorithm.SHA256);
+		assertTrue(tree.isDirectory());
+		assertEquals(15, tree.getSize());
+		assertEquals(3, tree.getChildren().size());
+		assertEquals("a.txt", tree.getChildren().get(0).getName());
+		assertEquals("b.txt", tree.getChildren().get(1).getName());
+		assertEquals("sub", tree.getChildren().get(2).getName());
+		MerkleTree sub = tree.getChild("sub");
+		assertTrue(sub.isDirectory());
+		assertEquals(5, sub.getSize());
+		assertNotNull(sub.getChild("c.txt"));
+		assertNull(tree.getChild("c.txt"));
+		assertNull(sub.getChild("a.txt"));
+	}
+
+	@Test
+	public void testSameContent() throws IOException
+	{
+		MerkleTree t1 = MerkleTree.build(createTree(tmp.newFolder()),
+			Algorithm.SHA256);
+		MerkleTree t2 = MerkleTree.build(createTree(tmp.newFolder()),
+			Algorithm.SHA256);
+		assertArrayEquals(t1.getHash(), t2.getHash());
+		assertEquals(Collections.emptyList(), MerkleTree.diff(t1, t2));
+	}
+
+	@Test
+	public void testEmptyDirectoryIsNotEmptyFile() throws IOException
+	{
+		File root1 = tmp.newFolder();
+		File root2 = tmp.newFolder();
+		new File(root1, "x").mkdir();
+		write(root2, "x", "");
+		MerkleTree t1 = MerkleTree.build(root1, Algorithm.SHA256);
+		MerkleTree t2 = MerkleTree.build(root2, Algorithm.SHA256);
+		assertFalse(Arrays.equals(t1.getHash(), t2.getHash()));
+		assertEquals(Arrays.asList("x"), MerkleTree.diff(t1, t2));
+	}
+
+	@Test
+	public void testDiff() throws IOException
+	{
+		File root1 = createTree(tmp.newFolder());
+		File root2 = createTree(tmp.newFolder());
+		write(root2, "a.txt", "Hello!");
+		write(new File(root2, "sub"), "d.txt", "new");
+		new File(root2, "b.txt").delete();
+		write(root2, "e.txt", "new");
+		MerkleTree t1 = MerkleTree.build(root1, Algorithm.SHA256);
+		MerkleTree t2 = MerkleTree.build(root2, Algorithm.SHA256);
+		assertEquals(Arrays.asList("a.txt", "b.txt", "e.txt", "sub/d.txt"),
+			MerkleTree.diff(t1, t2));
+		assertEquals(Arrays.asList("a.txt", "b.txt", "e.txt", "sub/d.txt"),
+			MerkleTree.diff(t2, t1));
+		MerkleTree f = MerkleTree.build(new File(root1, "a.txt"),
+			Algorithm.SHA256);
+		assertEquals(Arrays.asList(""), MerkleTree.diff(t1, f));
+	}
+
+	@Test
+	public void testParallel() throws IOException
+	{
+		File root = createTree(tmp.newFolder());
+		for (int i = 0; i < 20; i++) {
+			write(root, "f" + i, "file " + i);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			MerkleTree t1 = MerkleTree.build(root, Algorithm.SHA256);
+			MerkleTree t2 = MerkleTree.build(root, Algorithm.SHA256,
+				executor);
+			assertArrayEquals(t1.getHash(), t2.getHash());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testIndex() throws IOException
+	{
+		File root = createTree(tmp.newFolder());
+		File index = new File(root, ".index");
+		setLastModified(root, PAST);
+		MerkleTree t1 = MerkleTree.build(root, Algorithm.SHA256, index);
+		assertTrue(index.isFile());
+		assertNull(t1.getChild(".index"));
+
+		/* Same size, same date: the indexed hash is trusted. */
+		File a = write(root, "a.txt", "HELLO");
+		a.setLastModified(PAST);
+		MerkleTree t2 = MerkleTree.build(root, Algorithm.SHA256, index);
+		assertArrayEquals(t1.getHash(), t2.getHash());
+
+		a.setLastModified(PAST + 1000);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			MerkleTree t3 = MerkleTree.build(root, Algorithm.SHA256,
+				index, executor);
+			assertEquals(Arrays.asList("a.txt"),
+				MerkleTree.diff(t1, t3));
+			index.delete();
+			MerkleTree t4 = MerkleTree.build(root, Algorithm.SHA256);
+			assertArrayEquals(t4.getHash(), t3.getHash());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testIndexOfAnotherAlgorithmIsIgnored() throws IOException
+	{
+		File root = createTree(tmp.newFolder());
+		File index = tmp.newFile();
+		setLastModified(root, PAST);
+		MerkleTree.build(root, Algorithm.SHA256, index);
+		MerkleTree t1 = MerkleTree.build(root, Algorithm.SHA512, index);
+		MerkleTree t2 = MerkleTree.build(root, Algorithm.SHA512);
+		assertArrayEquals(t2.getHash(), t1.getHash());
+	}
+
+	@Test
+	public void testCorruptedIndexIsIgnored() throws IOException
+	{
+		File root = createTree(tmp.newFolder());
+		File index = tmp.newFile();
+		write(index, new byte[] {0x4D, 0x4B, 0x4C, 0x31, 0x00});
+		MerkleTree t1 = MerkleTree.build(root, Algorithm.SHA256, index);
+		MerkleTree t2 = MerkleTree.build(root, Algorithm.SHA256);
+		assertArrayEquals(t2.getHash(), t1.getHash());
+	}
+
+	@Test
+	public void testSymbolicLinkCycle() throws Exception
+	{
+		File root1 = tmp.newFolder();
+		File root2 = tmp.newFolder();
+		File d1 = new File(root1, "d");
+		File d2 = new File(root2, "d");
+		d1.mkdir();
+		d2.mkdir();
+		write(d1, "a.txt", "abc");
+		write(d2, "a.txt", "abc");
+		Process ln = new ProcessBuilder("ln", "-s", "..",
+			new File(d1, "loop").getPath()).start();
+		Assume.assumeTrue(ln.waitFor() == 0);
+		MerkleTree t1 = MerkleTree.build(root1, Algorithm.SHA256);
+		MerkleTree t2 = MerkleTree.build(root2, Algorithm.SHA256);
+		assertEquals(3, t1.getSize());
+		assertArrayEquals(t2.getHash(), t1.getHash());
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingRoot() throws IOException
+	{
+		MerkleTree.build(new File(tmp.getRoot(), "missing"),
+			Algorithm.SHA256);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMACAlgorithm() throws IOException
+	{
+		MerkleTree.build(tmp.newFolder(), (Algorithm) Algorithm.HMAC_MD5);
+	}
+
+	@Test
+	public void testToString() throws IOException
+	{
+		File f = write(tmp.newFolder(), "a.txt", "");
+		assertEquals("MerkleTree (name=a.txt, hash=E3B0C44298FC1C149AFBF4C8"
+			+ "996FB92427AE41E4649B934CA495991B7852B855)",
+			MerkleTree.build(f, Algorithm.SHA256).toString());
+	}
+
+	private static File createTree(File root) throws IOException
+	{
+		write(root, "a.txt", "Hello");
+		write(root, "b.txt", "World");
+		File sub = new File(root, "sub");
+		sub.mkdir();
+		write(sub, "c.txt", "!!!!!");
+		return root;
+	}
+
+	private static File write(File dir, String name, String content)
+		throws IOException
+	{
+		File f = new File(dir, name);
+		write(f, content.getBytes("US-ASCII"));
+		return f;
+	}
+
+	private static void write(File f, byte[] content) throws IOException
+	{
+		OutputStream out = XFiles.newOutputStream(f);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void setLastModified(File f, long time)
+	{
+		if (f.isDirectory()) {
+			for (File child : f.listFiles()) {
+				setLastModified(child, time);
+			}
+		}
+		f.setLastModified(time);
+	}
+}
@@ -20,6 +20,7 @@ import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -58,4 +59,71 @@ public final class RandomInputStreamTest
 		assertEquals(5, in.read(rnd, 0, 5));
 		assertArrayEquals(Arrays.copyOf(DATA, 5), Arrays.copyOf(rnd, 5));
 	}
+
+	@Test
+	public void testReadRangeFromRandom()
+	{
+		RandomInputStream in = new RandomInputStream(new Random(42));
+		byte[] rnd = new byte[13];
+		assertEquals(11, in.read(rnd, 1, 11));
+		byte[] expected = new byte[11];
+		new Random(42).nextBytes(expected);
+		assertArrayEquals(expected, Arrays.copyOfRange(rnd, 1, 12));
+		assertEquals(0, rnd[0]);
+		assertEquals(0, rnd[12]);
+	}
+
+	@Test
+	public void testSeeded()
+	{
+		RandomInputStream in1 = new RandomInputStream(42);
+		RandomInputStream in2 = new RandomInputStream(42);
+		RandomInputStream in3 = new RandomInputStream(43);
+		byte[] rnd2 = new byte[1000];
+		byte[] rnd3 = new byte[1000];
+		for (int i = 0; i < 1000; i++) {
+			int b = in1.read();
+			assertTrue(b >= 0 && b < 256);
+		}
+		assertEquals(1000, in2.read(rnd2));
+		assertEquals(1000, in3.read(rnd3));
+		assertFalse(Arrays.equals(rnd2, rnd3));
+		RandomInputStream in4 = new RandomInputStream(42);
+		byte[] rnd4 = new byte[1000];
+		in4.read(rnd4);
+		assertArrayEquals(rnd2, rnd4);
+		int b = new RandomInputStream(42).read();
+		assertTrue(b >= 0 && b < 256);
+	}
+
+	@Test
+	public void testDefault()
+	{
+		RandomInputStream in = new RandomInputStream();
+		byte[] rnd = new byte[4096];
+		assertEquals(4000, in.read(rnd, 48, 4000));
+		for (int i = 0; i < 48; i++) {
+			assertEquals(0, rnd[i]);
+		}
+		for (int i = 4048; i < rnd.length; i++) {
+			assertEquals(0, rnd[i]);
+		}
+		int[] counts = new int[256];
+		for (int i = 48; i < 4048; i++) {
+			counts[rnd[i] & 0xFF]++;
+		}
+		for (int count : counts) {
+			assertTrue(count > 0 && count < 50);
+		}
+		for (int i = 0; i < 1000; i++) {
+			int b = in.read();
+			assertTrue(b >= 0 && b < 256);
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testReadInvalidRange()
+	{
+		new RandomInputStream().read(new byte[4], 2, 3);
+	}
 }
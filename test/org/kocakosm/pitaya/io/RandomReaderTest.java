@@ -62,4 +62,49 @@ public final class RandomReaderTest
 		reader.close();
 		assertEquals('a', reader.read());
 	}
+
+	@Test
+	public void testSeeded()
+	{
+		char[] alphabet = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+		RandomReader reader1 = new RandomReader(42, alphabet);
+		RandomReader reader2 = new RandomReader(42, alphabet);
+		char[] rnd1 = new char[100];
+		char[] rnd2 = new char[100];
+		for (int i = 0; i < rnd1.length; i++) {
+			rnd1[i] = (char) reader1.read();
+		}
+		assertEquals(100, reader2.read(rnd2));
+		assertArrayEquals(rnd1, rnd2);
+		assertFalse(Arrays.equals(rnd1,
+			read(new RandomReader(43, alphabet), 100)));
+	}
+
+	@Test
+	public void testDefault()
+	{
+		RandomReader reader = new RandomReader('a', 'b', 'c');
+		char[] rnd = new char[300];
+		assertEquals(298, reader.read(rnd, 1, 298));
+		assertEquals(0, rnd[0]);
+		assertEquals(0, rnd[299]);
+		String s = new String(rnd, 1, 298);
+		assertTrue(s.indexOf('a') >= 0);
+		assertTrue(s.indexOf('b') >= 0);
+		assertTrue(s.indexOf('c') >= 0);
+		assertTrue(s.replaceAll("[abc]", "").isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyAlphabet()
+	{
+		new RandomReader();
+	}
+
+	private static char[] read(RandomReader reader, int len)
+	{
+		char[] chars = new char[len];
+		reader.read(chars);
+		return chars;
+	}
 }
@@ -0,0 +1,158 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.charset.ASCII;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * {@link DigestPool}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class DigestPoolTest
+{
+	private static final byte[] DATA = ASCII.encode("Hello World");
+
+	@Test
+	public void testDigest()
+	{
+		DigestPool pool = new DigestPool(Algorithm.SHA256);
+		byte[] expected = Digests.sha256().digest(DATA);
+		assertArrayEquals(expected, pool.digest(DATA));
+		assertArrayEquals(expected, pool.digest(DATA));
+		assertArrayEquals(Digests.sha256().digest(DATA, 2, 5),
+			pool.digest(DATA, 2, 5));
+	}
+
+	@Test
+	public void testAcquireAndRelease()
+	{
+		DigestPool pool = new DigestPool(Algorithm.KECCAK256);
+		Digest digest = pool.acquire();
+		assertNotSame(digest, pool.acquire());
+		digest.update(DATA);
+		pool.release(digest);
+		assertSame(digest, pool.acquire());
+		assertArrayEquals(Digests.keccak256().digest(DATA),
+			digest.digest(DATA));
+	}
+
+	@Test
+	public void testConcurrentUse() throws Exception
+	{
+		final DigestPool pool = new DigestPool(Algorithm.SHA1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results =
+				new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 16; i++) {
+				final byte[] input = new byte[i * 100];
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call()
+					{
+						byte[] expected = Digests.sha1().digest(input);
+						for (int j = 0; j < 100; j++) {
+							if (!Arrays.equals(expected,
+								pool.digest(input))) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testReleaseForeignEngine()
+	{
+		DigestPool pool = new DigestPool(Algorithm.SHA256);
+		try {
+			pool.release(Digests.sha3_256());
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertArrayEquals(Digests.sha256().digest(DATA),
+				pool.digest(DATA));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReleaseEngineOfSameAlgorithm()
+	{
+		new DigestPool(Algorithm.SHA256).release(Digests.sha256());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReleaseEngineOfAnotherPool()
+	{
+		DigestPool pool = new DigestPool(Algorithm.SHA256);
+		pool.release(new DigestPool(Algorithm.SHA256).acquire());
+	}
+
+	@Test
+	public void testReleaseTwice()
+	{
+		DigestPool pool = new DigestPool(Algorithm.SHA256);
+		Digest digest = pool.acquire();
+		pool.release(digest);
+		try {
+			pool.release(digest);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertSame(digest, pool.acquire());
+			assertNotSame(digest, pool.acquire());
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullAlgorithm()
+	{
+		new DigestPool(null);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testReleaseNull()
+	{
+		new DigestPool(Algorithm.MD5).release(null);
+	}
+
+	@Test
+	public void testToString()
+	{
+		assertEquals("SHA-512 pool",
+			new DigestPool(Algorithm.SHA512).toString());
+	}
+}
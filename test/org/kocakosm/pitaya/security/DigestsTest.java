@@ -20,11 +20,21 @@ import static org.junit.Assert.*;
 
 import org.kocakosm.pitaya.charset.ASCII;
 import org.kocakosm.pitaya.util.BaseEncoding;
+import org.kocakosm.pitaya.util.BigEndian;
+import org.kocakosm.pitaya.util.XArrays;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * {@link Digests}' unit tests.
@@ -40,6 +50,25 @@ public final class DigestsTest
 		EMPTY_STRING = "";
 	}
 
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void testNewDigest()
+	{
+		Digest sha256 = Digests.newDigest(Algorithm.SHA256);
+		assertThat(EMPTY_STRING).hashedWith(sha256).isEqualTo(
+			"e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+		assertEquals("BLAKE3", Digests.newDigest(Algorithm.BLAKE3).toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNewDigestWithMACAlgorithm()
+	{
+		Algorithm algorithm = Algorithm.HMAC_SHA256;
+		Digests.newDigest(algorithm);
+	}
+
 	@Test
 	public void testMD2()
 	{
@@ -178,6 +207,317 @@ public final class DigestsTest
 		assertEquals("Keccak-512", keccak512.toString());
 	}
 
+	@Test
+	public void testSHA3_224()
+	{
+		Digest sha3 = Digests.sha3_224();
+		assertThat(EMPTY_STRING).hashedWith(sha3)
+			.isEqualTo("6b4e03423667dbb73b6e15454f0eb1abd4597f9a1b0"
+				+ "78e3f5b5a6bc7");
+		assertThat(PANGRAM).hashedWith(sha3)
+			.isEqualTo("d15dadceaa4d5d7bb3b48f446421d542e08ad888730"
+				+ "5e28d58335795");
+		assertEquals(28, sha3.length());
+		assertEquals("SHA3-224", sha3.toString());
+	}
+
+	@Test
+	public void testSHA3_256()
+	{
+		Digest sha3 = Digests.sha3_256();
+		assertThat(EMPTY_STRING).hashedWith(sha3)
+			.isEqualTo("a7ffc6f8bf1ed76651c14756a061d662f580ff4de43"
+				+ "b49fa82d80a4b80f8434a");
+		assertThat(PANGRAM).hashedWith(sha3)
+			.isEqualTo("69070dda01975c8c120c3aada1b282394e7f032fa9c"
+				+ "f32f4cb2259a0897dfc04");
+		assertEquals(32, sha3.length());
+		assertEquals("SHA3-256", sha3.toString());
+	}
+
+	@Test
+	public void testSHA3_384()
+	{
+		Digest sha3 = Digests.sha3_384();
+		assertThat(EMPTY_STRING).hashedWith(sha3)
+			.isEqualTo("0c63a75b845e4f7d01107d852e4c2485c51a50aaaa9"
+				+ "4fc61995e71bbee983a2ac3713831264adb47fb6bd1e0"
+				+ "58d5f004");
+		assertThat(PANGRAM).hashedWith(sha3)
+			.isEqualTo("7063465e08a93bce31cd89d2e3ca8f602498696e253"
+				+ "592ed26f07bf7e703cf328581e1471a7ba7ab119b1a9e"
+				+ "bdf8be41");
+		assertEquals(48, sha3.length());
+		assertEquals("SHA3-384", sha3.toString());
+	}
+
+	@Test
+	public void testSHA3_512()
+	{
+		Digest sha3 = Digests.sha3_512();
+		assertThat(EMPTY_STRING).hashedWith(sha3)
+			.isEqualTo("a69f73cca23a9ac5c8b567dc185a756e97c982164fe"
+				+ "25859e0d1dcc1475c80a615b2123af1f5f94c11e3e940"
+				+ "2c3ac558f500199d95b6d3e301758586281dcd26");
+		assertThat(PANGRAM).hashedWith(sha3)
+			.isEqualTo("01dedd5de4ef14642445ba5f5b97c15e47b9ad93132"
+				+ "6e4b0727cd94cefc44fff23f07bf543139939b49128ca"
+				+ "f436dc1bdee54fcb24023a08d9403f9b4bf0d450");
+		assertEquals(64, sha3.length());
+		assertEquals("SHA3-512", sha3.toString());
+	}
+
+	@Test
+	public void testSHAKE128()
+	{
+		XOF shake = Digests.shake128();
+		assertThat(EMPTY_STRING).hashedWith(shake)
+			.isEqualTo("7f9c2ba4e88f827d616045507605853ed73b8093f6e"
+				+ "fbc88eb1a6eacfa66ef26");
+		assertThat(PANGRAM).hashedWith(shake)
+			.isEqualTo("f4202e3c5852f9182a0430fd8144f0a74b95e7417ec"
+				+ "ae17db0f8cfeed0e3e66e");
+		assertEquals(32, shake.length());
+		assertEquals("SHAKE128", shake.toString());
+	}
+
+	@Test
+	public void testSHAKE256()
+	{
+		XOF shake = Digests.shake256();
+		assertThat(EMPTY_STRING).hashedWith(shake)
+			.isEqualTo("46b9dd2b0ba88d13233b3feb743eeb243fcd52ea62b"
+				+ "81b82b50c27646ed5762fd75dc4ddd8c0f200cb05019d"
+				+ "67b592f6fc821c49479ab48640292eacb3b7c4be");
+		assertThat(PANGRAM).hashedWith(shake)
+			.isEqualTo("2f671343d9b2e1604dc9dcf0753e5fe15c7c64a0d28"
+				+ "3cbbf722d411a0e36f6ca1d01d1369a23539cd80f7c05"
+				+ "4b6e5daf9c962cad5b8ed5bd11998b40d5734442");
+		assertEquals(64, shake.length());
+		assertEquals("SHAKE256", shake.toString());
+	}
+
+	@Test
+	public void testBLAKE2b()
+	{
+		Digest blake2b = Digests.blake2b();
+		assertThat(EMPTY_STRING).hashedWith(blake2b)
+			.isEqualTo("786a02f742015903c6c6fd852552d272912f4740e15"
+				+ "847618a86e217f71f5419d25e1031afee585313896444"
+				+ "934eb04b903a685b1448b755d56f701afe9be2ce");
+		assertThat(PANGRAM).hashedWith(blake2b)
+			.isEqualTo("a8add4bdddfd93e4877d2746e62817b116364a1fa7b"
+				+ "c148d95090bc7333b3673f82401cf7aa2e4cb1ecd9029"
+				+ "6e3f14cb5413f8ed77be73045b13914cdcd6a918");
+		assertThat(PANGRAM).hashedWith(Digests.blake2b(32))
+			.isEqualTo("01718cec35cd3d796dd00020e0bfecb473ad23457d0"
+				+ "63b75eff29c0ffa2e58a9");
+		assertEquals(64, blake2b.length());
+		assertEquals("BLAKE2b-512", blake2b.toString());
+	}
+
+	@Test
+	public void testBLAKE2s()
+	{
+		Digest blake2s = Digests.blake2s();
+		assertThat(EMPTY_STRING).hashedWith(blake2s)
+			.isEqualTo("69217a3079908094e11121d042354a7c1f55b6482ca"
+				+ "1a51e1b250dfd1ed0eef9");
+		assertThat(PANGRAM).hashedWith(blake2s)
+			.isEqualTo("606beeec743ccbeff6cbcdf5d5302aa855c256c29b8"
+				+ "8c8ed331ea1a6bf3c8812");
+		assertEquals(32, blake2s.length());
+		assertEquals("BLAKE2s-256", blake2s.toString());
+	}
+
+	@Test
+	public void testBLAKE3()
+	{
+		Digest blake3 = Digests.blake3();
+		assertThat(EMPTY_STRING).hashedWith(blake3)
+			.isEqualTo("af1349b9f5f9a1a6a0404dea36dcc9499bcb25c9adc"
+				+ "112b7cc9a93cae41f3262");
+		assertThat(PANGRAM).hashedWith(blake3)
+			.isEqualTo("2f1514181aadccd913abd94cfa592701a5686ab23f8"
+				+ "df1dff1b74710febc6d4a");
+		byte[] data = new byte[3073];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 251);
+		}
+		assertArrayEquals(hex("7124b49501012f81cc7f11ca069ec9226cecb8a2"
+			+ "c850cfe644e327d22d3e1cd39a27ae3b79d68d89da9bf25bc2713"
+			+ "9ae65a324918a5f9b7828181e52cf373c84"),
+			Digests.blake3(64).digest(data));
+		assertEquals(32, blake3.length());
+		assertEquals("BLAKE3", blake3.toString());
+	}
+
+	@Test
+	public void testParallelBLAKE3()
+	{
+		byte[] data = new byte[300000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 13);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Digest blake3 = Digests.blake3(32, executor);
+			byte[] expected = Digests.blake3().digest(data);
+			assertArrayEquals(expected, blake3.digest(data));
+			for (int off = 0; off < data.length; off += 40001) {
+				blake3.update(data, off,
+					Math.min(40001, data.length - off));
+			}
+			assertArrayEquals(expected, blake3.digest());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testSHAKESqueeze()
+	{
+		byte[] data = new byte[1024];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		XOF shake = Digests.shake128(500);
+		byte[] expected = shake.digest(data);
+		assertArrayEquals(hex("7a2fa3e3da9562a19c7d525efcecd31b49e0acb1868"
+			+ "9552ecf5c51c505fd294f"), Arrays.copyOf(expected, 32));
+		byte[] out = new byte[500];
+		shake.update(data, 0, 500).update(data, 500, 524);
+		shake.squeeze(out, 0, 1).squeeze(out, 1, 167);
+		shake.squeeze(out, 168, 0).squeeze(out, 168, 332);
+		assertArrayEquals(expected, out);
+		shake.reset();
+		assertArrayEquals(expected, shake.digest(data));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUpdateWhileSqueezing()
+	{
+		XOF shake = Digests.shake256();
+		shake.squeeze(new byte[1], 0, 1);
+		shake.update((byte) 0);
+	}
+
+	@Test
+	public void testCopy()
+	{
+		byte[] data = ASCII.encode(PANGRAM);
+		Digest[] digests = {
+			Digests.md2(), Digests.md4(), Digests.md5(),
+			Digests.sha1(), Digests.sha256(), Digests.sha512(),
+			Digests.keccak256(), Digests.sha3_256(), Digests.shake128()
+		};
+		for (Digest digest : digests) {
+			byte[] expected = digest.digest(data);
+			digest.update(data, 0, 10);
+			Digest copy = digest.copy();
+			assertEquals(digest.toString(), copy.toString());
+			assertEquals(digest.length(), copy.length());
+			copy.update(data, 10, data.length - 10);
+			assertArrayEquals(expected, copy.digest());
+			digest.update(data, 10, data.length - 10);
+			assertArrayEquals(expected, digest.digest());
+		}
+	}
+
+	@Test
+	public void testDigestInto()
+	{
+		byte[] data = ASCII.encode(PANGRAM);
+		Digest[] digests = {
+			Digests.md2(), Digests.md4(), Digests.md5(),
+			Digests.sha1(), Digests.keccak256(), Digests.shake256()
+		};
+		for (Digest digest : digests) {
+			byte[] expected = digest.digest(data);
+			byte[] out = new byte[digest.length() + 3];
+			digest.update(data).digestInto(out, 2);
+			assertArrayEquals(expected, Arrays.copyOfRange(out, 2,
+				out.length - 1));
+			assertArrayEquals(expected, digest.digest(data));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testDigestIntoTooSmallBuffer()
+	{
+		Digests.md4().digestInto(new byte[16], 1);
+	}
+
+	@Test
+	public void testByteBufferUpdates()
+	{
+		byte[] data = new byte[1000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		Digest[] digests = {
+			Digests.md2(), Digests.md4(), Digests.sha1(),
+			Digests.keccak256(), Digests.sha3_512()
+		};
+		for (Digest digest : digests) {
+			byte[] expected = digest.digest(data);
+			ByteBuffer heap = ByteBuffer.wrap(data);
+			assertArrayEquals(expected, digest.update(heap).digest());
+			assertEquals(heap.limit(), heap.position());
+			ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+			direct.put(data).flip();
+			direct.limit(300);
+			digest.update(data[0]).update(data, 1, 6);
+			digest.update((ByteBuffer) direct.position(7));
+			digest.update((ByteBuffer) direct.limit(1000));
+			assertEquals(1000, direct.position());
+			assertArrayEquals(expected, digest.digest());
+		}
+	}
+
+	@Test
+	public void testDigestFile() throws Exception
+	{
+		File f = tmp.newFile();
+		byte[] data = new byte[5000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		FileOutputStream out = new FileOutputStream(f);
+		out.write(data);
+		out.close();
+		assertArrayEquals(Digests.sha256().digest(data),
+			Digests.digest(f, Algorithm.SHA256));
+		assertArrayEquals(Digests.keccak512().digest(data),
+			Digests.digest(f, Algorithm.KECCAK512));
+		assertArrayEquals(Digests.md4().digest(),
+			Digests.digest(tmp.newFile(), Algorithm.MD4));
+	}
+
+	@Test
+	public void testKeccakMultiBlockUpdates()
+	{
+		byte[] data = new byte[1000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		Digest[] digests = {
+			Digests.keccak224(), Digests.keccak256(),
+			Digests.keccak384(), Digests.keccak512()
+		};
+		for (Digest digest : digests) {
+			byte[] expected = digest.digest(data);
+			digest.update(data[0]);
+			digest.update(data, 1, 300);
+			digest.update(data, 301, 699);
+			assertArrayEquals(expected, digest.digest());
+			for (byte b : data) {
+				digest.update(b);
+			}
+			assertArrayEquals(expected, digest.digest());
+		}
+	}
+
 	@Test
 	public void testConstructor() throws Exception
 	{
@@ -189,6 +529,254 @@ public final class DigestsTest
 		constructor.newInstance();
 	}
 
+	@Test
+	public void testParallelHash()
+	{
+		byte[] x = hex("000102030405060710111213141516172021222324252627");
+		byte[] s = ASCII.encode("Parallel Data");
+		assertArrayEquals(hex("BA8DC1D1D979331D3F813603C67F7260"
+			+ "9AB5E44B94A0B8F9AF46514454A2B4F5"),
+			Digests.parallelHash128(8, new byte[0]).digest(x));
+		assertArrayEquals(hex("FC484DCB3F84DCEEDC353438151BEE58"
+			+ "157D6EFED0445A81F165E495795B7206"),
+			Digests.parallelHash128(8, s).digest(x));
+		assertArrayEquals(hex("BC1EF124DA34495E948EAD207DD98422"
+			+ "35DA432D2BBC54B4C110E64C451105531B7F2A3E0CE055C0"
+			+ "2805E7C2DE1FB746AF97A1DD01F43B824E31B87612410429"),
+			Digests.parallelHash256(8, new byte[0]).digest(x));
+	}
+
+	@Test
+	public void testTreeHash()
+	{
+		byte[] data = new byte[2500];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 7);
+		}
+		Digest leaf = Digests.sha256();
+		Digest root = Digests.sha256().update((byte) 0x01);
+		for (int off = 0; off < data.length; off += 1000) {
+			int len = Math.min(1000, data.length - off);
+			leaf.update((byte) 0x00).update(data, off, len);
+			root.update(leaf.digest());
+		}
+		root.update(BigEndian.encode(3L)).update(BigEndian.encode(1000));
+		Digest tree = Digests.treeHash(Algorithm.SHA256, 1000);
+		assertArrayEquals(root.digest(), tree.digest(data));
+		assertEquals(32, tree.length());
+	}
+
+	@Test
+	public void testParallelTreeHashing()
+	{
+		byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 13);
+		}
+		byte[] s = ASCII.encode("S");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Digest[] sequential = {
+				Digests.treeHash(Algorithm.SHA512, 1024),
+				Digests.parallelHash128(64, s),
+				Digests.parallelHash256(777, s)
+			};
+			Digest[] parallel = {
+				Digests.treeHash(Algorithm.SHA512, 1024, executor),
+				Digests.parallelHash128(64, s, executor),
+				Digests.parallelHash256(777, s, executor)
+			};
+			for (int i = 0; i < sequential.length; i++) {
+				byte[] expected = sequential[i].digest(data);
+				for (int off = 0; off < data.length; off += 3001) {
+					int len = Math.min(3001, data.length - off);
+					parallel[i].update(data, off, len);
+				}
+				Digest copy = parallel[i].copy();
+				assertArrayEquals(expected, parallel[i].digest());
+				assertArrayEquals(expected, copy.digest());
+				assertArrayEquals(expected, parallel[i].digest(data));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testTreeHashWithNullExecutor()
+	{
+		Digests.treeHash(Algorithm.SHA256, 1024, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTreeHashWithInvalidChunkSize()
+	{
+		Digests.treeHash(Algorithm.SHA256, 0);
+	}
+
+	@Test
+	public void testDigestAll()
+	{
+		byte[][] inputs = new byte[20][];
+		byte[] data = new byte[0];
+		int[] offsets = new int[inputs.length];
+		int[] lengths = new int[inputs.length];
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = new byte[i * 37];
+			Arrays.fill(inputs[i], (byte) i);
+			offsets[i] = data.length;
+			lengths[i] = inputs[i].length;
+			data = XArrays.concat(data, inputs[i]);
+		}
+		Digest[] digests = {
+			Digests.md2(), Digests.md4(), Digests.md5(),
+			Digests.sha256(), Digests.keccak256(), Digests.sha3_512(),
+			Digests.shake128(), Digests.treeHash(Algorithm.SHA1, 64)
+		};
+		for (Digest digest : digests) {
+			int n = digest.length();
+			byte[] expected = new byte[3 + inputs.length * n];
+			for (int i = 0; i < inputs.length; i++) {
+				digest.update(inputs[i]).digestInto(expected, 3 + i * n);
+			}
+			byte[] out = new byte[expected.length];
+			digest.update((byte) 42);
+			digest.digestAll(inputs, out, 3);
+			assertArrayEquals(expected, out);
+			out = new byte[expected.length];
+			digest.digestAll(data, offsets, lengths, out, 3);
+			assertArrayEquals(expected, out);
+		}
+		assertArrayEquals(XArrays.concat(Digests.sha1().digest(inputs[0]),
+			Digests.sha1().digest(inputs[1])), Digests.digestAll(
+			Algorithm.SHA1, inputs[0], inputs[1]));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testDigestAllTooSmallBuffer()
+	{
+		Digests.md5().digestAll(new byte[3][4], new byte[47], 0);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testDigestAllInvalidOffsets()
+	{
+		Digests.md5().digestAll(new byte[10], new int[] {0, 8},
+			new int[] {4, 4}, new byte[32], 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDigestAllInvalidLengths()
+	{
+		Digests.md5().digestAll(new byte[10], new int[] {0, 4},
+			new int[] {4}, new byte[32], 0);
+	}
+
+	@Test
+	public void testExportAndImportState()
+	{
+		byte[] data = new byte[1000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 3);
+		}
+		Digest[] digests = {
+			Digests.md2(), Digests.md4(), Digests.keccak256(),
+			Digests.sha3_384(), Digests.shake256(),
+			Digests.treeHash(Algorithm.SHA3_256, 100),
+			Digests.parallelHash128(64, ASCII.encode("S")),
+			Digests.blake2b(), Digests.blake2s(), Digests.blake3()
+		};
+		Digest[] others = {
+			Digests.md2(), Digests.md4(), Digests.keccak256(),
+			Digests.sha3_384(), Digests.shake256(),
+			Digests.treeHash(Algorithm.SHA3_256, 100),
+			Digests.parallelHash128(64, ASCII.encode("S")),
+			Digests.blake2b(), Digests.blake2s(), Digests.blake3()
+		};
+		for (int i = 0; i < digests.length; i++) {
+			byte[] expected = digests[i].digest(data);
+			for (int split : new int[] {0, 1, 99, 100, 517, 1000}) {
+				digests[i].update(data, 0, split);
+				byte[] state = digests[i].exportState();
+				others[i].update(data);
+				others[i].importState(state);
+				others[i].update(data, split, data.length - split);
+				assertArrayEquals(expected, others[i].digest());
+				digests[i].update(data, split, data.length - split);
+				assertArrayEquals(expected, digests[i].digest());
+			}
+		}
+	}
+
+	@Test
+	public void testExportAndImportSqueezingState()
+	{
+		XOF shake = Digests.shake128();
+		byte[] expected = new byte[500];
+		shake.update((byte) 1);
+		shake.squeeze(expected, 0, 500).reset();
+		byte[] out = new byte[500];
+		shake.update((byte) 1);
+		shake.squeeze(out, 0, 200);
+		XOF other = Digests.shake128();
+		other.importState(shake.exportState());
+		other.squeeze(out, 200, 300);
+		assertArrayEquals(expected, out);
+	}
+
+	@Test
+	public void testImportInvalidState()
+	{
+		Digest md4 = Digests.md4().update((byte) 1);
+		byte[] expected = md4.copy().digest();
+		byte[][] states = {
+			Digests.md2().exportState(),
+			Digests.shake128(16).exportState(),
+			Arrays.copyOf(Digests.md4().exportState(), 20),
+			XArrays.concat(Digests.md4().exportState(), new byte[1]),
+			new byte[0]
+		};
+		for (byte[] state : states) {
+			try {
+				md4.importState(state);
+				fail();
+			} catch (IllegalArgumentException ex) {
+				assertArrayEquals(expected, md4.copy().digest());
+			}
+		}
+	}
+
+	@Test
+	public void testImportStateOfAnotherCustomization()
+	{
+		Digest digest = Digests.parallelHash128(64, ASCII.encode("S"));
+		byte[] expected = digest.copy().digest();
+		Digest[] others = {
+			Digests.parallelHash128(64, ASCII.encode("T")),
+			Digests.parallelHash128(64, new byte[0]),
+			Digests.parallelHash128(32, ASCII.encode("S"))
+		};
+		for (Digest other : others) {
+			try {
+				digest.importState(other.update((byte) 1).exportState());
+				fail();
+			} catch (IllegalArgumentException ex) {
+				assertArrayEquals(expected, digest.copy().digest());
+			}
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testExportBuiltInDigestState()
+	{
+		Digests.sha256().exportState();
+	}
+
+	private static byte[] hex(String hex)
+	{
+		return BaseEncoding.BASE_16.decode(hex);
+	}
+
 	private static Input assertThat(String input)
 	{
 		return new Input(input);
@@ -20,6 +20,7 @@ import static org.kocakosm.pitaya.security.Algorithm.*;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
 import org.junit.Assert;
@@ -45,6 +46,15 @@ public final class FactoryTest
 		assertEquals(KECCAK256, Factory.newDigest(KECCAK256));
 		assertEquals(KECCAK384, Factory.newDigest(KECCAK384));
 		assertEquals(KECCAK512, Factory.newDigest(KECCAK512));
+		assertEquals(SHA3_224, Factory.newDigest(SHA3_224));
+		assertEquals(SHA3_256, Factory.newDigest(SHA3_256));
+		assertEquals(SHA3_384, Factory.newDigest(SHA3_384));
+		assertEquals(SHA3_512, Factory.newDigest(SHA3_512));
+		assertEquals(SHAKE128, Factory.newDigest(SHAKE128));
+		assertEquals(SHAKE256, Factory.newDigest(SHAKE256));
+		assertEquals(BLAKE2B_512, Factory.newDigest(BLAKE2B_512));
+		assertEquals(BLAKE2S_256, Factory.newDigest(BLAKE2S_256));
+		assertEquals(BLAKE3, Factory.newDigest(BLAKE3));
 	}
 
 	@Test
@@ -61,6 +71,27 @@ public final class FactoryTest
 		assertEquals(HMAC_KECCAK256, Factory.newMAC(HMAC_KECCAK256, key));
 		assertEquals(HMAC_KECCAK384, Factory.newMAC(HMAC_KECCAK384, key));
 		assertEquals(HMAC_KECCAK512, Factory.newMAC(HMAC_KECCAK512, key));
+		assertEquals(HMAC_SHA3_224, Factory.newMAC(HMAC_SHA3_224, key));
+		assertEquals(HMAC_SHA3_256, Factory.newMAC(HMAC_SHA3_256, key));
+		assertEquals(HMAC_SHA3_384, Factory.newMAC(HMAC_SHA3_384, key));
+		assertEquals(HMAC_SHA3_512, Factory.newMAC(HMAC_SHA3_512, key));
+		assertEquals(HMAC_BLAKE2B_512, Factory.newMAC(HMAC_BLAKE2B_512, key));
+		assertEquals(HMAC_BLAKE2S_256, Factory.newMAC(HMAC_BLAKE2S_256, key));
+	}
+
+	@Test
+	public void testMACsAcceptKeysOfAnyLength() throws Exception
+	{
+		for (Field field : Algorithm.class.getFields()) {
+			Algorithm<?> algorithm = (Algorithm<?>) field.get(null);
+			if (algorithm.toString().startsWith("HMAC")) {
+				for (int n : new int[] {0, 1, 16, 33, 200}) {
+					Factory.newMAC((Algorithm<MAC>) algorithm, new byte[n]);
+				}
+			} else {
+				Factory.newDigest((Algorithm<Digest>) algorithm);
+			}
+		}
 	}
 
 	@Test
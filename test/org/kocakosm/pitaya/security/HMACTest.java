@@ -23,6 +23,7 @@ import org.kocakosm.pitaya.util.BaseEncoding;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -208,6 +209,134 @@ public final class HMACTest
 		);
 	}
 
+	@Test
+	public void testSHA3_224()
+	{
+		MAC hmac = HMAC.sha3_224(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("1b9044e0d5bb4ef944bc00f1b26c483ac3e222f4640"
+				+ "935d089a49083"),
+			hmac.digest(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.sha3_224(ascii("key"));
+		assertArrayEquals(
+			hex("ff6fa8447ce10fb1efdccfe62caf8b640fe46c4fb10"
+				+ "07912bf85100f"),
+			hmac.digest(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testSHA3_256()
+	{
+		MAC hmac = HMAC.sha3_256(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("e841c164e5b4f10c9f3985587962af72fd607a95119"
+				+ "6fc92fb3a5251941784ea"),
+			hmac.digest(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.sha3_256(ascii("key"));
+		assertArrayEquals(
+			hex("8c6e0683409427f8931711b10ca92a506eb1fafa48f"
+				+ "add66d76126f47ac2c333"),
+			hmac.digest(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testSHA3_384()
+	{
+		MAC hmac = HMAC.sha3_384(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("adca89f07bbfbeaf58880c1572379ea2416568fd3b6"
+				+ "6542bd42599c57c4567e6ae086299ea216c6f3e7aef90"
+				+ "b6191d24"),
+			hmac.digest(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.sha3_384(ascii("key"));
+		assertArrayEquals(
+			hex("aa739ad9fcdf9be4a04f06680ade7a1bd1e01a0af64"
+				+ "accb04366234cf9f6934a0f8589772f857681fcde8acc"
+				+ "256091a2"),
+			hmac.digest(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testSHA3_512()
+	{
+		MAC hmac = HMAC.sha3_512(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("cbcf45540782d4bc7387fbbf7d30b3681d6d66cc435"
+				+ "cafd82546b0fce96b367ea79662918436fba442e81a01"
+				+ "d0f9592dfcd30f7a7a8f1475693d30be4150ca84"),
+			hmac.digest(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.sha3_512(ascii("key"));
+		assertArrayEquals(
+			hex("237a35049c40b3ef5ddd960b3dc893d8284953b9a47"
+				+ "56611b1b61bffcf53edd979f93547db714b06ef0a6920"
+				+ "62c609b70208ab8d4a280ceee40ed8100f293063"),
+			hmac.digest(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testBLAKE2b()
+	{
+		MAC hmac = HMAC.blake2b_512(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("198cd2006f66ff83fbbd913f78aca2251caf4f19fe9"
+				+ "475aade8cf2091b99a68466775177424f58286886cbae"
+				+ "8229644cec747237d4b721735485e17372fdf59c"),
+			hmac.digest(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.blake2b_512(ascii("key"));
+		assertArrayEquals(
+			hex("92294f92c0dfb9b00ec9ae8bd94d7e7d8a036b885a4"
+				+ "99f149dfe2fd2199394aaaf6b8894a1730cccb2cd050f"
+				+ "9bcf5062a38b51b0dab33207f8ef35ae2c9df51b"),
+			hmac.digest(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testBLAKE2s()
+	{
+		MAC hmac = HMAC.blake2s_256(ascii(EMPTY_STRING));
+		assertArrayEquals(
+			hex("eaf4bb25938f4d20e72656bbbc7a9bf63c0c18537333"
+				+ "c35bdb67db1402661acd"),
+			hmac.digest(ascii(EMPTY_STRING))
+		);
+		hmac = HMAC.blake2s_256(ascii("key"));
+		assertArrayEquals(
+			hex("f93215bb90d4af4c3061cd932fb169fb8bb8a91d0b40"
+				+ "22baea1271e1323cd9a0"),
+			hmac.digest(ascii(PANGRAM))
+		);
+	}
+
+	@Test
+	public void testReuse()
+	{
+		MAC[] macs = {
+			HMAC.md2(ascii("key")), HMAC.md4(ascii("key")),
+			HMAC.md5(ascii("key")), HMAC.sha256(ascii("key")),
+			HMAC.keccak256(ascii("key")), HMAC.sha3_512(ascii("key"))
+		};
+		for (MAC mac : macs) {
+			byte[] expected = mac.digest(ascii(PANGRAM));
+			assertArrayEquals(expected, mac.digest(ascii(PANGRAM)));
+			mac.update(ascii("garbage")).reset();
+			assertArrayEquals(expected, mac.digest(ascii(PANGRAM)));
+			byte[] out = new byte[mac.length() + 1];
+			mac.update(ascii(PANGRAM)).digestInto(out, 1);
+			assertArrayEquals(expected,
+				Arrays.copyOfRange(out, 1, out.length));
+		}
+	}
+
 	@Test
 	public void testConstructor() throws Exception
 	{
@@ -23,6 +23,9 @@ import org.kocakosm.pitaya.util.BaseEncoding;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
@@ -51,6 +54,38 @@ public final class KDFsTest
 			hex("4B007901B765489ABEAD49D926F721D065A429C1"),
 			pbkdf2.deriveKey(ascii("password"), ascii("salt"))
 		);
+		pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA1, 4096, 25);
+		assertArrayEquals(
+			hex("3D2EEC4FE41C849B80C8D83662C0E44A8B291A964CF2F07038"),
+			pbkdf2.deriveKey(ascii("passwordPASSWORDpassword"),
+				ascii("saltSALTsaltSALTsaltSALTsaltSALTsalt"))
+		);
+	}
+
+	@Test
+	public void testParallelPBKDF2()
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			KDF pbkdf2 = KDFs.pbkdf2(Algorithm.HMAC_SHA256, 1000, 100,
+				executor);
+			assertArrayEquals(
+				hex("632C2812E46D4604102BA7618E9D6D7D2F8128F6266B"
+					+ "4A03264D2A0460B7DCB388B3B1131F741BCBEB02"
+					+ "541C8C2E97BD8BED62AB6425542E45512B7312F4"
+					+ "40EBC6E21F4356A5EDF32CF0394E0D5BE940E0E9"
+					+ "30CFE21E38A3FF94E28D26C23FAC7701AC92"),
+				pbkdf2.deriveKey(ascii("password"), ascii("salt"))
+			);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testParallelPBKDF2WithNullExecutor()
+	{
+		KDFs.pbkdf2(Algorithm.HMAC_SHA1, 4096, 20, null);
 	}
 
 	@Test
@@ -71,6 +106,96 @@ public final class KDFsTest
 			hex("567C46E015DFCC5F2A14096DC1A851E5196C06EF"),
 			scrypt.deriveKey(ascii("password"), ascii("salt"))
 		);
+		scrypt = KDFs.scrypt(1, 16, 1, 64);
+		assertArrayEquals(
+			hex("77D6576238657B203B19CA42C18A0497F16B4844E3074AE8DFDF"
+				+ "FA3FEDE21442FCD0069DED0948F8326A753A0FC81F17"
+				+ "E8D3E0FB2E0D3628CF35E20C38D18906"),
+			scrypt.deriveKey(ascii(""), ascii(""))
+		);
+		scrypt = KDFs.scrypt(8, 1024, 16, 64);
+		assertArrayEquals(
+			hex("FDBABE1C9D3472007856E7190D01E9FE7C6AD7CBC8237830E773"
+				+ "76634B3731622EAF30D92E22A3886FF109279D9830DA"
+				+ "C727AFB94A83EE6D8360CBDFA2CC0640"),
+			scrypt.deriveKey(ascii("password"), ascii("NaCl"))
+		);
+	}
+
+	@Test
+	public void testParallelSCrypt()
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			KDF scrypt = KDFs.scrypt(8, 512, 16, 20, executor);
+			assertArrayEquals(
+				hex("567C46E015DFCC5F2A14096DC1A851E5196C06EF"),
+				scrypt.deriveKey(ascii("password"), ascii("salt"))
+			);
+			scrypt = KDFs.scrypt(8, 1024, 16, 64, executor);
+			assertArrayEquals(
+				KDFs.scrypt(8, 1024, 16, 64).deriveKey(
+					ascii("password"), ascii("NaCl")),
+				scrypt.deriveKey(ascii("password"), ascii("NaCl"))
+			);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testParallelSCryptWithNullExecutor()
+	{
+		KDFs.scrypt(8, 512, 16, 20, null);
+	}
+
+	@Test
+	public void testArgon2id()
+	{
+		byte[] password = new byte[32];
+		byte[] salt = new byte[16];
+		byte[] key = new byte[8];
+		byte[] ad = new byte[12];
+		Arrays.fill(password, (byte) 1);
+		Arrays.fill(salt, (byte) 2);
+		Arrays.fill(key, (byte) 3);
+		Arrays.fill(ad, (byte) 4);
+		KDF argon2 = new Argon2(32, 3, 4, 32, key, ad, null);
+		assertArrayEquals(
+			hex("0D640DF58D78766C08C037A34A8B53C9"
+				+ "D01EF0452D75B65EB52520E96B01E659"),
+			argon2.deriveKey(password, salt)
+		);
+	}
+
+	@Test
+	public void testParallelArgon2id()
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			byte[] password = ascii("password");
+			byte[] salt = ascii("somesalt");
+			KDF argon2 = KDFs.argon2id(1024, 2, 4, 100, executor);
+			assertArrayEquals(
+				KDFs.argon2id(1024, 2, 4, 100).deriveKey(password,
+					salt),
+				argon2.deriveKey(password, salt)
+			);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testArgon2idWithTooFewMemory()
+	{
+		KDFs.argon2id(31, 1, 4, 32);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testParallelArgon2idWithNullExecutor()
+	{
+		KDFs.argon2id(1024, 2, 4, 32, null);
 	}
 
 	@Test
@@ -0,0 +1,169 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.charset.ASCII;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * {@link MACPool}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACPoolTest
+{
+	private static final byte[] KEY = ASCII.encode("key");
+	private static final byte[] DATA = ASCII.encode("Hello World");
+
+	@Test
+	public void testMAC()
+	{
+		MACPool pool = new MACPool(Algorithm.HMAC_SHA256, KEY);
+		byte[] expected = HMAC.sha256(KEY).digest(DATA);
+		assertArrayEquals(expected, pool.mac(DATA));
+		assertArrayEquals(expected, pool.mac(DATA));
+		assertArrayEquals(HMAC.sha256(KEY).digest(DATA, 2, 5),
+			pool.mac(DATA, 2, 5));
+	}
+
+	@Test
+	public void testKeyIsCopied()
+	{
+		byte[] key = KEY.clone();
+		MACPool pool = new MACPool(Algorithm.HMAC_SHA1, key);
+		key[0] = 0;
+		assertArrayEquals(HMAC.sha1(KEY).digest(DATA), pool.mac(DATA));
+	}
+
+	@Test
+	public void testAcquireAndRelease()
+	{
+		MACPool pool = new MACPool(Algorithm.HMAC_SHA3_256, KEY);
+		MAC mac = pool.acquire();
+		assertNotSame(mac, pool.acquire());
+		mac.update(DATA);
+		pool.release(mac);
+		assertSame(mac, pool.acquire());
+		assertArrayEquals(HMAC.sha3_256(KEY).digest(DATA),
+			mac.digest(DATA));
+	}
+
+	@Test
+	public void testConcurrentUse() throws Exception
+	{
+		final MACPool pool = new MACPool(Algorithm.HMAC_SHA512, KEY);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results =
+				new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 16; i++) {
+				final byte[] input = new byte[i * 100];
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call()
+					{
+						byte[] expected = HMAC.sha512(KEY)
+							.digest(input);
+						for (int j = 0; j < 100; j++) {
+							if (!Arrays.equals(expected,
+								pool.mac(input))) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testReleaseForeignEngine()
+	{
+		MACPool pool = new MACPool(Algorithm.HMAC_SHA256, KEY);
+		try {
+			pool.release(HMAC.sha3_256(KEY));
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertArrayEquals(HMAC.sha256(KEY).digest(DATA),
+				pool.mac(DATA));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReleaseEngineOfSameAlgorithm()
+	{
+		new MACPool(Algorithm.HMAC_SHA256, KEY).release(HMAC.sha256(KEY));
+	}
+
+	@Test
+	public void testReleaseEngineOfAnotherPool()
+	{
+		MACPool pool = new MACPool(Algorithm.HMAC_SHA256, KEY);
+		MACPool other = new MACPool(Algorithm.HMAC_SHA256, DATA);
+		try {
+			pool.release(other.acquire());
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertArrayEquals(HMAC.sha256(KEY).digest(DATA),
+				pool.mac(DATA));
+		}
+	}
+
+	@Test
+	public void testReleaseTwice()
+	{
+		MACPool pool = new MACPool(Algorithm.HMAC_SHA256, KEY);
+		MAC mac = pool.acquire();
+		pool.release(mac);
+		try {
+			pool.release(mac);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertSame(mac, pool.acquire());
+			assertNotSame(mac, pool.acquire());
+		}
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullAlgorithm()
+	{
+		new MACPool(null, KEY);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullKey()
+	{
+		new MACPool(Algorithm.HMAC_MD5, (byte[]) null);
+	}
+}
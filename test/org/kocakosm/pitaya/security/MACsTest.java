@@ -0,0 +1,135 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import org.kocakosm.pitaya.charset.ASCII;
+import org.kocakosm.pitaya.util.BaseEncoding;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * {@link MACs}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class MACsTest
+{
+	private static final String PANGRAM;
+	static {
+		PANGRAM = "The quick brown fox jumps over the lazy dog";
+	}
+
+	@Test
+	public void testBLAKE2b()
+	{
+		MAC mac = MACs.blake2b(64, ascii("key"));
+		assertArrayEquals(
+			hex("66f642208454bf2e066dac9eab68fae0146bb544c1d"
+				+ "46e1f427008f068a45d872cd0c1fc23e7ba82a95d084a"
+				+ "adf5e4af9edaf761fb6ced9e485a28c59a3f714c"),
+			mac.digest(ascii(PANGRAM))
+		);
+		assertEquals(64, mac.length());
+		assertEquals("Keyed-BLAKE2b-512", mac.toString());
+	}
+
+	@Test
+	public void testBLAKE2s()
+	{
+		MAC mac = MACs.blake2s(32, ascii("key"));
+		assertArrayEquals(
+			hex("eec94d00b8c9d214636adfad587bc9c75f271d7a64d9"
+				+ "639ef2e959f94da468e6"),
+			mac.digest(ascii(PANGRAM))
+		);
+		assertEquals(32, mac.length());
+		assertEquals("Keyed-BLAKE2s-256", mac.toString());
+	}
+
+	@Test
+	public void testBLAKE3()
+	{
+		MAC mac = MACs.blake3(ascii("whats the Elvish word for friend"));
+		byte[] data = new byte[3073];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 251);
+		}
+		assertArrayEquals(
+			hex("68dede9bef00ba89e43f31a6825f4cf433389fedae75"
+				+ "c04ee9f0cf16a427c95a"),
+			mac.digest(data)
+		);
+		assertEquals("Keyed-BLAKE3", mac.toString());
+	}
+
+	@Test
+	public void testReuse()
+	{
+		MAC mac = MACs.blake2b(32, ascii("key"));
+		byte[] expected = mac.digest(ascii(PANGRAM));
+		mac.update(ascii("garbage")).reset();
+		assertArrayEquals(expected, mac.digest(ascii(PANGRAM)));
+		byte[] out = new byte[40];
+		mac.update(ascii(PANGRAM)).digestInto(out, 8);
+		assertArrayEquals(expected, Arrays.copyOfRange(out, 8, 40));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBLAKE2bWithEmptyKey()
+	{
+		MACs.blake2b(64, new byte[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBLAKE2sWithTooLongKey()
+	{
+		MACs.blake2s(32, new byte[33]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBLAKE3WithInvalidKey()
+	{
+		MACs.blake3(new byte[16]);
+	}
+
+	@Test
+	public void testConstructor() throws Exception
+	{
+		Class<MACs> c = MACs.class;
+		assertEquals(1, c.getDeclaredConstructors().length);
+		Constructor<MACs> constructor = c.getDeclaredConstructor();
+		assertTrue(Modifier.isPrivate(constructor.getModifiers()));
+		constructor.setAccessible(true);
+		constructor.newInstance();
+	}
+
+	private byte[] hex(String hex)
+	{
+		return BaseEncoding.BASE_16.decode(hex);
+	}
+
+	private byte[] ascii(String str)
+	{
+		return ASCII.encode(str);
+	}
+}
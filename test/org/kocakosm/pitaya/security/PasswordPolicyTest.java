@@ -0,0 +1,128 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link PasswordPolicy}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class PasswordPolicyTest
+{
+	@Test
+	public void testDefault()
+	{
+		PasswordPolicy policy = PasswordPolicy.DEFAULT;
+		assertEquals(8, policy.r());
+		assertEquals(1 << 14, policy.n());
+		assertEquals(1, policy.p());
+		assertEquals(16 * 1024 * 1024, policy.memory());
+		assertTrue(policy.accepts(8, 1 << 14, 1));
+		assertFalse(policy.accepts(8, 1 << 13, 1));
+		assertFalse(policy.accepts(8, 1 << 15, 1));
+	}
+
+	@Test
+	public void testWindow()
+	{
+		PasswordPolicy policy = new PasswordPolicy(8, 1 << 15, 2)
+			.withMinimum(8, 1 << 14, 1).withMaximum(16, 1 << 16, 4);
+		assertTrue(policy.isTarget(8, 1 << 15, 2));
+		assertFalse(policy.isTarget(8, 1 << 14, 1));
+		assertTrue(policy.accepts(8, 1 << 14, 1));
+		assertTrue(policy.accepts(16, 1 << 16, 4));
+		assertFalse(policy.accepts(4, 1 << 15, 2));
+		assertFalse(policy.accepts(8, 1 << 17, 2));
+		assertFalse(policy.accepts(8, 1 << 15, 5));
+	}
+
+	@Test
+	public void testCalibrate()
+	{
+		PasswordPolicy policy = PasswordPolicy.calibrate(0,
+			TimeUnit.MILLISECONDS, 1 << 30);
+		assertEquals(PasswordPolicy.DEFAULT.r(), policy.r());
+		assertEquals(PasswordPolicy.DEFAULT.n(), policy.n());
+		assertEquals(PasswordPolicy.DEFAULT.p(), policy.p());
+
+		policy = PasswordPolicy.calibrate(1, TimeUnit.MINUTES, 1 << 25);
+		assertEquals(8, policy.r());
+		assertEquals(1 << 15, policy.n());
+		assertTrue(policy.p() >= 1);
+		assertTrue(policy.memory() <= 1 << 25);
+		assertTrue(policy.accepts(8, 1 << 14, 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCalibrateWithTooLittleMemory()
+	{
+		PasswordPolicy.calibrate(1, TimeUnit.SECONDS, 1 << 20);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidN()
+	{
+		new PasswordPolicy(8, 1000, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidR()
+	{
+		new PasswordPolicy(256, 1 << 14, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMinimum()
+	{
+		PasswordPolicy.DEFAULT.withMinimum(8, 1 << 15, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaximum()
+	{
+		PasswordPolicy.DEFAULT.withMaximum(8, 1 << 13, 1);
+	}
+
+	@Test
+	public void testEqualsAndHashCode()
+	{
+		PasswordPolicy p1 = new PasswordPolicy(8, 1 << 14, 1);
+		PasswordPolicy p2 = new PasswordPolicy(8, 1 << 14, 1);
+		PasswordPolicy p3 = p1.withMaximum(8, 1 << 15, 1);
+		assertEquals(p1, p1);
+		assertEquals(p1, p2);
+		assertEquals(p1.hashCode(), p2.hashCode());
+		assertEquals(PasswordPolicy.DEFAULT, p1);
+		assertNotEquals(p1, p3);
+		assertNotEquals(p1, null);
+		assertNotEquals(p1, "p1");
+	}
+
+	@Test
+	public void testToString()
+	{
+		assertEquals("PasswordPolicy (r=8, n=16384, p=1, min=8/16384/1, "
+			+ "max=8/16384/1)", PasswordPolicy.DEFAULT.toString());
+	}
+}
@@ -0,0 +1,118 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link PasswordService}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class PasswordServiceTest
+{
+	@Test
+	public void testHashAndVerify() throws Exception
+	{
+		PasswordService service = new PasswordService(2, 4);
+		char[] password = "password".toCharArray();
+		byte[] hash = service.hash(password).get();
+		assertTrue(Passwords.verify(password, hash));
+		assertTrue(service.verify(password, hash).get());
+		assertFalse(service.verify("Password".toCharArray(), hash).get());
+		assertFalse(service.verify(password, new byte[0]).get());
+		assertEquals(4, service.completed());
+		assertEquals(0, service.rejected());
+		assertEquals(0, service.queueDepth());
+		assertTrue(service.maxLatency(TimeUnit.NANOSECONDS) > 0);
+		assertTrue(service.averageLatency(TimeUnit.NANOSECONDS) > 0);
+		assertTrue(service.averageLatency(TimeUnit.NANOSECONDS)
+			<= service.maxLatency(TimeUnit.NANOSECONDS));
+		service.shutdown();
+	}
+
+	@Test
+	public void testPasswordIsCopied() throws Exception
+	{
+		PasswordService service = new PasswordService(1, 0);
+		char[] password = "password".toCharArray();
+		Future<byte[]> hash = service.hash(password);
+		password[0] = 'P';
+		assertTrue(Passwords.verify("password".toCharArray(), hash.get()));
+		service.shutdown();
+	}
+
+	@Test
+	public void testRejectWhenSaturated() throws Exception
+	{
+		PasswordService service = new PasswordService(1, 1);
+		char[] password = "password".toCharArray();
+		Future<byte[]> h1 = service.hash(password);
+		Future<byte[]> h2 = service.hash(password);
+		try {
+			service.hash(password);
+			fail();
+		} catch (RejectedExecutionException ex) {
+			assertEquals(1, service.rejected());
+		}
+		h2.get();
+		assertTrue(service.verify(password, h1.get(), 1, TimeUnit.MINUTES)
+			.get());
+		service.shutdown();
+	}
+
+	@Test
+	public void testBackpressure() throws Exception
+	{
+		PasswordService service = new PasswordService(1, 0);
+		char[] password = "password".toCharArray();
+		Future<byte[]> h1 = service.hash(password);
+		Future<byte[]> h2 = service.hash(password, 1, TimeUnit.MINUTES);
+		assertTrue(h1.isDone());
+		assertTrue(Passwords.verify(password, h2.get()));
+		assertEquals(0, service.rejected());
+		service.shutdown();
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void testShutdown()
+	{
+		PasswordService service = new PasswordService(1, 1);
+		service.shutdown();
+		assertTrue(service.isShutdown());
+		service.hash("password".toCharArray());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidThreads()
+	{
+		new PasswordService(0, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaxQueued()
+	{
+		new PasswordService(1, -1);
+	}
+}
@@ -56,6 +56,47 @@ public final class PasswordsTest
 		assertFalse(Passwords.verify("Password".toCharArray(), new byte[0]));
 	}
 
+	@Test
+	public void testPolicy()
+	{
+		char[] password = "password".toCharArray();
+		PasswordPolicy policy = new PasswordPolicy(8, 1 << 15, 1)
+			.withMinimum(8, 1 << 14, 1);
+		byte[] oldHash = Passwords.hash(password);
+		byte[] newHash = Passwords.hash(password, policy);
+		assertTrue(Passwords.verify(password, oldHash, policy));
+		assertTrue(Passwords.verify(password, newHash, policy));
+		assertFalse(Passwords.verify(password, newHash));
+		assertFalse(Passwords.verify("Password".toCharArray(), newHash,
+			policy));
+		assertTrue(Passwords.needsRehash(oldHash, policy));
+		assertFalse(Passwords.needsRehash(newHash, policy));
+		assertFalse(Passwords.needsRehash(oldHash, PasswordPolicy.DEFAULT));
+		assertTrue(Passwords.needsRehash(new byte[0], policy));
+	}
+
+	@Test
+	public void testCorruptedParameters()
+	{
+		char[] password = "password".toCharArray();
+		byte[] hash = Passwords.hash(password);
+		hash[hash.length - 3] += 32;
+		assertFalse(Passwords.verify(password, hash));
+		assertTrue(Passwords.needsRehash(hash, PasswordPolicy.DEFAULT));
+	}
+
+	@Test
+	public void testInvalidSCryptParameters()
+	{
+		char[] password = "password".toCharArray();
+		PasswordPolicy policy = PasswordPolicy.DEFAULT
+			.withMinimum(1, 1 << 10, 1).withMaximum(8, 1 << 16, 1);
+		byte[] hash = Passwords.hash(password, policy);
+		hash[hash.length - 3] = 16;
+		hash[hash.length - 2] = 1;
+		assertFalse(Passwords.verify(password, hash, policy));
+	}
+
 	@Test
 	public void testConstructor() throws Exception
 	{
@@ -0,0 +1,137 @@
+/*----------------------------------------------------------------------------*
+ * This file is part of Pitaya.                                               *
+ * Copyright (C) 2012-2016 Osman KOCAK <kocakosm@gmail.com>                   *
+ *                                                                            *
+ * This program is free software: you can redistribute it and/or modify it    *
+ * under the terms of the GNU Lesser General Public License as published by   *
+ * the Free Software Foundation, either version 3 of the License, or (at your *
+ * option) any later version.                                                 *
+ * This program is distributed in the hope that it will be useful, but        *
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY *
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public     *
+ * License for more details.                                                  *
+ * You should have received a copy of the GNU Lesser General Public License   *
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.       *
+ *----------------------------------------------------------------------------*/
+
+
+package org.kocakosm.pitaya.security;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link VerificationCache}'s unit tests.
+ *
+ * @author Osman KOCAK
+ */
+public final class VerificationCacheTest
+{
+	private static final char[] PASSWORD = "password".toCharArray();
+	private static final byte[] HASH = Passwords.hash(PASSWORD);
+
+	@Test
+	public void testHitAndMiss()
+	{
+		VerificationCache cache = new VerificationCache(10, 1,
+			TimeUnit.MINUTES);
+		assertTrue(cache.verify(PASSWORD, HASH));
+		assertEquals(0, cache.hits());
+		assertEquals(1, cache.misses());
+		assertTrue(cache.verify(PASSWORD, HASH));
+		assertTrue(cache.verify("password".toCharArray(), HASH.clone()));
+		assertEquals(2, cache.hits());
+		assertEquals(1, cache.misses());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testFailuresAreNotCached()
+	{
+		VerificationCache cache = new VerificationCache(10, 1,
+			TimeUnit.MINUTES);
+		char[] password = "Password".toCharArray();
+		assertFalse(cache.verify(password, HASH));
+		assertFalse(cache.verify(password, HASH));
+		assertFalse(cache.verify(PASSWORD, new byte[0]));
+		assertEquals(0, cache.hits());
+		assertEquals(3, cache.misses());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testCachedPasswordDoesNotMatchOtherHash()
+	{
+		VerificationCache cache = new VerificationCache(10, 1,
+			TimeUnit.MINUTES);
+		byte[] other = Passwords.hash("other".toCharArray());
+		assertTrue(cache.verify(PASSWORD, HASH));
+		assertFalse(cache.verify(PASSWORD, other));
+		assertEquals(0, cache.hits());
+	}
+
+	@Test
+	public void testTTL() throws Exception
+	{
+		VerificationCache cache = new VerificationCache(10, 1,
+			TimeUnit.MILLISECONDS);
+		assertTrue(cache.verify(PASSWORD, HASH));
+		Thread.sleep(10);
+		assertEquals(0, cache.size());
+		assertTrue(cache.verify(PASSWORD, HASH));
+		assertEquals(0, cache.hits());
+		assertEquals(2, cache.misses());
+	}
+
+	@Test
+	public void testMaxSize()
+	{
+		VerificationCache cache = new VerificationCache(1, 1,
+			TimeUnit.MINUTES);
+		char[] other = "other".toCharArray();
+		byte[] hash = Passwords.hash(other);
+		assertTrue(cache.verify(PASSWORD, HASH));
+		assertTrue(cache.verify(other, hash));
+		assertEquals(1, cache.size());
+		assertTrue(cache.verify(other, hash));
+		assertTrue(cache.verify(PASSWORD, HASH));
+		assertEquals(1, cache.hits());
+		assertEquals(3, cache.misses());
+	}
+
+	@Test
+	public void testClear()
+	{
+		VerificationCache cache = new VerificationCache(10, 1,
+			TimeUnit.MINUTES);
+		assertTrue(cache.verify(PASSWORD, HASH));
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertTrue(cache.verify(PASSWORD, HASH));
+		assertEquals(2, cache.misses());
+	}
+
+	@Test
+	public void testToString()
+	{
+		VerificationCache cache = new VerificationCache(10, 1,
+			TimeUnit.MINUTES);
+		assertEquals("VerificationCache [size=0, hits=0, misses=0]",
+			cache.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize()
+	{
+		new VerificationCache(-1, 1, TimeUnit.MINUTES);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeTTL()
+	{
+		new VerificationCache(1, -1, TimeUnit.MINUTES);
+	}
+}